@@ -3,9 +3,11 @@ package jpabook.jpashop.Controller;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.item.Book;
-import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.DataVersions;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.catalog.ItemCatalog;
+import jpabook.jpashop.view.FragmentCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
@@ -14,8 +16,10 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
 import javax.persistence.Id;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
-import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Controller
@@ -23,6 +27,9 @@ import java.util.List;
 public class ItemController {
 
     private final ItemService itemService;
+    private final ItemCatalog itemCatalog;
+    private final DataVersions dataVersions;
+    private final FragmentCache fragmentCache;
 
     @GetMapping("/items/new")
     public String createForm(Model model) {
@@ -74,13 +81,16 @@ public class ItemController {
     /**
      * 상품 목록 조회
      *
+     * OSIV 가 꺼져 있으므로 화면에 필요한 값만 dto 로 조회해서 넘긴다.
+     * 상품 행은 상품 데이터 버전이 같으면 렌더링해 둔 것을 그대로 쓴다. (FragmentCache, 조회도 하지 않는다.)
+     *
      * @param model
      * @return
      */
     @GetMapping("/items")
-    public String list(Model model) {
-        List<Item> items = itemService.findItems();
-        model.addAttribute("items", items);
+    public String list(Model model, HttpServletRequest request, HttpServletResponse response) {
+        model.addAttribute("itemRows", fragmentCache.get("items/itemList", "itemRows", dataVersions.items(), request, response,
+                () -> Map.of("items", itemCatalog.iterateAll()))); // 힙 밖 상품 카탈로그 (DB 조회 x)
         return "items/itemList";
     }
 
@@ -124,23 +134,18 @@ public class ItemController {
          *
          */
 
-        // 준영속 상태 엔티티 -> 객체는 분명 새로 만들었지만, id(pk) 가 이미 세팅되어 있다. -> 영속성 컨텍스트에서 관리 되었다가 분리된 상태다.
-        Book book = new Book();
+        // 준영속 상태 엔티티(id 를 세팅한 new Book)를 merge 하면 select 후 모든 컬럼을 update 한다. (categories 같은 필드도 덮어씀)
+        // 게다가 @Version 이 null 인 엔티티는 새 엔티티로 판단해서 insert 해버린다.
+        // -> merge 대신 변경 감지(ItemService.updateItem)로 수정한다. (@DynamicUpdate 로 바뀐 컬럼만 update)
+        Book param = new Book(); // 수정할 값을 넘기는 용도 (영속화 x)
 
-        book.setId(form.getId());
-        // 그런데 분명... 위에서 new 로 Book 을 생성한 후
-        // .setId 를 해주는게 어째서 id 가 이미 세팅되어 있다는 것인지?
-        // 이 상황에서는 수정을 위해 html form에 데이터를 노출한 이후에 다시 new로 재조립된 엔티티이다.
-        // -> 식별자를 기준으로 이미 한 번 영속상태가 되어 버린 인티티지만,
-        // 더 이상 영속성 컨텍스트가 관리하지 않는 준영속 상태
+        param.setName(form.getName());
+        param.setPrice(form.getPrice());
+        param.setStockQuantity(form.getStockQuantity());
+        param.setAuthor(form.getAuthor());
+        param.setIsbn(form.getIsbn());
 
-        book.setName(form.getName());
-        book.setPrice(form.getPrice());
-        book.setStockQuantity(form.getStockQuantity());
-        book.setAuthor(form.getAuthor());
-        book.setIsbn(form.getIsbn());
-
-        itemService.saveItem(book);
+        itemService.updateItem(itemId, param);
 
         return "redirect:/items";
     }
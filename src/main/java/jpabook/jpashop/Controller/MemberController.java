@@ -2,7 +2,10 @@ package jpabook.jpashop.Controller;
 
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.view.ViewQueryRepository;
+import jpabook.jpashop.service.DataVersions;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.view.FragmentCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
@@ -12,8 +15,10 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
-import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Controller
@@ -21,6 +26,9 @@ import java.util.List;
 public class MemberController {
 
     private final MemberService memberService;
+    private final ViewQueryRepository viewQueryRepository;
+    private final DataVersions dataVersions;
+    private final FragmentCache fragmentCache;
 
     /**
      * 회원 가입 폼
@@ -71,15 +79,18 @@ public class MemberController {
 
     /**
      * 회원 전체 조회
+     *
+     * OSIV 가 꺼져 있으므로 화면에 필요한 값만 dto 로 조회해서 넘긴다.
+     * 회원 행은 회원 데이터 버전이 같으면 렌더링해 둔 것을 그대로 쓴다. (FragmentCache, 조회도 하지 않는다.)
      * @param model
      * @return
      */
     @GetMapping("/members")
-    public String list(Model model) {
+    public String list(Model model, HttpServletRequest request, HttpServletResponse response) {
 
-        List<Member> members = memberService.findMembers();
-        model.addAttribute("members", members);
+        model.addAttribute("memberRows", fragmentCache.get("members/memberList", "memberRows", dataVersions.members(), request, response,
+                () -> Map.of("members", viewQueryRepository.findMemberList())));
 
-        return "/members/memberList";
+        return "members/memberList";
     }
 }
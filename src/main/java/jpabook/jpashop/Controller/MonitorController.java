@@ -0,0 +1,16 @@
+package jpabook.jpashop.Controller;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+
+@Controller
+public class MonitorController {
+
+    /**
+     * 주문 지표 화면 (값은 화면에서 /api/monitor/orders 를 1초마다 조회)
+     */
+    @GetMapping("/monitor/orders")
+    public String orderMetrics() {
+        return "orderMetrics"; // orderMetrics.html 랜더링
+    }
+}
@@ -1,41 +1,52 @@
 package jpabook.jpashop.Controller;
 
-import jpabook.jpashop.domain.Member;
-import jpabook.jpashop.domain.Order;
-import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.OrderStateConflictException;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.service.ItemService;
-import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.repository.view.OrderListQueryDto;
+import jpabook.jpashop.repository.view.ViewQueryRepository;
+import jpabook.jpashop.service.DataVersions;
 import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.catalog.ItemCatalog;
+import jpabook.jpashop.view.FragmentCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequiredArgsConstructor
 public class OrderController {
 
     private final OrderService orderService;
-    private final MemberService memberService;
-    private final ItemService itemService;
+    private final ViewQueryRepository viewQueryRepository;
+    private final ItemCatalog itemCatalog;
+    private final DataVersions dataVersions;
+    private final FragmentCache fragmentCache;
 
     /**
      * 주문 페이지로 이동
      *
+     * 회원, 상품 선택 목록은 각 데이터 버전이 같으면 렌더링해 둔 것을 그대로 쓴다. (FragmentCache)
+     *
      * @param model
      * @return
      */
     @GetMapping("/order")
-    public String createForm(Model model) {
-
-        List<Member> members = memberService.findMembers();
-        List<Item> items = itemService.findItems();
+    public String createForm(Model model, HttpServletRequest request, HttpServletResponse response) {
 
-        model.addAttribute("members", members);
-        model.addAttribute("items", items);
+        // 화면 렌더링 중 지연 로딩이 일어나지 않도록 id, 이름만 dto 로 조회
+        model.addAttribute("memberOptions", fragmentCache.get("order/orderForm", "memberOptions", dataVersions.members(), request, response,
+                () -> Map.of("members", viewQueryRepository.findMemberList())));
+        model.addAttribute("itemOptions", fragmentCache.get("order/orderForm", "itemOptions", dataVersions.items(), request, response,
+                () -> Map.of("items", itemCatalog.iterateAll()))); // 힙 밖 상품 카탈로그 (DB 조회 x)
 
         return "order/orderForm";
     }
@@ -43,6 +54,8 @@ public class OrderController {
     /**
      * 주문 생성
      *
+     * 재고 부족, 동시 수정 충돌(api 에서는 409)은 에러 페이지 대신 주문 폼으로 돌아가서 메시지를 보여준다.
+     *
      * @param memberId
      * @param itemId
      * @param count
@@ -51,15 +64,26 @@ public class OrderController {
     @PostMapping("/order")
     public String order(@RequestParam("memberId") Long memberId,
                         @RequestParam("itemId") Long itemId,
-                        @RequestParam("count") int count) {
+                        @RequestParam("count") int count,
+                        RedirectAttributes redirectAttributes) {
 
-        orderService.order(memberId, itemId, count);
+        try {
+            orderService.order(memberId, itemId, count);
+        } catch (NotEnoughStockException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "재고가 부족합니다.");
+            return "redirect:/order";
+        } catch (ConcurrencyFailureException | OrderStateConflictException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "다른 주문과 동시에 처리되어 주문하지 못했습니다. 다시 시도해 주세요.");
+            return "redirect:/order";
+        }
         return "redirect:/orders";
     }
 
     /**
      * 전체 조회
      *
+     * 회원명, 대표상품을 화면에서 지연 로딩하지 않고 쿼리 2번으로 미리 조회한다.
+     *
      * @param orderSearch
      * @param model
      * @return
@@ -67,7 +91,7 @@ public class OrderController {
     @GetMapping("/orders")
     public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model) {
 
-        List<Order> orders = orderService.findOrders(orderSearch);
+        List<OrderListQueryDto> orders = viewQueryRepository.findOrderList(orderSearch);
         model.addAttribute("orders", orders);
 
         return "order/orderList";
@@ -80,8 +104,14 @@ public class OrderController {
      * @return
      */
     @PostMapping("/orders/{orderId}/cancel")
-    public String cancelOrder(@PathVariable("orderId") Long orderId) {
-        orderService.cancelOrder(orderId);
+    public String cancelOrder(@PathVariable("orderId") Long orderId, RedirectAttributes redirectAttributes) {
+        try {
+            orderService.cancelOrder(orderId);
+        } catch (OrderStateConflictException e) { // 이미 취소된 주문 등
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        } catch (ConcurrencyFailureException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "다른 요청과 동시에 처리되어 취소하지 못했습니다. 다시 시도해 주세요.");
+        }
         return "redirect:/orders";
     }
 }
@@ -2,12 +2,15 @@ package jpabook.jpashop;
 
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.member.MemberStatsRepository;
+import jpabook.jpashop.repository.order.readmodel.OrderViewRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import java.util.List;
 
 /**
  * 총 주문 2개 생성되어야 함
@@ -40,6 +43,8 @@ public class InitDb {
     static class InitService {
 
         private final EntityManager em;
+        private final OrderViewRepository orderViewRepository; // 서비스를 거치지 않으므로 조회 모델을 직접 만든다.
+        private final MemberStatsRepository memberStatsRepository; // 회원 집계도 마찬가지
 
 
         /**
@@ -73,6 +78,8 @@ public class InitDb {
 
             // 주문 영속화
            em.persist(order);
+           orderViewRepository.refresh(List.of(order.getId()));
+           memberStatsRepository.addOrder(member.getId(), order.getTotalPrice(), order.getOrderDate());
         }
 
         /**
@@ -107,6 +114,8 @@ public class InitDb {
 
             // 주문 영속화
             em.persist(order);
+            orderViewRepository.refresh(List.of(order.getId()));
+            memberStatsRepository.addOrder(member.getId(), order.getTotalPrice(), order.getOrderDate());
         }
 
 
@@ -114,6 +123,7 @@ public class InitDb {
         private Delivery createDelivery(Member member) {
             Delivery delivery = new Delivery();
             delivery.setAddress(member.getAddress());
+            delivery.setStatus(DeliveryStatus.READY);
             return delivery;
         }
 
@@ -1,11 +1,18 @@
 package jpabook.jpashop;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication // 이 어노테이션이 있으면, 스프링 부트가 구동될 때 이 패키지 하위의 모든 패키지에 어노테이션을 읽어 스프링 빈으로 등록해준다.
+@EnableScheduling // 아웃박스 릴레이(OutboxRelay) 등 주기 작업
 public class JpashopApplication {
 
 	public static void main(String[] args) {
@@ -17,4 +24,20 @@ public class JpashopApplication {
 		return new Hibernate5Module();
 	}
 
+	/**
+	 * 바이너리 응답/요청 (Accept, Content-Type: application/x-jackson-smile, application/cbor)
+	 *
+	 * 스프링 부트가 설정한 빌더(등록된 모듈, 날짜 형식 등)로 만들어서 json 과 같은 dto 를 같은 모양으로 직렬화한다.
+	 * (빌더 빈은 프로토타입이라 factory 를 바꿔도 json ObjectMapper 에는 영향이 없다.)
+	 */
+	@Bean
+	MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+	}
+
+	@Bean
+	MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+	}
+
 }
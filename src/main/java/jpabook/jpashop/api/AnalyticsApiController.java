@@ -0,0 +1,55 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.service.analytics.AnalyticsResult;
+import jpabook.jpashop.service.analytics.OrderAnalyticsService;
+import jpabook.jpashop.service.analytics.SnapshotInfo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+/**
+ * 주문 분석 (컬럼 스냅샷 기준, DB 를 조회하지 않는다.)
+ *
+ * from, to 는 주문일 (yyyy-MM-dd, 둘 다 포함, 생략 가능)
+ */
+@RestController
+@RequiredArgsConstructor
+public class AnalyticsApiController {
+
+    private final OrderAnalyticsService orderAnalyticsService;
+
+    /**
+     * 스냅샷 바로 내보내기 (기본은 jpashop.analytics.export-interval-ms 마다)
+     */
+    @PostMapping("/api/analytics/snapshot")
+    public SnapshotInfo export() {
+        return orderAnalyticsService.export();
+    }
+
+    @GetMapping("/api/analytics/revenue-by-city")
+    public AnalyticsResult revenueByCity(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return orderAnalyticsService.revenueByCity(from, to);
+    }
+
+    @GetMapping("/api/analytics/order-status")
+    public AnalyticsResult orderStatus(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return orderAnalyticsService.statusBreakdown(from, to);
+    }
+
+    @GetMapping("/api/analytics/item-mix")
+    public AnalyticsResult itemMix(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return orderAnalyticsService.itemMix(from, to, limit);
+    }
+}
@@ -0,0 +1,55 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.exception.OrderStateConflictException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.OptimisticLockException;
+
+/**
+ * api 컨트롤러 공통 예외 처리
+ */
+@RestControllerAdvice(basePackages = "jpabook.jpashop.api")
+public class ApiExceptionHandler {
+
+    /**
+     * 동시 수정 충돌 -> 409
+     * 부분 수정(PATCH)의 버전 불일치, 변경 감지로 수정하다 커밋 시점에 버전이 바뀐 경우 (낙관적 락)
+     * 주문 취소/배송 완료 중 상태가 바뀐 경우, 주문 로우 락을 기다리다 시간이 초과된 경우 (비관적 락)
+     */
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler({OptimisticLockException.class, ObjectOptimisticLockingFailureException.class,
+            OrderStateConflictException.class, PessimisticLockingFailureException.class})
+    public ErrorResult conflict(RuntimeException e) {
+        return new ErrorResult("CONFLICT", e.getMessage());
+    }
+
+    /**
+     * 잘못된 요청 값 -> 400 (CSV 헤더 누락 등)
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ErrorResult badRequest(IllegalArgumentException e) {
+        return new ErrorResult("BAD_REQUEST", e.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ErrorResult notFound(EntityNotFoundException e) {
+        return new ErrorResult("NOT_FOUND", e.getMessage());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ErrorResult {
+        private String code;
+        private String message;
+    }
+}
@@ -0,0 +1,127 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.view.ItemListQueryDto;
+import jpabook.jpashop.service.ItemImportResult;
+import jpabook.jpashop.service.ItemImportService;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.bestseller.BestSeller;
+import jpabook.jpashop.service.bestseller.BestSellerTracker;
+import jpabook.jpashop.service.bestseller.BestSellerWindow;
+import jpabook.jpashop.service.catalog.ItemCatalog;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+
+    private final ItemService itemService;
+    private final ItemImportService itemImportService;
+    private final BestSellerTracker bestSellerTracker;
+    private final ItemCatalog itemCatalog;
+
+    /**
+     * 상품 목록 (키셋 페이징, 힙 밖 상품 카탈로그에서 조회 -> DB 조회 x)
+     * 다음 페이지는 nextAfterId 를 afterId 로 넘긴다.
+     */
+    @GetMapping("/api/v2/items/catalog")
+    public KeysetPage<ItemListQueryDto> catalogV2(@RequestParam(value = "afterId", required = false) Long afterId,
+                                                  @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return itemCatalog.findPage(afterId, limit);
+    }
+
+    @GetMapping("/api/v2/items/catalog/{id}")
+    public ItemListQueryDto catalogItemV2(@PathVariable("id") Long id) {
+        ItemListQueryDto item = itemCatalog.findOne(id);
+        if (item == null) {
+            throw new EntityNotFoundException("존재하지 않는 상품입니다. id=" + id);
+        }
+        return item;
+    }
+
+    /**
+     * 상품 부분 수정
+     *
+     * 요청에 포함된 값의 컬럼만 update 쿼리 한 번으로 수정한다.
+     * (가격, 재고처럼 자주 바뀌는 값을 수정할 때 select + 전체 컬럼 update 를 하지 않는다.)
+     *
+     * 조회했던 version 을 함께 보내야 하고, 그 사이 다른 곳에서 수정했다면 409 (ApiExceptionHandler)
+     */
+    @PatchMapping("/api/v2/items/{id}")
+    public PatchItemResponse patchItemV2(@PathVariable("id") Long id, @RequestBody @Valid PatchItemRequest request) {
+
+        Long version = itemService.patchItem(id, request.getVersion(),
+                request.getName(), request.getPrice(), request.getStockQuantity());
+
+        return new PatchItemResponse(id, version);
+    }
+
+    /**
+     * 상품 카탈로그 CSV 가져오기
+     *
+     * 요청 바디를 @RequestBody 로 받지 않고 스트림으로 읽어서 1000행 단위로 등록/수정한다. (ItemImportService 참고)
+     * -> 파일 전체를 메모리에 올리지 않는다.
+     *
+     * curl -X POST -H 'Content-Type: text/csv' --data-binary @items.csv localhost:8080/api/items/import
+     */
+    @PostMapping(value = "/api/items/import", consumes = "text/csv")
+    public ItemImportResult importItems(HttpServletRequest request) throws IOException {
+        return itemImportService.importCsv(request.getInputStream());
+    }
+
+    /**
+     * 베스트셀러 (window: hour, day)
+     * 메모리에서 집계한 대략값을 바로 돌려준다. (DB 조회 x, BestSellerTracker 참고)
+     */
+    @GetMapping("/api/v2/items/best-sellers")
+    public List<BestSeller> bestSellersV2(@RequestParam(value = "window", defaultValue = "hour") String window,
+                                         @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return bestSellerTracker.findTop(BestSellerWindow.of(window), limit);
+    }
+
+    // ----------------------------------------------------------------------------
+
+    /**
+     * null 인 필드는 수정하지 않는다.
+     */
+    @Data
+    static class PatchItemRequest {
+
+        @NotNull
+        private Long version;
+
+        @Size(min = 1)
+        private String name;
+
+        @PositiveOrZero
+        private Integer price;
+
+        @PositiveOrZero
+        private Integer stockQuantity;
+
+        @AssertTrue(message = "수정할 값이 없습니다.")
+        public boolean isChanged() {
+            return name != null || price != null || stockQuantity != null;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class PatchItemResponse {
+        private Long id;
+        private Long version;
+    }
+}
@@ -1,15 +1,28 @@
 package jpabook.jpashop.api;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.member.MemberSummaryDto;
+import jpabook.jpashop.service.MemberImportResult;
+import jpabook.jpashop.service.MemberImportRowResult;
+import jpabook.jpashop.service.MemberImportService;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -17,7 +30,11 @@ import java.util.stream.Collectors;
 @RestController // @Controller + @ResponseBody
 public class MemberApiController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final MemberService memberService;
+    private final MemberImportService memberImportService;
+    private final ObjectMapper objectMapper;
 
 
     // 엔티티를 그대로 사용한 멤버 조회
@@ -81,6 +98,40 @@ public class MemberApiController {
         return new CreateMemberResponse(id);
     }
 
+    /**
+     * 회원 일괄 등록 (온보딩 이관용)
+     *
+     * 요청, 응답 모두 ndjson 이다. 요청을 한 줄씩 읽어서 1000줄마다 등록하고, 그 청크의 행별 결과를 바로 내려보낸다.
+     * 마지막 줄은 전체 결과(MemberImportResult)다. (MemberImportService 참고)
+     *
+     * curl -X POST -H 'Content-Type: application/x-ndjson' --data-binary @members.ndjson localhost:8080/api/members/bulk
+     */
+    @PostMapping(value = "/api/members/bulk", consumes = NDJSON)
+    public void importMembers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+
+        MemberImportResult result = memberImportService.importNdjson(request.getInputStream(), rows -> {
+            try {
+                for (MemberImportRowResult row : rows) {
+                    writeLine(out, row);
+                }
+                out.flush(); // 청크마다 클라이언트에게 보낸다.
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // 클라이언트 연결 끊김 -> 중단 (앞의 청크는 등록된 상태)
+            }
+        });
+
+        writeLine(out, result);
+        out.flush();
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+
     /**
      * 회원 이름 수정
      * @param id
@@ -98,6 +149,38 @@ public class MemberApiController {
         return new UpdateMemberResponse(findMember.getId(), findMember.getName());
     }
 
+    /**
+     * 회원 주문 요약 (주문 수, 누적 구매 금액, 마지막 주문일)
+     */
+    @GetMapping("/api/v2/members/{id}/summary")
+    public MemberSummaryDto memberSummaryV2(@PathVariable("id") Long id) {
+        return memberService.findSummary(id);
+    }
+
+    /**
+     * 우수 고객 목록
+     * sort: spend(누적 구매 금액, 기본), orders(주문 수), recent(마지막 주문일)
+     */
+    @GetMapping("/api/v2/members/top")
+    public List<MemberSummaryDto> topCustomersV2(@RequestParam(value = "sort", defaultValue = "spend") String sort,
+                                                @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return memberService.findTopCustomers(sort, limit);
+    }
+
+    /**
+     * 회원 부분 수정
+     * 요청에 포함된 값의 컬럼만 update 쿼리 한 번으로 수정한다.
+     * 조회했던 version 을 함께 보내야 하고, 그 사이 다른 곳에서 수정했다면 409 (ApiExceptionHandler)
+     */
+    @PatchMapping("/api/v2/members/{id}")
+    public PatchMemberResponse patchMemberV2(@PathVariable("id") Long id, @RequestBody @Valid PatchMemberRequest request) {
+
+        Long version = memberService.patch(id, request.getVersion(), request.getName(),
+                request.getCity(), request.getStreet(), request.getZipcode());
+
+        return new PatchMemberResponse(id, version);
+    }
+
 
 
     // ----------------------------------------------------------------------------
@@ -130,6 +213,35 @@ public class MemberApiController {
         private String name;
     }
 
+    /**
+     * null 인 필드는 수정하지 않는다.
+     */
+    @Data
+    static class PatchMemberRequest {
+
+        @NotNull
+        private Long version;
+
+        @Size(min = 1)
+        private String name;
+
+        private String city;
+        private String street;
+        private String zipcode;
+
+        @AssertTrue(message = "수정할 값이 없습니다.")
+        public boolean isChanged() {
+            return name != null || city != null || street != null || zipcode != null;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class PatchMemberResponse {
+        private Long id;
+        private Long version;
+    }
+
     // ** generic raw type
     // json 배열 타입으로 반환하는 것은 유지보수성에 좋지 않기 때문에
     // 제네릭으로 배열을 Object(json 타입)로 한 번 감싸서 리턴
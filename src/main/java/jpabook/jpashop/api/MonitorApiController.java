@@ -0,0 +1,57 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.monitor.ConnectionProfiler;
+import jpabook.jpashop.monitor.OrderMetrics;
+import jpabook.jpashop.service.catalog.ItemCatalog;
+import jpabook.jpashop.view.FragmentCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+public class MonitorApiController {
+
+    private final ConnectionProfiler connectionProfiler;
+    private final OrderMetrics orderMetrics;
+    private final ItemCatalog itemCatalog;
+    private final FragmentCache fragmentCache;
+
+    /**
+     * 라우트별, 트랜잭션별 커넥션 획득 대기/점유/JDBC 시간 히스토그램
+     */
+    @GetMapping("/api/monitor/connections")
+    public ConnectionProfiler.Report connections() {
+        return connectionProfiler.report();
+    }
+
+    /**
+     * 초당 주문, 취소, 매출, 재고 부족 (초/분/시간 단위 시계열, 화면: /monitor/orders)
+     */
+    @GetMapping("/api/monitor/orders")
+    public OrderMetrics.Report orders() {
+        return orderMetrics.report();
+    }
+
+    /**
+     * 힙 밖 상품 카탈로그 적재 상태 (상품 수, 힙 밖 메모리, 마지막 전체 적재 시각)
+     */
+    @GetMapping("/api/monitor/catalog")
+    public ItemCatalog.Stats catalog() {
+        return itemCatalog.stats();
+    }
+
+    /**
+     * 화면 조각 캐시 (저장된 조각 수, 압축된 크기, 적중/실패/제거 횟수)
+     */
+    @GetMapping("/api/monitor/fragments")
+    public FragmentCache.Stats fragments() {
+        return fragmentCache.stats();
+    }
+
+    @PostMapping("/api/monitor/connections/reset")
+    public void resetConnections() {
+        connectionProfiler.reset();
+    }
+}
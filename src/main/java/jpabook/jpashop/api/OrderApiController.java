@@ -1,21 +1,40 @@
 package jpabook.jpashop.api;
 
-import jpabook.jpashop.domain.Address;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jpabook.jpashop.domain.Order;
-import jpabook.jpashop.domain.OrderItem;
-import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.KeysetPage;
 import jpabook.jpashop.repository.OrderRepository;
-import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.projection.OrderProjection;
+import jpabook.jpashop.repository.order.projection.OrderProjectionRepository;
+import jpabook.jpashop.repository.order.projection.ProjectedOrder;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.stream.OrderStreamRepository;
+import jpabook.jpashop.service.BatchResult;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.dispatch.DispatchPlanResult;
+import jpabook.jpashop.service.dispatch.DispatchPlanner;
+import jpabook.jpashop.service.query.OrderDto;
+import jpabook.jpashop.service.query.OrderQueryService;
+import jpabook.jpashop.service.query.OrderViewCheckResult;
+import jpabook.jpashop.service.query.OrderViewService;
+import lombok.AllArgsConstructor;
 import lombok.Data;
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.LocalDateTime;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,6 +44,13 @@ public class OrderApiController {
 
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderQueryService orderQueryService; // OSIV off -> 지연 로딩이 필요한 조회는 트랜잭션 안에서 처리
+    private final OrderStreamRepository orderStreamRepository;
+    private final ObjectMapper objectMapper;
+    private final OrderService orderService;
+    private final OrderViewService orderViewService;
+    private final OrderProjectionRepository orderProjectionRepository;
+    private final DispatchPlanner dispatchPlanner;
 
     /**
      * API 개발 고급 - 컬렉션 조회 최적화
@@ -33,23 +59,14 @@ public class OrderApiController {
      * >> 엔티티가 변하면 API 스팩이 변한다.
      * >> 트랜잭션 안에서 지연 로딩 필요
      * >> 양방향 연관관계 문제 발생
+     *
+     * OSIV 가 꺼져 있으므로 강제 초기화는 OrderQueryService 의 트랜잭션 안에서 한다.
      */
     @GetMapping("/api/v1/orders")
     public List<Order> ordersV1() {
 
-        // 회원이 주문한 주문을 모두 조회해온다.
-        List<Order> all = orderRepository.findAll(new OrderSearch());
-
-        // 조회해 온 주문을 루프를 돌려 강제 초기화한다. -> 필드를 터치한다.
-        for (Order order : all) {
-            order.getMember().getName();
-            order.getDelivery().getAddress();
-
-            List<OrderItem> orderItems = order.getOrderItems(); // 여기서 문제!
-            orderItems.stream().forEach(o -> o.getItem().getName());  // 가져온 orderItem 의 이름도 초기화
-        }
-
-        return all;
+        // 회원이 주문한 주문을 모두 조회해온 후, 루프를 돌려 강제 초기화한다. -> 필드를 터치한다.
+        return orderQueryService.findOrdersInitialized();
     }
 
     /**
@@ -69,14 +86,8 @@ public class OrderApiController {
      */
     @GetMapping("api/v2/orders")
     public List<OrderDto> orderV2() {
-        List<Order> orders = orderRepository.findAll(new OrderSearch());
-
-        List<OrderDto> result = orders.stream()
-                .map(o -> new OrderDto(o))
-                .collect(Collectors.toList());
-
-        return result;
-
+        // 지연 로딩 + dto 변환은 트랜잭션 안에서
+        return orderQueryService.findOrders();
     }
 
     /**
@@ -110,14 +121,32 @@ public class OrderApiController {
         // Order와 Member, Delivery 패치조인
         // ~ToOne 관계는 패치조인으로 한 번에 조회해 오기. -> 페이징에 영향을 주지 않는다.
         // (Order - Member, Order - Delivery 는 ~ToOne 관계)
-        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
-
-        List<OrderDto> result = orders.stream()
-                .map(o -> new OrderDto(o))
-                .collect(Collectors.toList());
+        // 컬렉션(orderItems)은 지연 로딩 + default_batch_fetch_size 로 조회하므로 트랜잭션 안에서 dto 변환
+        return orderQueryService.findOrders(offset, limit);
+    }
 
-        return result;
+    /**
+     * 컬렉션 패치 조인 + 키셋 페이징 (2단계)
+     *
+     * v3.1 처럼 ~ToOne 만 페치 조인하는 대신 주문 id 페이지를 먼저 정하고,
+     * 그 id 들만 컬렉션까지 페치 조인한다. (메모리 페이징 없음, 쿼리 2번)
+     * 다음 페이지는 응답의 nextAfterId 를 afterId 로 넘긴다.
+     */
+    @GetMapping("api/v3.2/orders")
+    public KeysetPage<OrderDto> orderV3_keyset(@RequestParam(value = "afterId", required = false) Long afterId,
+                                              @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return orderQueryService.findOrderPage(afterId, limit);
+    }
 
+    /**
+     * v3, v5 + fields= 필드 선택 (예: ?fields=orderId,orderStatus,totalPrice)
+     *
+     * 고른 필드에 필요한 컬럼, 조인만 조회하고 json 에도 고른 필드만 내려준다.
+     * 고를 수 있는 필드: orderId, name, orderDate, orderStatus, address, totalPrice, orderItems (OrderField 참고)
+     */
+    @GetMapping(value = {"api/v3/orders", "api/v5/orders"}, params = "fields")
+    public List<ProjectedOrder> ordersWithFields(@RequestParam("fields") String fields) {
+        return orderProjectionRepository.findOrders(OrderProjection.of(fields)); // 잘못된 필드 -> 400
     }
 
     @GetMapping("api/v4/orders")
@@ -130,48 +159,151 @@ public class OrderApiController {
         return orderQueryRepository.findAllByDto_optimization();
     }
 
-    @Data
-    static class OrderDto {
-
-        private Long orderId;
-        private String name;
-        private LocalDateTime orderDate;
-        private OrderStatus orderStatus;
-        private Address address;
-        private List<OrderItemDto> orderItems; // 이 OrderItem (dto 안에 엔티티죠?) 도 dto로 바꿔야 한다!!!!
-
-        public OrderDto(Order order) {
-            orderId = order.getId();
-            name = order.getMember().getName();
-            orderDate = order.getOrderDate();
-            orderStatus = order.getStatus();
-            address = order.getDelivery().getAddress();
-            orderItems = order.getOrderItems().stream()
-                    .map(orderItem -> new OrderItemDto(orderItem))
-                    .collect(Collectors.toList());
+    /**
+     * v5.1 JDBC -> JSON 스트리밍 (응답 모양은 v5 와 같다)
+     *
+     * dto 리스트를 만들지 않고 SQL 결과를 한 로우씩 바로 응답 스트림에 쓴다.
+     * 쿼리 1번 (주문 + 회원 + 배송 + 주문상품 + 상품 조인)
+     */
+    @GetMapping("api/v5.1/orders")
+    public void ordersV5_1(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            orderStreamRepository.writeOrders(generator);
         }
     }
 
     /**
-     * dto 안의 엔티티도 dto로 바꿔준다.
+     * v6 주문 조회 모델(order_view) 조회 (응답 모양은 v5 와 같다)
      *
-     * 고객은 사실상 아이템 이름과, 아이템 가격, 주문 수량만 있으면 된다.
+     * 주문 등록, 취소, 회원/상품 이름 변경 시 같은 트랜잭션에서 갱신해 둔 테이블 하나만 읽는다.
+     * 키셋 페이징 쿼리 2번, 조인 없음 (다음 페이지는 응답의 nextAfterId 를 afterId 로 넘긴다.)
+     */
+    @GetMapping("api/v6/orders")
+    public KeysetPage<OrderQueryDto> ordersV6(@RequestParam(value = "afterId", required = false) Long afterId,
+                                              @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return orderViewService.findOrderPage(afterId, limit);
+    }
+
+    /**
+     * 주문 조회 모델 재생성 (스키마 변경, 불일치 복구)
+     */
+    @PostMapping("/api/v6/orders/view/rebuild")
+    public RebuildOrderViewResponse rebuildOrderView() {
+        return new RebuildOrderViewResponse(orderViewService.rebuild());
+    }
+
+    /**
+     * 주문 조회 모델 정합성 검사
+     */
+    @GetMapping("/api/v6/orders/view/check")
+    public OrderViewCheckResult checkOrderView() {
+        return orderViewService.check(false);
+    }
+
+    /**
+     * 주문 조회 모델 정합성 검사 + 찾은 주문 다시 만들기
+     */
+    @PostMapping("/api/v6/orders/view/repair")
+    public OrderViewCheckResult repairOrderView() {
+        return orderViewService.check(true);
+    }
+
+    /**
+     * 주문 일괄 취소 (대량 취소: 부정 주문 정리, 이벤트 취소 등)
      *
-     * 외부 응답값은 OrderItem 에서 OrderItemDto로 래핑해서 나가기 때문에
-     * OrderItem 엔티티의 내부 값은 볼 수 없게되고, 의존성이 낮아져 유지보수에 편리하다.
+     * 주문마다 조회 + 더티 체킹을 하지 않고, 검증 쿼리 1번 + 벌크 update 로 처리한다.
+     * 취소할 수 없는 주문은 사유와 함께 skipped 로 내려준다.
      */
-    @Getter
-    static class OrderItemDto {
+    @PostMapping("/api/orders/cancel-batch")
+    public CancelBatchResponse cancelBatch(@RequestBody @Valid CancelBatchRequest request) {
+        BatchResult result = orderService.cancelOrders(request.getOrderIds());
+        return new CancelBatchResponse(result.getProcessed(), result.getSkipped());
+    }
 
-        private String itemName;
-        private int orderPrice;
-        private int count;
+    @Data
+    static class CancelBatchRequest {
 
-        public OrderItemDto(OrderItem orderItem) {
-            itemName = orderItem.getItem().getName();
-            orderPrice = orderItem.getOrderPrice();
-            count = orderItem.getCount();
+        @NotEmpty
+        private List<Long> orderIds;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CancelBatchResponse {
+        private List<Long> canceled;
+        private List<BatchResult.Skipped> skipped;
+    }
+
+    /**
+     * 배송 일괄 완료 (출고 웨이브 단위)
+     *
+     * 주문 id(orderIds) 또는 배송 id(deliveryIds) 중 하나로 요청한다.
+     * 검증 쿼리 1번 + 벌크 update 1번(1000건 단위)으로 처리하고, 완료할 수 없는 건은 사유와 함께 skipped 로 내려준다.
+     */
+    @PostMapping("/api/deliveries/complete-batch")
+    public CompleteDeliveryBatchResponse completeDeliveryBatch(@RequestBody CompleteDeliveryBatchRequest request) {
+        boolean byOrder = request.getOrderIds() != null && !request.getOrderIds().isEmpty();
+        boolean byDelivery = request.getDeliveryIds() != null && !request.getDeliveryIds().isEmpty();
+        if (byOrder == byDelivery) {
+            throw new IllegalArgumentException("orderIds 와 deliveryIds 중 하나만 보내야 합니다.");
         }
+
+        BatchResult result = byOrder
+                ? orderService.completeDeliveriesByOrderIds(request.getOrderIds())
+                : orderService.completeDeliveries(request.getDeliveryIds());
+        return new CompleteDeliveryBatchResponse(result.getProcessed(), result.getSkipped());
+    }
+
+    /**
+     * 출고 계획 (ndjson 스트리밍)
+     *
+     * 출고 대기 배송을 우편번호 + 도시별 묶음(최대 batchSize 개)으로 한 줄씩 내려주고, 마지막 줄에 전체 결과를 내려준다.
+     * 대기 배송이 많아도 메모리에 전부 올리지 않는다. (DispatchPlanner 참고)
+     */
+    @GetMapping(value = "/api/deliveries/dispatch-plan", produces = "application/x-ndjson")
+    public void dispatchPlan(@RequestParam(value = "batchSize", defaultValue = "50") int batchSize,
+                             HttpServletResponse response) throws IOException {
+        if (batchSize < 1 || batchSize > DispatchPlanner.MAX_BATCH_SIZE) { // 응답을 쓰기 전에 검증 (400)
+            throw new IllegalArgumentException("batchSize 는 1 ~ " + DispatchPlanner.MAX_BATCH_SIZE + " 사이여야 합니다. batchSize=" + batchSize);
+        }
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+
+        DispatchPlanResult result = dispatchPlanner.plan(batchSize, batch -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(batch));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // 클라이언트 연결 끊김 -> 중단
+            }
+        });
+
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write('\n');
+        out.flush();
+    }
+
+    @Data
+    static class CompleteDeliveryBatchRequest {
+        private List<Long> orderIds;
+        private List<Long> deliveryIds;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CompleteDeliveryBatchResponse {
+        private List<Long> completed;
+        private List<BatchResult.Skipped> skipped;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class RebuildOrderViewResponse {
+        private int rebuilt;
     }
 
 }
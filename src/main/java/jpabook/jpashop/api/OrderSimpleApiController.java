@@ -1,18 +1,21 @@
 package jpabook.jpashop.api;
 
-import jpabook.jpashop.domain.Address;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jpabook.jpashop.domain.Order;
-import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.repository.OrderRepository;
-import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
-import lombok.Data;
+import jpabook.jpashop.repository.order.stream.OrderStreamRepository;
+import jpabook.jpashop.service.query.OrderQueryService;
+import jpabook.jpashop.service.query.SimpleOrderDto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.LocalDateTime;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -29,11 +32,15 @@ public class OrderSimpleApiController {
 
     private final OrderRepository orderRepository;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderQueryService orderQueryService; // OSIV off -> 지연 로딩이 필요한 조회는 트랜잭션 안에서 처리
+    private final OrderStreamRepository orderStreamRepository;
+    private final ObjectMapper objectMapper;
 
     // 테스트를 위해 Order 엔티티 그대로 api에서 받음 -> 실무에서는 절대 이렇게 하지 말기!!!!!
     @GetMapping("/api/v1/simple-orders")
     public List<Order> ordersV1() {
-        List<Order> all = orderRepository.findAll(new OrderSearch()); // 모든 주문 전부 다 조회
+        // 모든 주문 전부 다 조회
+        // OSIV 가 꺼져 있으므로 아래의 Lazy 강제 초기화는 OrderQueryService 의 트랜잭션 안에서 한다.
         // 현재 Order 엔티티를 보자.
         // Order 엔티티 안에 member 필드가 @ManyToOne
         // delivery 필드가 @OneToOne 으로 되어있음.
@@ -93,12 +100,9 @@ public class OrderSimpleApiController {
 
 
         // 또는 Lazy 강제 초기화를 통해 원하는 필드를 가져올 수 있다.
-        for (Order order : all) {
-            order.getMember().getName();
-            // order.getMember() 여기까지는 프록시 객체!!
-            // .getName() 호출하면 DB에서 진짜 Member를 가져온다!!! -> Lazy 강제 초기화!
-            order.getDelivery().getAddress();
-        }
+        // order.getMember() 여기까지는 프록시 객체!!
+        // .getName() 호출하면 DB에서 진짜 Member를 가져온다!!! -> Lazy 강제 초기화!
+        List<Order> all = orderQueryService.findSimpleOrdersInitialized();
 
         // 왜 에러가 나는지만 알아갈 것!!!
         // 가장 아래 해결방법은 알아만 두자.
@@ -119,13 +123,8 @@ public class OrderSimpleApiController {
 
         // ORDER 2개
         // N + 1 -> 1 + 회원 + 배송 N
-        List<Order> orders = orderRepository.findAll(new OrderSearch());
-
-        List<SimpleOrderDto> result = orders.stream()
-                .map(o -> new SimpleOrderDto(o)) // order 를 SimpleOrderDto로 변환
-                .collect(Collectors.toList()); // SimpleOrderDto로 변환한 것을 collect 사용해서 list로 변환
-
-        return result;
+        // 지연 로딩 + dto 변환은 트랜잭션 안에서
+        return orderQueryService.findSimpleOrders();
 
     }
 
@@ -202,6 +201,21 @@ public class OrderSimpleApiController {
         return orderSimpleQueryRepository.findOrderDtos();
     }
 
+    /**
+     * v4.1 JDBC -> JSON 스트리밍 (응답 모양은 v4 와 같다)
+     *
+     * v4 는 JPQL -> OrderSimpleQueryDto 리스트 -> 잭슨 순서로 결과를 여러 번 복사하지만,
+     * v4.1 은 SQL 결과를 한 로우씩 바로 응답 스트림에 쓴다.
+     */
+    @GetMapping("api/v4.1/simple-orders")
+    public void orderV4_1(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            orderStreamRepository.writeSimpleOrders(generator);
+        }
+    }
+
 /*
     select
     order0_.order_id as col_0_0_,
@@ -241,24 +255,4 @@ public class OrderSimpleApiController {
 
 */
 
-    @Data
-    static class SimpleOrderDto {
-        private Long orderId;
-        private String name;
-        private LocalDateTime orderDate;
-        private OrderStatus orderStatus;
-        private Address address;
-
-        // 생성자에서 바로 데이터 세팅
-        public SimpleOrderDto(Order order) {
-            orderId = order.getId();
-            name = order.getMember().getName(); // 위에서 orders.stream 할 떄 LAZY 초기화 일어남
-            orderDate = order.getOrderDate();
-            orderStatus = order.getStatus();
-            address = order.getDelivery().getAddress(); // 위에서 orders.stream 할 떄 LAZY 초기화 일어남
-        }
-    }
-
-
-
 }
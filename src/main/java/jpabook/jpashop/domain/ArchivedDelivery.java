@@ -0,0 +1,40 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+
+/**
+ * 보관된 배송 (delivery_archive, ArchivedOrder 참고)
+ */
+@Entity
+@Getter
+@Immutable
+@Table(name = "delivery_archive")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedDelivery {
+
+    @Id
+    @Column(name = "delivery_id")
+    private Long id;
+
+    @Embedded
+    private Address address;
+
+    @Enumerated(EnumType.STRING)
+    private DeliveryStatus status;
+
+    /**
+     * 읽기 전용 배송으로 복원
+     */
+    public Delivery restore() {
+        Delivery delivery = new Delivery();
+        delivery.setId(id);
+        delivery.setAddress(address);
+        delivery.setStatus(status);
+        return delivery;
+    }
+}
@@ -0,0 +1,47 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 보관된 주문 (orders_archive)
+ *
+ * 오래된 주문, 취소 후 유예 기간이 지난 주문은 OrderArchiver 가 orders -> orders_archive 로 옮긴다.
+ * 운영 테이블(orders, order_item, delivery)을 작게 유지해서 목록 조회가 지난 이력을 읽지 않도록 한다.
+ *
+ * 보관 테이블은 SQL 로만 채우므로(insert ... select) 연관관계 없이 id 컬럼만 둔다.
+ * 조회는 OrderRepository.findOne -> OrderArchiveRepository 로 Order 를 복원해서 돌려준다.
+ */
+@Entity
+@Getter
+@Immutable // 보관된 주문은 수정하지 않는다.
+@Table(name = "orders_archive")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedOrder {
+
+    @Id
+    @Column(name = "order_id")
+    private Long id;
+
+    private Long memberId;
+    private Long deliveryId;
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private LocalDateTime archivedAt; // 보관 시간
+
+    /**
+     * 읽기 전용 주문으로 복원
+     */
+    public Order restore(Member member, Delivery delivery, List<OrderItem> orderItems) {
+        return Order.restoreArchived(id, member, delivery, orderDate, status, orderItems);
+    }
+}
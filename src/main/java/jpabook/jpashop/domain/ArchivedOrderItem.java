@@ -0,0 +1,42 @@
+package jpabook.jpashop.domain;
+
+import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+
+/**
+ * 보관된 주문상품 (order_item_archive, ArchivedOrder 참고)
+ */
+@Entity
+@Getter
+@Immutable
+@Table(name = "order_item_archive",
+        indexes = @Index(name = "idx_order_item_archive_order_id", columnList = "orderId")) // 주문으로 조회
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedOrderItem {
+
+    @Id
+    @Column(name = "order_item_id")
+    private Long id;
+
+    private Long orderId;
+    private Long itemId;
+    private int orderPrice;
+    private int count;
+
+    /**
+     * 읽기 전용 주문상품으로 복원 (재고 변경 x)
+     */
+    public OrderItem restore(Item item) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setId(id);
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+        return orderItem;
+    }
+}
@@ -0,0 +1,53 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 베스트셀러 스냅샷 (best_seller_snapshot)
+ *
+ * 베스트셀러는 메모리에서만 집계하므로(BestSellerTracker) 주기적으로 윈도우별 상위 상품을 저장해 두고,
+ * 서버를 다시 시작하면 이 값으로 윈도우를 채운다.
+ */
+@Entity
+@Getter
+@Table(name = "best_seller_snapshot")
+@NamedQueries({ // 애플리케이션 시작 시 파싱, 검증 (NamedQueryWarmer)
+        @NamedQuery(name = "BestSellerSnapshot.deleteAll",
+                query = "delete from BestSellerSnapshot"),
+        @NamedQuery(name = "BestSellerSnapshot.findAll",
+                query = "select s from BestSellerSnapshot s order by s.window, s.ranking")
+})
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class BestSellerSnapshot {
+
+    @Id
+    @GeneratedValue
+    @Column(name = "best_seller_snapshot_id")
+    private Long id;
+
+    @Column(name = "window_name") // window 는 예약어
+    private String window; // BestSellerWindow 이름
+
+    private int ranking;
+    private Long itemId;
+    private String itemName;
+    private long quantity;
+    private LocalDateTime snapshotAt;
+
+    public static BestSellerSnapshot create(String window, int ranking, Long itemId, String itemName,
+                                            long quantity, LocalDateTime snapshotAt) {
+        BestSellerSnapshot snapshot = new BestSellerSnapshot();
+        snapshot.window = window;
+        snapshot.ranking = ranking;
+        snapshot.itemId = itemId;
+        snapshot.itemName = itemName;
+        snapshot.quantity = quantity;
+        snapshot.snapshotAt = snapshotAt;
+        return snapshot;
+    }
+}
@@ -1,6 +1,5 @@
 package jpabook.jpashop.domain;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -9,15 +8,38 @@ import javax.persistence.*;
 @Entity
 @Getter
 @Setter
+@Table(indexes = @Index(name = "idx_delivery_status_zipcode", columnList = "status, zipcode")) // 출고 계획 (READY 배송을 우편번호 순으로 스캔)
+@NamedQueries({ // 애플리케이션 시작 시 파싱, 검증 (NamedQueryWarmer)
+        @NamedQuery(name = "Delivery.completeAll", // 배송 일괄 완료 (취소된 주문의 배송은 제외)
+                query = "update Delivery d set d.status = :comp" +
+                        " where d.id in :deliveryIds" +
+                        " and (d.status is null or d.status <> :comp)" +
+                        " and not exists (select o.id from Order o where o.delivery = d and o.status = :cancel)"),
+        @NamedQuery(name = "Delivery.findReadyAfter", // 출고 계획 키셋 스캔 (우편번호, 배송 id 순)
+                query = "select new jpabook.jpashop.repository.order.query.DispatchDeliveryQueryDto(d.id, o.id, d.address.city, d.address.zipcode)" +
+                        " from Order o join o.delivery d" +
+                        " where d.status = :ready and o.status = :order" +
+                        " and (d.address.zipcode > :zipcode or (d.address.zipcode = :zipcode and d.id > :afterId))" +
+                        " order by d.address.zipcode, d.id"),
+        @NamedQuery(name = "Delivery.countReadyWithoutZipcode",
+                query = "select count(d) from Order o join o.delivery d" +
+                        " where d.status = :ready and o.status = :order and d.address.zipcode is null")
+})
 public class Delivery {
 
     @Id @GeneratedValue
     @Column(name = "delivery_id")
     private Long id;
 
-    @OneToOne(mappedBy = "delivery", fetch = FetchType.LAZY) // 지연 로딩 설정 (디폴트)
-    @JsonIgnore // 양방향 연관관계에서는 한 쪽을 jsonIgnore 해줘야 한다!!!! 안하면 무한루프에 빠짐.
-    private Order order;
+    /**
+     * 배송 -> 주문 방향의 연관관계(@OneToOne(mappedBy = "delivery"))는 두지 않는다. (주문 -> 배송 단방향)
+     *
+     * 일대일 연관관계의 주인이 아닌 쪽은 프록시를 만들 수 없다.
+     * (delivery 테이블에는 FK 가 없으므로 주문이 있는지 없는지를 조회해보기 전에는 알 수 없다. -> null 이냐 프록시냐)
+     * 따라서 LAZY 로 설정해도 배송을 조회할 때마다 주문을 찾는 쿼리가 한 번씩 더 나간다. (N + 1)
+     *
+     * 배송으로 주문을 찾아야 할 때는 OrderRepository.findByDeliveryId 로 조회한다.
+     */
 
     @Embedded // 임베디드 타입, DB에 테이블 생성 x
     private Address address;
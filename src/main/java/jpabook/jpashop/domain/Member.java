@@ -3,6 +3,7 @@ package jpabook.jpashop.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -12,6 +13,11 @@ import java.util.List;
 @Entity
 @Getter
 @Setter
+@DynamicUpdate // 변경 감지로 update 할 때 변경된 컬럼만 update 쿼리에 포함
+@NamedQueries({ // 애플리케이션 시작 시 파싱, 검증 (NamedQueryWarmer)
+        @NamedQuery(name = "Member.findAll", query = "select m from Member m order by m.id"),
+        @NamedQuery(name = "Member.findByName", query = "select m from Member m where m.name = :name")
+})
 public class Member {
 
     @Id // 엔티티 식별자
@@ -25,6 +31,9 @@ public class Member {
     @Embedded // 값 타입의 임베디드 타입 사용
     private Address address;
 
+    @Version // 낙관적 락 버전 (수정될 때마다 1씩 증가)
+    private Long version;
+
     /**
      * 1:N 관계에서는 FK가 N 테이블에 있으므로
      * 주인은 FK가 있는 N 테이블이 된다.
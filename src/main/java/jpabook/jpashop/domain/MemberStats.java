@@ -0,0 +1,67 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 회원별 주문 집계 (member_stats)
+ *
+ * 주문 수, 누적 구매 금액, 마지막 주문일을 member.orders 컬렉션이나 orders group by 로 매번 계산하지 않고
+ * 주문/취소 트랜잭션에서 delta update(컬럼 = 컬럼 + ?)로 함께 갱신한다. (MemberStatsRepository 참고)
+ * - 주문: OrderService.order
+ * - 취소: OrderService.cancelOrder, cancelOrders
+ *
+ * 회원 테이블과 나눈 이유: 회원에는 @Version 이 있어서 주문마다 회원 로우를 수정하면 회원 정보 수정(PATCH)이 낙관적 락에 걸린다.
+ * 주문을 보관 테이블로 옮겨도(OrderArchiver) 집계는 그대로 남는다.
+ * 샤딩 시 회원, 주문과 같은 샤드에 있다.
+ */
+@Entity
+@Getter
+@Table(name = "member_stats", indexes = {
+        @Index(name = "idx_member_stats_lifetime_spend", columnList = "lifetimeSpend"), // 우수 고객 정렬
+        @Index(name = "idx_member_stats_order_count", columnList = "orderCount"),
+        @Index(name = "idx_member_stats_last_order_date", columnList = "lastOrderDate")
+})
+@NamedQueries({ // 애플리케이션 시작 시 파싱, 검증 (NamedQueryWarmer)
+        @NamedQuery(name = "MemberStats.addOrder",
+                query = "update MemberStats s set s.orderCount = s.orderCount + 1, s.lifetimeSpend = s.lifetimeSpend + :amount," +
+                        " s.lastOrderDate = case when s.lastOrderDate is null or s.lastOrderDate < :orderDate" +
+                        " then :orderDate else s.lastOrderDate end" +
+                        " where s.memberId = :memberId"),
+        @NamedQuery(name = "MemberStats.removeOrders",
+                query = "update MemberStats s set s.orderCount = s.orderCount - :count, s.lifetimeSpend = s.lifetimeSpend - :amount" +
+                        " where s.memberId = :memberId"),
+        @NamedQuery(name = "MemberStats.findSummary", // 주문이 없는 회원은 집계 로우가 없을 수 있다.
+                query = "select new jpabook.jpashop.repository.member.MemberSummaryDto(m.id, m.name," +
+                        " coalesce(s.orderCount, 0), coalesce(s.lifetimeSpend, 0), s.lastOrderDate)" +
+                        " from Member m left join MemberStats s on s.memberId = m.id where m.id = :memberId")
+})
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberStats {
+
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+
+    private int orderCount; // 취소되지 않은 주문 수
+    private long lifetimeSpend; // 취소되지 않은 주문의 금액 합계
+    private LocalDateTime lastOrderDate; // 마지막 주문일 (취소해도 되돌리지 않는다.)
+
+    public static MemberStats create(Long memberId) {
+        MemberStats stats = new MemberStats();
+        stats.memberId = memberId;
+        return stats;
+    }
+
+    public static MemberStats firstOrder(Long memberId, long amount, LocalDateTime orderDate) {
+        MemberStats stats = create(memberId);
+        stats.orderCount = 1;
+        stats.lifetimeSpend = amount;
+        stats.lastOrderDate = orderDate;
+        return stats;
+    }
+}
@@ -1,5 +1,6 @@
 package jpabook.jpashop.domain;
 
+import jpabook.jpashop.exception.OrderStateConflictException;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -13,8 +14,49 @@ import java.util.List;
 @Entity
 @Getter
 @Setter
-@Table(name = "orders") // 테이블 이름 설정
+@Table(name = "orders", // 테이블 이름 설정
+        indexes = @Index(name = "idx_orders_order_date", columnList = "orderDate")) // 보관 대상 조회 (OrderArchiver)
 @NoArgsConstructor(access = AccessLevel.PROTECTED) // protected 접근 제한자인 디폴트 생성자를 자동으로 생성해주는 롬복 -> 외부에서 new 키워드로 무분별한 객체 생성을 막음
+@NamedQueries({ // 애플리케이션 시작 시 파싱, 검증 (NamedQueryWarmer)
+        @NamedQuery(name = "Order.findByDeliveryId",
+                query = "select o from Order o where o.delivery.id = :deliveryId"),
+        @NamedQuery(name = "Order.findAllWithMemberDelivery", // ~ToOne fetch join (페이징 가능)
+                query = "select o from Order o join fetch o.member m join fetch o.delivery d"),
+        @NamedQuery(name = "Order.findIdsAfter", // 키셋 페이징 1단계
+                query = "select o.id from Order o where o.id > :afterId order by o.id"),
+        @NamedQuery(name = "Order.findAllWithMemberDeliveryItem", // 키셋 페이징 2단계
+                query = "select distinct o from Order o join fetch o.member m join fetch o.delivery d" +
+                        " join fetch o.orderItems oi join fetch oi.item i where o.id in :orderIds"),
+        @NamedQuery(name = "Order.findAllWithItemByIds", // 주문 이벤트 생성
+                query = "select distinct o from Order o join fetch o.orderItems oi join fetch oi.item i where o.id in :orderIds"),
+        @NamedQuery(name = "Order.findAllWithItem", // 컬렉션 fetch join (v3)
+                query = "select distinct o from Order o join fetch o.member m join fetch o.delivery d" +
+                        " join fetch o.orderItems oi join fetch oi.item i"),
+        @NamedQuery(name = "Order.findStatuses",
+                query = "select new jpabook.jpashop.repository.order.query.OrderStatusQueryDto(o.id, o.status, d.status)" +
+                        " from Order o join o.delivery d where o.id in :orderIds"),
+        @NamedQuery(name = "Order.lockByIds", // 주문 일괄 취소, 배송 일괄 완료 전 주문 로우 락 (id 순으로 잡아서 데드락 방지)
+                query = "select o.id from Order o where o.id in :orderIds order by o.id"),
+        @NamedQuery(name = "Order.lockByDeliveryIds", // 배송 id 로 배송 일괄 완료 전 주문 로우 락
+                query = "select o.id from Order o where o.delivery.id in :deliveryIds order by o.id"),
+        @NamedQuery(name = "Order.cancelAll",
+                query = "update Order o set o.status = :cancel" +
+                        " where o.id in :orderIds" +
+                        " and o.status = :order" +
+                        " and not exists (select d.id from Delivery d where d = o.delivery and d.status = :comp)"),
+        @NamedQuery(name = "Order.findDeliveryStatusesByOrderIds",
+                query = "select new jpabook.jpashop.repository.order.query.DeliveryStatusQueryDto(o.id, d.id, o.status, d.status)" +
+                        " from Order o join o.delivery d where o.id in :ids"),
+        @NamedQuery(name = "Order.findDeliveryStatusesByDeliveryIds",
+                query = "select new jpabook.jpashop.repository.order.query.DeliveryStatusQueryDto(o.id, d.id, o.status, d.status)" +
+                        " from Order o join o.delivery d where d.id in :ids"),
+        @NamedQuery(name = "Order.findQueryDtos", // v4, v5
+                query = "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                        " from Order o join o.member m join o.delivery d order by o.id"),
+        @NamedQuery(name = "Order.findSimpleQueryDtos", // simple-orders v4
+                query = "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                        " from Order o join o.member m join o.delivery d")
+})
 public class Order {
 
     @Id
@@ -51,6 +93,9 @@ public class Order {
     @Enumerated(EnumType.STRING) // java enum 타입 매핑
     private OrderStatus status;
 
+    @Transient
+    private boolean archived; // 보관 테이블에서 복원한 주문 (읽기 전용)
+
 
     /**
      * 생성자를 통해 양방향 연관관계를 모두 설정한다.
@@ -71,8 +116,7 @@ public class Order {
     }
 
     public void setDelivery(Delivery delivery) {
-        this.delivery = delivery;
-        delivery.setOrder(this); // 배송 객체 생성 시 주문 연관관계 설정
+        this.delivery = delivery; // 주문 -> 배송 단방향 (Delivery 참고)
     }
 
     // == 생성 메서드 ==
@@ -109,14 +153,65 @@ public class Order {
         return order;
     }
 
+    /**
+     * 보관 테이블에서 주문 복원 (ArchivedOrder.restore)
+     *
+     * 영속 상태가 아닌 읽기 전용 주문이다.
+     * 회원의 주문 목록(Member.orders)에는 추가하지 않는다.
+     */
+    static Order restoreArchived(Long id, Member member, Delivery delivery,
+                                 LocalDateTime orderDate, OrderStatus status, List<OrderItem> orderItems) {
+        Order order = new Order();
+        order.id = id;
+        order.member = member;
+        order.delivery = delivery;
+        order.orderDate = orderDate;
+        order.status = status;
+        order.archived = true;
+
+        for (OrderItem orderItem : orderItems) {
+            order.addOrderItem(orderItem);
+        }
+
+        return order;
+    }
+
     // == 비즈니스 로직 == //
 
     /**
-     * 주문 취소
+     * 주문 취소 + 상품 엔티티 재고 원복 (변경 감지)
+     * createOrderItem 으로 만든 초기/테스트 데이터용이다. 서비스의 취소는 cancelReserved 후 재고를 벌크 update 로 원복한다.
      */
 
     public void cancel() {
 
+        changeToCancel();
+
+        for (OrderItem orderItem : orderItems) {
+            orderItem.cancel(); // 각각의 주문에 주문 취소를 해야한다.
+        }
+    }
+
+    /**
+     * 재고를 원복하지 않는 주문 취소
+     * 재고는 서비스에서 따로 원복한다. (ItemRepository.addStock, 샤딩 시 CatalogStock, OrderItem.createReservedOrderItem 과 짝)
+     */
+    public void cancelReserved() {
+        changeToCancel();
+    }
+
+    private void changeToCancel() {
+
+        // 보관된 주문은 변경 불가
+        if (archived) {
+            throw new IllegalStateException("보관된 주문은 취소할 수 없습니다.");
+        }
+
+        // 이미 취소된 주문을 다시 취소하면 재고, 회원 집계, 취소 이벤트가 두 번 반영된다. (일괄 취소는 건너뜀)
+        if (status == OrderStatus.CANCEL) {
+            throw new OrderStateConflictException("이미 취소된 주문입니다.");
+        }
+
         // 만약 배송 상태가 이미 배송 완료라면 배송 취소 불가
         if (delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("이미 배송 완료 된 상품은 취소가 불가합니다.");
@@ -125,10 +220,6 @@ public class Order {
         // 주문 상태 '취소'로
         this.setStatus(OrderStatus.CANCEL); // 더티 체킹!
         // 객체에 수정이 일어나면, 영속성 컨텍스트도 수정이 일어나고, 트랜잭션 커밋 시점에 자동으로 DB를 변경해준다.
-
-        for (OrderItem orderItem : orderItems) {
-            orderItem.cancel(); // 각각의 주문에 주문 취소를 해야한다.
-        }
     }
 
     // == 조회 로직 == //
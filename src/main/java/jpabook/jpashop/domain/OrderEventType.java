@@ -0,0 +1,8 @@
+package jpabook.jpashop.domain;
+
+/**
+ * 주문 이벤트 종류 (아웃박스)
+ */
+public enum OrderEventType {
+    ORDERED, CANCELED
+}
@@ -14,6 +14,20 @@ import javax.persistence.*;
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
+@NamedQueries({ // 애플리케이션 시작 시 파싱, 검증 (NamedQueryWarmer)
+        @NamedQuery(name = "OrderItem.findItemQuantities", // 재고 원복용 상품별 수량 합계
+                query = "select new jpabook.jpashop.repository.order.query.ItemQuantityQueryDto(oi.item.id, sum(oi.count))" +
+                        " from OrderItem oi where oi.order.id in :orderIds group by oi.item.id"),
+        @NamedQuery(name = "OrderItem.findMemberTotals", // 회원 집계 차감용 회원별 주문 수, 금액 합계
+                query = "select new jpabook.jpashop.repository.order.query.MemberOrderTotalQueryDto(o.member.id, count(distinct o.id), sum(oi.orderPrice * oi.count))" +
+                        " from OrderItem oi join oi.order o where o.id in :orderIds group by o.member.id"),
+        @NamedQuery(name = "OrderItem.findQueryDtosByOrderIds", // v5
+                query = "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                        " from OrderItem oi join oi.item i where oi.order.id in :orderIds"),
+        @NamedQuery(name = "OrderItem.findQueryDtosByOrderId", // v4
+                query = "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                        " from OrderItem oi join oi.item i where oi.order.id = :orderId")
+})
 public class OrderItem {
 
     @Id
@@ -49,6 +63,12 @@ public class OrderItem {
 
 
     // == 생성 메소드 == //
+
+    /**
+     * 주문 상품 생성 + 상품 엔티티 재고 차감 (변경 감지)
+     * 초기 데이터(InitDb)와 테스트 데이터용이다. 서비스의 주문은 동시 주문이 @Version 충돌로 실패하지 않도록
+     * 재고를 조건부 update 로 차감하고 createReservedOrderItem 을 사용한다. (OrderService.order)
+     */
     public static OrderItem createOrderItem(Item item, int orderPrice, int count) {
         OrderItem orderItem = new OrderItem();
 
@@ -63,11 +83,25 @@ public class OrderItem {
         return orderItem;
     }
 
+    /**
+     * 재고를 이미 차감한 주문 상품 생성
+     * 주문 생성 시 재고는 조건부 update 로 따로 차감한다. (ItemRepository.removeStock, 샤딩 시 CatalogStock 참고)
+     */
+    public static OrderItem createReservedOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = new OrderItem();
+
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+
+        return orderItem;
+    }
+
 
     // == 비즈니스 로직 == //
 
     /**
-     * 주문 취소 == 재고 수량을 원복함
+     * 주문 취소 == 재고 수량을 원복함 (상품 엔티티 변경 감지, Order.cancel 참고)
      */
     public void cancel() {
         getItem().addStock(count);
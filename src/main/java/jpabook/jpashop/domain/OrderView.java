@@ -0,0 +1,54 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 주문 조회 모델 (order_view, CQRS)
+ *
+ * 주문 목록 API 는 주문, 회원, 배송, 주문상품, 상품 5개 테이블을 조인한다.
+ * 조회에 필요한 값을 주문상품 1건당 1로우로 미리 펼쳐 두고, v6 API 는 이 테이블 하나만 읽는다.
+ *
+ * 원본(주문, 회원, 상품)이 바뀌는 곳에서 같은 트랜잭션으로 함께 갱신한다. (OrderViewRepository 참고)
+ * - 주문: OrderService.order
+ * - 취소: OrderService.cancelOrder, cancelOrders
+ * - 회원 이름 변경: MemberService.update, patch
+ * - 상품명 변경: ItemService.updateItem, patchItem, ItemImportService (샤딩 시 다른 샤드는 CatalogReplicator)
+ * - 보관: OrderArchiveRepository.archive (함께 삭제)
+ *
+ * 어긋난 로우는 OrderViewService.check 로 찾고, rebuild 로 다시 만든다.
+ */
+@Entity
+@Getter
+@Table(name = "order_view", indexes = {
+        @Index(name = "idx_order_view_order_id", columnList = "orderId"), // 주문 단위 갱신, 목록 정렬
+        @Index(name = "idx_order_view_member_id", columnList = "memberId"), // 회원 이름 변경
+        @Index(name = "idx_order_view_item_id", columnList = "itemId") // 상품명 변경
+})
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderView {
+
+    @Id
+    @Column(name = "order_item_id")
+    private Long id; // 주문상품 id
+
+    private Long orderId;
+    private Long memberId;
+    private String memberName;
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Embedded
+    private Address address; // 배송지
+
+    private Long itemId;
+    private String itemName;
+    private int orderPrice;
+    private int count;
+}
@@ -0,0 +1,51 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 트랜잭셔널 아웃박스
+ *
+ * 주문/취소와 같은 트랜잭션에서 이벤트를 테이블에 저장한다.
+ * -> 주문이 커밋되면 이벤트도 반드시 남고, 롤백되면 이벤트도 사라진다. (이벤트 유실, 유령 이벤트 x)
+ * 실제 전달은 OutboxRelay 가 요청 흐름 밖에서 배치로 처리한다.
+ *
+ * id 는 전용 시퀀스에서 하나씩(allocationSize = 1) 받는다.
+ * 릴레이는 id 순서로 전달하고, 중간에 빈 id 가 있으면 아직 커밋되지 않은 트랜잭션으로 보고 기다린다.
+ */
+@Entity
+@Getter
+@Table(name = "outbox_event")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq_generator")
+    @SequenceGenerator(name = "outbox_event_seq_generator", sequenceName = "outbox_event_seq", allocationSize = 1)
+    @Column(name = "outbox_event_id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private OrderEventType type;
+
+    private Long orderId;
+
+    @Column(length = 10000)
+    private String payload; // json (OrderEventPayload)
+
+    private LocalDateTime createdAt;
+
+    // == 생성 메서드 == //
+    public static OutboxEvent create(OrderEventType type, Long orderId, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.type = type;
+        event.orderId = orderId;
+        event.payload = payload;
+        event.createdAt = LocalDateTime.now();
+        return event;
+    }
+}
@@ -0,0 +1,73 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 아웃박스 리스너별 전달 위치
+ *
+ * 리스너마다 어디까지 전달했는지(lastEventId)를 따로 저장하므로
+ * 한 리스너가 실패해도 다른 리스너는 계속 진행한다.
+ * 실패하면 오프셋을 옮기지 않고, 실패 횟수만큼 늘어나는 간격을 두고 같은 배치부터 다시 시도한다.
+ */
+@Entity
+@Getter
+@Table(name = "outbox_offset")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxOffset {
+
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000L; // 최대 5분
+
+    @Id
+    @Column(name = "listener_name")
+    private String listenerName;
+
+    private long lastEventId; // 여기까지 전달 완료
+
+    private int failures; // 연속 실패 횟수
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime nextAttemptAt; // 재시도 대기 중이면 이 시각 이후에 다시 시도
+
+    private LocalDateTime updatedAt;
+
+    public OutboxOffset(String listenerName) {
+        this.listenerName = listenerName;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // == 비즈니스 로직 == //
+
+    /**
+     * 전달 성공 -> 오프셋 이동, 실패 기록 초기화
+     */
+    public void advance(long eventId) {
+        this.lastEventId = eventId;
+        this.failures = 0;
+        this.lastError = null;
+        this.nextAttemptAt = null;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * 전달 실패 -> 오프셋은 그대로, 다음 시도 시각을 뒤로 미룬다. (baseBackoff * 2^(실패 횟수 - 1), 최대 5분)
+     */
+    public void fail(String error, long baseBackoffMillis) {
+        this.failures++;
+        this.lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, baseBackoffMillis << Math.min(failures - 1, 20));
+        this.nextAttemptAt = LocalDateTime.now().plusNanos(backoff * 1_000_000);
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public boolean isWaiting(LocalDateTime now) {
+        return nextAttemptAt != null && now.isBefore(nextAttemptAt);
+    }
+}
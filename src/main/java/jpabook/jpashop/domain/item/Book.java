@@ -2,12 +2,14 @@ package jpabook.jpashop.domain.item;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
 
 @Entity
 @DiscriminatorValue("B") // 부모 클래스가 자식 클래스를 구분할 수 있도록 부모 컬럼의 dtype에 값 지정
+@DynamicUpdate // 상속되지 않으므로 자식 엔티티에도 붙여야 한다. (Item 참고)
 @Getter
 @Setter
 public class Book extends Item {
@@ -4,6 +4,7 @@ import jpabook.jpashop.domain.Category;
 import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -12,8 +13,21 @@ import java.util.List;
 @Entity
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE) // DB 에서도 상속 관계 설정(default: 단일 테이블 전략 -> 하나의 테이블에 모든 필드 넣음)
 @DiscriminatorColumn(name = "dtype") // 부모 클래스에 선언 (하위 클래스를 구분하는 용도)
+@Table(indexes = { // 상품 가져오기(CSV)에서 자연 키로 기존 상품을 찾을 때 사용 (ItemImportRepository)
+        @Index(name = "idx_item_isbn", columnList = "isbn"), // 책
+        @Index(name = "idx_item_name", columnList = "name") // 앨범, 영화 (아티스트/감독 + 상품명)
+})
+@DynamicUpdate // 변경 감지로 update 할 때 변경된 컬럼만 update 쿼리에 포함 (가격, 재고처럼 자주 바뀌는 컬럼만 수정), 자식 엔티티에도 붙여야 함
 @Getter
 @Setter // 연습을 위해 세터를 기재함, 실무에서는 사용 지양 -> 데이터 수정은 세터가 아닌 메소드를 만들어서 사용하기!
+@NamedQueries({ // 애플리케이션 시작 시 파싱, 검증 (NamedQueryWarmer)
+        @NamedQuery(name = "Item.findAll", query = "select i from Item i"),
+        @NamedQuery(name = "Item.addStock",
+                query = "update Item i set i.stockQuantity = i.stockQuantity + :quantity, i.version = i.version + 1 where i.id = :id"),
+        @NamedQuery(name = "Item.removeStock", // 재고가 충분할 때만 차감 (ItemRepository.removeStock)
+                query = "update Item i set i.stockQuantity = i.stockQuantity - :quantity, i.version = i.version + 1" +
+                        " where i.id = :id and i.stockQuantity >= :quantity")
+})
 public class Item {
 
     @Id
@@ -27,6 +41,13 @@ public class Item {
 
     private int stockQuantity;
 
+    /**
+     * 낙관적 락 버전 (수정될 때마다 1씩 증가)
+     * 같은 상품을 동시에 수정하면 나중에 수정하는 쪽이 실패한다. -> 두 번의 갱신 분실 문제 방지
+     */
+    @Version
+    private Long version;
+
     /**
      * 여러개의 아이템은 여러개의 카테고리에 포함될 수 있다.
      */
@@ -48,6 +69,7 @@ public class Item {
     /**
      * stock 감소
      * 0보다는 커야한다.
+     * 변경 감지로 수정하므로 초기/테스트 데이터(OrderItem.createOrderItem)용이다. 주문은 ItemRepository.removeStock 을 사용한다.
      * @param quantity
      */
     public void removeStock(int quantity) {
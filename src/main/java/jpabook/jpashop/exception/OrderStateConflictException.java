@@ -0,0 +1,12 @@
+package jpabook.jpashop.exception;
+
+/**
+ * 주문/배송 상태를 확인한 뒤 바꾸기 전에 다른 트랜잭션이 먼저 상태를 바꾼 경우 (동시 수정 충돌)
+ * 요청 자체는 잘못되지 않았으므로 다시 시도하면 된다. (api: 409)
+ */
+public class OrderStateConflictException extends RuntimeException {
+
+    public OrderStateConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,161 @@
+package jpabook.jpashop.monitor;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * 커넥션 점유 시간 프로파일러
+ *
+ * 커넥션마다 획득 대기 시간, 점유 시간(획득 ~ 반납), 그중 JDBC 호출 시간을 재서
+ * HTTP 라우트별(MonitorConfig 의 인터셉터가 지정), 트랜잭션(서비스 메서드)별 히스토그램에 기록한다.
+ * 점유 시간에 비해 JDBC 시간이 짧으면(jdbcRatio 가 낮으면) 트랜잭션 안에서 DB 와 상관없는 일을 하느라 커넥션을 붙잡고 있는 것이다.
+ *
+ * 누수 감지: leakThreshold 보다 오래 반납되지 않은 커넥션은 획득 위치의 스택 트레이스와 함께 한 번 경고 로그를 남긴다.
+ *
+ * 샤딩 시 샤드 조회(ShardRouter.scatter)는 다른 스레드에서 실행되므로 라우트 없이 트랜잭션별로만 구분된다.
+ */
+@Slf4j
+@Component
+public class ConnectionProfiler {
+
+    static final String NO_ROUTE = "(no request)";
+    static final String NO_TRANSACTION = "(no transaction)";
+    static final String UNNAMED_TRANSACTION = "(unnamed transaction)";
+
+    private final boolean enabled;
+    private final long leakThresholdNanos;
+    private final LongSupplier ticker; // 시간 측정 (System.nanoTime, 테스트에서는 직접 진행시킨다.)
+
+    private final ThreadLocal<String> currentRoute = new ThreadLocal<>();
+    private final Map<String, ConnectionStats> routes = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionStats> transactions = new ConcurrentHashMap<>();
+    private final Set<ProfiledConnection> openConnections = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ConnectionProfiler(@Value("${jpashop.monitor.connections.enabled:true}") boolean enabled,
+                              @Value("${jpashop.monitor.connections.leak-threshold:10s}") Duration leakThreshold) {
+        this(enabled, leakThreshold, System::nanoTime);
+    }
+
+    ConnectionProfiler(boolean enabled, Duration leakThreshold, LongSupplier ticker) {
+        this.enabled = enabled;
+        this.leakThresholdNanos = leakThreshold.toNanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * 데이터소스를 프로파일링 데이터소스로 감싼다. (꺼져 있으면 그대로)
+     * 실제 커넥션을 꺼내는 데이터소스(커넥션 풀)를 감싸야 획득 대기 시간이 맞다. (LazyConnectionDataSourceProxy 바깥 x)
+     */
+    public DataSource wrap(DataSource dataSource) {
+        return enabled ? new ProfilingDataSource(dataSource, this) : dataSource;
+    }
+
+    public void enterRoute(String route) {
+        currentRoute.set(route);
+    }
+
+    public void exitRoute() {
+        currentRoute.remove();
+    }
+
+    long nanoTime() {
+        return ticker.getAsLong();
+    }
+
+    Connection acquired(Connection connection, long acquireNanos) {
+        String route = currentRoute.get();
+        Exception origin = leakThresholdNanos > 0 ? new Exception("커넥션 획득 위치") : null;
+
+        ProfiledConnection profiled = new ProfiledConnection(connection, this, acquireNanos,
+                route != null ? route : NO_ROUTE, origin);
+        openConnections.add(profiled);
+        return profiled.proxy();
+    }
+
+    void released(ProfiledConnection connection) {
+        openConnections.remove(connection);
+
+        long heldNanos = connection.heldNanos();
+        String transaction = transactionOf(connection);
+
+        routes.computeIfAbsent(connection.getRoute(), k -> new ConnectionStats())
+                .record(connection.getAcquireNanos(), heldNanos, connection.getJdbcNanos());
+        transactions.computeIfAbsent(transaction, k -> new ConnectionStats())
+                .record(connection.getAcquireNanos(), heldNanos, connection.getJdbcNanos());
+
+        if (connection.isLeakReported()) {
+            log.info("[connection-leak] 누수로 보고한 커넥션 반납 held={}ms route={} transaction={}",
+                    heldNanos / 1_000_000, connection.getRoute(), transaction);
+        }
+    }
+
+    /**
+     * 오래 반납되지 않은 커넥션 확인 (기본 1초마다)
+     */
+    @Scheduled(fixedDelayString = "${jpashop.monitor.connections.leak-check-interval-ms:1000}")
+    public void detectLeaks() {
+        if (leakThresholdNanos <= 0) {
+            return;
+        }
+
+        for (ProfiledConnection connection : openConnections) {
+            long heldNanos = connection.heldNanos();
+            if (heldNanos > leakThresholdNanos && !connection.isLeakReported()) {
+                connection.markLeakReported();
+                log.warn("[connection-leak] 커넥션을 {}ms 동안 반납하지 않았습니다. route={} transaction={} thread={}",
+                        heldNanos / 1_000_000, connection.getRoute(), transactionOf(connection),
+                        connection.getThreadName(), connection.getOrigin());
+            }
+        }
+    }
+
+    public Report report() {
+        return new Report(snapshots(routes), snapshots(transactions), openConnections.size());
+    }
+
+    public void reset() {
+        routes.clear();
+        transactions.clear();
+    }
+
+    private static String transactionOf(ProfiledConnection connection) {
+        return connection.getTransaction() != null ? connection.getTransaction() : NO_TRANSACTION;
+    }
+
+    private static List<ConnectionStats.Snapshot> snapshots(Map<String, ConnectionStats> stats) {
+        return stats.entrySet().stream()
+                .map(e -> e.getValue().snapshot(e.getKey()))
+                .sorted(Comparator.comparing(ConnectionStats.Snapshot::getName))
+                .collect(Collectors.toList());
+    }
+
+    @Getter
+    public static class Report {
+
+        private final List<ConnectionStats.Snapshot> routes;
+        private final List<ConnectionStats.Snapshot> transactions;
+        private final int openConnections;
+
+        Report(List<ConnectionStats.Snapshot> routes, List<ConnectionStats.Snapshot> transactions, int openConnections) {
+            this.routes = routes;
+            this.transactions = transactions;
+            this.openConnections = openConnections;
+        }
+    }
+}
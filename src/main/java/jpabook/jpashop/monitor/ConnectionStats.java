@@ -0,0 +1,46 @@
+package jpabook.jpashop.monitor;
+
+import lombok.Getter;
+
+/**
+ * 라우트 또는 트랜잭션 하나의 커넥션 사용 통계
+ *
+ * acquire: 풀에서 커넥션을 꺼낼 때까지 기다린 시간
+ * hold: 커넥션을 꺼내서 반납할 때까지의 시간
+ * jdbc: 그중 실제로 JDBC 호출(쿼리 실행, 결과 읽기 등) 안에 있던 시간
+ */
+public class ConnectionStats {
+
+    private final Histogram acquire = new Histogram();
+    private final Histogram hold = new Histogram();
+    private final Histogram jdbc = new Histogram();
+
+    void record(long acquireNanos, long holdNanos, long jdbcNanos) {
+        acquire.record(acquireNanos);
+        hold.record(holdNanos);
+        jdbc.record(jdbcNanos);
+    }
+
+    Snapshot snapshot(String name) {
+        return new Snapshot(name, acquire.snapshot(), hold.snapshot(), jdbc.snapshot(),
+                hold.getSumNanos() == 0 ? 0 : (double) jdbc.getSumNanos() / hold.getSumNanos());
+    }
+
+    @Getter
+    public static class Snapshot {
+
+        private final String name;
+        private final Histogram.Snapshot acquire;
+        private final Histogram.Snapshot hold;
+        private final Histogram.Snapshot jdbc;
+        private final double jdbcRatio; // 커넥션을 잡고 있던 시간 중 JDBC 호출 시간 비율 (낮을수록 놀고 있던 시간이 길다.)
+
+        Snapshot(String name, Histogram.Snapshot acquire, Histogram.Snapshot hold, Histogram.Snapshot jdbc, double jdbcRatio) {
+            this.name = name;
+            this.acquire = acquire;
+            this.hold = hold;
+            this.jdbc = jdbc;
+            this.jdbcRatio = jdbcRatio;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package jpabook.jpashop.monitor;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 고정 구간 히스토그램 (단위: 나노초, 구간 경계는 밀리초)
+ *
+ * 여러 스레드가 동시에 기록해도 락 없이 LongAdder 로 센다.
+ * 백분위수는 구간 상한으로 근사한다. (정확한 값이 아니라 "이 값 이하" 로 읽는다.)
+ */
+public class Histogram {
+
+    // 0.1ms ~ 10s, 마지막 구간은 그 이상 전부
+    private static final double[] BOUNDS_MS = {0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        double millis = nanos / 1_000_000.0;
+        int i = 0;
+        while (i < BOUNDS_MS.length && millis > BOUNDS_MS[i]) {
+            i++;
+        }
+
+        buckets[i].increment();
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    /**
+     * 조회 시점의 값 (json 응답용, 단위: ms)
+     */
+    @Getter
+    public static class Snapshot {
+
+        private final long count;
+        private final double mean;
+        private final double p50;
+        private final double p95;
+        private final double p99;
+        private final double max;
+        private final Map<String, Long> buckets = new LinkedHashMap<>(); // "<=1.0" -> 건수 (0 인 구간 제외)
+
+        private Snapshot(long[] counts, long total, long sumNanos, long maxNanos) {
+            this.count = total;
+            this.mean = total == 0 ? 0 : sumNanos / 1_000_000.0 / total;
+            this.max = maxNanos / 1_000_000.0;
+
+            List<Double> upperBounds = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                double upper = i < BOUNDS_MS.length ? BOUNDS_MS[i] : max;
+                upperBounds.add(Math.min(upper, max)); // 마지막 구간과 최댓값이 속한 구간은 최댓값으로
+                if (counts[i] > 0) {
+                    buckets.put(i < BOUNDS_MS.length ? "<=" + BOUNDS_MS[i] : ">" + BOUNDS_MS[BOUNDS_MS.length - 1], counts[i]);
+                }
+            }
+
+            this.p50 = percentile(counts, total, upperBounds, 0.50);
+            this.p95 = percentile(counts, total, upperBounds, 0.95);
+            this.p99 = percentile(counts, total, upperBounds, 0.99);
+        }
+
+        private static double percentile(long[] counts, long total, List<Double> upperBounds, double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBounds.get(i);
+                }
+            }
+            return upperBounds.get(upperBounds.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package jpabook.jpashop.monitor;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+
+/**
+ * 커넥션 프로파일러(ConnectionProfiler) 연결
+ *
+ * - 데이터소스: 데코레이터(p6spy) 중 가장 먼저 적용해서 커넥션 풀을 바로 감싼다.
+ *   샤딩 시에는 ShardDataSourceConfig 가 LazyConnectionDataSourceProxy 안쪽(샤드 라우팅 데이터소스)을 직접 감싼다.
+ * - HTTP 라우트: 요청 처리 동안 매핑된 URL 패턴(예: GET /api/v2/members/{id})을 현재 라우트로 지정한다.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class MonitorConfig implements WebMvcConfigurer {
+
+    private final ConnectionProfiler connectionProfiler;
+
+    @Bean
+    public DataSourceDecorator profilingDataSourceDecorator() {
+        return new ProfilingDecorator(connectionProfiler);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RouteInterceptor(connectionProfiler));
+    }
+
+    private static class ProfilingDecorator implements DataSourceDecorator, Ordered {
+
+        private final ConnectionProfiler connectionProfiler;
+
+        ProfilingDecorator(ConnectionProfiler connectionProfiler) {
+            this.connectionProfiler = connectionProfiler;
+        }
+
+        @Override
+        public DataSource decorate(String beanName, DataSource dataSource) {
+            return dataSource instanceof LazyConnectionDataSourceProxy
+                    ? dataSource // 샤딩: 안쪽에서 이미 감쌌다. (바깥에서 감싸면 실제 커넥션 획득 시점을 잴 수 없다.)
+                    : connectionProfiler.wrap(dataSource);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+
+    private static class RouteInterceptor implements HandlerInterceptor {
+
+        private final ConnectionProfiler connectionProfiler;
+
+        RouteInterceptor(ConnectionProfiler connectionProfiler) {
+            this.connectionProfiler = connectionProfiler;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            connectionProfiler.enterRoute(request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI()));
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+            connectionProfiler.exitRoute();
+        }
+    }
+}
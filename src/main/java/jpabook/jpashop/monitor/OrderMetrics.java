@@ -0,0 +1,83 @@
+package jpabook.jpashop.monitor;
+
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 주문 지표 (초당 주문, 취소, 매출, 재고 부족)
+ *
+ * DB 를 조회하지 않고 OrderService 에서 바로 메모리 시계열(RollingCounter)에 기록한다. (락 x)
+ * 주문, 취소, 매출은 트랜잭션이 커밋된 뒤에 더한다. (롤백된 주문은 세지 않음)
+ * 재고 부족은 주문이 실패한 것이므로 바로 더한다.
+ *
+ * 서버별 값이다. (재시작하면 처음부터)
+ */
+@Component
+public class OrderMetrics {
+
+    private final RollingCounter orders = new RollingCounter();
+    private final RollingCounter cancels = new RollingCounter();
+    private final RollingCounter revenue = new RollingCounter();
+    private final RollingCounter stockShortages = new RollingCounter();
+
+    public void ordered(long amount) {
+        afterCommit(() -> {
+            long now = System.currentTimeMillis();
+            orders.add(1, now);
+            revenue.add(amount, now);
+        });
+    }
+
+    public void canceled(int count) {
+        afterCommit(() -> cancels.add(count, System.currentTimeMillis()));
+    }
+
+    public void stockShortage() {
+        stockShortages.add(1, System.currentTimeMillis());
+    }
+
+    public Report report() {
+        long now = System.currentTimeMillis();
+
+        Map<String, RollingCounter.Snapshot> series = new LinkedHashMap<>();
+        series.put("orders", orders.snapshot(now));
+        series.put("cancels", cancels.snapshot(now));
+        series.put("revenue", revenue.snapshot(now));
+        series.put("stockShortages", stockShortages.snapshot(now));
+
+        return new Report(now, series);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    @Getter
+    public static class Report {
+
+        private final long timestamp; // 조회 시각 (epoch ms)
+        private final Map<String, RollingCounter.Snapshot> series;
+
+        Report(long timestamp, Map<String, RollingCounter.Snapshot> series) {
+            this.timestamp = timestamp;
+            this.series = series;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package jpabook.jpashop.monitor;
+
+import lombok.Getter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * 커넥션 하나의 사용 기록 (ConnectionProfiler 참고)
+ *
+ * 커넥션, 커넥션에서 만든 Statement, ResultSet 을 동적 프록시로 감싸서 JDBC 호출 안에 있던 시간을 더한다.
+ * 커넥션은 한 번에 한 스레드만 사용하므로 jdbcNanos 는 동기화하지 않는다.
+ */
+@Getter
+class ProfiledConnection {
+
+    private final Connection target;
+    private final ConnectionProfiler profiler;
+    private final long acquireNanos;
+    private final long acquiredAt;
+    private final String route;
+    private final String threadName;
+    private final Exception origin; // 누수 로그용 획득 위치 (누수 감지를 끄면 null)
+
+    private String transaction; // 첫 JDBC 호출 또는 반납 시점의 트랜잭션 (트랜잭션은 커넥션을 꺼낸 뒤에 이름이 정해진다.)
+    private long jdbcNanos;
+    private volatile boolean leakReported;
+    private boolean closed;
+
+    ProfiledConnection(Connection target, ConnectionProfiler profiler, long acquireNanos, String route, Exception origin) {
+        this.target = target;
+        this.profiler = profiler;
+        this.acquireNanos = acquireNanos;
+        this.acquiredAt = profiler.nanoTime();
+        this.route = route;
+        this.threadName = Thread.currentThread().getName();
+        this.origin = origin;
+    }
+
+    Connection proxy() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler());
+    }
+
+    long heldNanos() {
+        return profiler.nanoTime() - acquiredAt;
+    }
+
+    void markLeakReported() {
+        leakReported = true;
+    }
+
+    private void captureTransaction() {
+        if (transaction != null || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        transaction = name != null ? name : ConnectionProfiler.UNNAMED_TRANSACTION; // TransactionTemplate 등
+    }
+
+    private Object timed(Object target, Method method, Object[] args) throws Throwable {
+        long start = profiler.nanoTime();
+        try {
+            Object result = method.invoke(target, args);
+            return wrap(method.getReturnType(), result);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        } finally {
+            jdbcNanos += profiler.nanoTime() - start;
+        }
+    }
+
+    private Object wrap(Class<?> type, Object result) {
+        if (result == null || !type.isInterface()
+                || !(Statement.class.isAssignableFrom(type) || ResultSet.class.isAssignableFrom(type))) {
+            return result;
+        }
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new JdbcHandler(result));
+    }
+
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return null;
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                case "hashCode":
+                    return identity(proxy, method, args);
+                case "toString":
+                    return "Profiled[" + target + "]";
+                case "close":
+                    if (closed) {
+                        return null;
+                    }
+                    closed = true;
+                    captureTransaction();
+                    try {
+                        return timed(target, method, args);
+                    } finally {
+                        profiler.released(ProfiledConnection.this);
+                    }
+                default:
+                    captureTransaction();
+                    return timed(target, method, args);
+            }
+        }
+    }
+
+    private class JdbcHandler implements InvocationHandler {
+
+        private final Object target;
+
+        JdbcHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("equals".equals(method.getName()) || "hashCode".equals(method.getName())) {
+                return identity(proxy, method, args);
+            }
+            return timed(target, method, args);
+        }
+    }
+}
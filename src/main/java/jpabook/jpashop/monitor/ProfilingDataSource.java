@@ -0,0 +1,34 @@
+package jpabook.jpashop.monitor;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 커넥션 풀(또는 샤드 라우팅 데이터소스)을 감싸서 커넥션 획득 대기 시간을 재고, 커넥션을 프로파일링 프록시로 돌려준다.
+ */
+class ProfilingDataSource extends DelegatingDataSource {
+
+    private final ConnectionProfiler profiler;
+
+    ProfilingDataSource(DataSource target, ConnectionProfiler profiler) {
+        super(target);
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = profiler.nanoTime();
+        Connection connection = obtainTargetDataSource().getConnection();
+        return profiler.acquired(connection, profiler.nanoTime() - start);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = profiler.nanoTime();
+        Connection connection = obtainTargetDataSource().getConnection(username, password);
+        return profiler.acquired(connection, profiler.nanoTime() - start);
+    }
+}
@@ -0,0 +1,73 @@
+package jpabook.jpashop.monitor;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 고정 길이 시계열 (링 버퍼)
+ *
+ * 시간을 resolution 단위 구간으로 나누고, 최근 size 개 구간의 합계만 남긴다.
+ * 구간 자리는 링으로 돌려 쓰고, 새 구간이 처음 들어올 때 CAS 로 새 슬롯으로 바꾼다. (지난 슬롯을 지우지 않음 -> 락 x)
+ * 한 구간 안의 값은 LongAdder 로 더한다. (여러 스레드가 같은 초에 기록해도 경합이 흩어진다.)
+ */
+class RingTimeSeries {
+
+    private final long resolutionMillis;
+    private final int size;
+    private final AtomicReferenceArray<Slot> slots;
+
+    RingTimeSeries(long resolutionMillis, int size) {
+        this.resolutionMillis = resolutionMillis;
+        this.size = size;
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    void add(long amount, long nowMillis) {
+        slot(nowMillis / resolutionMillis).value.add(amount);
+    }
+
+    /**
+     * 최근 size 개 구간의 값 (오래된 것 -> 최신, 마지막은 진행 중인 구간)
+     */
+    long[] values(long nowMillis) {
+        long now = nowMillis / resolutionMillis;
+        long[] values = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            long epoch = now - (size - 1 - i);
+            Slot slot = slots.get(indexOf(epoch));
+            values[i] = slot != null && slot.epoch == epoch ? slot.value.sum() : 0;
+        }
+
+        return values;
+    }
+
+    private Slot slot(long epoch) {
+        int index = indexOf(epoch);
+
+        while (true) {
+            Slot current = slots.get(index);
+            if (current != null && current.epoch >= epoch) { // 더 새 구간이 먼저 자리를 바꿨으면 거기에 더한다. (경계에서만, 오차 1구간)
+                return current;
+            }
+            Slot fresh = new Slot(epoch);
+            if (slots.compareAndSet(index, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private int indexOf(long epoch) {
+        return (int) Math.floorMod(epoch, (long) size);
+    }
+
+    private static class Slot {
+
+        private final long epoch; // 구간 번호 (시각 / resolution)
+        private final LongAdder value = new LongAdder();
+
+        Slot(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
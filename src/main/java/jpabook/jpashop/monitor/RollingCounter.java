@@ -0,0 +1,53 @@
+package jpabook.jpashop.monitor;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * 초, 분, 시간 단위 시계열을 함께 유지하는 카운터
+ *
+ * 기록할 때 세 시계열에 모두 더한다. (분, 시간 집계를 따로 돌리는 작업 x)
+ * - 초: 최근 120초
+ * - 분: 최근 60분
+ * - 시간: 최근 24시간
+ */
+public class RollingCounter {
+
+    private final RingTimeSeries seconds = new RingTimeSeries(1_000L, 120);
+    private final RingTimeSeries minutes = new RingTimeSeries(60_000L, 60);
+    private final RingTimeSeries hours = new RingTimeSeries(3_600_000L, 24);
+
+    void add(long amount, long nowMillis) {
+        seconds.add(amount, nowMillis);
+        minutes.add(amount, nowMillis);
+        hours.add(amount, nowMillis);
+    }
+
+    Snapshot snapshot(long nowMillis) {
+        return new Snapshot(seconds.values(nowMillis), minutes.values(nowMillis), hours.values(nowMillis));
+    }
+
+    /**
+     * 조회 시점의 값 (배열은 오래된 것 -> 최신, 마지막은 진행 중인 구간)
+     */
+    @Getter
+    public static class Snapshot {
+
+        private final long[] perSecond;
+        private final long[] perMinute;
+        private final long[] perHour;
+        private final long lastMinute; // 최근 60초 합계
+        private final long lastHour; // 최근 60분 합계
+        private final double ratePerSecond; // 최근 60초 평균 (초당)
+
+        Snapshot(long[] perSecond, long[] perMinute, long[] perHour) {
+            this.perSecond = perSecond;
+            this.perMinute = perMinute;
+            this.perHour = perHour;
+            this.lastMinute = Arrays.stream(perSecond, perSecond.length - 60, perSecond.length).sum();
+            this.lastHour = Arrays.stream(perMinute).sum();
+            this.ratePerSecond = lastMinute / 60.0;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.BestSellerSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class BestSellerSnapshotRepository {
+
+    @PersistenceContext
+    private final EntityManager em;
+
+    /**
+     * 스냅샷 교체 (이전 스냅샷을 지우고 저장)
+     */
+    public void replaceAll(List<BestSellerSnapshot> snapshots) {
+        em.createNamedQuery("BestSellerSnapshot.deleteAll").executeUpdate();
+        snapshots.forEach(em::persist);
+    }
+
+    public List<BestSellerSnapshot> findAll() {
+        return em.createNamedQuery("BestSellerSnapshot.findAll", BestSellerSnapshot.class)
+                .getResultList();
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import java.util.List;
 
 @Repository
@@ -53,7 +54,94 @@ public class ItemRepository {
 
     // 상품 전체 조회
     public List<Item> findAll() {
-        return em.createQuery("select i from Item i", Item.class).getResultList();
+        return em.createNamedQuery("Item.findAll", Item.class).getResultList();
+    }
+
+    /**
+     * 재고 증가 (벌크 연산)
+     * 엔티티를 조회하지 않고 update 한 번으로 재고를 더한다. -> 동시에 여러 주문이 취소돼도 값이 덮어써지지 않는다.
+     * 벌크 연산은 @Version 을 올려주지 않으므로 직접 올린다. (조회해 둔 엔티티로 수정하려는 쪽이 실패하도록)
+     */
+    public int addStock(Long itemId, long quantity) {
+        return em.createNamedQuery("Item.addStock")
+                .setParameter("quantity", Math.toIntExact(quantity))
+                .setParameter("id", itemId)
+                .executeUpdate();
+    }
+
+    /**
+     * 재고 증가 (벌크 연산) + 영속성 컨텍스트의 상품도 DB 값으로 다시 읽는다. (removeStock 과 짝, 주문 하나 취소)
+     */
+    public void addStock(Item item, int quantity) {
+        addStock(item.getId(), quantity);
+        em.refresh(item);
+    }
+
+    /**
+     * 재고 차감 (조건부 벌크 연산)
+     *
+     * 조회한 엔티티의 재고를 바꾸면(변경 감지) 같은 상품을 동시에 주문할 때 나중에 커밋하는 쪽이 @Version 충돌로 실패한다.
+     * 재고가 충분할 때만 update 쿼리 한 번으로 차감하므로, 인기 상품에 주문이 몰려도 재고가 남아있는 한 모두 성공한다.
+     * 차감에 성공하면 영속성 컨텍스트의 상품도 DB 값으로 다시 읽는다. (같은 트랜잭션에서 예전 재고를 보지 않도록)
+     *
+     * @return 차감 성공 여부 (false: 재고 부족)
+     */
+    public boolean removeStock(Item item, int quantity) {
+        int updated = em.createNamedQuery("Item.removeStock")
+                .setParameter("quantity", quantity)
+                .setParameter("id", item.getId())
+                .executeUpdate();
+
+        if (updated == 0) {
+            return false;
+        }
+
+        em.refresh(item);
+        return true;
+    }
+
+    /**
+     * 상품 부분 수정 (벌크 연산)
+     *
+     * merge 는 select 후 모든 컬럼을 update 하고, 값이 없는 필드는 null 로 덮어쓴다.
+     * 여기서는 엔티티를 조회하지 않고 넘어온 값(null 이 아닌 값)의 컬럼만 update 쿼리 한 번으로 수정한다.
+     * version 이 같을 때만 수정하므로, 수정된 row 가 0 이면 다른 곳에서 먼저 수정했거나 없는 상품이다.
+     *
+     * @return 수정된 row 수
+     */
+    public int patch(Long itemId, Long version, String name, Integer price, Integer stockQuantity) {
+        // language=JPAQL
+        String jpql = "update Item i set i.version = i.version + 1";
+
+        if (name != null) {
+            jpql += ", i.name = :name";
+        }
+
+        if (price != null) {
+            jpql += ", i.price = :price";
+        }
+
+        if (stockQuantity != null) {
+            jpql += ", i.stockQuantity = :stockQuantity";
+        }
+
+        Query query = em.createQuery(jpql + " where i.id = :id and i.version = :version")
+                .setParameter("id", itemId)
+                .setParameter("version", version);
+
+        if (name != null) {
+            query.setParameter("name", name);
+        }
+
+        if (price != null) {
+            query.setParameter("price", price);
+        }
+
+        if (stockQuantity != null) {
+            query.setParameter("stockQuantity", stockQuantity);
+        }
+
+        return query.executeUpdate();
     }
 
 }
@@ -0,0 +1,22 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 키셋 페이지 (KeysetPager 참고)
+ *
+ * 다음 페이지는 nextAfterId 를 afterId 로 넘겨서 조회한다. (마지막 페이지면 null)
+ */
+@Getter
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final Long nextAfterId;
+
+    public KeysetPage(List<T> content, Long nextAfterId) {
+        this.content = content;
+        this.nextAfterId = nextAfterId;
+    }
+}
@@ -0,0 +1,63 @@
+package jpabook.jpashop.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * 컬렉션 페치 조인용 2단계 페이징
+ *
+ * 컬렉션을 페치 조인한 쿼리에 setFirstResult/setMaxResults 를 쓰면
+ * 하이버네이트가 모든 로우를 메모리에 올린 뒤 페이징한다. (HHH000104)
+ *
+ * 1단계: id 만 키셋(where id > :afterId order by id)으로 limit + 1 개 조회 (PK 인덱스만 읽는다.)
+ * 2단계: 그 id 들만 페치 조인(또는 배치 로딩)으로 조회하고 1단계의 id 순서대로 다시 정렬한다.
+ *
+ * limit + 1 번째 id 는 다음 페이지가 있는지 확인하는 용도로만 쓰고 조회하지 않는다.
+ */
+public final class KeysetPager {
+
+    public static final int MAX_LIMIT = 1000;
+
+    private KeysetPager() {
+    }
+
+    /**
+     * @param limit   페이지 크기 (1 ~ MAX_LIMIT)
+     * @param findIds 개수를 받아서 다음 id 들을 순서대로 조회
+     * @param hydrate id 들로 엔티티/dto 조회 (순서 상관없음)
+     * @param idOf    조회 결과의 id
+     */
+    public static <T> KeysetPage<T> page(int limit,
+                                         IntFunction<List<Long>> findIds,
+                                         Function<List<Long>, List<T>> hydrate,
+                                         Function<T, Long> idOf) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit 은 1 ~ " + MAX_LIMIT + " 사이여야 합니다. limit=" + limit);
+        }
+
+        List<Long> ids = findIds.apply(limit + 1);
+        boolean hasNext = ids.size() > limit;
+        List<Long> pageIds = hasNext ? ids.subList(0, limit) : ids;
+
+        if (pageIds.isEmpty()) {
+            return new KeysetPage<>(List.of(), null);
+        }
+
+        Map<Long, T> byId = hydrate.apply(pageIds).stream()
+                .collect(Collectors.toMap(idOf, Function.identity(), (a, b) -> a));
+
+        List<T> content = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            T row = byId.get(id);
+            if (row != null) { // 1단계와 2단계 사이에 삭제(보관)된 경우 빠진다.
+                content.add(row);
+            }
+        }
+
+        return new KeysetPage<>(content, hasNext ? pageIds.get(pageIds.size() - 1) : null);
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import java.util.List;
 
 @Repository // 자동으로 스프링 빈으로 등록
@@ -38,7 +39,7 @@ public class MemberRepository {
 
     // 회원들 전부 조회
     public List<Member> findAll() {
-        return em.createQuery("select m from Member m", Member.class)
+        return em.createNamedQuery("Member.findAll", Member.class) // 쿼리는 Member 엔티티의 @NamedQuery
                 .getResultList(); // 회원 전부 조회 할 때는 JPQL 사용 (JPQL 언어, 반환 타입)
                 // JPQL 은 SQL과 문법이 거의 같다.
                 // 다만 대상이 테이블이 아닌, 객체가 대상이다.
@@ -47,10 +48,60 @@ public class MemberRepository {
 
     // 이름으로 회원들 조회
     public List<Member> findByName(String name) {
-        return em.createQuery("select m from Member m where m.name = :name", Member.class)
+        return em.createNamedQuery("Member.findByName", Member.class)
                 .setParameter("name", name) // :name 에 setParameter(name) 으로 설정한 name이 들어감 -> 조건을 사용한 파라미터 바인딩
                 .getResultList();
     }
 
+    /**
+     * 회원 부분 수정 (벌크 연산)
+     * 넘어온 값(null 이 아닌 값)의 컬럼만 update 쿼리 한 번으로 수정한다. (ItemRepository.patch 참고)
+     * 주소는 값 타입이지만 컬럼 단위로 수정한다. -> 도시만 바꿔도 나머지 주소가 null 로 덮어써지지 않는다.
+     *
+     * @return 수정된 row 수 (0 이면 버전 불일치 또는 없는 회원)
+     */
+    public int patch(Long id, Long version, String name, String city, String street, String zipcode) {
+        // language=JPAQL
+        String jpql = "update Member m set m.version = m.version + 1";
+
+        if (name != null) {
+            jpql += ", m.name = :name";
+        }
+
+        if (city != null) {
+            jpql += ", m.address.city = :city";
+        }
+
+        if (street != null) {
+            jpql += ", m.address.street = :street";
+        }
+
+        if (zipcode != null) {
+            jpql += ", m.address.zipcode = :zipcode";
+        }
+
+        Query query = em.createQuery(jpql + " where m.id = :id and m.version = :version")
+                .setParameter("id", id)
+                .setParameter("version", version);
+
+        if (name != null) {
+            query.setParameter("name", name);
+        }
+
+        if (city != null) {
+            query.setParameter("city", city);
+        }
+
+        if (street != null) {
+            query.setParameter("street", street);
+        }
+
+        if (zipcode != null) {
+            query.setParameter("zipcode", zipcode);
+        }
+
+        return query.executeUpdate();
+    }
+
 
 }
@@ -0,0 +1,93 @@
+package jpabook.jpashop.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.query.spi.QueryPlanCache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedQuery;
+import javax.persistence.metamodel.EntityType;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 엔티티의 @NamedQuery 를 애플리케이션 시작 시 모두 파싱(JPQL -> SQL 변환)해서 쿼리 플랜 캐시에 올린다.
+ *
+ * 인라인 JPQL 은 처음 실행할 때 변환되므로 배포 직후 첫 요청들이 변환 시간(수 ms)만큼 느려진다.
+ * 여기서 미리 변환해 두면 리포지토리의 createNamedQuery 는 캐시된 플랜을 그대로 사용한다.
+ *
+ * 잘못된 쿼리가 하나라도 있으면 모두 모아서 예외를 던진다. -> 첫 요청이 아니라 애플리케이션 시작이 실패한다.
+ * (하이버네이트의 시작 시 검사(hibernate.query.startup_check)는 끄고 여기서 시간을 재면서 한 번만 변환한다.)
+ *
+ * 조건에 따라 JPQL 을 조립하는 쿼리(주문 검색, 부분 수정)는 named query 로 만들 수 없으므로 대상이 아니다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NamedQueryWarmer {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private Map<String, Long> translationNanos = Map.of(); // 쿼리 이름 -> 변환 시간
+
+    @PostConstruct
+    public void warmUp() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        entityManagerFactory.getMetamodel().getEntities().stream()
+                .map(EntityType::getJavaType)
+                .sorted(Comparator.comparing(Class::getSimpleName))
+                .forEach(type -> {
+                    for (NamedQuery namedQuery : type.getAnnotationsByType(NamedQuery.class)) {
+                        queries.put(namedQuery.name(), namedQuery.query());
+                    }
+                });
+
+        translationNanos = Collections.unmodifiableMap(warmUp(queries));
+
+        long total = translationNanos.values().stream().mapToLong(Long::longValue).sum();
+        translationNanos.forEach((name, nanos) -> log.info("[named-query] {} {}ms", name, nanos / 1_000_000.0));
+        log.info("[named-query] {}개 변환 완료 total={}ms", translationNanos.size(), total / 1_000_000.0);
+    }
+
+    /**
+     * 쿼리들을 변환해서 플랜 캐시에 올린다.
+     *
+     * @param queries 쿼리 이름 -> JPQL
+     * @return 쿼리 이름 -> 변환 시간(ns)
+     * @throws IllegalStateException 변환에 실패한 쿼리가 있으면 (실패한 쿼리 모두 포함)
+     */
+    public Map<String, Long> warmUp(Map<String, String> queries) {
+        // 하이버네이트 5.6 에는 대체 API(6.x 의 getQueryEngine)가 없다. createNamedQuery 도 이 캐시를 사용한다.
+        @SuppressWarnings("deprecation")
+        QueryPlanCache queryPlanCache = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getQueryPlanCache();
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        Map<String, String> failures = new LinkedHashMap<>();
+
+        queries.forEach((name, jpql) -> {
+            long start = System.nanoTime();
+            try {
+                // 실행 시 조회하는 키와 같게 (shallow = false, 활성화된 필터 없음)
+                queryPlanCache.getHQLQueryPlan(jpql, false, Collections.emptyMap());
+                result.put(name, System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                failures.put(name, e.getMessage());
+            }
+        });
+
+        if (!failures.isEmpty()) {
+            failures.forEach((name, message) -> log.error("[named-query] {} 변환 실패: {}", name, message));
+            throw new IllegalStateException("잘못된 named query 가 있습니다. " + failures.keySet());
+        }
+        return result;
+    }
+
+    public Map<String, Long> getTranslationNanos() {
+        return translationNanos;
+    }
+}
@@ -1,19 +1,35 @@
 package jpabook.jpashop.repository;
 
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.archive.OrderArchiveRepository;
+import jpabook.jpashop.repository.order.query.DeliveryStatusQueryDto;
+import jpabook.jpashop.repository.order.query.DispatchDeliveryQueryDto;
+import jpabook.jpashop.repository.order.query.ItemQuantityQueryDto;
+import jpabook.jpashop.repository.order.query.MemberOrderTotalQueryDto;
+import jpabook.jpashop.repository.order.query.OrderStatusQueryDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import java.util.List;
 
+/**
+ * 주문 리포지토리
+ *
+ * 샤딩 시 현재 트랜잭션이 지정한 샤드(OrderService 에서 ShardRouter.route)에서 실행된다.
+ * 여러 샤드를 합쳐야 하는 검색은 서비스에서 ShardRouter.scatter 로 감싼다.
+ */
 @Repository
 @RequiredArgsConstructor // final이 붙은 멤버변수를 대상으로 자동으로 생성자를 만들어줌! (생성자로 객체를 생성함과 동시에 의존성 주입까지!)
 public class OrderRepository {
 
+    public static final int MAX_SEARCH_RESULTS = 1000; // 주문 검색 최대 건수
 
     /**
      * 이 어노테이션이 있으면 JPA의 엔티티 매니저가 스프링이 생성한 엔티티 매니저를 자동으로 의존 주입해준다.
@@ -25,6 +41,8 @@ public class OrderRepository {
     @PersistenceContext
     private final EntityManager em;
 
+    private final OrderArchiveRepository orderArchiveRepository;
+
     /**
      * 주문 상품 저장
      *
@@ -36,12 +54,67 @@ public class OrderRepository {
 
     /**
      * 주문 상품 하나 조회
+     *
+     * 운영 테이블에 없으면 보관 테이블에서 찾는다. (OrderArchiver 가 옮긴 주문, 읽기 전용)
      */
     public Order findOne(Long id) {
-        return em.find(Order.class, id); // 영속성 컨텍스트 1차 캐시에서 조회
+        Order order = em.find(Order.class, id); // 영속성 컨텍스트 1차 캐시에서 조회
+        return order != null ? order : orderArchiveRepository.findOrder(id);
     }
 
+    /**
+     * 주문 하나 조회 + 주문 로우 락 (select ... for update)
+     *
+     * 주문 취소는 주문 로우를, 배송 완료는 배송 로우를 수정하므로 서로의 변경을 막지 못한다. (write skew)
+     * 둘 다 주문 로우 락을 먼저 잡고 상태를 확인해서 하나씩 처리되게 한다. (배송 상태는 락을 잡은 뒤에 읽는다.)
+     */
+    public Order findOneForUpdate(Long id) {
+        Order order = em.find(Order.class, id, LockModeType.PESSIMISTIC_WRITE);
+        return order != null ? order : orderArchiveRepository.findOrder(id);
+    }
 
+    /**
+     * 주문 로우 락 (select ... for update, findOneForUpdate 참고)
+     *
+     * @return 락을 잡은(존재하는) 주문 id
+     */
+    public List<Long> lockOrders(List<Long> orderIds) {
+        return em.createNamedQuery("Order.lockByIds", Long.class)
+                .setParameter("orderIds", orderIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * 배송 id 로 주문 로우 락 (배송 일괄 완료 전, findOneForUpdate 참고)
+     *
+     * @return 락을 잡은 주문 id
+     */
+    public List<Long> lockOrdersByDeliveryIds(List<Long> deliveryIds) {
+        return em.createNamedQuery("Order.lockByDeliveryIds", Long.class)
+                .setParameter("deliveryIds", deliveryIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * 배송으로 주문 조회
+     *
+     * 배송 -> 주문 연관관계가 없으므로(Delivery 참고) 필요한 곳에서만 쿼리로 찾는다.
+     * 없으면 null (em.find 와 동일)
+     */
+    public Order findByDeliveryId(Long deliveryId) {
+        return em.createNamedQuery("Order.findByDeliveryId", Order.class)
+                .setParameter("deliveryId", deliveryId)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+
+    /**
+     * 주문 검색 (주문 id 순, 최대 1000건)
+     */
     public List<Order> findAll(OrderSearch orderSearch) {
         // language=JPAQL
         String jpql = "select o From Order o join o.member m";
@@ -69,8 +142,8 @@ public class OrderRepository {
             jpql += " m.name like :name";
         }
 
-        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
-                .setMaxResults(1000); //최대 1000건
+        TypedQuery<Order> query = em.createQuery(jpql + " order by o.id", Order.class) // 샤드별 결과를 id 순으로 합칠 수 있도록 정렬
+                .setMaxResults(MAX_SEARCH_RESULTS); //최대 1000건
 
         if (orderSearch.getOrderStatus() != null) {
             query = query.setParameter("status", orderSearch.getOrderStatus());
@@ -90,11 +163,9 @@ public class OrderRepository {
      * @return
      */
     public List<Order> findAllWithMemberDelivery() {
-        return em.createQuery(
-                "select o from Order o" + // Order 를 조회할 때
-                        " join fetch o.member m" + // member 와
-                        " join fetch o.delivery d", Order.class // delivery 도 그래프탐색으로 한 번에 조회
-        ).getResultList();
+        // Order 를 조회할 때 member 와 delivery 도 그래프탐색으로 한 번에 조회 (쿼리는 Order 엔티티의 @NamedQuery)
+        return em.createNamedQuery("Order.findAllWithMemberDelivery", Order.class)
+                .getResultList();
 
         // Order 조회 시 member와 delivery 조인해서 한 방에 가져옴
         // 현재 Order 엔티티를 보면, member 필드와 delivery 필드가 지연로딩으로 설정되어 있다.
@@ -108,23 +179,46 @@ public class OrderRepository {
      * @return
      */
     public List<Order> findAllWithMemberDelivery(int offset, int limit) {
-        return em.createQuery(
-                        "select o from Order o" + // Order 를 조회할 때
-                                " join fetch o.member m" + // member 와
-                                " join fetch o.delivery d", Order.class // delivery 도 그래프탐색으로 한 번에 조회
-                ).setFirstResult(offset) // 페이징 처리
+        return em.createNamedQuery("Order.findAllWithMemberDelivery", Order.class)
+                .setFirstResult(offset) // 페이징 처리
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * afterId 다음 주문 id 를 limit 개 (키셋 페이징 1단계, KeysetPager 참고)
+     */
+    public List<Long> findIdsAfter(Long afterId, int limit) {
+        return em.createNamedQuery("Order.findIdsAfter", Long.class)
+                .setParameter("afterId", afterId == null ? 0L : afterId)
                 .setMaxResults(limit)
                 .getResultList();
     }
 
+    /**
+     * 주문 id 로 주문 + 회원 + 배송 + 주문상품 + 상품 fetch join 조회 (키셋 페이징 2단계)
+     * id 를 먼저 정했으므로 페이징 없이 컬렉션을 페치 조인한다.
+     */
+    public List<Order> findAllWithMemberDeliveryItem(List<Long> orderIds) {
+        return em.createNamedQuery("Order.findAllWithMemberDeliveryItem", Order.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 주문 id 로 주문 + 주문상품 + 상품 fetch join 조회 (주문 이벤트 생성용)
+     */
+    public List<Order> findAllWithItem(List<Long> orderIds) {
+        return em.createNamedQuery("Order.findAllWithItemByIds", Order.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
     public List<Order> findAllWithItem() {
         // fetch join
-        return em.createQuery(
-                        "select distinct o from Order o" +
-                                " join fetch o.member m" +
-                                " join fetch o.delivery d" + // 여기까지는 v2와 같음
-                                " join fetch o.orderItems oi" + // order와 orderItems 를 조인한다!! -> order 2개 + orderItems 4개 -> 쿼리 결과는 결국 4개가 된다.
-                                " join fetch oi.item i", Order.class)
+        // member, delivery 까지는 v2와 같음
+        // order와 orderItems 를 조인한다!! -> order 2개 + orderItems 4개 -> 쿼리 결과는 결국 4개가 된다.
+        return em.createNamedQuery("Order.findAllWithItem", Order.class)
                 .getResultList();
 
         // order 2개, orderItem 4개 조인 시 왜 쿼리 결과가 4개가 될까?
@@ -209,6 +303,126 @@ public class OrderRepository {
 
     }
 
+    /**
+     * 주문 일괄 취소 검증용 조회
+     * 주문 상태와 배송 상태를 쿼리 한 번으로 가져온다.
+     */
+    public List<OrderStatusQueryDto> findStatuses(List<Long> orderIds) {
+        return em.createNamedQuery("Order.findStatuses", OrderStatusQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 주문 상품의 상품별 수량 합계 (재고 원복용)
+     */
+    public List<ItemQuantityQueryDto> findItemQuantities(List<Long> orderIds) {
+        return em.createNamedQuery("OrderItem.findItemQuantities", ItemQuantityQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 회원별 주문 수, 금액 합계 (회원 집계 차감용)
+     */
+    public List<MemberOrderTotalQueryDto> findMemberTotals(List<Long> orderIds) {
+        return em.createNamedQuery("OrderItem.findMemberTotals", MemberOrderTotalQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 주문 일괄 취소 (벌크 연산)
+     *
+     * 벌크 연산은 영속성 컨텍스트를 무시하고 DB 에 바로 쿼리를 날린다.
+     * 1. 실행 전에 flush -> 영속성 컨텍스트에 쌓인 변경 내용을 먼저 DB 에 반영
+     * 2. 실행 후에 clear -> 영속성 컨텍스트에 남아있는 예전 값(주문 상태 ORDER)을 버린다.
+     *
+     * 호출 전에 lockOrders 로 주문 로우 락을 잡고 검증한다. (배송 완료와 동시에 실행되지 않는다.)
+     * where 절의 조건(주문 상태가 ORDER 이고, 배송 완료되지 않은 주문만)은 한 번 더 거는 안전장치다.
+     *
+     * @return 실제로 취소된 주문 수
+     */
+    public int cancelAll(List<Long> orderIds) {
+        em.flush();
+
+        int updated = em.createNamedQuery("Order.cancelAll")
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("order", OrderStatus.ORDER)
+                .setParameter("comp", DeliveryStatus.COMP)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+
+        em.clear();
+        return updated;
+    }
+
+    /**
+     * 주문 id 로 주문 상태 + 배송 상태 조회 (배송 일괄 완료 검증용)
+     */
+    public List<DeliveryStatusQueryDto> findDeliveryStatusesByOrderIds(List<Long> orderIds) {
+        return em.createNamedQuery("Order.findDeliveryStatusesByOrderIds", DeliveryStatusQueryDto.class)
+                .setParameter("ids", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 배송 id 로 주문 상태 + 배송 상태 조회 (배송 일괄 완료 검증용)
+     */
+    public List<DeliveryStatusQueryDto> findDeliveryStatusesByDeliveryIds(List<Long> deliveryIds) {
+        return em.createNamedQuery("Order.findDeliveryStatusesByDeliveryIds", DeliveryStatusQueryDto.class)
+                .setParameter("ids", deliveryIds)
+                .getResultList();
+    }
+
+    /**
+     * 배송 일괄 완료 (벌크 연산, cancelAll 참고)
+     *
+     * 호출 전에 lockOrders, lockOrdersByDeliveryIds 로 주문 로우 락을 잡고 검증한다. (주문 취소와 동시에 실행되지 않는다.)
+     * where 절의 조건(배송 완료되지 않았고, 취소되지 않은 주문의 배송만)은 한 번 더 거는 안전장치다.
+     *
+     * @return 실제로 완료 처리된 배송 수
+     */
+    public int completeDeliveries(List<Long> deliveryIds) {
+        em.flush();
+
+        int updated = em.createNamedQuery("Delivery.completeAll")
+                .setParameter("comp", DeliveryStatus.COMP)
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("deliveryIds", deliveryIds)
+                .executeUpdate();
+
+        em.clear();
+        return updated;
+    }
+
+    /**
+     * (zipcode, afterId) 다음의 출고 대기 배송을 limit 개 (키셋 스캔, 우편번호 -> 배송 id 순)
+     *
+     * 배송 상태 READY + 진행 중인 주문(ORDER)의 배송만 조회한다. 우편번호가 없는 배송은 빠진다.
+     * 처음 조회할 때는 zipcode = "", afterId = 0 을 넘긴다.
+     * delivery(status, zipcode) 인덱스를 타므로 대기 배송이 많아도 페이지마다 인덱스 범위만 읽는다.
+     */
+    public List<DispatchDeliveryQueryDto> findReadyDeliveriesAfter(String zipcode, Long afterId, int limit) {
+        return em.createNamedQuery("Delivery.findReadyAfter", DispatchDeliveryQueryDto.class)
+                .setParameter("ready", DeliveryStatus.READY)
+                .setParameter("order", OrderStatus.ORDER)
+                .setParameter("zipcode", zipcode)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 우편번호가 없어서 출고 계획에서 빠지는 대기 배송 수
+     */
+    public long countReadyDeliveriesWithoutZipcode() {
+        return em.createNamedQuery("Delivery.countReadyWithoutZipcode", Long.class)
+                .setParameter("ready", DeliveryStatus.READY)
+                .setParameter("order", OrderStatus.ORDER)
+                .getSingleResult();
+    }
+
 }
 
 
@@ -0,0 +1,78 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OutboxEvent;
+import jpabook.jpashop.domain.OutboxOffset;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    @PersistenceContext
+    private final EntityManager em;
+
+    public void save(OutboxEvent event) {
+        em.persist(event);
+    }
+
+    /**
+     * lastEventId 다음 이벤트부터 id 순서로 limit 건
+     */
+    public List<OutboxEvent> findAfter(long lastEventId, int limit) {
+        return em.createQuery(
+                        "select e from OutboxEvent e" +
+                                " where e.id > :lastEventId" +
+                                " order by e.id", OutboxEvent.class)
+                .setParameter("lastEventId", lastEventId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 리스너 오프셋 조회 (select ... for update)
+     * 서버가 여러 대여도 같은 리스너에게 같은 배치를 동시에 전달하지 않도록 트랜잭션이 끝날 때까지 잠근다.
+     * 처음 보는 리스너면 0 부터 시작하는 오프셋을 만든다.
+     */
+    public OutboxOffset findOffsetForUpdate(String listenerName) {
+        OutboxOffset offset = em.find(OutboxOffset.class, listenerName, LockModeType.PESSIMISTIC_WRITE);
+
+        if (offset == null) {
+            offset = new OutboxOffset(listenerName);
+            em.persist(offset);
+            em.flush();
+        }
+
+        return offset;
+    }
+
+    /**
+     * 현재 리스너들이 모두 전달을 마친 위치 (오프셋이 없으면 null)
+     */
+    public Long findMinOffset(List<String> listenerNames) {
+        return em.createQuery(
+                        "select min(o.lastEventId) from OutboxOffset o" +
+                                " where o.listenerName in :listenerNames", Long.class)
+                .setParameter("listenerNames", listenerNames)
+                .getSingleResult();
+    }
+
+    /**
+     * 모든 리스너에게 전달되었고 보관 기간이 지난 이벤트 삭제 (벌크 연산)
+     */
+    public int deleteDispatched(long maxEventId, LocalDateTime createdBefore) {
+        return em.createQuery(
+                        "delete from OutboxEvent e" +
+                                " where e.id <= :maxEventId" +
+                                " and e.createdAt < :createdBefore")
+                .setParameter("maxEventId", maxEventId)
+                .setParameter("createdBefore", createdBefore)
+                .executeUpdate();
+    }
+}
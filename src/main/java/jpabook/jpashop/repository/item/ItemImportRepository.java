@@ -0,0 +1,119 @@
+package jpabook.jpashop.repository.item;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 상품 가져오기(CSV) 전용 JDBC 리포지토리
+ *
+ * 수십만 건을 persist / merge 로 처리하면 건마다 select + insert(update) 가 나가고 영속성 컨텍스트도 계속 커진다.
+ * 여기서는 청크(1000건) 단위로
+ * 1. 자연 키 in 쿼리로 기존 상품 id, version 을 한 번에 찾고 (for update)
+ * 2. 새 상품 id 는 시퀀스에서 한 번에 할당받고
+ * 3. H2 의 MERGE INTO ... KEY(item_id) 를 JDBC 배치로 실행해서 등록/수정을 한 번에 처리한다.
+ *
+ * 엔티티를 거치지 않으므로 @Version 도 직접 올려야 한다. (수정되는 상품은 기존 version + 1)
+ */
+@Repository
+public class ItemImportRepository {
+
+    private static final String MERGE_SQL =
+            "merge into item (item_id, dtype, name, price, stock_quantity, version, author, isbn, artist, etc, director, actor)" +
+                    " key (item_id)" +
+                    " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Item 의 @GeneratedValue 와 같은 시퀀스를 사용한다.
+    private static final String NEXT_IDS_SQL = "select next value for hibernate_sequence from system_range(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public ItemImportRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * 자연 키로 기존 상품을 찾아 id, version 을 채운다.
+     * 종류별로 in 쿼리 한 번씩, 청크당 최대 3번
+     *
+     * @param rows 자연 키가 중복되지 않는 행들
+     */
+    public void findExisting(List<ItemImportRow> rows) {
+        Map<String, ItemImportRow> rowMap = rows.stream()
+                .collect(Collectors.toMap(ItemImportRow::getNaturalKey, Function.identity()));
+
+        // 책은 isbn 으로, 앨범과 영화는 상품명으로 후보를 찾고 자연 키 전체가 같은지 비교한다.
+        findExisting(rowMap, ItemImportRow.BOOK, "isbn", "'B|' || isbn", keys(rows, ItemImportRow.BOOK, ItemImportRow::getIsbn));
+        findExisting(rowMap, ItemImportRow.ALBUM, "name", "'A|' || artist || '|' || name", keys(rows, ItemImportRow.ALBUM, ItemImportRow::getName));
+        findExisting(rowMap, ItemImportRow.MOVIE, "name", "'M|' || director || '|' || name", keys(rows, ItemImportRow.MOVIE, ItemImportRow::getName));
+    }
+
+    /**
+     * 새 상품 id 를 한 번에 할당
+     */
+    public List<Long> nextIds(int count) {
+        return jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, count);
+    }
+
+    /**
+     * 등록/수정을 JDBC 배치 한 번으로 실행 (id, version 이 모두 채워진 행)
+     */
+    public void merge(List<ItemImportRow> rows) {
+        jdbcTemplate.batchUpdate(MERGE_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getId());
+            ps.setString(2, row.getDtype());
+            ps.setString(3, row.getName());
+            ps.setInt(4, row.getPrice());
+            ps.setInt(5, row.getStockQuantity());
+            ps.setLong(6, row.getVersion());
+            ps.setString(7, row.getAuthor());
+            ps.setString(8, row.getIsbn());
+            ps.setString(9, row.getArtist());
+            ps.setString(10, row.getEtc());
+            ps.setString(11, row.getDirector());
+            ps.setString(12, row.getActor());
+        });
+    }
+
+    private void findExisting(Map<String, ItemImportRow> rowMap, String dtype, String column, String naturalKey, Set<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        // 같은 청크를 다른 트랜잭션이 동시에 가져오는 경우 version 이 꼬이지 않도록 for update
+        String sql = "select item_id, version, " + naturalKey + " as natural_key" +
+                " from item" +
+                " where dtype = :dtype and " + column + " in (:keys)" +
+                " for update";
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("dtype", dtype)
+                .addValue("keys", keys);
+
+        namedParameterJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+            ItemImportRow row = rowMap.get(rs.getString("natural_key"));
+            if (row != null && row.getId() == null) { // DB 에 같은 자연 키가 여러 개면 먼저 찾은 상품
+                row.setId(rs.getLong("item_id"));
+                row.setVersion(rs.getLong("version"));
+            }
+        });
+    }
+
+    private static Set<String> keys(List<ItemImportRow> rows, String dtype, Function<ItemImportRow, String> key) {
+        return rows.stream()
+                .filter(r -> dtype.equals(r.getDtype()))
+                .map(key)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,47 @@
+package jpabook.jpashop.repository.item;
+
+import lombok.Data;
+
+/**
+ * 상품 가져오기(CSV) 한 행
+ *
+ * 자연 키로 기존 상품을 찾으면 id, version 이 채워진다. (없으면 새 상품)
+ */
+@Data
+public class ItemImportRow {
+
+    public static final String BOOK = "B";
+    public static final String ALBUM = "A";
+    public static final String MOVIE = "M";
+
+    private String dtype; // B, A, M (Item 의 @DiscriminatorValue)
+    private String name;
+    private int price;
+    private int stockQuantity;
+
+    private String author;
+    private String isbn;
+    private String artist;
+    private String etc;
+    private String director;
+    private String actor;
+
+    // == 기존 상품 매칭 결과 == //
+    private Long id;
+    private long version;
+
+    /**
+     * 공급사 파일에는 우리 상품 id 가 없으므로 자연 키로 같은 상품인지 판단한다.
+     * 책: ISBN, 앨범: 아티스트 + 상품명, 영화: 감독 + 상품명
+     */
+    public String getNaturalKey() {
+        switch (dtype) {
+            case BOOK:
+                return BOOK + "|" + isbn;
+            case ALBUM:
+                return ALBUM + "|" + artist + "|" + name;
+            default:
+                return MOVIE + "|" + director + "|" + name;
+        }
+    }
+}
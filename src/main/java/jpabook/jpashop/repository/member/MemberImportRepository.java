@@ -0,0 +1,79 @@
+package jpabook.jpashop.repository.member;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 회원 일괄 등록 전용 JDBC 리포지토리 (ItemImportRepository 참고)
+ *
+ * MemberService.join 은 회원마다 이름 중복 select + insert(+ 회원 집계 insert) 를 실행한다.
+ * 여기서는 청크(1000건) 단위로
+ * 1. 이름 in 쿼리 한 번으로 이미 있는 이름을 찾고
+ * 2. 새 회원 id 는 시퀀스에서 한 번에 할당받고
+ * 3. 회원, 회원 집계(member_stats) insert 를 JDBC 배치로 실행한다.
+ *
+ * 엔티티를 거치지 않으므로 @Version 초기값(0)도 직접 넣는다.
+ */
+@Repository
+public class MemberImportRepository {
+
+    private static final String INSERT_MEMBER_SQL =
+            "insert into member (member_id, name, city, street, zipcode, version) values (?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERT_STATS_SQL =
+            "insert into member_stats (member_id, order_count, lifetime_spend) values (?, 0, 0)";
+
+    // Member 의 @GeneratedValue 와 같은 시퀀스를 사용한다. (샤딩 시 샤드마다 id 가 겹치지 않는 시퀀스)
+    private static final String NEXT_IDS_SQL = "select next value for hibernate_sequence from system_range(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public MemberImportRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * 이미 있는 이름 (in 쿼리 한 번)
+     */
+    public Set<String> findExistingNames(Collection<String> names) {
+        if (names.isEmpty()) {
+            return Set.of();
+        }
+
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "select distinct name from member where name in (:names)",
+                new MapSqlParameterSource("names", names), String.class));
+    }
+
+    /**
+     * 새 회원 id 를 한 번에 할당
+     */
+    public List<Long> nextIds(int count) {
+        return jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, count);
+    }
+
+    /**
+     * 회원, 회원 집계 등록 (id 가 채워진 행, JDBC 배치)
+     */
+    public void insert(List<MemberImportRow> rows) {
+        jdbcTemplate.batchUpdate(INSERT_MEMBER_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getId());
+            ps.setString(2, row.getName());
+            ps.setString(3, row.getCity());
+            ps.setString(4, row.getStreet());
+            ps.setString(5, row.getZipcode());
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_STATS_SQL, rows, rows.size(), (ps, row) -> ps.setLong(1, row.getId()));
+    }
+}
@@ -0,0 +1,17 @@
+package jpabook.jpashop.repository.member;
+
+import lombok.Data;
+
+/**
+ * 회원 일괄 등록 한 행 (요청 ndjson 한 줄)
+ */
+@Data
+public class MemberImportRow {
+
+    private String name;
+    private String city;
+    private String street;
+    private String zipcode;
+
+    private Long id; // 등록할 때 할당
+}
@@ -0,0 +1,79 @@
+package jpabook.jpashop.repository.member;
+
+import jpabook.jpashop.domain.MemberStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 회원별 주문 집계 리포지토리 (MemberStats 참고)
+ *
+ * 집계는 delta update 한 번으로 갱신한다. (조회 후 더하기 x)
+ * -> 같은 회원의 주문이 동시에 들어와도 DB 로우 락 안에서 더해지므로 갱신이 사라지지 않는다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberStatsRepository {
+
+    @PersistenceContext
+    private final EntityManager em;
+
+    // 회원 가입 시 빈 집계 로우 생성
+    public void create(Long memberId) {
+        em.persist(MemberStats.create(memberId));
+    }
+
+    /**
+     * 주문 1건 반영
+     * 집계 로우가 없는 회원(가입 시 만들지 않은 회원)은 첫 주문에서 만든다.
+     */
+    public void addOrder(Long memberId, long amount, LocalDateTime orderDate) {
+        int updated = em.createNamedQuery("MemberStats.addOrder")
+                .setParameter("memberId", memberId)
+                .setParameter("amount", amount)
+                .setParameter("orderDate", orderDate)
+                .executeUpdate();
+
+        if (updated == 0) {
+            em.persist(MemberStats.firstOrder(memberId, amount, orderDate));
+        }
+    }
+
+    // 취소된 주문 반영
+    public void removeOrders(Long memberId, long count, long amount) {
+        em.createNamedQuery("MemberStats.removeOrders")
+                .setParameter("memberId", memberId)
+                .setParameter("count", (int) count)
+                .setParameter("amount", amount)
+                .executeUpdate();
+    }
+
+    /**
+     * 회원 주문 요약 (없는 회원이면 null)
+     */
+    public MemberSummaryDto findSummary(Long memberId) {
+        List<MemberSummaryDto> result = em.createNamedQuery("MemberStats.findSummary", MemberSummaryDto.class)
+                .setParameter("memberId", memberId)
+                .getResultList();
+
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * 우수 고객 목록
+     * 정렬 컬럼 인덱스를 타고 limit 건만 읽는다. (주문 테이블은 읽지 않음)
+     */
+    public List<MemberSummaryDto> findTop(MemberStatsSort sort, int limit) {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.member.MemberSummaryDto(s.memberId, m.name, s.orderCount, s.lifetimeSpend, s.lastOrderDate)" +
+                                " from MemberStats s join Member m on m.id = s.memberId" +
+                                " where s.orderCount > 0" +
+                                " order by " + sort.getColumn() + " desc, s.memberId", MemberSummaryDto.class)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
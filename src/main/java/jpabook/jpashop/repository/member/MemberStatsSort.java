@@ -0,0 +1,38 @@
+package jpabook.jpashop.repository.member;
+
+import java.util.Comparator;
+
+/**
+ * 우수 고객 목록 정렬 기준 (모두 내림차순, 같으면 회원 id 순)
+ */
+public enum MemberStatsSort {
+
+    SPEND("s.lifetimeSpend", Comparator.comparingLong(MemberSummaryDto::getLifetimeSpend)),
+    ORDERS("s.orderCount", Comparator.comparingInt(MemberSummaryDto::getOrderCount)),
+    RECENT("s.lastOrderDate", Comparator.comparing(MemberSummaryDto::getLastOrderDate));
+
+    private final String column;
+    private final Comparator<MemberSummaryDto> comparator; // 샤딩 시 샤드별 결과를 합칠 때
+
+    MemberStatsSort(String column, Comparator<MemberSummaryDto> comparator) {
+        this.column = column;
+        this.comparator = comparator.reversed().thenComparing(MemberSummaryDto::getMemberId);
+    }
+
+    String getColumn() {
+        return column;
+    }
+
+    public Comparator<MemberSummaryDto> getComparator() {
+        return comparator;
+    }
+
+    public static MemberStatsSort of(String name) {
+        for (MemberStatsSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(name)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("지원하지 않는 정렬 기준입니다. sort=" + name);
+    }
+}
@@ -0,0 +1,26 @@
+package jpabook.jpashop.repository.member;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 회원 주문 요약 (member_stats 컬럼만 읽는다.)
+ */
+@Data
+public class MemberSummaryDto {
+
+    private Long memberId;
+    private String name;
+    private int orderCount;
+    private long lifetimeSpend;
+    private LocalDateTime lastOrderDate;
+
+    public MemberSummaryDto(Long memberId, String name, int orderCount, long lifetimeSpend, LocalDateTime lastOrderDate) {
+        this.memberId = memberId;
+        this.name = name;
+        this.orderCount = orderCount;
+        this.lifetimeSpend = lifetimeSpend;
+        this.lastOrderDate = lastOrderDate;
+    }
+}
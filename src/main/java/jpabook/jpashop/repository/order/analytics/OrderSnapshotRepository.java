@@ -0,0 +1,54 @@
+package jpabook.jpashop.repository.order.analytics;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.function.Consumer;
+
+/**
+ * 분석 스냅샷 내보내기용 주문상품 스캔 (JDBC)
+ *
+ * 주문 x 주문상품 x 배송 x 상품을 한 번 조인해서 주문 id 순으로 읽고, 로우를 바로 콜백으로 넘긴다. (OrderStreamRepository 참고)
+ * 한 주문의 주문상품은 연속으로 나온다. (주문 수 집계에 사용)
+ * 보관 테이블로 옮긴 주문(OrderArchiver)은 포함하지 않는다.
+ */
+@Repository
+public class OrderSnapshotRepository {
+
+    private static final String SCAN_SQL =
+            "select o.order_id, o.order_date, o.status, d.city, o.member_id," +
+                    " oi.item_id, i.name as item_name, oi.order_price, oi.count" +
+                    " from orders o" +
+                    " join delivery d on o.delivery_id = d.delivery_id" +
+                    " join order_item oi on oi.order_id = o.order_id" +
+                    " join item i on oi.item_id = i.item_id" +
+                    " order by o.order_id, oi.order_item_id";
+
+    private static final int FETCH_SIZE = 1000;
+
+    /**
+     * 샤드 데이터소스(ShardRouter.getDataSource)마다 호출한다. (트랜잭션 없이 읽는다.)
+     */
+    public void scan(DataSource dataSource, Consumer<OrderSnapshotRow> output) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(FETCH_SIZE); // 결과를 한 번에 메모리에 올리지 않도록
+
+        OrderSnapshotRow row = new OrderSnapshotRow();
+        jdbcTemplate.query(SCAN_SQL, (RowCallbackHandler) rs -> {
+            Timestamp orderDate = rs.getTimestamp("order_date");
+            row.fill(rs.getLong("order_id"),
+                    orderDate == null ? 0 : orderDate.getTime(),
+                    rs.getString("status"),
+                    rs.getString("city"),
+                    rs.getLong("member_id"),
+                    rs.getLong("item_id"),
+                    rs.getString("item_name"),
+                    rs.getInt("order_price"),
+                    rs.getInt("count"));
+            output.accept(row);
+        });
+    }
+}
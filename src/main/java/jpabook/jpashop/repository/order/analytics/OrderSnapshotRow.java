@@ -0,0 +1,35 @@
+package jpabook.jpashop.repository.order.analytics;
+
+import lombok.Getter;
+
+/**
+ * 분석 스냅샷의 한 로우 (주문상품 1개 + 주문, 배송 도시, 상품 이름)
+ *
+ * 로우마다 객체를 만들지 않도록 OrderSnapshotRepository.scan 이 같은 객체를 채워서 넘긴다. (콜백 밖에서 보관 x)
+ */
+@Getter
+public class OrderSnapshotRow {
+
+    private long orderId;
+    private long orderDate; // epoch millis
+    private String status;
+    private String city;
+    private long memberId;
+    private long itemId;
+    private String itemName;
+    private int orderPrice;
+    private int count;
+
+    void fill(long orderId, long orderDate, String status, String city, long memberId,
+              long itemId, String itemName, int orderPrice, int count) {
+        this.orderId = orderId;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.city = city;
+        this.memberId = memberId;
+        this.itemId = itemId;
+        this.itemName = itemName;
+        this.orderPrice = orderPrice;
+        this.count = count;
+    }
+}
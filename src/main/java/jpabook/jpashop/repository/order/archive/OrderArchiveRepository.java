@@ -0,0 +1,154 @@
+package jpabook.jpashop.repository.order.archive;
+
+import jpabook.jpashop.domain.ArchivedDelivery;
+import jpabook.jpashop.domain.ArchivedOrder;
+import jpabook.jpashop.domain.ArchivedOrderItem;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 보관 리포지토리
+ *
+ * 운영 테이블 -> 보관 테이블 이동은 주문 id 묶음 단위의 insert ... select / delete 로 처리한다.
+ * (엔티티를 읽어서 옮기면 영속성 컨텍스트에 주문, 주문상품, 배송이 모두 올라온다.)
+ *
+ * 컬럼 목록은 운영 테이블(Order, OrderItem, Delivery)과 같아야 한다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveRepository {
+
+    @PersistenceContext
+    private final EntityManager em;
+
+    /**
+     * 보관할 주문 id 를 잠그면서 조회 (주문 id 순, 최대 limit 건)
+     *
+     * 오래된 주문(orderDate < cutoff) + 취소 후 유예 기간이 지난 주문(취소 상태 && orderDate < cancelCutoff)
+     * 잠근 주문은 보관이 커밋될 때까지 다른 트랜잭션(주문 취소 등)이 수정할 수 없다.
+     */
+    public List<Long> findArchivableIds(LocalDateTime cutoff, LocalDateTime cancelCutoff, int limit) {
+        @SuppressWarnings("unchecked")
+        List<Number> ids = em.createNativeQuery(
+                        "select o.order_id from orders o" +
+                                " where o.order_date < :cutoff" +
+                                " or (o.status = :cancel and o.order_date < :cancelCutoff)" +
+                                " order by o.order_id" +
+                                " limit :limit" +
+                                " for update")
+                .setParameter("cutoff", cutoff)
+                .setParameter("cancel", OrderStatus.CANCEL.name())
+                .setParameter("cancelCutoff", cancelCutoff)
+                .setParameter("limit", limit)
+                .getResultList();
+
+        return ids.stream()
+                .map(Number::longValue)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 주문 + 주문상품 + 배송을 보관 테이블로 이동
+     *
+     * @return 이동한 주문 수
+     */
+    public int archive(List<Long> orderIds) {
+        LocalDateTime archivedAt = LocalDateTime.now();
+
+        em.createNativeQuery(
+                        "insert into delivery_archive (delivery_id, city, street, zipcode, status)" +
+                                " select d.delivery_id, d.city, d.street, d.zipcode, d.status from delivery d" +
+                                " where d.delivery_id in (select o.delivery_id from orders o where o.order_id in (:orderIds))")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+
+        em.createNativeQuery(
+                        "insert into orders_archive (order_id, member_id, delivery_id, order_date, status, archived_at)" +
+                                " select o.order_id, o.member_id, o.delivery_id, o.order_date, o.status, :archivedAt from orders o" +
+                                " where o.order_id in (:orderIds)")
+                .setParameter("archivedAt", archivedAt)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+
+        em.createNativeQuery(
+                        "insert into order_item_archive (order_item_id, order_id, item_id, order_price, count)" +
+                                " select oi.order_item_id, oi.order_id, oi.item_id, oi.order_price, oi.count from order_item oi" +
+                                " where oi.order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+
+        // 보관된 주문은 목록 조회에 나오지 않으므로 조회 모델에서도 뺀다.
+        em.createNativeQuery("delete from order_view where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+
+        // FK 순서대로 삭제 (주문상품 -> 주문 -> 배송)
+        em.createNativeQuery("delete from order_item where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+
+        int archived = em.createNativeQuery("delete from orders where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+
+        em.createNativeQuery("delete from delivery where delivery_id in" +
+                        " (select da.delivery_id from delivery_archive da" +
+                        " join orders_archive oa on oa.delivery_id = da.delivery_id" +
+                        " where oa.order_id in (:orderIds))")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+
+        return archived;
+    }
+
+    /**
+     * 보관된 주문 조회 (없으면 null)
+     *
+     * 읽기 전용 주문(Order.isArchived)으로 복원한다.
+     * 회원, 상품은 운영 테이블에 그대로 있으므로 프록시로 연결한다.
+     */
+    public Order findOrder(Long orderId) {
+        ArchivedOrder archivedOrder = em.find(ArchivedOrder.class, orderId);
+        if (archivedOrder == null) {
+            return null;
+        }
+
+        List<OrderItem> orderItems = em.createQuery(
+                        "select oi from ArchivedOrderItem oi" +
+                                " where oi.orderId = :orderId" +
+                                " order by oi.id", ArchivedOrderItem.class)
+                .setParameter("orderId", orderId)
+                .getResultStream()
+                .map(oi -> oi.restore(em.getReference(Item.class, oi.getItemId())))
+                .collect(Collectors.toList());
+
+        ArchivedDelivery archivedDelivery = archivedOrder.getDeliveryId() == null ? null
+                : em.find(ArchivedDelivery.class, archivedOrder.getDeliveryId());
+        Delivery delivery = archivedDelivery == null ? null : archivedDelivery.restore();
+
+        Member member = archivedOrder.getMemberId() == null ? null
+                : em.getReference(Member.class, archivedOrder.getMemberId());
+
+        return archivedOrder.restore(member, delivery, orderItems);
+    }
+
+    /**
+     * 보관된 주문 수
+     */
+    public long count() {
+        return em.createQuery("select count(o) from ArchivedOrder o", Long.class)
+                .getSingleResult();
+    }
+}
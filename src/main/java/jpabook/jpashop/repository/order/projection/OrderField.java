@@ -0,0 +1,40 @@
+package jpabook.jpashop.repository.order.projection;
+
+import lombok.Getter;
+
+/**
+ * fields= 로 고를 수 있는 주문 필드 (응답 필드 이름은 v3, v5 와 같다.)
+ *
+ * select 는 필드에 필요한 컬럼만, join 은 필드에 필요한 연관관계만 추가한다.
+ * 주문상품(orderItems)은 컬렉션이므로 select 하지 않고 주문 id 로 한 번 더 조회한다. (v5 방식)
+ */
+@Getter
+public enum OrderField {
+
+    ORDER_ID("orderId", "o.id", null),
+    NAME("name", "m.name", " join o.member m"),
+    ORDER_DATE("orderDate", "o.orderDate", null),
+    ORDER_STATUS("orderStatus", "o.status", null),
+    ADDRESS("address", "d.address", " join o.delivery d"),
+    TOTAL_PRICE("totalPrice", "(select coalesce(sum(oi.orderPrice * oi.count), 0) from OrderItem oi where oi.order = o)", null),
+    ORDER_ITEMS("orderItems", null, null);
+
+    private final String fieldName; // 응답 필드 이름
+    private final String select; // select 절 식 (null 이면 따로 조회)
+    private final String join; // 필요한 join (null 이면 주문 테이블만)
+
+    OrderField(String fieldName, String select, String join) {
+        this.fieldName = fieldName;
+        this.select = select;
+        this.join = join;
+    }
+
+    public static OrderField of(String fieldName) {
+        for (OrderField field : values()) {
+            if (field.fieldName.equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("지원하지 않는 필드입니다. field=" + fieldName);
+    }
+}
@@ -0,0 +1,96 @@
+package jpabook.jpashop.repository.order.projection;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 필드 조합 하나에 대해 만들어 둔 조회 쿼리 (필드 조합별로 캐시해서 재사용)
+ *
+ * 예) fields=orderId,orderStatus,totalPrice
+ * -> select o.id, o.status, (select sum(...) ...) from Order o order by o.id
+ *    (회원, 배송, 주문상품, 상품 조인 없음)
+ *
+ * 필드가 7개뿐이라 조합 수가 정해져 있으므로 캐시 크기를 제한하지 않는다.
+ * 잘못된 필드는 리포지토리 밖에서 검증한다. (리포지토리 예외 변환을 거치지 않고 400 으로 응답하도록)
+ */
+@Getter
+public class OrderProjection {
+
+    private static final Map<Set<OrderField>, OrderProjection> CACHE = new ConcurrentHashMap<>();
+
+    private final Set<OrderField> fields; // 응답 필드 (OrderField 정의 순서)
+    private final List<OrderField> columns; // select 절 순서 (맨 앞의 o.id 다음부터)
+    private final String jpql;
+    private final boolean withItems;
+
+    private OrderProjection(Set<OrderField> fields) {
+        this.fields = Collections.unmodifiableSet(EnumSet.copyOf(fields));
+        this.withItems = fields.contains(OrderField.ORDER_ITEMS);
+
+        List<OrderField> columns = new ArrayList<>();
+        Set<String> joins = new LinkedHashSet<>();
+        StringBuilder select = new StringBuilder("select o.id");
+
+        for (OrderField field : this.fields) {
+            if (field == OrderField.ORDER_ID || field.getSelect() == null) {
+                continue; // o.id 는 항상 조회, 주문상품은 따로 조회
+            }
+            columns.add(field);
+            select.append(", ").append(field.getSelect());
+            if (field.getJoin() != null) {
+                joins.add(field.getJoin());
+            }
+        }
+
+        this.columns = Collections.unmodifiableList(columns);
+        this.jpql = select + " from Order o" + String.join("", joins) + " order by o.id";
+    }
+
+    /**
+     * @param fields 쉼표로 구분한 필드 이름 (예: orderId,orderStatus,totalPrice)
+     * @throws IllegalArgumentException 지원하지 않는 필드
+     */
+    public static OrderProjection of(String fields) {
+        return CACHE.computeIfAbsent(parse(fields), OrderProjection::new);
+    }
+
+    private static Set<OrderField> parse(String fields) {
+        Set<OrderField> result = EnumSet.noneOf(OrderField.class);
+        for (String name : fields.split(",")) {
+            if (!name.isBlank()) {
+                result.add(OrderField.of(name.trim()));
+            }
+        }
+
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("fields 에 필드를 하나 이상 지정해야 합니다.");
+        }
+        return result;
+    }
+
+    /**
+     * 쿼리 결과 한 로우 -> 주문 (select 가 o.id 하나뿐이면 로우가 배열이 아니다.)
+     */
+    ProjectedOrder toOrder(Object row) {
+        Object[] values = row instanceof Object[] ? (Object[]) row : new Object[]{row};
+        ProjectedOrder order = new ProjectedOrder((Long) values[0]);
+
+        int column = 1;
+        for (OrderField field : fields) {
+            if (field == OrderField.ORDER_ID) {
+                order.put(field, values[0]);
+            } else if (field != OrderField.ORDER_ITEMS) {
+                order.put(field, values[column++]);
+            }
+        }
+        return order;
+    }
+}
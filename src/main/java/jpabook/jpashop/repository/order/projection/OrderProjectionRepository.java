@@ -0,0 +1,62 @@
+package jpabook.jpashop.repository.order.projection;
+
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 클라이언트가 고른 필드(fields=)만 조회하는 주문 목록
+ *
+ * 필드 조합마다 select, join 을 만든 쿼리(OrderProjection)를 실행한다.
+ *
+ * 주문상품을 고르면 v5 처럼 주문 id 로 한 번 더 조회한다. (쿼리 2번)
+ * 샤딩 시 모든 샤드에서 조회해서 주문 id 순으로 합친다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderProjectionRepository {
+
+    private static final Comparator<ProjectedOrder> ORDER_ID = Comparator.comparing(ProjectedOrder::getId);
+
+    private final EntityManager em;
+    private final ShardRouter shardRouter;
+
+    public List<ProjectedOrder> findOrders(OrderProjection projection) {
+        return shardRouter.scatterSorted(ORDER_ID, () -> findOrdersInShard(projection));
+    }
+
+    private List<ProjectedOrder> findOrdersInShard(OrderProjection projection) {
+        List<?> rows = em.createQuery(projection.getJpql()).getResultList();
+
+        List<ProjectedOrder> result = rows.stream()
+                .map(projection::toOrder)
+                .collect(Collectors.toList());
+
+        if (projection.isWithItems() && !result.isEmpty()) {
+            Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(result.stream()
+                    .map(ProjectedOrder::getId)
+                    .collect(Collectors.toList()));
+            result.forEach(o -> o.put(OrderField.ORDER_ITEMS, orderItemMap.getOrDefault(o.getId(), List.of())));
+        }
+
+        return result;
+    }
+
+    private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                                " from OrderItem oi" +
+                                " join oi.item i" +
+                                " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultStream()
+                .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId));
+    }
+}
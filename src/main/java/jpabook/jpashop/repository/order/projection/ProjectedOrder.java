@@ -0,0 +1,37 @@
+package jpabook.jpashop.repository.order.projection;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * fields= 로 고른 필드만 담은 주문 (json 에도 고른 필드만 나간다.)
+ */
+public class ProjectedOrder {
+
+    @JsonIgnore
+    @Getter
+    private final Long id; // 샤드 결과 병합, 주문상품 조회용 (orderId 를 고르지 않아도 항상 조회)
+
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+
+    public ProjectedOrder(Long id) {
+        this.id = id;
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+
+    public Object get(OrderField field) {
+        return fields.get(field.getFieldName());
+    }
+
+    void put(OrderField field, Object value) {
+        fields.put(field.getFieldName(), value);
+    }
+}
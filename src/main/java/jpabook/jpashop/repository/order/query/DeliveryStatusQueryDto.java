@@ -0,0 +1,24 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+/**
+ * 배송 일괄 완료 시 완료 가능 여부를 쿼리 한 번으로 검증하기 위한 dto
+ */
+@Data
+public class DeliveryStatusQueryDto {
+
+    private Long orderId;
+    private Long deliveryId;
+    private OrderStatus orderStatus;
+    private DeliveryStatus deliveryStatus;
+
+    public DeliveryStatusQueryDto(Long orderId, Long deliveryId, OrderStatus orderStatus, DeliveryStatus deliveryStatus) {
+        this.orderId = orderId;
+        this.deliveryId = deliveryId;
+        this.orderStatus = orderStatus;
+        this.deliveryStatus = deliveryStatus;
+    }
+}
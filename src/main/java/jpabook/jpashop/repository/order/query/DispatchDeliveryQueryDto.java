@@ -0,0 +1,22 @@
+package jpabook.jpashop.repository.order.query;
+
+import lombok.Data;
+
+/**
+ * 출고 계획용 배송 dto (키셋 스캔에 필요한 컬럼만)
+ */
+@Data
+public class DispatchDeliveryQueryDto {
+
+    private Long deliveryId;
+    private Long orderId;
+    private String city;
+    private String zipcode;
+
+    public DispatchDeliveryQueryDto(Long deliveryId, Long orderId, String city, String zipcode) {
+        this.deliveryId = deliveryId;
+        this.orderId = orderId;
+        this.city = city;
+        this.zipcode = zipcode;
+    }
+}
@@ -0,0 +1,18 @@
+package jpabook.jpashop.repository.order.query;
+
+import lombok.Data;
+
+/**
+ * 상품별 주문 수량 합계 (group by item)
+ */
+@Data
+public class ItemQuantityQueryDto {
+
+    private Long itemId;
+    private long quantity;
+
+    public ItemQuantityQueryDto(Long itemId, long quantity) {
+        this.itemId = itemId;
+        this.quantity = quantity;
+    }
+}
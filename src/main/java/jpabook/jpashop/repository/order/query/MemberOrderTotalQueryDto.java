@@ -0,0 +1,20 @@
+package jpabook.jpashop.repository.order.query;
+
+import lombok.Data;
+
+/**
+ * 회원별 주문 수, 주문 금액 합계 (group by member, 회원 집계 차감용)
+ */
+@Data
+public class MemberOrderTotalQueryDto {
+
+    private Long memberId;
+    private long orderCount;
+    private long amount;
+
+    public MemberOrderTotalQueryDto(Long memberId, long orderCount, long amount) {
+        this.memberId = memberId;
+        this.orderCount = orderCount;
+        this.amount = amount;
+    }
+}
@@ -1,33 +1,47 @@
 package jpabook.jpashop.repository.order.query;
 
+import jpabook.jpashop.shard.ShardRouter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * 샤딩 시 모든 샤드에서 조회해서 주문 id 순으로 합친다. (ShardRouter.scatterSorted)
+ */
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
+    private static final Comparator<OrderQueryDto> ORDER_ID = Comparator.comparing(OrderQueryDto::getOrderId);
+
     private final EntityManager em;
+    private final ShardRouter shardRouter;
 
     public List<OrderQueryDto> findOrderQueryDtos() {
+        return shardRouter.scatterSorted(ORDER_ID, () -> {
 
-        List<OrderQueryDto> result = findOrders();
+            List<OrderQueryDto> result = findOrders();
 
-        // 컬렉션 부분은 별도로 채워줘야 한다.
-        result.forEach(o -> {
-            List<OrderItemQueryDto> orderItems = findOrderItems(o.getOrderId());
-            o.setOrderItems(orderItems);
-        });
+            // 컬렉션 부분은 별도로 채워줘야 한다.
+            result.forEach(o -> {
+                List<OrderItemQueryDto> orderItems = findOrderItems(o.getOrderId());
+                o.setOrderItems(orderItems);
+            });
 
-        return result;
+            return result;
+        });
     }
 
     public List<OrderQueryDto> findAllByDto_optimization() {
+        return shardRouter.scatterSorted(ORDER_ID, this::findAllByDto_optimizationInShard);
+    }
+
+    private List<OrderQueryDto> findAllByDto_optimizationInShard() {
         List<OrderQueryDto> result = findOrders();
 
         // v3와의 차이점
@@ -45,11 +59,7 @@ public class OrderQueryRepository {
 
     // 조회해온 order id로 orderItem 조회
     private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                                " from OrderItem oi" +
-                                " join oi.item i" +
-                                " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+        List<OrderItemQueryDto> orderItems = em.createNamedQuery("OrderItem.findQueryDtosByOrderIds", OrderItemQueryDto.class)
                 .setParameter("orderIds", orderIds)
                 .getResultList();
 
@@ -69,21 +79,13 @@ public class OrderQueryRepository {
     }
 
     private List<OrderItemQueryDto> findOrderItems(Long orderId) {
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                                " from OrderItem oi" +
-                                " join oi.item i" +
-                                " where oi.order.id = :orderId", OrderItemQueryDto.class)
+        return em.createNamedQuery("OrderItem.findQueryDtosByOrderId", OrderItemQueryDto.class)
                 .setParameter("orderId", orderId)
                 .getResultList();
     }
 
     private List<OrderQueryDto> findOrders() {
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
-                                " from Order o" +
-                                " join o.member m" +
-                                " join o.delivery d", OrderQueryDto.class)
+        return em.createNamedQuery("Order.findQueryDtos", OrderQueryDto.class)
                 .getResultList();
     }
 
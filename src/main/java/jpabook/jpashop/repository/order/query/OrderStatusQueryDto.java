@@ -0,0 +1,22 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+/**
+ * 주문 일괄 취소 시 취소 가능 여부를 쿼리 한 번으로 검증하기 위한 dto
+ */
+@Data
+public class OrderStatusQueryDto {
+
+    private Long orderId;
+    private OrderStatus orderStatus;
+    private DeliveryStatus deliveryStatus;
+
+    public OrderStatusQueryDto(Long orderId, OrderStatus orderStatus, DeliveryStatus deliveryStatus) {
+        this.orderId = orderId;
+        this.orderStatus = orderStatus;
+        this.deliveryStatus = deliveryStatus;
+    }
+}
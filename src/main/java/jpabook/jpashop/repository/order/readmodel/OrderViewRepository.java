@@ -0,0 +1,225 @@
+package jpabook.jpashop.repository.order.readmodel;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 조회 모델 리포지토리 (OrderView 참고)
+ *
+ * 갱신은 모두 벌크 쿼리로 처리한다. (조회 모델 엔티티를 영속성 컨텍스트에 올리지 않음)
+ * 원본 테이블에서 조회 모델을 만드는 SQL(SELECT_SOURCE)은 갱신, 재생성, 정합성 검사가 함께 사용한다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderViewRepository {
+
+    private static final String COLUMNS =
+            "order_item_id, order_id, member_id, member_name, order_date, status, city, street, zipcode," +
+                    " item_id, item_name, order_price, count";
+
+    // 원본 테이블 -> 조회 모델 (주문상품 1건당 1로우)
+    private static final String SELECT_SOURCE =
+            "select oi.order_item_id, o.order_id, m.member_id, m.name as member_name, o.order_date, o.status, d.city, d.street, d.zipcode," +
+                    " i.item_id, i.name as item_name, oi.order_price, oi.count" +
+                    " from orders o" +
+                    " join member m on o.member_id = m.member_id" +
+                    " join delivery d on o.delivery_id = d.delivery_id" +
+                    " join order_item oi on oi.order_id = o.order_id" +
+                    " join item i on oi.item_id = i.item_id";
+
+    @PersistenceContext
+    private final EntityManager em;
+
+    /**
+     * afterOrderId 다음 주문 id 를 limit 개 (키셋 페이징 1단계, KeysetPager 참고)
+     * 주문 id 인덱스(idx_order_view_order_id)만 읽는다.
+     */
+    public List<Long> findOrderIdsPage(Long afterOrderId, int limit) {
+        return em.createQuery(
+                        "select distinct v.orderId from OrderView v" +
+                                " where v.orderId > :after" +
+                                " order by v.orderId", Long.class)
+                .setParameter("after", afterOrderId == null ? 0L : afterOrderId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 주문 목록 (v5 와 같은 모양, 주문 id 순, 키셋 페이징 2단계)
+     * 조회 모델 테이블 하나만 dto 로 읽고(엔티티 x), 주문상품 로우를 주문 단위로 묶는다.
+     */
+    public List<OrderQueryDto> findOrders(Collection<Long> orderIds) {
+        List<OrderViewRowDto> rows = em.createQuery(
+                        "select new jpabook.jpashop.repository.order.readmodel.OrderViewRowDto(" +
+                                "v.orderId, v.memberName, v.orderDate, v.status, v.address, v.itemName, v.orderPrice, v.count)" +
+                                " from OrderView v" +
+                                " where v.orderId in :orderIds" +
+                                " order by v.orderId, v.id", OrderViewRowDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+
+        List<OrderQueryDto> result = new ArrayList<>();
+        OrderQueryDto current = null;
+
+        for (OrderViewRowDto row : rows) {
+            if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+                current = new OrderQueryDto(row.getOrderId(), row.getMemberName(), row.getOrderDate(),
+                        row.getStatus(), row.getAddress());
+                current.setOrderItems(new ArrayList<>());
+                result.add(current);
+            }
+
+            current.getOrderItems().add(new OrderItemQueryDto(row.getOrderId(), row.getItemName(),
+                    row.getOrderPrice(), row.getCount()));
+        }
+
+        return result;
+    }
+
+    /**
+     * 주문의 조회 모델을 원본 테이블에서 다시 만든다. (주문 등록, 재생성, 불일치 복구)
+     * 주문 엔티티를 먼저 flush 해야 하므로 네이티브 쿼리를 사용한다. (실행 전에 자동 flush)
+     */
+    public void refresh(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+
+        deleteByOrderIds(orderIds);
+
+        em.createNativeQuery("insert into order_view (" + COLUMNS + ") " + SELECT_SOURCE +
+                        " where o.order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    public void deleteByOrderIds(Collection<Long> orderIds) {
+        em.createQuery("delete from OrderView v where v.orderId in :orderIds")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    /**
+     * 주문 상태 변경 (취소)
+     */
+    public void updateStatus(Collection<Long> orderIds, OrderStatus status) {
+        em.createQuery("update OrderView v set v.status = :status where v.orderId in :orderIds")
+                .setParameter("status", status)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    /**
+     * 회원 이름 변경
+     */
+    public void updateMemberName(Long memberId, String name) {
+        em.createQuery("update OrderView v set v.memberName = :name where v.memberId = :memberId")
+                .setParameter("name", name)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    /**
+     * 상품명 변경 (현재 샤드의 상품 테이블 기준)
+     * 상품 엔티티의 변경 내용은 실행 전에 자동 flush 된다. (같은 상품 테이블을 읽는 쿼리)
+     */
+    public void refreshItemNames(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+
+        em.createQuery("update OrderView v" +
+                        " set v.itemName = (select i.name from Item i where i.id = v.itemId)" +
+                        " where v.itemId in :itemIds")
+                .setParameter("itemIds", itemIds)
+                .executeUpdate();
+    }
+
+    /**
+     * 주문 id 순으로 다음 limit 개 (재생성용)
+     */
+    public List<Long> findOrderIdsAfter(long afterOrderId, int limit) {
+        return em.createQuery(
+                        "select o.id from Order o" +
+                                " where o.id > :after" +
+                                " order by o.id", Long.class)
+                .setParameter("after", afterOrderId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 원본 주문이 없는 조회 모델 로우 삭제 (재생성 마지막 단계)
+     */
+    public int deleteOrphans() {
+        return em.createNativeQuery("delete from order_view" +
+                        " where not exists (select 1 from order_item oi where oi.order_item_id = order_view.order_item_id)")
+                .executeUpdate();
+    }
+
+    // == 정합성 검사 == //
+
+    /**
+     * 조회 모델에 없는 주문상품의 주문 id
+     */
+    public List<Long> findMissingOrderIds(int limit) {
+        return orderIds(em.createNativeQuery(
+                        "select distinct oi.order_id from order_item oi" +
+                                " where not exists (select 1 from order_view v where v.order_item_id = oi.order_item_id)" +
+                                " order by oi.order_id")
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    /**
+     * 원본이 없는 조회 모델 로우의 주문 id
+     */
+    public List<Long> findOrphanOrderIds(int limit) {
+        return orderIds(em.createNativeQuery(
+                        "select distinct v.order_id from order_view v" +
+                                " where not exists (select 1 from order_item oi where oi.order_item_id = v.order_item_id)" +
+                                " order by v.order_id")
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    /**
+     * 원본과 값이 다른 조회 모델 로우의 주문 id
+     */
+    public List<Long> findStaleOrderIds(int limit) {
+        return orderIds(em.createNativeQuery(
+                        "select distinct s.order_id from (" + SELECT_SOURCE + ") s" +
+                                " join order_view v on v.order_item_id = s.order_item_id" +
+                                " where v.order_id is distinct from s.order_id" +
+                                " or v.member_id is distinct from s.member_id" +
+                                " or v.member_name is distinct from s.member_name" +
+                                " or v.order_date is distinct from s.order_date" +
+                                " or v.status is distinct from s.status" +
+                                " or v.city is distinct from s.city" +
+                                " or v.street is distinct from s.street" +
+                                " or v.zipcode is distinct from s.zipcode" +
+                                " or v.item_id is distinct from s.item_id" +
+                                " or v.item_name is distinct from s.item_name" +
+                                " or v.order_price <> s.order_price" +
+                                " or v.count <> s.count" +
+                                " order by s.order_id")
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    private static List<Long> orderIds(List<?> rows) {
+        return rows.stream()
+                .map(id -> ((Number) id).longValue())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,26 @@
+package jpabook.jpashop.repository.order.readmodel;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문 조회 모델 로우 (주문상품 1건, OrderViewRepository.findOrders 의 생성자 프로젝션)
+ * 엔티티로 조회하지 않으므로 영속성 컨텍스트에 올라가지 않는다.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderViewRowDto {
+
+    private Long orderId;
+    private String memberName;
+    private LocalDateTime orderDate;
+    private OrderStatus status;
+    private Address address;
+    private String itemName;
+    private int orderPrice;
+    private int count;
+}
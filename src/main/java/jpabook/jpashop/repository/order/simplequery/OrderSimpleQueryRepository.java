@@ -47,12 +47,8 @@ public class OrderSimpleQueryRepository {
     *
     * */
     public List<OrderSimpleQueryDto> findOrderDtos() {
-        // 쿼리문에서 엔티티가 아닌 커스텀 dto로 변환해서 jpa가 바로 끄집어내게 하려면 쿼리문에 아래처럼 new~ 로 적어줘야 한다.
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address) "
-                                + " from Order o"
-                                + " join o.member m"
-                                + " join o.delivery d", OrderSimpleQueryDto.class)
+        // 쿼리문에서 엔티티가 아닌 커스텀 dto로 변환해서 jpa가 바로 끄집어내게 하려면 쿼리문에 new~ 로 적어줘야 한다. (Order 엔티티의 @NamedQuery)
+        return em.createNamedQuery("Order.findSimpleQueryDtos", OrderSimpleQueryDto.class)
                 .getResultList();
 
     }
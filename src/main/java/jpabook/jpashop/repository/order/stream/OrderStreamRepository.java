@@ -0,0 +1,190 @@
+package jpabook.jpashop.repository.order.stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import jpabook.jpashop.shard.ShardRouter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 읽기 전용 dto API 의 JDBC -> JSON 고속 경로
+ *
+ * v4, v5 는 JPQL -> 생성자 표현식 -> dto 리스트 -> 잭슨 직렬화 순서로
+ * 같은 결과를 메모리에 여러 번 복사한다.
+ *
+ * 여기서는 미리 작성해둔 SQL 을 JdbcTemplate 으로 실행하고,
+ * ResultSet 의 각 로우를 바로 JsonGenerator(응답 스트림)에 써서 중간 dto 나 리스트를 만들지 않는다.
+ *
+ * 쿼리 방식 선택 권장 순서의 마지막 단계(스프링 JDBC Template 으로 SQL 직접 사용)에 해당하므로
+ * 정말 트래픽이 많은 조회 API 에만 사용하자.
+ *
+ * 샤딩을 켜면 샤드마다 차례로 조회해서 하나의 json 배열로 이어 쓴다. (주문 id 는 샤드끼리 겹치지 않는다.)
+ * 이때 배열은 샤드 순서, 샤드 안에서는 주문 id 순서다. (OrderAnalyticsService.export 와 같은 방식)
+ *
+ * 주의) 응답을 쓰는 동안 커넥션을 잡고 있고, 중간에 예외가 나면 이미 내려간 응답은 되돌릴 수 없다.
+ */
+@Repository
+public class OrderStreamRepository {
+
+    // JPQL 과 달리 테이블, 컬럼명을 직접 사용한다. (스프링 부트 기본 네이밍 전략 -> 스네이크 케이스)
+    private static final String SIMPLE_ORDERS_SQL =
+            "select o.order_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode" +
+                    " from orders o" +
+                    " join member m on o.member_id = m.member_id" +
+                    " join delivery d on o.delivery_id = d.delivery_id" +
+                    " order by o.order_id";
+
+    // 주문 1 : 주문상품 N 을 조인하므로 주문 정보가 주문상품 수만큼 반복된다.
+    // order_id 로 정렬해서 받고, order_id 가 바뀌는 시점에 주문 json 객체를 닫는다.
+    private static final String ORDERS_SQL =
+            "select o.order_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode," +
+                    " i.name as item_name, oi.order_price, oi.count" +
+                    " from orders o" +
+                    " join member m on o.member_id = m.member_id" +
+                    " join delivery d on o.delivery_id = d.delivery_id" +
+                    " left join order_item oi on oi.order_id = o.order_id" +
+                    " left join item i on oi.item_id = i.item_id" +
+                    " order by o.order_id, oi.order_item_id";
+
+    private static final int FETCH_SIZE = 500;
+
+    private final List<JdbcTemplate> shardTemplates; // 샤드 번호 순
+
+    public OrderStreamRepository(ShardRouter shardRouter) {
+        this.shardTemplates = IntStream.range(0, shardRouter.getShardCount())
+                .mapToObj(shard -> {
+                    JdbcTemplate jdbcTemplate = new JdbcTemplate(shardRouter.getDataSource(shard));
+                    jdbcTemplate.setFetchSize(FETCH_SIZE); // 결과를 한 번에 메모리에 올리지 않도록
+                    return jdbcTemplate;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * v4 simple-orders 와 같은 모양의 json 을 스트리밍
+     */
+    public void writeSimpleOrders(JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+
+        RowCallbackHandler rowWriter = rs -> {
+            try {
+                writeOrderFields(generator, rs);
+                generator.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        for (JdbcTemplate jdbcTemplate : shardTemplates) {
+            jdbcTemplate.query(SIMPLE_ORDERS_SQL, rowWriter);
+        }
+
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    /**
+     * v5 orders 와 같은 모양의 json 을 스트리밍
+     */
+    public void writeOrders(JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+
+        OrderRowWriter rowWriter = new OrderRowWriter(generator);
+        for (JdbcTemplate jdbcTemplate : shardTemplates) {
+            jdbcTemplate.query(ORDERS_SQL, rowWriter);
+            rowWriter.finish(); // 다음 샤드의 첫 주문과 섞이지 않도록 샤드마다 마지막 주문을 닫는다.
+        }
+
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    /**
+     * 주문 헤더 필드를 쓴다. (객체는 연 상태로 리턴)
+     */
+    private static void writeOrderFields(JsonGenerator generator, ResultSet rs) throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeNumberField("orderId", rs.getLong("order_id"));
+        generator.writeStringField("name", rs.getString("name"));
+
+        Timestamp orderDate = rs.getTimestamp("order_date");
+        generator.writeStringField("orderDate", orderDate == null ? null
+                : DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(orderDate.toLocalDateTime())); // 잭슨 LocalDateTime 기본 포맷과 동일
+        generator.writeStringField("orderStatus", rs.getString("status"));
+
+        String city = rs.getString("city");
+        String street = rs.getString("street");
+        String zipcode = rs.getString("zipcode");
+
+        generator.writeFieldName("address");
+        if (city == null && street == null && zipcode == null) {
+            generator.writeNull(); // 임베디드 타입의 컬럼이 모두 null 이면 JPA 도 null 로 읽는다.
+        } else {
+            generator.writeStartObject();
+            generator.writeStringField("city", city);
+            generator.writeStringField("street", street);
+            generator.writeStringField("zipcode", zipcode);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * order_id 가 바뀔 때마다 이전 주문의 orderItems 배열과 주문 객체를 닫는다.
+     */
+    private static class OrderRowWriter implements RowCallbackHandler {
+
+        private final JsonGenerator generator;
+        private long currentOrderId;
+        private boolean open;
+
+        OrderRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                long orderId = rs.getLong("order_id");
+
+                if (!open || orderId != currentOrderId) {
+                    finish();
+                    writeOrderFields(generator, rs);
+                    generator.writeArrayFieldStart("orderItems");
+                    currentOrderId = orderId;
+                    open = true;
+                }
+
+                String itemName = rs.getString("item_name");
+                int orderPrice = rs.getInt("order_price");
+                if (rs.wasNull()) {
+                    return; // 주문상품이 없는 주문 (left join)
+                }
+
+                generator.writeStartObject();
+                generator.writeStringField("itemName", itemName);
+                generator.writeNumberField("orderPrice", orderPrice);
+                generator.writeNumberField("count", rs.getInt("count"));
+                generator.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            if (open) {
+                generator.writeEndArray(); // orderItems
+                generator.writeEndObject(); // order
+                open = false;
+            }
+        }
+    }
+}
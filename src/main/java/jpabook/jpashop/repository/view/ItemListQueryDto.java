@@ -0,0 +1,22 @@
+package jpabook.jpashop.repository.view;
+
+import lombok.Data;
+
+/**
+ * 상품 목록 화면(itemList.html), 주문 폼(orderForm.html) 전용 조회 dto
+ */
+@Data
+public class ItemListQueryDto {
+
+    private Long id;
+    private String name;
+    private int price;
+    private int stockQuantity;
+
+    public ItemListQueryDto(Long id, String name, int price, int stockQuantity) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.stockQuantity = stockQuantity;
+    }
+}
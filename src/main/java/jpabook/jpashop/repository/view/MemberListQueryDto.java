@@ -0,0 +1,21 @@
+package jpabook.jpashop.repository.view;
+
+import jpabook.jpashop.domain.Address;
+import lombok.Data;
+
+/**
+ * 회원 목록 화면(memberList.html), 주문 폼(orderForm.html) 전용 조회 dto
+ */
+@Data
+public class MemberListQueryDto {
+
+    private Long id;
+    private String name;
+    private Address address;
+
+    public MemberListQueryDto(Long id, String name, Address address) {
+        this.id = id;
+        this.name = name;
+        this.address = address;
+    }
+}
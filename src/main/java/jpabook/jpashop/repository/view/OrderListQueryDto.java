@@ -0,0 +1,33 @@
+package jpabook.jpashop.repository.view;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 화면(orderList.html) 전용 조회 dto
+ *
+ * 화면에서 필요한 값은 회원명과 대표상품(첫 번째 주문상품) 정보뿐이므로
+ * 엔티티 그래프를 렌더링 중에 지연 로딩하지 않고 필요한 필드만 미리 채워서 넘긴다.
+ */
+@Data
+public class OrderListQueryDto {
+
+    private Long orderId;
+    private String memberName;
+    private OrderStatus status;
+    private LocalDateTime orderDate;
+
+    // == 대표상품 정보 == //
+    private String itemName;
+    private int orderPrice;
+    private int count;
+
+    public OrderListQueryDto(Long orderId, String memberName, OrderStatus status, LocalDateTime orderDate) {
+        this.orderId = orderId;
+        this.memberName = memberName;
+        this.status = status;
+        this.orderDate = orderDate;
+    }
+}
@@ -0,0 +1,191 @@
+package jpabook.jpashop.repository.view;
+
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 타임리프 화면 전용 조회 리포지토리
+ *
+ * OSIV 를 끄면(spring.jpa.open-in-view: false) 트랜잭션이 끝나는 순간 DB 커넥션과 영속성 컨텍스트가 함께 반납된다.
+ * 따라서 화면 렌더링 중에 엔티티의 지연 로딩을 터치하면 LazyInitializationException 이 발생한다.
+ *
+ * 그래서 화면에 필요한 값은 여기서 쿼리 1~2번으로 dto 에 모두 채워서 넘기고,
+ * 렌더링이 시작되기 전에 커넥션을 반납하도록 한다.
+ *
+ * OrderSimpleQueryRepository 와 마찬가지로 특정 화면에 핏된 쿼리이므로
+ * 엔티티 리포지토리와 분리해서 관리한다.
+ *
+ * 샤딩 시 주문, 회원 목록은 모든 샤드에서 조회해서 id 순으로 합친다. (상품은 기본 샤드의 카탈로그)
+ */
+@Repository
+@Transactional(readOnly = true) // 주문 목록처럼 쿼리가 2번 나가는 경우에도 커넥션 하나로 처리
+@RequiredArgsConstructor
+public class ViewQueryRepository {
+
+    @PersistenceContext
+    private final EntityManager em;
+
+    private final ShardRouter shardRouter;
+
+    /**
+     * 주문 목록 화면
+     *
+     * 1. 주문 + 회원 조인 (검색 조건 적용, 최대 1000건)
+     * 2. 조회한 주문 id 로 주문상품 + 상품 조인을 in 쿼리 한 번으로 조회해 대표상품을 채운다.
+     *
+     * -> 총 쿼리 2번 (샤딩 시 샤드마다)
+     */
+    public List<OrderListQueryDto> findOrderList(OrderSearch orderSearch) {
+        List<OrderListQueryDto> result = shardRouter.scatterSorted(Comparator.comparing(OrderListQueryDto::getOrderId),
+                () -> findOrderListInShard(orderSearch));
+
+        return result.size() > OrderRepository.MAX_SEARCH_RESULTS
+                ? result.subList(0, OrderRepository.MAX_SEARCH_RESULTS)
+                : result;
+    }
+
+    private List<OrderListQueryDto> findOrderListInShard(OrderSearch orderSearch) {
+        List<OrderListQueryDto> result = findOrders(orderSearch);
+
+        if (result.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, OrderItemQueryDto> representativeItems = findRepresentativeItemMap(toOrderIds(result));
+
+        result.forEach(o -> {
+            OrderItemQueryDto orderItem = representativeItems.get(o.getOrderId());
+            if (orderItem != null) {
+                o.setItemName(orderItem.getItemName());
+                o.setOrderPrice(orderItem.getOrderPrice());
+                o.setCount(orderItem.getCount());
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * 상품 목록 화면, 주문 폼
+     */
+    public List<ItemListQueryDto> findItemList() {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.view.ItemListQueryDto(i.id, i.name, i.price, i.stockQuantity)" +
+                                " from Item i" +
+                                " order by i.id", ItemListQueryDto.class)
+                .getResultList();
+    }
+
+    /**
+     * afterId 다음 상품 limit 개 (상품 카탈로그 전체 적재, 키셋)
+     */
+    public List<ItemListQueryDto> findItemListAfter(Long afterId, int limit) {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.view.ItemListQueryDto(i.id, i.name, i.price, i.stockQuantity)" +
+                                " from Item i" +
+                                " where i.id > :afterId" +
+                                " order by i.id", ItemListQueryDto.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 변경된 상품만 다시 조회 (상품 카탈로그 갱신)
+     */
+    public List<ItemListQueryDto> findItemListByIds(Collection<Long> itemIds) {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.view.ItemListQueryDto(i.id, i.name, i.price, i.stockQuantity)" +
+                                " from Item i" +
+                                " where i.id in :itemIds", ItemListQueryDto.class)
+                .setParameter("itemIds", itemIds)
+                .getResultList();
+    }
+
+    /**
+     * 회원 목록 화면, 주문 폼
+     */
+    public List<MemberListQueryDto> findMemberList() {
+        return shardRouter.scatterSorted(Comparator.comparing(MemberListQueryDto::getId), () -> em.createQuery(
+                        "select new jpabook.jpashop.repository.view.MemberListQueryDto(m.id, m.name, m.address)" +
+                                " from Member m" +
+                                " order by m.id", MemberListQueryDto.class)
+                .getResultList());
+    }
+
+    private List<OrderListQueryDto> findOrders(OrderSearch orderSearch) {
+        // language=JPAQL
+        String jpql = "select new jpabook.jpashop.repository.view.OrderListQueryDto(o.id, m.name, o.status, o.orderDate)" +
+                " from Order o join o.member m";
+        boolean isFirstCondition = true;
+
+        // 주문 상태 검색
+        if (orderSearch.getOrderStatus() != null) {
+            jpql += isFirstCondition ? " where" : " and";
+            isFirstCondition = false;
+            jpql += " o.status = :status";
+        }
+
+        // 회원 이름 검색
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            jpql += isFirstCondition ? " where" : " and";
+            jpql += " m.name like :name";
+        }
+
+        TypedQuery<OrderListQueryDto> query = em.createQuery(jpql + " order by o.id", OrderListQueryDto.class)
+                .setMaxResults(OrderRepository.MAX_SEARCH_RESULTS); // 최대 1000건
+
+        if (orderSearch.getOrderStatus() != null) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            query.setParameter("name", orderSearch.getMemberName());
+        }
+
+        return query.getResultList();
+    }
+
+    // 주문별 첫 번째 주문상품(대표상품)
+    private Map<Long, OrderItemQueryDto> findRepresentativeItemMap(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<OrderItemQueryDto> orderItems = em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                                " from OrderItem oi" +
+                                " join oi.item i" +
+                                " where oi.order.id in :orderIds" +
+                                " order by oi.id", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+
+        Map<Long, OrderItemQueryDto> result = new HashMap<>();
+        orderItems.forEach(oi -> result.putIfAbsent(oi.getOrderId(), oi));
+        return result;
+    }
+
+    private List<Long> toOrderIds(List<OrderListQueryDto> result) {
+        return result.stream()
+                .map(OrderListQueryDto::getOrderId)
+                .collect(Collectors.toList());
+    }
+}
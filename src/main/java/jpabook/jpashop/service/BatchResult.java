@@ -0,0 +1,35 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 일괄 처리 결과
+ *
+ * 처리된 id 와 건너뛴 id(사유 포함)를 함께 돌려준다.
+ * 일부가 건너뛰어져도 나머지는 처리되므로, 호출하는 쪽에서 건너뛴 건만 확인하면 된다.
+ */
+@Getter
+public class BatchResult {
+
+    private final List<Long> processed = new ArrayList<>();
+    private final List<Skipped> skipped = new ArrayList<>();
+
+    public void processed(Long id) {
+        processed.add(id);
+    }
+
+    public void skipped(Long id, String reason) {
+        skipped.add(new Skipped(id, reason));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Skipped {
+        private final Long id;
+        private final String reason;
+    }
+}
@@ -0,0 +1,87 @@
+package jpabook.jpashop.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 최소한의 CSV 파서 (RFC 4180)
+ *
+ * 한 행씩 읽어서 돌려주므로 파일 크기와 관계없이 메모리 사용량이 일정하다.
+ * 따옴표로 감싼 값 안의 쉼표, 줄바꿈, 따옴표 이스케이프("")를 지원한다.
+ */
+public class CsvReader implements Closeable {
+
+    private final Reader reader;
+
+    private int lineNumber; // 지금까지 읽은 줄 수
+    private int rowLineNumber; // 마지막으로 읽은 행이 시작된 줄 (오류 메시지용)
+
+    public CsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader, 64 * 1024);
+    }
+
+    /**
+     * 다음 행
+     * @return 파일 끝이면 null
+     */
+    public List<String> readRow() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+
+        rowLineNumber = ++lineNumber;
+
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException(rowLineNumber + "번째 줄: 따옴표가 닫히지 않았습니다.");
+                }
+
+                if (c == '"') {
+                    int next = reader.read();
+                    if (next != '"') { // 닫는 따옴표
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                    value.append('"'); // "" -> "
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    value.append((char) c);
+                }
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c == '"' && value.length() == 0) {
+                quoted = true;
+            } else if (c == '\n' || c == -1) {
+                values.add(value.toString());
+                return values;
+            } else if (c != '\r') { // CRLF 의 CR 은 버린다.
+                value.append((char) c);
+            }
+
+            c = reader.read();
+        }
+    }
+
+    public int getRowLineNumber() {
+        return rowLineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
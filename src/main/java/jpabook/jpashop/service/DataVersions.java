@@ -0,0 +1,58 @@
+package jpabook.jpashop.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 화면 데이터 버전
+ *
+ * 상품, 회원이 바뀌어 커밋될 때마다 1씩 올린다. 버전이 같으면 데이터도 같으므로
+ * 렌더링해 둔 화면 조각(FragmentCache)을 그대로 다시 쓸 수 있다.
+ *
+ * - 상품: 상품 카탈로그(ItemCatalog)가 변경을 반영한 뒤 올린다. (재고 변경 포함)
+ * - 회원: 회원 등록/수정(MemberService, MemberImportService) 커밋 후 올린다.
+ *
+ * 버전을 먼저 읽고 데이터를 읽어야 한다. (데이터를 읽은 뒤 바뀌면 다음 요청은 버전이 달라 다시 렌더링한다.)
+ *
+ * 이 JVM 안의 카운터다. 다른 서버에서 커밋된 변경은 세지 않는다. (FragmentCache 의 ttl 로 늦게라도 반영)
+ */
+@Component
+public class DataVersions {
+
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong members = new AtomicLong();
+
+    public long items() {
+        return items.get();
+    }
+
+    public long members() {
+        return members.get();
+    }
+
+    public void itemsChanged() {
+        items.incrementAndGet();
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 회원 버전을 올린다. (트랜잭션 밖이면 바로)
+     */
+    public void membersChangedAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            members.incrementAndGet();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    members.incrementAndGet();
+                }
+            }
+        });
+    }
+}
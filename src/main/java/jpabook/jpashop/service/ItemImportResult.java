@@ -0,0 +1,51 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 상품 가져오기(CSV) 결과
+ *
+ * 건너뛴 행의 사유는 처음 100건까지만 담는다. (파일이 커도 결과 크기는 일정)
+ */
+@Getter
+public class ItemImportResult {
+
+    private static final int MAX_ERRORS = 100;
+
+    private long rows; // 읽은 데이터 행 수 (헤더 제외)
+    private long inserted;
+    private long updated;
+    private long duplicated; // 같은 청크 안에서 자연 키가 겹쳐 앞의 행이 무시된 수
+    private long skipped;
+    private final List<String> errors = new ArrayList<>();
+
+    @Setter
+    private long elapsedMillis;
+
+    public void read() {
+        rows++;
+    }
+
+    public void inserted(int count) {
+        inserted += count;
+    }
+
+    public void updated(int count) {
+        updated += count;
+    }
+
+    public void duplicated() {
+        duplicated++;
+    }
+
+    public void skipped(int lineNumber, String reason) {
+        skipped++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(lineNumber + "번째 줄: " + reason);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.item.ItemImportRepository;
+import jpabook.jpashop.repository.item.ItemImportRow;
+import jpabook.jpashop.repository.order.readmodel.OrderViewRepository;
+import jpabook.jpashop.service.catalog.ItemCatalog;
+import jpabook.jpashop.shard.CatalogReplicator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 상품 카탈로그 CSV 가져오기
+ *
+ * 공급사 CSV 를 한 행씩 읽어서 1000행(청크)마다 등록/수정한다. (ItemImportRepository 참고)
+ * - 청크만 메모리에 올리므로 파일 크기와 관계없이 메모리 사용량이 일정하다.
+ * - 청크마다 트랜잭션을 커밋한다. 중간에 실패하면 앞의 청크는 반영된 상태로 남지만,
+ *   자연 키로 upsert 하므로 같은 파일을 다시 가져오면 된다.
+ *   (그래서 클래스 레벨에 @Transactional 을 두지 않는다. 파일 전체가 하나의 트랜잭션이 되면 안됨)
+ *
+ * CSV 형식 (첫 줄은 헤더, 컬럼 순서는 자유, 종류에 맞지 않는 컬럼은 비워둔다)
+ * type,name,price,stockQuantity,author,isbn,artist,etc,director,actor
+ * BOOK,JPA,10000,100,김영한,9788960777330,,,,
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ItemImportService {
+
+    public static final int CHUNK_SIZE = 1000;
+    private static final int PROGRESS_LOG_INTERVAL = 100; // 100 청크(10만 행)마다 진행 상황 로그
+
+    private final ItemImportRepository itemImportRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogReplicator catalogReplicator;
+    private final OrderViewRepository orderViewRepository;
+    private final ItemCatalog itemCatalog;
+
+    public ItemImportResult importCsv(InputStream in) throws IOException {
+        ItemImportResult result = new ItemImportResult();
+        long start = System.currentTimeMillis();
+
+        try (CsvReader reader = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = readHeader(reader);
+
+            // 같은 상품이 청크 안에 여러 번 나오면 마지막 행으로 (merge 배치 안에서 같은 id 가 두 번 나오지 않도록)
+            Map<String, ItemImportRow> chunk = new LinkedHashMap<>();
+            int chunks = 0;
+
+            List<String> values;
+            while ((values = reader.readRow()) != null) {
+                if (values.size() == 1 && values.get(0).isEmpty()) { // 빈 줄
+                    continue;
+                }
+
+                result.read();
+
+                ItemImportRow row;
+                try {
+                    row = toRow(header, values);
+                } catch (IllegalArgumentException e) {
+                    result.skipped(reader.getRowLineNumber(), e.getMessage());
+                    continue;
+                }
+
+                if (chunk.put(row.getNaturalKey(), row) != null) {
+                    result.duplicated();
+                }
+
+                if (chunk.size() == CHUNK_SIZE) {
+                    importChunk(new ArrayList<>(chunk.values()), result);
+                    chunk.clear();
+
+                    if (++chunks % PROGRESS_LOG_INTERVAL == 0) {
+                        log.info("[item-import] {} rows, inserted={}, updated={}, skipped={}, {}ms",
+                                result.getRows(), result.getInserted(), result.getUpdated(), result.getSkipped(),
+                                System.currentTimeMillis() - start);
+                    }
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                importChunk(new ArrayList<>(chunk.values()), result);
+            }
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("[item-import] done {} rows, inserted={}, updated={}, duplicated={}, skipped={}, {}ms",
+                result.getRows(), result.getInserted(), result.getUpdated(), result.getDuplicated(), result.getSkipped(),
+                result.getElapsedMillis());
+
+        return result;
+    }
+
+    /**
+     * 청크 하나를 한 트랜잭션으로 등록/수정
+     * 기존 상품 조회(최대 3번) + id 할당(1번) + merge 배치(1번)
+     */
+    private void importChunk(List<ItemImportRow> rows, ItemImportResult result) {
+        Integer inserted = transactionTemplate.execute(status -> {
+            itemImportRepository.findExisting(rows);
+
+            List<ItemImportRow> newRows = rows.stream()
+                    .filter(r -> r.getId() == null)
+                    .collect(Collectors.toList());
+
+            List<Long> updatedIds = rows.stream()
+                    .map(ItemImportRow::getId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+
+            rows.stream()
+                    .filter(r -> r.getId() != null)
+                    .forEach(r -> r.setVersion(r.getVersion() + 1)); // 수정되는 상품은 버전을 올린다.
+
+            if (!newRows.isEmpty()) {
+                Iterator<Long> ids = itemImportRepository.nextIds(newRows.size()).iterator();
+                newRows.forEach(r -> {
+                    r.setId(ids.next());
+                    r.setVersion(0);
+                });
+            }
+
+            itemImportRepository.merge(rows);
+            orderViewRepository.refreshItemNames(updatedIds); // 수정된 상품의 주문 조회 모델 상품명
+            return newRows.size();
+        });
+
+        result.inserted(inserted);
+        result.updated(rows.size() - inserted);
+
+        // 샤딩 시 커밋된 청크를 다른 샤드에 복제, 상품 카탈로그 갱신
+        List<Long> itemIds = rows.stream()
+                .map(ItemImportRow::getId)
+                .collect(Collectors.toList());
+        catalogReplicator.replicateAfterCommit(itemIds);
+        itemCatalog.refreshAfterCommit(itemIds);
+    }
+
+    private Map<String, Integer> readHeader(CsvReader reader) throws IOException {
+        List<String> columns = reader.readRow();
+        if (columns == null) {
+            throw new IllegalArgumentException("빈 파일입니다.");
+        }
+
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).replace("\uFEFF", "").trim().toLowerCase(), i); // 엑셀이 붙이는 BOM 제거
+        }
+
+        for (String required : new String[]{"type", "name", "price", "stockquantity"}) {
+            if (!header.containsKey(required)) {
+                throw new IllegalArgumentException("헤더에 " + required + " 컬럼이 없습니다.");
+            }
+        }
+
+        return header;
+    }
+
+    private ItemImportRow toRow(Map<String, Integer> header, List<String> values) {
+        ItemImportRow row = new ItemImportRow();
+
+        row.setDtype(toDtype(value(header, values, "type")));
+        row.setName(required(header, values, "name"));
+        row.setPrice(toQuantity(header, values, "price"));
+        row.setStockQuantity(toQuantity(header, values, "stockquantity"));
+
+        switch (row.getDtype()) {
+            case ItemImportRow.BOOK:
+                row.setAuthor(value(header, values, "author"));
+                row.setIsbn(required(header, values, "isbn"));
+                break;
+            case ItemImportRow.ALBUM:
+                row.setArtist(required(header, values, "artist"));
+                row.setEtc(value(header, values, "etc"));
+                break;
+            default:
+                row.setDirector(required(header, values, "director"));
+                row.setActor(value(header, values, "actor"));
+        }
+
+        return row;
+    }
+
+    private static String toDtype(String type) {
+        if (type == null) {
+            throw new IllegalArgumentException("type 이 비어있습니다.");
+        }
+
+        switch (type.toUpperCase()) {
+            case "B":
+            case "BOOK":
+                return ItemImportRow.BOOK;
+            case "A":
+            case "ALBUM":
+                return ItemImportRow.ALBUM;
+            case "M":
+            case "MOVIE":
+                return ItemImportRow.MOVIE;
+            default:
+                throw new IllegalArgumentException("알 수 없는 상품 종류입니다. type=" + type);
+        }
+    }
+
+    private static int toQuantity(Map<String, Integer> header, List<String> values, String column) {
+        String value = required(header, values, column);
+        try {
+            int quantity = Integer.parseInt(value);
+            if (quantity < 0) {
+                throw new IllegalArgumentException(column + " 은 0 이상이어야 합니다. " + column + "=" + value);
+            }
+            return quantity;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " 이 숫자가 아닙니다. " + column + "=" + value);
+        }
+    }
+
+    private static String required(Map<String, Integer> header, List<String> values, String column) {
+        String value = value(header, values, column);
+        if (value == null) {
+            throw new IllegalArgumentException(column + " 이 비어있습니다.");
+        }
+        return value;
+    }
+
+    private static String value(Map<String, Integer> header, List<String> values, String column) {
+        Integer index = header.get(column);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return StringUtils.hasText(value) ? value : null;
+    }
+}
@@ -5,10 +5,15 @@ import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.order.readmodel.OrderViewRepository;
+import jpabook.jpashop.service.catalog.ItemCatalog;
+import jpabook.jpashop.shard.CatalogReplicator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.OptimisticLockException;
 import java.util.List;
 
 @Service // 컴포넌트 스캔의 대상이 됨 ->  스프링 빈으로 등록됨
@@ -20,6 +25,9 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final CatalogReplicator catalogReplicator; // 샤딩 시 커밋 후 다른 샤드에 상품 복제
+    private final OrderViewRepository orderViewRepository; // 주문 조회 모델의 상품명
+    private final ItemCatalog itemCatalog; // 상품 목록 화면용 힙 밖 카탈로그 (커밋 후 갱신)
 
     // 세터 인젝션은 테스트는 용이하지만, 외부에서 세터를 호출해 값을 수정할 수 있기 때문에 위험하다. -> 사용x
     // 생성자 인젝션을 사용하자.
@@ -37,6 +45,8 @@ public class ItemService {
     @Transactional // 저장 트랜잭션은 readOnly x!!
     public void saveItem(Item item) {
         itemRepository.save(item);
+        catalogReplicator.replicateAfterCommit(item.getId());
+        itemCatalog.refreshAfterCommit(item.getId());
     }
 
     /** 준영속 엔티티를 수정하는 2가지 방법
@@ -54,6 +64,11 @@ public class ItemService {
         findItem.setName(param.getName());
         findItem.setStockQuantity(param.getStockQuantity());
 
+        if (findItem instanceof Book) {
+            ((Book) findItem).setAuthor(param.getAuthor());
+            ((Book) findItem).setIsbn(param.getIsbn());
+        }
+
         // 이렇게 객체를 수정해주면 @Transactional 이 실행되면서
         // flush() 가 이루어지고, 영속성 컨텍스트와 DB가 싱크된다.
         // 즉, 위에서 바꿔준 값으로 DB에 쿼리를 날린다.
@@ -78,10 +93,40 @@ public class ItemService {
         // 병합시 값이 없으면 null 로 업데이트 할 위험도 있다. (병합은 모든 필드를 교체한다.)
 
         // 그래서 실무에서는 merge를 사용하지 말고, 변경 감지 메소드를 직접 만들어서 사용하자!
+        orderViewRepository.refreshItemNames(List.of(itemId));
+        catalogReplicator.replicateAfterCommit(itemId);
+        itemCatalog.refreshAfterCommit(itemId);
         return findItem;
 
     }
 
+    /**
+     * 상품 부분 수정 (PATCH)
+     * 조회 없이 변경된 컬럼만 update 쿼리 한 번으로 수정한다. (ItemRepository.patch 참고)
+     *
+     * @param version 클라이언트가 조회했던 버전
+     * @return 수정 후 버전
+     */
+    @Transactional
+    public Long patchItem(Long itemId, Long version, String name, Integer price, Integer stockQuantity) {
+        int updated = itemRepository.patch(itemId, version, name, price, stockQuantity);
+
+        if (updated == 0) { // 실패한 경우에만 원인을 확인하기 위해 조회
+            if (itemRepository.findOne(itemId) == null) {
+                throw new EntityNotFoundException("존재하지 않는 상품입니다. id=" + itemId);
+            }
+            throw new OptimisticLockException("다른 곳에서 먼저 수정된 상품입니다. id=" + itemId);
+        }
+
+        if (name != null) {
+            orderViewRepository.refreshItemNames(List.of(itemId));
+        }
+        catalogReplicator.replicateAfterCommit(itemId);
+        itemCatalog.refreshAfterCommit(itemId);
+
+        return version + 1;
+    }
+
     /**
      * 모든 아이템 조회
      * @return
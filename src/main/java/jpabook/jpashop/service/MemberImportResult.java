@@ -0,0 +1,44 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 회원 일괄 등록 결과 (응답 ndjson 의 마지막 줄)
+ */
+@Getter
+public class MemberImportResult {
+
+    private long rows; // 읽은 줄 수 (빈 줄 제외)
+    private long created;
+    private long existing;
+    private long duplicated;
+    private long invalid;
+    private long failed;
+
+    @Setter
+    private String error; // 중간에 멈췄다면 원인 (앞의 청크는 등록된 상태)
+
+    @Setter
+    private long elapsedMillis;
+
+    void add(MemberImportRowResult row) {
+        rows++;
+        switch (row.getStatus()) {
+            case CREATED:
+                created++;
+                break;
+            case EXISTS:
+                existing++;
+                break;
+            case DUPLICATE:
+                duplicated++;
+                break;
+            case INVALID:
+                invalid++;
+                break;
+            default:
+                failed++;
+        }
+    }
+}
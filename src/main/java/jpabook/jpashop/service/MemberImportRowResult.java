@@ -0,0 +1,54 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * 회원 일괄 등록 행별 결과 (응답 ndjson 한 줄)
+ */
+@Getter
+public class MemberImportRowResult {
+
+    public enum Status {
+        CREATED, // 등록
+        EXISTS, // 이미 있는 이름
+        DUPLICATE, // 요청 안에서 앞에 같은 이름이 있음
+        INVALID, // 형식 오류
+        FAILED // 등록 중 오류 (이 청크는 롤백)
+    }
+
+    private final int line; // 요청의 줄 번호
+    private final String name;
+    private Status status;
+    private Long id;
+    private String message;
+
+    MemberImportRowResult(int line, String name) {
+        this.line = line;
+        this.name = name;
+    }
+
+    static MemberImportRowResult of(int line, String name, Status status, String message) {
+        MemberImportRowResult result = new MemberImportRowResult(line, name);
+        result.status = status;
+        result.message = message;
+        return result;
+    }
+
+    void created(Long id) {
+        this.status = Status.CREATED;
+        this.id = id;
+    }
+
+    void exists() {
+        this.status = Status.EXISTS;
+    }
+
+    void failed(String message) {
+        this.status = Status.FAILED;
+        this.message = message;
+    }
+
+    boolean isPending() {
+        return status == null;
+    }
+}
@@ -0,0 +1,187 @@
+package jpabook.jpashop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.repository.member.MemberImportRepository;
+import jpabook.jpashop.repository.member.MemberImportRow;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 회원 일괄 등록 (ndjson)
+ *
+ * 요청을 한 줄씩 읽어서 1000줄(청크)마다 처리하고, 청크의 행별 결과를 바로 output 으로 넘긴다. (응답도 스트리밍)
+ * - 요청 안에서 같은 이름이 다시 나오면 뒤의 행은 DUPLICATE (처음 나온 행만 등록)
+ * - 이미 있는 이름은 청크마다 in 쿼리 한 번으로 확인한다. (샤딩 시 샤드마다 한 번)
+ * - 새 회원은 JDBC 배치로 등록하고 청크마다 커밋한다. 중간에 실패하면 앞의 청크는 등록된 상태로 남는다.
+ *   (같은 파일을 다시 보내면 등록된 회원은 EXISTS 로 건너뛴다.)
+ *
+ * MemberService.join 과 같이 이름 중복은 조회로만 막으므로, 같은 이름을 동시에 등록하면 중복될 수 있다.
+ * 샤딩 시 청크마다 다음 샤드에 등록한다. (라운드 로빈)
+ *
+ * 요청 형식 (한 줄에 회원 하나, name 필수)
+ * {"name":"회원1","city":"서울","street":"강가","zipcode":"123-123"}
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberImportService {
+
+    public static final int CHUNK_SIZE = 1000;
+
+    private final MemberImportRepository memberImportRepository;
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final DataVersions dataVersions;
+
+    public MemberImportResult importNdjson(InputStream in, Consumer<List<MemberImportRowResult>> output) throws IOException {
+        MemberImportResult result = new MemberImportResult();
+        long start = System.currentTimeMillis();
+
+        Set<String> names = new HashSet<>(); // 요청에서 이미 나온 이름
+        List<MemberImportRowResult> results = new ArrayList<>(); // 청크의 행별 결과 (줄 순서)
+        Map<String, MemberImportRow> rows = new LinkedHashMap<>(); // 청크에서 등록할 행 (이름 -> 행)
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!StringUtils.hasText(line)) {
+                    continue;
+                }
+
+                MemberImportRow row;
+                try {
+                    row = toRow(line);
+                } catch (IllegalArgumentException e) {
+                    results.add(MemberImportRowResult.of(lineNumber, null, MemberImportRowResult.Status.INVALID, e.getMessage()));
+                    row = null;
+                }
+
+                if (row != null) {
+                    if (names.add(row.getName())) {
+                        rows.put(row.getName(), row);
+                        results.add(new MemberImportRowResult(lineNumber, row.getName()));
+                    } else {
+                        results.add(MemberImportRowResult.of(lineNumber, row.getName(), MemberImportRowResult.Status.DUPLICATE,
+                                "요청 안에 같은 이름이 앞에 있습니다."));
+                    }
+                }
+
+                if (results.size() == CHUNK_SIZE) {
+                    if (!importChunk(results, rows, result, output)) {
+                        break;
+                    }
+                    results.clear();
+                    rows.clear();
+                }
+            }
+
+            if (!results.isEmpty()) {
+                importChunk(results, rows, result, output);
+            }
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("[member-import] done {} rows, created={}, existing={}, duplicated={}, invalid={}, failed={}, {}ms",
+                result.getRows(), result.getCreated(), result.getExisting(), result.getDuplicated(), result.getInvalid(),
+                result.getFailed(), result.getElapsedMillis());
+
+        return result;
+    }
+
+    /**
+     * 청크 하나 처리
+     * 이미 있는 이름 조회(샤드마다 1번) + id 할당(1번) + 회원, 회원 집계 insert 배치(각 1번)
+     *
+     * @return 계속 진행할지 (등록에 실패하면 false)
+     */
+    private boolean importChunk(List<MemberImportRowResult> results, Map<String, MemberImportRow> rows,
+                                MemberImportResult result, Consumer<List<MemberImportRowResult>> output) {
+        boolean success = true;
+
+        try {
+            if (!rows.isEmpty()) {
+                insertNew(rows, results);
+            }
+        } catch (RuntimeException e) {
+            log.warn("[member-import] 청크 등록 실패", e);
+            results.stream()
+                    .filter(MemberImportRowResult::isPending)
+                    .forEach(r -> r.failed(e.getMessage()));
+            result.setError("등록 중 오류가 발생해서 중단했습니다. " + e.getMessage());
+            success = false;
+        }
+
+        results.forEach(result::add);
+        output.accept(results);
+        return success;
+    }
+
+    private void insertNew(Map<String, MemberImportRow> rows, List<MemberImportRowResult> results) {
+        List<String> names = new ArrayList<>(rows.keySet());
+        Set<String> existing = new HashSet<>(shardRouter.scatter(() -> new ArrayList<>(memberImportRepository.findExistingNames(names))));
+
+        List<MemberImportRow> newRows = rows.values().stream()
+                .filter(r -> !existing.contains(r.getName()))
+                .collect(Collectors.toList());
+
+        if (!newRows.isEmpty()) {
+            shardRouter.executeInNewTransaction(shardRouter.nextShard(), status -> {
+                Iterator<Long> ids = memberImportRepository.nextIds(newRows.size()).iterator();
+                newRows.forEach(r -> r.setId(ids.next()));
+                memberImportRepository.insert(newRows);
+                return null;
+            });
+            dataVersions.membersChangedAfterCommit(); // 위 트랜잭션은 이미 커밋되었다.
+        }
+
+        for (MemberImportRowResult r : results) {
+            if (!r.isPending()) {
+                continue;
+            }
+            if (existing.contains(r.getName())) {
+                r.exists();
+            } else {
+                r.created(rows.get(r.getName()).getId());
+            }
+        }
+    }
+
+    private MemberImportRow toRow(String line) {
+        MemberImportRow row;
+        try {
+            row = objectMapper.readValue(line, MemberImportRow.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("json 형식이 아닙니다. " + e.getOriginalMessage());
+        }
+
+        if (!StringUtils.hasText(row.getName())) {
+            throw new IllegalArgumentException("name 이 비어있습니다.");
+        }
+
+        row.setName(row.getName().trim());
+        row.setId(null); // id 는 할당한다.
+        return row;
+    }
+}
@@ -2,10 +2,18 @@ package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.member.MemberStatsRepository;
+import jpabook.jpashop.repository.member.MemberStatsSort;
+import jpabook.jpashop.repository.member.MemberSummaryDto;
+import jpabook.jpashop.repository.order.readmodel.OrderViewRepository;
+import jpabook.jpashop.shard.ShardRouter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.OptimisticLockException;
+import java.util.Comparator;
 import java.util.List;
 
 @Service // 컴포넌트 스캔의 대상이 됨 ->  스프링 빈으로 등록됨
@@ -17,6 +25,12 @@ import java.util.List;
 public class MemberService {
 
     private final MemberRepository memberRepository;
+    private final ShardRouter shardRouter;
+    private final OrderViewRepository orderViewRepository; // 주문 조회 모델의 회원 이름
+    private final MemberStatsRepository memberStatsRepository; // 회원별 주문 집계
+    private final DataVersions dataVersions; // 회원 목록 화면 조각 캐시 무효화
+
+    private static final int MAX_TOP_CUSTOMERS = 100;
 
     // 세터 인젝션은 테스트는 용이하지만, 외부에서 세터를 호출해 값을 수정할 수 있기 때문에 위험하다. -> 사용x
     // 생성자 인젝션을 사용하자.
@@ -29,14 +43,18 @@ public class MemberService {
 
     /**
      * 회원 가입
+     * 샤딩 시 새 회원은 샤드에 돌아가면서 저장한다. (회원 id 로 샤드를 알 수 있다.)
      */
     @Transactional
     public Long join(Member member) {
+        shardRouter.route(shardRouter.nextShard());
 
         // 중복 회원 검증
         validateDuplicateMember(member);
 
         memberRepository.save(member);
+        memberStatsRepository.create(member.getId()); // 빈 집계 로우 (주문마다 update 만 하면 된다.)
+        dataVersions.membersChangedAfterCommit();
 
         return member.getId();
     }
@@ -45,28 +63,99 @@ public class MemberService {
     // 여러 와스에 멀티 쓰레드 환경에서 동시에 member.save() 를 호출하는 상황이 있을 수 있다.
     // 그렇게 때문에, API 에서 해당 검증을 처리한다고 해도, 최종적으로는
     // DB 에서도 유니크 제약을 설정해야 한다.
+    // 샤딩 시에는 모든 샤드에서 확인한다. (샤드 사이에는 유니크 제약도 걸 수 없다.)
     private void validateDuplicateMember(Member member) {
-        List<Member> findMembers = memberRepository.findByName(member.getName());
+        validateDuplicateName(member.getId(), member.getName());
+    }
 
-        if (!findMembers.isEmpty()) {
+    // 이름 변경(update, patch)도 같은 규칙으로 검증한다. (자기 자신의 이름 그대로는 허용)
+    private void validateDuplicateName(Long memberId, String name) {
+        List<Member> findMembers = shardRouter.scatter(() -> memberRepository.findByName(name));
+
+        if (findMembers.stream().anyMatch(m -> !m.getId().equals(memberId))) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
     }
 
-    // 회원 전체 조회
+    // 회원 전체 조회 (샤딩 시 모든 샤드에서 조회해서 id 순으로 합친다.)
     public List<Member> findMembers() {
-        return memberRepository.findAll();
+        return shardRouter.scatterSorted(Comparator.comparing(Member::getId), memberRepository::findAll);
     }
 
     // 회원 한명 조회
     public Member findOne(Long memberId) {
+        shardRouter.route(memberId);
         return memberRepository.findOne(memberId);
     }
 
+    /**
+     * 회원 주문 요약 (주문 수, 누적 구매 금액, 마지막 주문일)
+     * 주문 테이블을 집계하지 않고 member_stats 만 읽는다.
+     */
+    public MemberSummaryDto findSummary(Long memberId) {
+        shardRouter.route(memberId);
+        MemberSummaryDto summary = memberStatsRepository.findSummary(memberId);
+
+        if (summary == null) {
+            throw new EntityNotFoundException("존재하지 않는 회원입니다. id=" + memberId);
+        }
+        return summary;
+    }
+
+    /**
+     * 우수 고객 목록 (sort: spend, orders, recent / 내림차순)
+     * 샤딩 시 샤드마다 상위 limit 건을 읽어서 합친 뒤 다시 limit 건만 남긴다.
+     */
+    public List<MemberSummaryDto> findTopCustomers(String sort, int limit) {
+        if (limit < 1 || limit > MAX_TOP_CUSTOMERS) {
+            throw new IllegalArgumentException("limit 은 1 ~ " + MAX_TOP_CUSTOMERS + " 사이여야 합니다. limit=" + limit);
+        }
+        MemberStatsSort statsSort = MemberStatsSort.of(sort);
+
+        List<MemberSummaryDto> result = shardRouter.scatterSorted(statsSort.getComparator(),
+                () -> memberStatsRepository.findTop(statsSort, limit));
+
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
     // ************************* 변경감지(더티체킹) 메소드 **************************
     @Transactional
     public void update(Long id, String name) {
+        shardRouter.route(id);
+        validateDuplicateName(id, name); // 가입과 같은 중복 회원 검증
         Member member = memberRepository.findOne(id); // 처음 준영속 상태, 현재 영속성 컨텍스트에 없음! 그래서 DB에서 조회해옴. -> 이제 영속상태
         member.setName(name); // 이후 영속성 컨텍스트의 member 의 이름을 수정
+        orderViewRepository.updateMemberName(id, name); // 회원의 주문은 같은 샤드에 있다.
+        dataVersions.membersChangedAfterCommit();
+    }
+
+    /**
+     * 회원 부분 수정 (PATCH)
+     * 조회 없이 변경된 컬럼만 update 쿼리 한 번으로 수정한다. (MemberRepository.patch 참고)
+     *
+     * @param version 클라이언트가 조회했던 버전
+     * @return 수정 후 버전
+     */
+    @Transactional
+    public Long patch(Long id, Long version, String name, String city, String street, String zipcode) {
+        shardRouter.route(id);
+        if (name != null) {
+            validateDuplicateName(id, name); // 가입, 이름 수정과 같은 중복 회원 검증
+        }
+        int updated = memberRepository.patch(id, version, name, city, street, zipcode);
+
+        if (updated == 0) { // 실패한 경우에만 원인을 확인하기 위해 조회
+            if (memberRepository.findOne(id) == null) {
+                throw new EntityNotFoundException("존재하지 않는 회원입니다. id=" + id);
+            }
+            throw new OptimisticLockException("다른 곳에서 먼저 수정된 회원입니다. id=" + id);
+        }
+
+        if (name != null) {
+            orderViewRepository.updateMemberName(id, name);
+        }
+        dataVersions.membersChangedAfterCommit();
+
+        return version + 1;
     }
 }
@@ -0,0 +1,131 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.order.archive.OrderArchiveRepository;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 주문 보관 작업
+ *
+ * 주기적으로(기본 1분) 아래 주문을 운영 테이블에서 보관 테이블로 옮긴다. (ArchivedOrder 참고)
+ * - 주문일이 orderAge(기본 365일)보다 오래된 주문
+ * - 취소 상태이고 주문일이 cancelGrace(기본 30일)보다 오래된 주문
+ *   (취소 시각은 따로 저장하지 않으므로 주문일 기준)
+ *
+ * 락을 오래 잡지 않도록 batchSize 건씩 트랜잭션을 나눠서 커밋하고, 배치 사이에 pause 만큼 쉰다.
+ * 한 번에 maxBatches 배치까지만 처리하고 나머지는 다음 주기에 이어서 처리한다.
+ *
+ * 보관된 주문은 OrderRepository.findOne 으로 계속 조회할 수 있지만(읽기 전용) 목록 조회에는 나오지 않는다.
+ * 샤딩 시 샤드마다 따로 보관한다.
+ */
+@Slf4j
+@Component
+public class OrderArchiver {
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    private final boolean enabled;
+    private final Duration orderAge;
+    private final Duration cancelGrace;
+    private final int batchSize;
+    private final int maxBatches;
+    private final long pauseMillis;
+
+    public OrderArchiver(OrderArchiveRepository orderArchiveRepository,
+                         TransactionTemplate transactionTemplate,
+                         ShardRouter shardRouter,
+                         @Value("${jpashop.archive.enabled:true}") boolean enabled,
+                         @Value("${jpashop.archive.order-age:365d}") Duration orderAge,
+                         @Value("${jpashop.archive.cancel-grace:30d}") Duration cancelGrace,
+                         @Value("${jpashop.archive.batch-size:100}") int batchSize,
+                         @Value("${jpashop.archive.max-batches:100}") int maxBatches,
+                         @Value("${jpashop.archive.pause-ms:100}") long pauseMillis) {
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.orderAge = orderAge;
+        this.cancelGrace = cancelGrace;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.archive.interval-ms:60000}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archive();
+        }
+    }
+
+    /**
+     * 보관 대상 주문을 보관 테이블로 이동
+     *
+     * @return 이동한 주문 수
+     */
+    public int archive() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(orderAge);
+        LocalDateTime cancelCutoff = now.minus(cancelGrace);
+
+        int total = 0;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            total += shardRouter.execute(shard, () -> archiveShard(cutoff, cancelCutoff));
+        }
+        return total;
+    }
+
+    private int archiveShard(LocalDateTime cutoff, LocalDateTime cancelCutoff) {
+        int total = 0;
+
+        for (int batch = 0; batch < maxBatches; batch++) {
+            Integer archived = transactionTemplate.execute(status -> {
+                List<Long> orderIds = orderArchiveRepository.findArchivableIds(cutoff, cancelCutoff, batchSize);
+                return orderIds.isEmpty() ? 0 : orderArchiveRepository.archive(orderIds);
+            });
+
+            total += archived == null ? 0 : archived;
+            if (archived == null || archived < batchSize) {
+                break; // 더 옮길 주문 없음
+            }
+
+            if (!pause()) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.info("[archive] 주문 {}건 보관", total);
+        }
+        return total;
+    }
+
+    /**
+     * 배치 사이에 쉬어서 다른 트랜잭션이 락, 커넥션을 얻을 틈을 준다.
+     *
+     * @return 인터럽트 되면 false
+     */
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
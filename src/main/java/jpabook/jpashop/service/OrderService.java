@@ -1,19 +1,42 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderEventType;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.OrderStateConflictException;
+import jpabook.jpashop.monitor.OrderMetrics;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.member.MemberStatsRepository;
+import jpabook.jpashop.repository.order.query.DeliveryStatusQueryDto;
+import jpabook.jpashop.repository.order.query.ItemQuantityQueryDto;
+import jpabook.jpashop.repository.order.query.MemberOrderTotalQueryDto;
+import jpabook.jpashop.repository.order.query.OrderStatusQueryDto;
+import jpabook.jpashop.repository.order.readmodel.OrderViewRepository;
+import jpabook.jpashop.service.catalog.ItemCatalog;
+import jpabook.jpashop.service.event.OrderEventPublisher;
+import jpabook.jpashop.shard.CatalogStock;
+import jpabook.jpashop.shard.ShardRouter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service // 컴포넌트 스캔의 대상이 됨 ->  스프링 빈으로 등록됨
 // JPA 조회 성능 최적화, 데이터의 변경은 트랜잭션 안에서 실행되어야 함
@@ -26,6 +49,15 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final OrderEventPublisher orderEventPublisher;
+    private final OrderViewRepository orderViewRepository;
+    private final MemberStatsRepository memberStatsRepository;
+    private final OrderMetrics orderMetrics;
+    private final ShardRouter shardRouter;
+    private final CatalogStock catalogStock;
+    private final ItemCatalog itemCatalog;
+
+    private static final int IN_QUERY_SIZE = 1000; // in 절 하나에 넣을 최대 id 수
 
 
     /**
@@ -39,17 +71,31 @@ public class OrderService {
     @Transactional
     public Long order(Long memberId, Long itemId, int count) {
         // 주문자 pk, 아이템 pk, 주문 수량이 넘어옴
+        shardRouter.route(memberId); // 샤딩 시 회원이 있는 샤드에 주문을 저장 (첫 쿼리보다 먼저)
 
         // 엔티티 조회회
         Member member = memberRepository.findOne(memberId); // 멤버 엔티티 조회
-        Item item = itemRepository.findOne(itemId); // 아이템 엔티티 조회
+        Item item = itemRepository.findOne(itemId); // 아이템 엔티티 조회 (샤딩 시 회원 샤드에 복제된 사본)
 
         // 배송 정보 생성
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress()); // 실제로는 배송 정보는 고객 주소와 다를 수 있지만, 예제이므로 동일하게 설정
+        delivery.setStatus(DeliveryStatus.READY);
+
+        // 재고 차감
+        try {
+            if (shardRouter.isSharded()) {
+                catalogStock.reserve(itemId, count); // 재고는 카탈로그 샤드에서 차감 (이 트랜잭션이 롤백되면 원복)
+            } else if (!itemRepository.removeStock(item, count)) { // 조건부 update 로 차감 (동시 주문이 @Version 충돌로 실패하지 않도록)
+                throw new NotEnoughStockException("need more stock");
+            }
+        } catch (NotEnoughStockException e) {
+            orderMetrics.stockShortage(); // 주문 지표 (재고 부족)
+            throw e;
+        }
 
-        // 주문 상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        // 주문 상품 생성 (재고는 위에서 차감)
+        OrderItem orderItem = OrderItem.createReservedOrderItem(item, item.getPrice(), count);
         // 객체의 무분별한 new 키워드 생성을 막기 위해 디폴트 생성자를 protected 로 생성해주면
         // OrderItem orderItem1 = new OrderItem();
         // new 로 객체를 생성할 때 컴파일 오류를 뱉는다.
@@ -62,6 +108,13 @@ public class OrderService {
 
         // 주문 저장
         orderRepository.save(order);
+        orderViewRepository.refresh(List.of(order.getId())); // 조회 모델 (같은 트랜잭션)
+        memberStatsRepository.addOrder(memberId, order.getTotalPrice(), order.getOrderDate()); // 회원 집계 (같은 트랜잭션)
+
+        // 주문 이벤트 저장 (같은 트랜잭션 -> 주문과 함께 커밋/롤백)
+        orderEventPublisher.publish(OrderEventType.ORDERED, order);
+        orderMetrics.ordered(order.getTotalPrice()); // 주문 지표 (커밋 후 반영)
+        itemCatalog.refreshAfterCommit(itemId); // 상품 카탈로그 재고 (커밋 후 반영)
 
         return order.getId();
         // Order 클래스의 orderItems 와 delivery 필드는
@@ -82,11 +135,28 @@ public class OrderService {
     @Transactional
     public void cancelOrder(Long orderId) {
 
-        // 주문 엔티티 조회
-        Order order = orderRepository.findOne(orderId);
+        shardRouter.route(orderId); // 샤딩 시 주문이 있는 샤드 (주문 id 로 계산)
+
+        // 주문 엔티티 조회 + 주문 로우 락 (배송 완료와 동시에 실행되지 않도록, OrderRepository.findOneForUpdate 참고)
+        Order order = orderRepository.findOneForUpdate(orderId);
 
-        // 주문 취소
-        order.cancel();
+        // 주문 취소 (재고는 주문과 같이 벌크 update 로 원복 -> 동시 주문과 @Version 충돌하지 않는다.)
+        order.cancelReserved();
+        if (shardRouter.isSharded()) { // 카탈로그 샤드 재고는 취소가 커밋된 뒤에 원복
+            order.getOrderItems().forEach(oi -> catalogStock.releaseAfterCommit(oi.getItem().getId(), oi.getCount()));
+        } else {
+            order.getOrderItems().forEach(oi -> itemRepository.addStock(oi.getItem(), oi.getCount()));
+        }
+
+        orderViewRepository.updateStatus(List.of(orderId), OrderStatus.CANCEL); // 조회 모델 (같은 트랜잭션)
+        memberStatsRepository.removeOrders(order.getMember().getId(), 1, order.getTotalPrice()); // 회원 집계 (같은 트랜잭션)
+
+        // 취소 이벤트 저장 (같은 트랜잭션)
+        orderEventPublisher.publish(OrderEventType.CANCELED, order);
+        orderMetrics.canceled(1); // 주문 지표 (커밋 후 반영)
+        itemCatalog.refreshAfterCommit(order.getOrderItems().stream() // 상품 카탈로그 재고 (재고 원복 후 반영)
+                .map(oi -> oi.getItem().getId())
+                .collect(Collectors.toList()));
         // 여기서 JPA 의 장점이 설명될 수 있다.
         // 만약 직접 쿼리를 다루는 서비스라면(mybatis, jdbc template 등...)
         // 비즈니스 로직에서도 주문 취소의 수량을 바꿔줘야 하고,
@@ -96,14 +166,228 @@ public class OrderService {
         // 쉽게 수정할 수 있다.
     }
 
+    /**
+     * 주문 일괄 취소
+     *
+     * cancelOrder 는 주문을 하나씩 조회하고, 주문상품마다 Item.addStock 으로 재고를 원복한다. (더티 체킹)
+     * 취소할 주문이 많으면 select, update 가 주문 수 * 주문상품 수 만큼 나가므로
+     * 여기서는 IN_QUERY_SIZE 단위로 나눠서 아래 쿼리만 실행한다.
+     *
+     * 1. 주문 로우 락 (select ... for update, 쿼리 1번) -> 배송 일괄 완료와 하나씩 실행된다.
+     * 2. 주문 상태 + 배송 상태 검증 (쿼리 1번)
+     * 3. 주문 상태 CANCEL 벌크 update (쿼리 1번)
+     * 4. 상품별 수량 합계 조회 후 상품마다 재고 += 수량 벌크 update (상품 수 만큼)
+     * 5. 회원별 주문 수, 금액 합계 조회 후 회원마다 집계 차감 update (회원 수 만큼)
+     * 6. 취소 이벤트 저장 (주문 + 주문상품 fetch join 1번 + 이벤트 insert)
+     *
+     * 취소 규칙은 Order.cancel() 과 같다. (이미 배송 완료된 주문은 취소 불가)
+     * 조건에 맞지 않는 주문은 사유와 함께 건너뛴다.
+     *
+     * 샤딩 시에는 주문 id 를 샤드별로 나눠서 샤드마다 따로 커밋한다. (한 샤드가 실패해도 앞의 샤드는 취소된 상태)
+     *
+     * @param orderIds
+     * @return
+     */
+    @Transactional
+    public BatchResult cancelOrders(List<Long> orderIds) {
+        BatchResult result = new BatchResult();
+        List<Long> distinctIds = orderIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+
+        if (!shardRouter.isSharded()) {
+            cancelChunks(distinctIds, result);
+            return result;
+        }
+
+        shardRouter.groupByShard(distinctIds).forEach((shard, ids) ->
+                shardRouter.executeInNewTransaction(shard, status -> {
+                    cancelChunks(ids, result);
+                    return null;
+                }));
+
+        return result;
+    }
+
+    private void cancelChunks(List<Long> orderIds, BatchResult result) {
+        for (int from = 0; from < orderIds.size(); from += IN_QUERY_SIZE) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + IN_QUERY_SIZE, orderIds.size()));
+            cancelChunk(chunk, result);
+        }
+    }
+
+    private void cancelChunk(List<Long> orderIds, BatchResult result) {
+        orderRepository.lockOrders(orderIds); // 상태는 락을 잡은 뒤에 읽는다. (그 사이 커밋된 배송 완료도 보인다.)
+        Map<Long, OrderStatusQueryDto> statuses = orderRepository.findStatuses(orderIds).stream()
+                .collect(Collectors.toMap(OrderStatusQueryDto::getOrderId, s -> s));
+
+        List<Long> cancelIds = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            OrderStatusQueryDto status = statuses.get(orderId);
+
+            if (status == null) {
+                result.skipped(orderId, "존재하지 않는 주문입니다.");
+            } else if (status.getOrderStatus() == OrderStatus.CANCEL) {
+                result.skipped(orderId, "이미 취소된 주문입니다.");
+            } else if (status.getDeliveryStatus() == DeliveryStatus.COMP) {
+                result.skipped(orderId, "이미 배송 완료 된 상품은 취소가 불가합니다.");
+            } else {
+                cancelIds.add(orderId);
+            }
+        }
+
+        if (cancelIds.isEmpty()) {
+            return;
+        }
+
+        // 락을 잡고 검증했으므로 일어나지 않아야 하지만, 어긋나면 재고가 두 번 원복되지 않도록 전체 롤백
+        int canceled = orderRepository.cancelAll(cancelIds);
+        if (canceled != cancelIds.size()) {
+            throw new OrderStateConflictException("취소 처리 중 주문 상태가 변경되었습니다. 다시 시도해 주세요.");
+        }
+
+        List<ItemQuantityQueryDto> itemQuantities = orderRepository.findItemQuantities(cancelIds);
+        for (ItemQuantityQueryDto itemQuantity : itemQuantities) {
+            if (shardRouter.isSharded()) {
+                catalogStock.releaseAfterCommit(itemQuantity.getItemId(), itemQuantity.getQuantity());
+            } else {
+                itemRepository.addStock(itemQuantity.getItemId(), itemQuantity.getQuantity());
+            }
+        }
+        itemCatalog.refreshAfterCommit(itemQuantities.stream() // 상품 카탈로그 재고 (재고 원복 후 반영)
+                .map(ItemQuantityQueryDto::getItemId)
+                .collect(Collectors.toList()));
+
+        for (MemberOrderTotalQueryDto total : orderRepository.findMemberTotals(cancelIds)) {
+            memberStatsRepository.removeOrders(total.getMemberId(), total.getOrderCount(), total.getAmount());
+        }
+
+        orderViewRepository.updateStatus(cancelIds, OrderStatus.CANCEL);
+        orderEventPublisher.publishAll(OrderEventType.CANCELED, cancelIds);
+        orderMetrics.canceled(cancelIds.size());
+
+        cancelIds.forEach(result::processed);
+    }
+
+    /**
+     * 배송 일괄 완료 (주문 id 기준)
+     *
+     * @param orderIds
+     * @return 처리/건너뛴 주문 id
+     */
+    @Transactional
+    public BatchResult completeDeliveriesByOrderIds(List<Long> orderIds) {
+        return completeDeliveries(orderIds, orderRepository::lockOrders,
+                orderRepository::findDeliveryStatusesByOrderIds, DeliveryStatusQueryDto::getOrderId);
+    }
+
+    /**
+     * 배송 일괄 완료 (배송 id 기준)
+     *
+     * 출고 단위(웨이브)로 배송을 한꺼번에 완료 처리한다.
+     * 배송 상태를 바꾸려면 주문을 하나씩 조회해서 더티 체킹해야 했으므로, cancelOrders 와 같은 방식으로
+     * IN_QUERY_SIZE 단위마다 아래 쿼리만 실행한다.
+     *
+     * 1. 주문 로우 락 (select ... for update, 쿼리 1번) -> 주문 취소와 하나씩 실행된다.
+     * 2. 주문 상태 + 배송 상태 검증 (쿼리 1번)
+     * 3. 배송 상태 COMP 벌크 update (쿼리 1번)
+     *
+     * 취소된 주문의 배송, 이미 배송 완료된 배송, 존재하지 않는 배송은 사유와 함께 건너뛴다.
+     * 배송 완료 후에는 Order.cancel(), cancelOrders 모두 취소를 거부한다. (기존 취소 규칙 그대로)
+     * 주문 조회 모델(OrderView)에는 배송 상태가 없으므로 따로 갱신하지 않는다.
+     *
+     * 샤딩 시에는 배송 id 도 주문과 같은 샤드에서 만든 id 이므로, id 로 샤드를 나눠서 샤드마다 따로 커밋한다.
+     *
+     * @param deliveryIds
+     * @return 처리/건너뛴 배송 id
+     */
+    @Transactional
+    public BatchResult completeDeliveries(List<Long> deliveryIds) {
+        return completeDeliveries(deliveryIds, orderRepository::lockOrdersByDeliveryIds,
+                orderRepository::findDeliveryStatusesByDeliveryIds, DeliveryStatusQueryDto::getDeliveryId);
+    }
+
+    private BatchResult completeDeliveries(List<Long> ids,
+                                           Consumer<List<Long>> lock,
+                                           Function<List<Long>, List<DeliveryStatusQueryDto>> findStatuses,
+                                           Function<DeliveryStatusQueryDto, Long> keyOf) {
+        BatchResult result = new BatchResult();
+        List<Long> distinctIds = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+
+        if (!shardRouter.isSharded()) {
+            completeDeliveryChunks(distinctIds, lock, findStatuses, keyOf, result);
+            return result;
+        }
+
+        shardRouter.groupByShard(distinctIds).forEach((shard, shardIds) ->
+                shardRouter.executeInNewTransaction(shard, status -> {
+                    completeDeliveryChunks(shardIds, lock, findStatuses, keyOf, result);
+                    return null;
+                }));
+
+        return result;
+    }
+
+    private void completeDeliveryChunks(List<Long> ids,
+                                        Consumer<List<Long>> lock,
+                                        Function<List<Long>, List<DeliveryStatusQueryDto>> findStatuses,
+                                        Function<DeliveryStatusQueryDto, Long> keyOf,
+                                        BatchResult result) {
+        for (int from = 0; from < ids.size(); from += IN_QUERY_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IN_QUERY_SIZE, ids.size()));
+            lock.accept(chunk); // 상태는 락을 잡은 뒤에 읽는다. (그 사이 커밋된 취소도 보인다.)
+            Map<Long, DeliveryStatusQueryDto> statuses = findStatuses.apply(chunk).stream()
+                    .collect(Collectors.toMap(keyOf, s -> s));
+
+            List<Long> completeIds = new ArrayList<>();
+            List<Long> deliveryIds = new ArrayList<>();
+            for (Long id : chunk) {
+                DeliveryStatusQueryDto status = statuses.get(id);
+
+                if (status == null) {
+                    result.skipped(id, "존재하지 않는 주문 또는 배송입니다.");
+                } else if (status.getOrderStatus() == OrderStatus.CANCEL) {
+                    result.skipped(id, "취소된 주문은 배송 완료 처리할 수 없습니다.");
+                } else if (status.getDeliveryStatus() == DeliveryStatus.COMP) {
+                    result.skipped(id, "이미 배송 완료 된 주문입니다.");
+                } else {
+                    completeIds.add(id);
+                    deliveryIds.add(status.getDeliveryId());
+                }
+            }
+
+            if (deliveryIds.isEmpty()) {
+                continue;
+            }
+
+            // 락을 잡고 검증했으므로 일어나지 않아야 하지만, 어긋나면 결과를 믿을 수 없으므로 전체 롤백
+            int completed = orderRepository.completeDeliveries(deliveryIds);
+            if (completed != deliveryIds.size()) {
+                throw new OrderStateConflictException("배송 완료 처리 중 주문 상태가 변경되었습니다. 다시 시도해 주세요.");
+            }
+
+            completeIds.forEach(result::processed);
+        }
+    }
+
     /**
      * 주문 검색
+     * 샤딩 시 모든 샤드에서 검색해서 주문 id 순으로 합친다. (최대 1000건)
      *
      * @param orderSearch
      * @return
      */
     public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAll(orderSearch);
+        List<Order> orders = shardRouter.scatterSorted(Comparator.comparing(Order::getId),
+                () -> orderRepository.findAll(orderSearch));
+
+        return orders.size() > OrderRepository.MAX_SEARCH_RESULTS
+                ? orders.subList(0, OrderRepository.MAX_SEARCH_RESULTS)
+                : orders;
     }
 
 }
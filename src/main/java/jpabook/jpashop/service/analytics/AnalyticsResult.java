@@ -0,0 +1,22 @@
+package jpabook.jpashop.service.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 분석 조회 결과
+ *
+ * snapshotAt 시점의 주문 기준이다. (이후 주문, 취소는 다음 스냅샷에 반영)
+ */
+@Getter
+@AllArgsConstructor
+public class AnalyticsResult {
+
+    private final LocalDateTime snapshotAt;
+    private final int scannedRows; // 스캔한 주문상품 로우 수
+    private final long elapsedMicros;
+    private final List<GroupTotal> groups;
+}
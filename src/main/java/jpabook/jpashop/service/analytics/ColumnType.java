@@ -0,0 +1,36 @@
+package jpabook.jpashop.service.analytics;
+
+/**
+ * 컬럼 파일의 컬럼 타입
+ *
+ * DICT: 문자열을 사전(dictionary)의 번호(int)로 저장한다. (같은 문자열이 많은 도시, 상태, 상품 이름)
+ */
+enum ColumnType {
+
+    INT(1, Integer.BYTES), LONG(2, Long.BYTES), DICT(3, Integer.BYTES);
+
+    private final byte code;
+    private final int width;
+
+    ColumnType(int code, int width) {
+        this.code = (byte) code;
+        this.width = width;
+    }
+
+    byte getCode() {
+        return code;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    static ColumnType of(byte code) {
+        for (ColumnType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalStateException("알 수 없는 컬럼 타입입니다. code=" + code);
+    }
+}
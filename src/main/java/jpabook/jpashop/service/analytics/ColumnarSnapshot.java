@@ -0,0 +1,156 @@
+package jpabook.jpashop.service.analytics;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 컬럼 파일 읽기 (메모리 매핑)
+ *
+ * 파일 형식 (ColumnarWriter 가 쓴다.)
+ * - 헤더: magic, version, headerLength, columnCount, rowCount, createdAt, 컬럼 목록(이름, 타입, 데이터 오프셋, 사전)
+ * - 컬럼 데이터: 컬럼마다 rowCount 개의 int/long 값 (리틀 엔디언, 8바이트 정렬)
+ *
+ * 컬럼마다 파일 구간을 읽기 전용으로 매핑해서 IntBuffer/LongBuffer 로 돌려준다.
+ * 힙으로 복사하지 않으므로 파일이 커도 힙을 쓰지 않고, 자주 읽는 구간은 OS 페이지 캐시에 남는다.
+ *
+ * 매핑은 GC 가 버퍼를 회수할 때 풀린다. (자바 11 에는 직접 해제하는 공개 API 가 없다.)
+ * 새 스냅샷으로 바꾼 뒤 이전 파일을 지워도, 아직 조회 중인 쪽은 매핑된 내용을 끝까지 읽을 수 있다. (리눅스 기준)
+ */
+class ColumnarSnapshot {
+
+    static final byte[] MAGIC = "JPCOLS01".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+
+    private final Path path;
+    private final int rowCount;
+    private final long createdAt;
+    private final Map<String, ByteBuffer> columns = new HashMap<>();
+    private final Map<String, ColumnType> types = new HashMap<>();
+    private final Map<String, List<String>> dictionaries = new HashMap<>();
+
+    private ColumnarSnapshot(Path path, int rowCount, long createdAt) {
+        this.path = path;
+        this.rowCount = rowCount;
+        this.createdAt = createdAt;
+    }
+
+    static ColumnarSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("컬럼 파일이 아닙니다. path=" + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("지원하지 않는 컬럼 파일 버전입니다. version=" + version + " path=" + path);
+            }
+            in.readInt(); // headerLength (컬럼 데이터는 오프셋으로 찾는다.)
+
+            int columnCount = in.readInt();
+            ColumnarSnapshot snapshot = new ColumnarSnapshot(path, in.readInt(), in.readLong());
+
+            for (int i = 0; i < columnCount; i++) {
+                String name = readString(in);
+                ColumnType type = ColumnType.of(in.readByte());
+                long offset = in.readLong();
+
+                if (type == ColumnType.DICT) {
+                    int size = in.readInt();
+                    List<String> dictionary = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) {
+                        dictionary.add(readString(in));
+                    }
+                    snapshot.dictionaries.put(name, Collections.unmodifiableList(dictionary));
+                }
+
+                long length = (long) snapshot.rowCount * type.getWidth();
+                if (offset + length > channel.size()) {
+                    throw new IOException("컬럼 데이터가 파일 크기를 넘습니다. column=" + name + " path=" + path);
+                }
+                snapshot.types.put(name, type);
+                snapshot.columns.put(name, channel.map(FileChannel.MapMode.READ_ONLY, offset, length)); // 채널을 닫아도 매핑은 유지된다.
+            }
+            return snapshot;
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * INT, DICT(사전 번호) 컬럼
+     */
+    IntBuffer ints(String name) {
+        if (column(name, ColumnType.INT, ColumnType.DICT) == null) {
+            throw new IllegalArgumentException("int 컬럼이 아닙니다. column=" + name);
+        }
+        return columns.get(name).duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(); // 조회마다 독립된 위치
+    }
+
+    LongBuffer longs(String name) {
+        if (column(name, ColumnType.LONG) == null) {
+            throw new IllegalArgumentException("long 컬럼이 아닙니다. column=" + name);
+        }
+        return columns.get(name).duplicate().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    /**
+     * DICT 컬럼의 사전 (번호 -> 문자열)
+     */
+    List<String> dictionary(String name) {
+        if (column(name, ColumnType.DICT) == null) {
+            throw new IllegalArgumentException("사전 컬럼이 아닙니다. column=" + name);
+        }
+        return dictionaries.get(name);
+    }
+
+    private ColumnType column(String name, ColumnType... allowed) {
+        ColumnType type = types.get(name);
+        if (type == null) {
+            throw new IllegalArgumentException("없는 컬럼입니다. column=" + name);
+        }
+        return Arrays.asList(allowed).contains(type) ? type : null;
+    }
+
+    static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,224 @@
+package jpabook.jpashop.service.analytics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 컬럼 파일 쓰기 (형식은 ColumnarSnapshot 참고)
+ *
+ * 로우를 받는 대로 컬럼마다 임시 파일에 이어 쓰고(메모리에는 컬럼마다 버퍼 하나와 사전만 둔다.),
+ * finish 에서 헤더 + 컬럼 데이터를 한 파일로 합친 뒤 target 으로 옮긴다. (완성된 파일만 보이도록 원자적 이동)
+ */
+class ColumnarWriter implements Closeable {
+
+    static final int MAX_ROWS = Integer.MAX_VALUE / Long.BYTES; // 컬럼 하나를 ByteBuffer 하나로 매핑할 수 있는 크기
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path target;
+    private final Path tempDirectory;
+    private final List<Column> columns = new ArrayList<>();
+    private int rowCount;
+
+    ColumnarWriter(Path target) throws IOException {
+        this.target = target;
+        this.tempDirectory = Files.createTempDirectory(target.getParent(), ".columns");
+    }
+
+    /**
+     * 컬럼 추가 (첫 로우 전에), 로우를 쓸 때 사용할 컬럼 번호를 돌려준다.
+     */
+    int column(String name, ColumnType type) throws IOException {
+        if (rowCount > 0) {
+            throw new IllegalStateException("로우를 쓰기 시작한 뒤에는 컬럼을 추가할 수 없습니다.");
+        }
+        columns.add(new Column(name, type, tempDirectory.resolve(columns.size() + ".col")));
+        return columns.size() - 1;
+    }
+
+    void writeInt(int column, int value) throws IOException {
+        columns.get(column).buffer(Integer.BYTES).putInt(value);
+    }
+
+    void writeLong(int column, long value) throws IOException {
+        columns.get(column).buffer(Long.BYTES).putLong(value);
+    }
+
+    void writeString(int column, String value) throws IOException {
+        Column col = columns.get(column);
+        col.buffer(Integer.BYTES).putInt(col.code(value));
+    }
+
+    /**
+     * 로우 하나를 다 쓴 뒤 호출 (모든 컬럼에 값을 하나씩 써야 한다.)
+     */
+    void endRow() {
+        if (++rowCount > MAX_ROWS) {
+            throw new IllegalStateException("컬럼 파일 하나에 담을 수 있는 로우 수를 넘었습니다. max=" + MAX_ROWS);
+        }
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 헤더 + 컬럼 데이터를 합쳐서 target 파일을 만든다.
+     */
+    void finish(long createdAt) throws IOException {
+        for (Column column : columns) {
+            column.flush();
+            if (column.channel.size() != (long) rowCount * column.type.getWidth()) {
+                throw new IllegalStateException("컬럼 값 수가 로우 수와 다릅니다. column=" + column.name);
+            }
+        }
+
+        // 헤더 길이는 오프셋 값과 상관없으므로, 한 번 만들어서 길이를 잰 뒤 실제 오프셋으로 다시 만든다.
+        long[] offsets = new long[columns.size()];
+        int headerLength = header(createdAt, offsets, 0).length;
+
+        long offset = ColumnarSnapshot.align(headerLength);
+        for (int i = 0; i < columns.size(); i++) {
+            offsets[i] = offset;
+            offset = ColumnarSnapshot.align(offset + columns.get(i).channel.size());
+        }
+        byte[] header = header(createdAt, offsets, headerLength);
+
+        Path temp = tempDirectory.resolve("snapshot.tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            writeFully(out, ByteBuffer.wrap(header), 0);
+            for (int i = 0; i < columns.size(); i++) {
+                FileChannel in = columns.get(i).channel;
+                long position = 0;
+                while (position < in.size()) {
+                    position += in.transferTo(position, in.size() - position, out.position(offsets[i] + position));
+                }
+            }
+            out.force(true);
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 헤더 (빅 엔디언 DataOutputStream, 컬럼 데이터만 리틀 엔디언)
+     *
+     * magic, version, headerLength, columnCount, rowCount, createdAt
+     * 컬럼마다: name, type, offset, (DICT 면) 사전 크기 + 문자열들
+     */
+    private byte[] header(long createdAt, long[] offsets, int headerLength) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.write(ColumnarSnapshot.MAGIC);
+        out.writeInt(ColumnarSnapshot.VERSION);
+        out.writeInt(headerLength);
+        out.writeInt(columns.size());
+        out.writeInt(rowCount);
+        out.writeLong(createdAt);
+
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            writeString(out, column.name);
+            out.writeByte(column.type.getCode());
+            out.writeLong(offsets[i]);
+
+            if (column.type == ColumnType.DICT) {
+                out.writeInt(column.dictionary.size());
+                for (String value : column.dictionary) {
+                    writeString(out, value);
+                }
+            }
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * 임시 파일 정리 (finish 후에도, 실패했을 때도 호출)
+     */
+    @Override
+    public void close() throws IOException {
+        for (Column column : columns) {
+            column.channel.close();
+            Files.deleteIfExists(column.file);
+        }
+        Files.deleteIfExists(tempDirectory.resolve("snapshot.tmp"));
+        Files.deleteIfExists(tempDirectory);
+    }
+
+    private static class Column {
+
+        private final String name;
+        private final ColumnType type;
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        private final List<String> dictionary = new ArrayList<>(); // 번호 -> 문자열
+        private final Map<String, Integer> codes = new HashMap<>(); // 문자열 -> 번호 (null 도 번호 하나)
+
+        Column(String name, ColumnType type, Path file) throws IOException {
+            this.name = name;
+            this.type = type;
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        ByteBuffer buffer(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
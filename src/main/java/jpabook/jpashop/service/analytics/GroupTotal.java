@@ -0,0 +1,17 @@
+package jpabook.jpashop.service.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 분석 집계 결과 한 줄 (도시, 주문 상태, 상품 이름별)
+ */
+@Getter
+@AllArgsConstructor
+public class GroupTotal {
+
+    private final String key;
+    private final long orders; // 주문 수 (한 주문의 주문상품 여러 개는 1건)
+    private final long quantity; // 주문 수량 합계
+    private final long revenue; // 주문 금액 합계 (주문 가격 * 수량)
+}
@@ -0,0 +1,298 @@
+package jpabook.jpashop.service.analytics;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.analytics.OrderSnapshotRepository;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 분석 (컬럼 스냅샷)
+ *
+ * 도시별 매출, 주문 상태별 건수, 상품 구성 같은 집계를 OLTP 테이블(H2)에서 하지 않고,
+ * 주기적으로 내보낸 컬럼 파일(주문상품 1개 = 로우 1개)을 메모리 매핑해서 계산한다.
+ *
+ * - 내보내기: 샤드마다 주문상품을 한 번 스캔(OrderSnapshotRepository)해서 컬럼 파일을 새로 만든다.
+ *   문자열(도시, 주문 상태, 상품 이름)은 사전 번호(int)로, 나머지는 int/long 컬럼으로 저장한다.
+ * - 조회: 필요한 컬럼만 순서대로 읽으면서 그룹 번호(사전 번호)로 배열에 더한다. (조회 중 DB 접근 없음)
+ *   로우 순서대로 분기 없이 더하는 반복문이라 페이지 캐시에 올라온 뒤에는 메모리 대역폭에 가깝게 돈다.
+ *
+ * 스냅샷은 파일 하나로 통째로 바꾼다. (조회 중인 쪽은 이전 스냅샷을 끝까지 읽는다.)
+ */
+@Slf4j
+@Service
+public class OrderAnalyticsService {
+
+    public static final int MAX_LIMIT = 100;
+
+    static final String ORDER_ID = "order_id";
+    static final String ORDER_DATE = "order_date";
+    static final String STATUS = "status";
+    static final String CITY = "city";
+    static final String MEMBER_ID = "member_id";
+    static final String ITEM_ID = "item_id";
+    static final String ITEM_NAME = "item_name";
+    static final String ORDER_PRICE = "order_price";
+    static final String COUNT = "count";
+
+    private static final String FILE_PREFIX = "orders-";
+    private static final String FILE_SUFFIX = ".col";
+
+    private final OrderSnapshotRepository orderSnapshotRepository;
+    private final ShardRouter shardRouter;
+    private final Path directory;
+    private final boolean exportEnabled;
+
+    private volatile ColumnarSnapshot snapshot;
+
+    public OrderAnalyticsService(OrderSnapshotRepository orderSnapshotRepository,
+                                 ShardRouter shardRouter,
+                                 @Value("${jpashop.analytics.directory:${java.io.tmpdir}/jpashop-analytics}") String directory,
+                                 @Value("${jpashop.analytics.export-enabled:true}") boolean exportEnabled) {
+        this.orderSnapshotRepository = orderSnapshotRepository;
+        this.shardRouter = shardRouter;
+        this.directory = Paths.get(directory);
+        this.exportEnabled = exportEnabled;
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.analytics.export-interval-ms:600000}")
+    public void scheduledExport() {
+        if (exportEnabled) {
+            export();
+        }
+    }
+
+    /**
+     * 주문상품 전체를 새 컬럼 파일로 내보내고, 이후 조회는 새 스냅샷을 사용한다.
+     * 내보내는 동안 들어온 주문은 샤드마다 스캔 시작 시점에 따라 포함될 수도, 빠질 수도 있다.
+     */
+    public synchronized SnapshotInfo export() {
+        long start = System.currentTimeMillis();
+        Path target = directory.resolve(FILE_PREFIX + start + FILE_SUFFIX);
+
+        try {
+            Files.createDirectories(directory);
+            try (ColumnarWriter writer = new ColumnarWriter(target)) {
+                int orderId = writer.column(ORDER_ID, ColumnType.LONG);
+                int orderDate = writer.column(ORDER_DATE, ColumnType.LONG);
+                int status = writer.column(STATUS, ColumnType.DICT);
+                int city = writer.column(CITY, ColumnType.DICT);
+                int memberId = writer.column(MEMBER_ID, ColumnType.LONG);
+                int itemId = writer.column(ITEM_ID, ColumnType.LONG);
+                int itemName = writer.column(ITEM_NAME, ColumnType.DICT);
+                int orderPrice = writer.column(ORDER_PRICE, ColumnType.INT);
+                int count = writer.column(COUNT, ColumnType.INT);
+
+                for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                    orderSnapshotRepository.scan(shardRouter.getDataSource(shard), row -> {
+                        try {
+                            writer.writeLong(orderId, row.getOrderId());
+                            writer.writeLong(orderDate, row.getOrderDate());
+                            writer.writeString(status, row.getStatus());
+                            writer.writeString(city, row.getCity());
+                            writer.writeLong(memberId, row.getMemberId());
+                            writer.writeLong(itemId, row.getItemId());
+                            writer.writeString(itemName, row.getItemName());
+                            writer.writeInt(orderPrice, row.getOrderPrice());
+                            writer.writeInt(count, row.getCount());
+                            writer.endRow();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+
+                writer.finish(start);
+            }
+
+            snapshot = ColumnarSnapshot.open(target);
+            deleteOtherSnapshots(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("주문 분석 스냅샷을 만들지 못했습니다. path=" + target, e);
+        }
+
+        SnapshotInfo info = new SnapshotInfo(toDateTime(start), snapshot.getRowCount(), fileSize(target),
+                System.currentTimeMillis() - start);
+        log.info("[analytics] 주문 분석 스냅샷 rows={} size={}bytes elapsed={}ms",
+                info.getRows(), info.getFileSize(), info.getElapsedMillis());
+        return info;
+    }
+
+    /**
+     * 시작할 때 마지막 스냅샷 파일을 연다. (없으면 첫 내보내기까지 조회 불가)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        if (!exportEnabled || !Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                ColumnarSnapshot candidate = ColumnarSnapshot.open(file);
+                if (snapshot == null || candidate.getCreatedAt() > snapshot.getCreatedAt()) {
+                    snapshot = candidate;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("[analytics] 주문 분석 스냅샷을 열지 못했습니다. 다음 내보내기 때 새로 만듭니다.", e);
+            return;
+        }
+
+        if (snapshot != null) {
+            log.info("[analytics] 주문 분석 스냅샷을 열었습니다. path={} rows={}", snapshot.getPath(), snapshot.getRowCount());
+        }
+    }
+
+    /**
+     * 도시(배송지)별 매출 (취소 제외, 매출 순)
+     *
+     * @param from 주문일 시작 (포함, null 이면 처음부터)
+     * @param to   주문일 끝 (포함, null 이면 끝까지)
+     */
+    public AnalyticsResult revenueByCity(LocalDate from, LocalDate to) {
+        return aggregate(CITY, OrderStatus.ORDER, from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 주문 상태별 주문 수, 금액
+     */
+    public AnalyticsResult statusBreakdown(LocalDate from, LocalDate to) {
+        return aggregate(STATUS, null, from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 상품(이름)별 판매 수량, 매출 (취소 제외, 매출 순 상위 limit 개)
+     */
+    public AnalyticsResult itemMix(LocalDate from, LocalDate to, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit 은 1 ~ " + MAX_LIMIT + " 사이여야 합니다. limit=" + limit);
+        }
+        return aggregate(ITEM_NAME, OrderStatus.ORDER, from, to, limit);
+    }
+
+    /**
+     * groupColumn(사전 컬럼)의 번호별로 주문 수, 수량, 매출을 더한다.
+     *
+     * @param status 이 상태의 주문만 (null 이면 전체)
+     */
+    private AnalyticsResult aggregate(String groupColumn, OrderStatus status, LocalDate from, LocalDate to, int limit) {
+        ColumnarSnapshot current = snapshot; // 조회 도중 스냅샷이 바뀌어도 같은 스냅샷을 끝까지 읽는다.
+        if (current == null) {
+            throw new EntityNotFoundException("주문 분석 스냅샷이 아직 없습니다. 내보내기(POST /api/analytics/snapshot) 후 조회해 주세요.");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from 은 to 보다 늦을 수 없습니다. from=" + from + " to=" + to);
+        }
+
+        long start = System.nanoTime();
+        long fromMillis = from == null ? Long.MIN_VALUE : toMillis(from);
+        long toMillis = to == null ? Long.MAX_VALUE : toMillis(to.plusDays(1)); // 끝 날짜 포함
+
+        List<String> keys = current.dictionary(groupColumn);
+        int statusCode = status == null ? -1 : current.dictionary(STATUS).indexOf(status.name());
+        if (status != null && statusCode < 0) {
+            return new AnalyticsResult(toDateTime(current.getCreatedAt()), 0, 0, List.of()); // 해당 상태의 주문이 없다.
+        }
+
+        IntBuffer groups = current.ints(groupColumn);
+        IntBuffer statuses = current.ints(STATUS);
+        LongBuffer orderIds = current.longs(ORDER_ID);
+        LongBuffer orderDates = current.longs(ORDER_DATE);
+        IntBuffer prices = current.ints(ORDER_PRICE);
+        IntBuffer counts = current.ints(COUNT);
+
+        long[] orders = new long[keys.size()];
+        long[] quantity = new long[keys.size()];
+        long[] revenue = new long[keys.size()];
+        long[] lastOrderId = new long[keys.size()]; // 그룹마다 마지막으로 센 주문 (한 주문의 로우는 연속)
+        Arrays.fill(lastOrderId, Long.MIN_VALUE);
+
+        int rows = current.getRowCount();
+        for (int i = 0; i < rows; i++) {
+            long orderDate = orderDates.get(i);
+            if (orderDate < fromMillis || orderDate >= toMillis || (statusCode >= 0 && statuses.get(i) != statusCode)) {
+                continue;
+            }
+
+            int group = groups.get(i);
+            long orderId = orderIds.get(i);
+            if (lastOrderId[group] != orderId) {
+                lastOrderId[group] = orderId;
+                orders[group]++;
+            }
+
+            int count = counts.get(i);
+            quantity[group] += count;
+            revenue[group] += (long) prices.get(i) * count;
+        }
+
+        List<GroupTotal> totals = new ArrayList<>();
+        for (int group = 0; group < keys.size(); group++) {
+            if (orders[group] > 0) {
+                totals.add(new GroupTotal(keys.get(group), orders[group], quantity[group], revenue[group]));
+            }
+        }
+
+        Comparator<GroupTotal> order = status == null
+                ? Comparator.comparing(GroupTotal::getKey, Comparator.nullsLast(Comparator.naturalOrder()))
+                : Comparator.comparingLong(GroupTotal::getRevenue).reversed()
+                        .thenComparing(GroupTotal::getKey, Comparator.nullsLast(Comparator.naturalOrder()));
+
+        return new AnalyticsResult(toDateTime(current.getCreatedAt()), rows, (System.nanoTime() - start) / 1_000,
+                totals.stream().sorted(order).limit(limit).collect(Collectors.toList()));
+    }
+
+    private void deleteOtherSnapshots(Path current) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                if (!file.equals(current)) {
+                    try {
+                        Files.delete(file);
+                    } catch (IOException e) {
+                        log.warn("[analytics] 이전 스냅샷 파일을 지우지 못했습니다. path={}", file, e); // 매핑 중이면 지울 수 없는 OS (다음 내보내기 때 다시 시도)
+                    }
+                }
+            }
+        }
+    }
+
+    private static long fileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long toMillis(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.service.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 분석 스냅샷 내보내기 결과
+ */
+@Getter
+@AllArgsConstructor
+public class SnapshotInfo {
+
+    private final LocalDateTime snapshotAt;
+    private final int rows; // 주문상품 수
+    private final long fileSize; // bytes
+    private final long elapsedMillis;
+}
@@ -0,0 +1,25 @@
+package jpabook.jpashop.service.bestseller;
+
+import lombok.Data;
+
+import java.util.Comparator;
+
+/**
+ * 베스트셀러 상품 (quantity 는 윈도우 안의 대략적인 판매 수량, 실제보다 조금 클 수 있다.)
+ */
+@Data
+public class BestSeller {
+
+    static final Comparator<BestSeller> ORDER = Comparator.comparingLong(BestSeller::getQuantity).reversed()
+            .thenComparing(BestSeller::getItemId);
+
+    private Long itemId;
+    private String itemName;
+    private long quantity;
+
+    public BestSeller(Long itemId, String itemName, long quantity) {
+        this.itemId = itemId;
+        this.itemName = itemName;
+        this.quantity = quantity;
+    }
+}
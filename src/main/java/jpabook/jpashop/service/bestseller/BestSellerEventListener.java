@@ -0,0 +1,39 @@
+package jpabook.jpashop.service.bestseller;
+
+import jpabook.jpashop.domain.OrderEventType;
+import jpabook.jpashop.service.event.OrderEvent;
+import jpabook.jpashop.service.event.OrderEventListener;
+import jpabook.jpashop.service.event.OrderEventPayload;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 주문 이벤트 -> 베스트셀러 (주문은 더하고, 취소는 뺀다.)
+ *
+ * 다시 전달받은 이벤트(최소 한 번 전달)는 걸러내지 않는다. -> 어차피 대략값이고, 재전달은 오프셋 저장이 실패했을 때만 일어난다.
+ */
+@Component
+@RequiredArgsConstructor
+public class BestSellerEventListener implements OrderEventListener {
+
+    private final BestSellerTracker bestSellerTracker;
+
+    @Override
+    public String getName() {
+        return "best-seller";
+    }
+
+    @Override
+    public void onEvents(List<OrderEvent> events) {
+        for (OrderEvent event : events) {
+            OrderEventPayload payload = event.getPayload();
+            int sign = event.getType() == OrderEventType.CANCELED ? -1 : 1;
+
+            for (OrderEventPayload.Item item : payload.getItems()) {
+                bestSellerTracker.record(item.getItemId(), item.getItemName(), (long) sign * item.getCount(), payload.getOrderDate());
+            }
+        }
+    }
+}
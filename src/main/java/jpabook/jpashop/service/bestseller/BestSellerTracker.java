@@ -0,0 +1,136 @@
+package jpabook.jpashop.service.bestseller;
+
+import jpabook.jpashop.domain.BestSellerSnapshot;
+import jpabook.jpashop.repository.BestSellerSnapshotRepository;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 베스트셀러 (최근 1시간, 24시간 상위 판매 상품)
+ *
+ * order_item 을 집계하지 않고 메모리의 윈도우(SlidingTopK)에 판매 수량을 더해 두고 바로 읽는다. (조회 쿼리 x)
+ * 주문/취소 이벤트를 아웃박스로 전달받아 더한다. (BestSellerEventListener -> 커밋된 주문만 반영)
+ *
+ * 대략값이다.
+ * - 카운트-민 스케치라서 수량이 실제보다 조금 클 수 있다.
+ * - 후보에서 밀려난 상품은 다음 주문 전까지 목록에 나오지 않는다.
+ * - 서버를 다시 시작하면 마지막 스냅샷(snapshotInterval 마다 저장)으로 채우므로 그 이후 판매분은 빠진다.
+ *
+ * 샤딩 시에는 모든 샤드의 이벤트를 한 곳에 모으고, 스냅샷은 0번 샤드에 저장한다.
+ */
+@Slf4j
+@Component
+public class BestSellerTracker {
+
+    public static final int MAX_LIMIT = 100;
+
+    private static final int SKETCH_WIDTH = 1024; // 버킷당 4 x 1024 셀 (32KB)
+    private static final int CANDIDATES = 1000; // 윈도우당 상위 후보 수
+    private static final int SNAPSHOT_SIZE = 100; // 윈도우당 저장할 상품 수
+    private static final int SNAPSHOT_SHARD = 0;
+
+    private final BestSellerSnapshotRepository snapshotRepository;
+    private final ShardRouter shardRouter;
+    private final boolean snapshotEnabled;
+
+    private final Map<BestSellerWindow, SlidingTopK> windows = new EnumMap<>(BestSellerWindow.class);
+
+    public BestSellerTracker(BestSellerSnapshotRepository snapshotRepository,
+                             ShardRouter shardRouter,
+                             @Value("${jpashop.best-seller.snapshot-enabled:true}") boolean snapshotEnabled) {
+        this.snapshotRepository = snapshotRepository;
+        this.shardRouter = shardRouter;
+        this.snapshotEnabled = snapshotEnabled;
+
+        for (BestSellerWindow window : BestSellerWindow.values()) {
+            windows.put(window, window.newTopK(SKETCH_WIDTH, CANDIDATES));
+        }
+    }
+
+    /**
+     * 판매 수량 반영 (여러 스레드에서 동시에 호출해도 된다.)
+     *
+     * @param quantity  판매 수량 (취소는 음수)
+     * @param orderDate 주문 시각 (취소도 주문 시각을 넘긴다.)
+     */
+    public void record(Long itemId, String itemName, long quantity, LocalDateTime orderDate) {
+        long now = System.currentTimeMillis();
+        long time = toMillis(orderDate);
+
+        windows.values().forEach(topK -> topK.add(itemId, itemName, quantity, time, now));
+    }
+
+    public List<BestSeller> findTop(BestSellerWindow window, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit 은 1 ~ " + MAX_LIMIT + " 사이여야 합니다. limit=" + limit);
+        }
+        return windows.get(window).top(limit, System.currentTimeMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.best-seller.snapshot-interval-ms:60000}")
+    public void scheduledSnapshot() {
+        if (snapshotEnabled) {
+            snapshot();
+        }
+    }
+
+    /**
+     * 윈도우별 상위 상품 저장
+     */
+    public void snapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        List<BestSellerSnapshot> snapshots = new ArrayList<>();
+
+        windows.forEach((window, topK) -> {
+            List<BestSeller> top = topK.top(SNAPSHOT_SIZE, toMillis(now));
+            for (int i = 0; i < top.size(); i++) {
+                BestSeller b = top.get(i);
+                snapshots.add(BestSellerSnapshot.create(window.name(), i + 1, b.getItemId(), b.getItemName(), b.getQuantity(), now));
+            }
+        });
+
+        shardRouter.executeInNewTransaction(SNAPSHOT_SHARD, status -> {
+            snapshotRepository.replaceAll(snapshots);
+            return null;
+        });
+    }
+
+    /**
+     * 시작할 때 마지막 스냅샷으로 윈도우를 채운다. (스냅샷 시각의 버킷에 더함 -> 그 시각 기준으로 윈도우에서 밀려난다.)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        if (!snapshotEnabled) {
+            return;
+        }
+
+        List<BestSellerSnapshot> snapshots = shardRouter.executeInNewTransaction(SNAPSHOT_SHARD,
+                status -> snapshotRepository.findAll());
+        long now = System.currentTimeMillis();
+
+        for (BestSellerSnapshot s : snapshots) {
+            windows.get(BestSellerWindow.valueOf(s.getWindow()))
+                    .add(s.getItemId(), s.getItemName(), s.getQuantity(), toMillis(s.getSnapshotAt()), now);
+        }
+
+        if (!snapshots.isEmpty()) {
+            log.info("[best-seller] 스냅샷 {}건으로 베스트셀러를 채웠습니다.", snapshots.size());
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,33 @@
+package jpabook.jpashop.service.bestseller;
+
+import java.time.Duration;
+
+/**
+ * 베스트셀러 집계 윈도우
+ */
+public enum BestSellerWindow {
+
+    HOUR(Duration.ofMinutes(1), 60), // 최근 1시간 (1분 단위로 밀려남)
+    DAY(Duration.ofHours(1), 24); // 최근 24시간 (1시간 단위로 밀려남)
+
+    private final Duration bucket;
+    private final int bucketCount;
+
+    BestSellerWindow(Duration bucket, int bucketCount) {
+        this.bucket = bucket;
+        this.bucketCount = bucketCount;
+    }
+
+    SlidingTopK newTopK(int sketchWidth, int capacity) {
+        return new SlidingTopK(bucket.toMillis(), bucketCount, sketchWidth, capacity);
+    }
+
+    public static BestSellerWindow of(String name) {
+        for (BestSellerWindow window : values()) {
+            if (window.name().equalsIgnoreCase(name)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("지원하지 않는 윈도우입니다. window=" + name);
+    }
+}
@@ -0,0 +1,54 @@
+package jpabook.jpashop.service.bestseller;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 카운트-민 스케치 (상품 id -> 대략적인 판매 수량)
+ *
+ * depth 개의 행마다 서로 다른 해시로 셀 하나를 골라 더하고, 조회할 때는 그중 가장 작은 값을 쓴다.
+ * 다른 상품과 셀이 겹치면 실제보다 크게 나올 수는 있어도 작게 나오지는 않는다. (취소로 빼는 경우도 실제 수량이 음수가 아니면 같다.)
+ *
+ * 셀은 AtomicLongArray 로 두고 CAS 로 더한다. (락 x)
+ * 상품마다 다른 셀에 더해지므로 동시에 주문이 들어와도 경합이 셀 단위로 흩어진다.
+ */
+class CountMinSketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xBF58476D1CE4E5B9L, 0x94D049BB133111EBL, 0xD6E8FEB86659FD93L};
+
+    private final int width; // 2 의 거듭제곱
+    private final AtomicLongArray cells;
+
+    CountMinSketch(int width) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width 는 2 의 거듭제곱이어야 합니다. width=" + width);
+        }
+        this.width = width;
+        this.cells = new AtomicLongArray(DEPTH * width);
+    }
+
+    void add(long key, long delta) {
+        for (int row = 0; row < DEPTH; row++) {
+            cells.getAndAdd(index(row, key), delta);
+        }
+    }
+
+    long estimate(long key) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, cells.get(index(row, key)));
+        }
+        return min;
+    }
+
+    private int index(int row, long key) {
+        return row * width + (int) (mix(key ^ SEEDS[row]) & (width - 1));
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+        x = (x ^ (x >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return x ^ (x >>> 33);
+    }
+}
@@ -0,0 +1,139 @@
+package jpabook.jpashop.service.bestseller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+/**
+ * 슬라이딩 윈도우 상위 K 상품 (대략값)
+ *
+ * 윈도우를 bucketCount 개의 시간 구간(버킷)으로 나누고, 버킷마다 카운트-민 스케치에 판매 수량을 더한다.
+ * 버킷은 링 버퍼로 돌려 쓰고, 지난 구간의 자리는 새 구간이 처음 들어올 때 CAS 로 새 버킷으로 바꾼다. (락 x)
+ * -> 윈도우는 버킷 단위로 밀려난다. (1시간 윈도우 = 1분 버킷 60개면 최대 1분 오차)
+ *
+ * 상위 K 후보: 판매된 적 있는 상품 id 를 후보로 두고, 조회할 때 후보마다 윈도우 안의 수량을 합쳐서 정렬한다.
+ * 후보가 capacity 를 넘으면 수량이 적은 절반을 버린다. (많이 팔리는 상품은 다음 주문에서 다시 후보가 된다.)
+ */
+class SlidingTopK {
+
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final int sketchWidth;
+    private final int capacity;
+
+    private final AtomicReferenceArray<Bucket> ring;
+    private final Map<Long, String> candidates = new ConcurrentHashMap<>(); // 상품 id -> 상품명
+    private final AtomicBoolean pruning = new AtomicBoolean();
+
+    SlidingTopK(long bucketMillis, int bucketCount, int sketchWidth, int capacity) {
+        this.bucketMillis = bucketMillis;
+        this.bucketCount = bucketCount;
+        this.sketchWidth = sketchWidth;
+        this.capacity = capacity;
+        this.ring = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    /**
+     * @param delta       판매 수량 (취소는 음수)
+     * @param timeMillis  판매 시각 (취소도 주문 시각 -> 주문이 더해진 버킷에서 뺀다.)
+     */
+    void add(long itemId, String itemName, long delta, long timeMillis, long nowMillis) {
+        long nowEpoch = nowMillis / bucketMillis;
+        long epoch = Math.min(timeMillis / bucketMillis, nowEpoch); // 서버 사이 시계 차이로 미래 시각이 들어오면 현재 구간에
+
+        if (epoch <= nowEpoch - bucketCount) { // 윈도우 밖
+            return;
+        }
+
+        Bucket bucket = bucket(epoch);
+        if (bucket == null) {
+            return;
+        }
+        bucket.sketch.add(itemId, delta);
+
+        if (delta > 0 && candidates.putIfAbsent(itemId, itemName) == null && candidates.size() > capacity) {
+            prune(nowMillis);
+        }
+    }
+
+    long estimate(long itemId, long nowMillis) {
+        long nowEpoch = nowMillis / bucketMillis;
+        long sum = 0;
+
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null && bucket.epoch > nowEpoch - bucketCount && bucket.epoch <= nowEpoch) {
+                sum += bucket.sketch.estimate(itemId);
+            }
+        }
+
+        return Math.max(sum, 0);
+    }
+
+    List<BestSeller> top(int limit, long nowMillis) {
+        return candidates.entrySet().stream()
+                .map(e -> new BestSeller(e.getKey(), e.getValue(), estimate(e.getKey(), nowMillis)))
+                .filter(b -> b.getQuantity() > 0)
+                .sorted(BestSeller.ORDER)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    int candidateCount() {
+        return candidates.size();
+    }
+
+    private Bucket bucket(long epoch) {
+        int index = (int) Math.floorMod(epoch, (long) bucketCount);
+
+        while (true) {
+            Bucket current = ring.get(index);
+            if (current != null && current.epoch == epoch) {
+                return current;
+            }
+            if (current != null && current.epoch > epoch) { // 이미 새 구간이 자리를 차지함 (윈도우 밖)
+                return null;
+            }
+            Bucket fresh = new Bucket(epoch, sketchWidth);
+            if (ring.compareAndSet(index, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    /**
+     * 후보 정리 (한 스레드만, 나머지는 기다리지 않고 지나간다.)
+     */
+    private void prune(long nowMillis) {
+        if (!pruning.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            List<Long> removed = candidates.keySet().stream()
+                    .map(itemId -> new BestSeller(itemId, null, estimate(itemId, nowMillis)))
+                    .sorted(BestSeller.ORDER)
+                    .skip(capacity / 2)
+                    .map(BestSeller::getItemId)
+                    .collect(Collectors.toList());
+
+            removed.forEach(candidates::remove);
+        } finally {
+            pruning.set(false);
+        }
+    }
+
+    private static class Bucket {
+
+        private final long epoch; // 구간 번호 (시각 / bucketMillis)
+        private final CountMinSketch sketch;
+
+        Bucket(long epoch, int sketchWidth) {
+            this.epoch = epoch;
+            this.sketch = new CountMinSketch(sketchWidth);
+        }
+    }
+}
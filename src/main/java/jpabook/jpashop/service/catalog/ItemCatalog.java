@@ -0,0 +1,272 @@
+package jpabook.jpashop.service.catalog;
+
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.KeysetPager;
+import jpabook.jpashop.repository.view.ItemListQueryDto;
+import jpabook.jpashop.repository.view.ViewQueryRepository;
+import jpabook.jpashop.service.DataVersions;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 상품 카탈로그 (읽기 전용 사본, 힙 밖)
+ *
+ * 상품 목록 화면, 주문 폼, 상품 조회 API 는 DB 대신 여기서 읽는다. (OffHeapItemTable)
+ *
+ * - 시작할 때(ApplicationReadyEvent) 카탈로그 샤드(0번)의 상품을 id 순으로 전부 적재한다.
+ * - 상품 등록/수정(ItemService, ItemImportService), 재고 변경(OrderService 주문/취소)은
+ *   트랜잭션이 커밋된 뒤 바뀐 상품만 다시 조회해서 고친다. (refreshAfterCommit)
+ * - 놓친 변경(직접 수정한 DB 등)은 주기적인 전체 재적재(rebuild-interval-ms)로 맞춘다.
+ *
+ * 첫 적재가 끝나기 전이거나 꺼져 있으면(jpashop.catalog.off-heap-enabled: false) DB 에서 바로 읽는다.
+ * 변경을 반영할 때마다(꺼져 있으면 커밋될 때마다) 상품 데이터 버전(DataVersions)을 올린다.
+ */
+@Slf4j
+@Component
+public class ItemCatalog {
+
+    private static final int CATALOG_SHARD = 0;
+    private static final int LOAD_PAGE_SIZE = 10_000;
+    private static final int IN_QUERY_SIZE = 1000;
+    private static final int ITERATE_PAGE_SIZE = 500;
+
+    private final ViewQueryRepository viewQueryRepository;
+    private final ShardRouter shardRouter;
+    private final DataVersions dataVersions;
+    private final boolean enabled;
+
+    private volatile OffHeapItemTable table; // 첫 적재 전에는 null
+    private volatile Set<Long> changedWhileLoading; // 전체 적재 중에 바뀐 상품 (적재가 끝나면 다시 반영)
+    private volatile LocalDateTime loadedAt;
+
+    public ItemCatalog(ViewQueryRepository viewQueryRepository,
+                       ShardRouter shardRouter,
+                       DataVersions dataVersions,
+                       @Value("${jpashop.catalog.off-heap-enabled:true}") boolean enabled) {
+        this.viewQueryRepository = viewQueryRepository;
+        this.shardRouter = shardRouter;
+        this.dataVersions = dataVersions;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 전체 상품 (id 순, 상품 목록 화면, 주문 폼)
+     *
+     * 전체를 dto 리스트로 복사하지 않고, 렌더링이 꺼내 가는 대로 ITERATE_PAGE_SIZE 개씩 키셋으로 읽는다.
+     * 힙에는 한 페이지 분량의 dto 만 있다. (페이지 사이에 바뀐 상품은 다음 페이지부터 반영된다.)
+     */
+    public Iterable<ItemListQueryDto> iterateAll() {
+        return () -> new PageIterator();
+    }
+
+    /**
+     * 상품 하나 (없으면 null)
+     */
+    public ItemListQueryDto findOne(Long itemId) {
+        OffHeapItemTable current = table;
+        if (current != null) {
+            return current.find(itemId);
+        }
+        List<ItemListQueryDto> items = viewQueryRepository.findItemListByIds(List.of(itemId));
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    /**
+     * afterId 다음 상품 limit 개 (키셋)
+     */
+    public KeysetPage<ItemListQueryDto> findPage(Long afterId, int limit) {
+        if (limit < 1 || limit > KeysetPager.MAX_LIMIT) {
+            throw new IllegalArgumentException("limit 은 1 ~ " + KeysetPager.MAX_LIMIT + " 사이여야 합니다. limit=" + limit);
+        }
+
+        List<ItemListQueryDto> items = page(afterId == null ? 0 : afterId, limit + 1);
+
+        boolean hasNext = items.size() > limit;
+        List<ItemListQueryDto> content = hasNext ? items.subList(0, limit) : items;
+        return new KeysetPage<>(content, hasNext ? content.get(content.size() - 1).getId() : null);
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 상품을 다시 조회해서 반영 (트랜잭션 밖이면 바로)
+     *
+     * 재고 원복처럼 커밋 후에 실행되는 작업(CatalogStock.releaseAfterCommit)보다 나중에 등록해야 원복된 재고를 읽는다.
+     */
+    public void refreshAfterCommit(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(itemIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(ids);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    refresh(ids);
+                }
+            }
+        });
+    }
+
+    public void refreshAfterCommit(Long itemId) {
+        refreshAfterCommit(List.of(itemId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${jpashop.catalog.rebuild-interval-ms:300000}",
+            fixedDelayString = "${jpashop.catalog.rebuild-interval-ms:300000}")
+    public void scheduledReload() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    /**
+     * 카탈로그 샤드의 상품을 새 테이블에 전부 적재한 뒤 바꿔 끼운다. (적재 중에는 이전 테이블로 조회)
+     */
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        OffHeapItemTable previous = table;
+        Set<Long> changed = ConcurrentHashMap.newKeySet();
+        changedWhileLoading = changed;
+
+        OffHeapItemTable loaded = previous == null
+                ? new OffHeapItemTable(LOAD_PAGE_SIZE, LOAD_PAGE_SIZE * 32)
+                : new OffHeapItemTable(previous.size() + 1, (int) Math.min(previous.offHeapBytes(), Integer.MAX_VALUE / 2));
+
+        long afterId = 0;
+        List<ItemListQueryDto> page;
+        do {
+            long after = afterId;
+            page = shardRouter.query(CATALOG_SHARD, () -> viewQueryRepository.findItemListAfter(after, LOAD_PAGE_SIZE));
+            page.forEach(loaded::put);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+
+        table = loaded;
+        changedWhileLoading = null;
+        loadedAt = LocalDateTime.now();
+        dataVersions.itemsChanged();
+        if (!changed.isEmpty()) {
+            refresh(new ArrayList<>(changed)); // 적재 중 커밋된 변경은 이미 읽은 페이지에 빠졌을 수 있다.
+        }
+
+        log.info("[catalog] 상품 {}건 적재 (off-heap {}KB, {}ms)",
+                loaded.size(), loaded.offHeapBytes() / 1024, System.currentTimeMillis() - start);
+    }
+
+    public Stats stats() {
+        OffHeapItemTable current = table;
+        return current == null
+                ? new Stats(false, 0, 0, null)
+                : new Stats(true, current.size(), current.offHeapBytes(), loadedAt);
+    }
+
+    private void refresh(List<Long> itemIds) {
+        Set<Long> changed = changedWhileLoading;
+        if (changed != null) {
+            changed.addAll(itemIds);
+        }
+
+        OffHeapItemTable current = table;
+        if (current == null) {
+            dataVersions.itemsChanged(); // 꺼져 있거나 첫 적재 전 (DB 에서 바로 읽는다.)
+            return;
+        }
+
+        try {
+            for (int from = 0; from < itemIds.size(); from += IN_QUERY_SIZE) {
+                List<Long> chunk = itemIds.subList(from, Math.min(from + IN_QUERY_SIZE, itemIds.size()));
+                shardRouter.executeInNewTransaction(CATALOG_SHARD, status -> viewQueryRepository.findItemListByIds(chunk))
+                        .forEach(current::put);
+            }
+        } catch (RuntimeException e) {
+            log.error("[catalog] 상품 카탈로그 갱신 실패 itemIds={} (다음 전체 적재 때 맞춰진다.)", itemIds, e);
+        } finally {
+            dataVersions.itemsChanged();
+        }
+    }
+
+    private List<ItemListQueryDto> page(long afterId, int limit) {
+        OffHeapItemTable current = table;
+        return current != null
+                ? current.page(afterId, limit)
+                : viewQueryRepository.findItemListAfter(afterId, limit);
+    }
+
+    /**
+     * iterateAll 의 반복자 (마지막으로 꺼낸 id 다음 페이지를 필요할 때 읽는다.)
+     */
+    private class PageIterator implements Iterator<ItemListQueryDto> {
+
+        private List<ItemListQueryDto> current = List.of();
+        private int index;
+        private long afterId;
+        private boolean last;
+
+        @Override
+        public boolean hasNext() {
+            if (index < current.size()) {
+                return true;
+            }
+            if (last) {
+                return false;
+            }
+
+            current = page(afterId, ITERATE_PAGE_SIZE);
+            index = 0;
+            last = current.size() < ITERATE_PAGE_SIZE;
+            if (!current.isEmpty()) {
+                afterId = current.get(current.size() - 1).getId();
+            }
+            return !current.isEmpty();
+        }
+
+        @Override
+        public ItemListQueryDto next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.get(index++);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final boolean loaded;
+        private final int items;
+        private final long offHeapBytes;
+        private final LocalDateTime loadedAt;
+    }
+}
@@ -0,0 +1,297 @@
+package jpabook.jpashop.service.catalog;
+
+import jpabook.jpashop.repository.view.ItemListQueryDto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 힙 밖(direct ByteBuffer)에 두는 상품 테이블
+ *
+ * - records: 상품 하나당 고정 길이(RECORD_SIZE) 레코드, 상품 id 순으로 정렬 -> id 조회는 이진 탐색
+ *   [id long][price int][stockQuantity int][이름 오프셋 int][이름 길이 int]
+ * - arena: 상품 이름(UTF-8)을 이어 붙인 영역, 레코드는 오프셋과 길이만 가진다.
+ *
+ * 상품이 수백만 개여도 힙에는 이 객체와 버퍼 헤더만 있으므로 GC 가 훑을 객체가 늘지 않는다.
+ * 조회할 때만 dto 를 만든다.
+ *
+ * 이름이 바뀌면 새 이름을 arena 끝에 붙이고 예전 이름은 버린다. 버린 공간이 절반을 넘으면 arena 를 새로 만든다. (compact)
+ * 공간이 모자라면 두 배 크기의 버퍼를 새로 만들어 옮긴다.
+ *
+ * 읽기/쓰기 락으로 보호한다. (쓰기는 상품 등록/수정, 재고 변경 커밋 후에만 일어난다.)
+ */
+class OffHeapItemTable {
+
+    static final int RECORD_SIZE = 24;
+
+    private static final int ID = 0;
+    private static final int PRICE = 8;
+    private static final int STOCK = 12;
+    private static final int NAME_OFFSET = 16;
+    private static final int NAME_LENGTH = 20;
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8; // ByteBuffer 하나의 최대 크기
+    private static final int MIN_COMPACT_SIZE = 1 << 20;
+    private static final int SHIFT_CHUNK = 64 * 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer records;
+    private ByteBuffer arena;
+    private int size;
+    private int arenaUsed;
+    private int arenaGarbage;
+
+    OffHeapItemTable(int initialItems, int initialArenaBytes) {
+        this.records = ByteBuffer.allocateDirect(Math.max(initialItems, 16) * RECORD_SIZE);
+        this.arena = ByteBuffer.allocateDirect(Math.max(initialArenaBytes, 1024));
+    }
+
+    /**
+     * 상품 추가 또는 수정
+     * id 순으로 넣으면(전체 적재) 끝에 붙이기만 하고, 중간 id 는 뒤 레코드를 한 칸씩 민다.
+     */
+    void put(ItemListQueryDto item) {
+        byte[] name = item.getName() == null ? null : item.getName().getBytes(StandardCharsets.UTF_8);
+
+        lock.writeLock().lock();
+        try {
+            int index = size > 0 && records.getLong((size - 1) * RECORD_SIZE + ID) < item.getId()
+                    ? -(size + 1) // 마지막 id 보다 크면 탐색 생략
+                    : indexOf(item.getId());
+
+            if (index < 0) {
+                index = -(index + 1);
+                ensureRecordCapacity(size + 1);
+                shiftRight(index);
+                size++;
+                records.putLong(index * RECORD_SIZE + ID, item.getId());
+                writeName(index, name);
+            } else if (!nameEquals(index, name)) {
+                arenaGarbage += Math.max(records.getInt(index * RECORD_SIZE + NAME_LENGTH), 0);
+                writeName(index, name);
+            }
+
+            records.putInt(index * RECORD_SIZE + PRICE, item.getPrice());
+            records.putInt(index * RECORD_SIZE + STOCK, item.getStockQuantity());
+
+            if (arenaGarbage > MIN_COMPACT_SIZE && arenaGarbage > arenaUsed / 2) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    ItemListQueryDto find(long id) {
+        lock.readLock().lock();
+        try {
+            int index = indexOf(id);
+            return index < 0 ? null : read(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * afterId 다음 상품 limit 개 (id 순)
+     */
+    List<ItemListQueryDto> page(long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = indexOf(afterId);
+            from = from < 0 ? -(from + 1) : from + 1;
+            int to = (int) Math.min((long) from + limit, size);
+
+            List<ItemListQueryDto> items = new ArrayList<>(Math.max(to - from, 0));
+            for (int i = from; i < to; i++) {
+                items.add(read(i));
+            }
+            return items;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 힙 밖에 잡아둔 크기 (records + arena 용량)
+     */
+    long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) records.capacity() + arena.capacity();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * id 의 레코드 위치, 없으면 -(들어갈 위치 + 1) (Arrays.binarySearch 와 같은 규칙)
+     */
+    private int indexOf(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = records.getLong(mid * RECORD_SIZE + ID);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private ItemListQueryDto read(int index) {
+        int base = index * RECORD_SIZE;
+        return new ItemListQueryDto(records.getLong(base + ID), readName(index),
+                records.getInt(base + PRICE), records.getInt(base + STOCK));
+    }
+
+    private String readName(int index) {
+        int length = records.getInt(index * RECORD_SIZE + NAME_LENGTH);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = arena.duplicate(); // 읽기 락은 여러 스레드가 함께 잡으므로 위치를 공유하지 않는다.
+        view.position(records.getInt(index * RECORD_SIZE + NAME_OFFSET));
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean nameEquals(int index, byte[] name) {
+        int length = records.getInt(index * RECORD_SIZE + NAME_LENGTH);
+        if (name == null || length < 0) {
+            return name == null && length < 0;
+        }
+        if (length != name.length) {
+            return false;
+        }
+        int offset = records.getInt(index * RECORD_SIZE + NAME_OFFSET);
+        for (int i = 0; i < length; i++) {
+            if (arena.get(offset + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeName(int index, byte[] name) {
+        if (name == null) {
+            records.putInt(index * RECORD_SIZE + NAME_OFFSET, 0);
+            records.putInt(index * RECORD_SIZE + NAME_LENGTH, -1);
+            return;
+        }
+
+        ensureArenaCapacity(arenaUsed + name.length);
+        ByteBuffer view = arena.duplicate();
+        view.position(arenaUsed);
+        view.put(name);
+
+        records.putInt(index * RECORD_SIZE + NAME_OFFSET, arenaUsed);
+        records.putInt(index * RECORD_SIZE + NAME_LENGTH, name.length);
+        arenaUsed += name.length;
+    }
+
+    /**
+     * index 부터 끝까지의 레코드를 한 칸 뒤로 (겹치는 구간이므로 뒤에서부터 조각씩 옮긴다.)
+     */
+    private void shiftRight(int index) {
+        byte[] chunk = null;
+        int end = size * RECORD_SIZE;
+        int start = index * RECORD_SIZE;
+
+        while (end > start) {
+            int from = Math.max(start, end - SHIFT_CHUNK);
+            if (chunk == null) {
+                chunk = new byte[Math.min(SHIFT_CHUNK, end - start)];
+            }
+            int length = end - from;
+
+            ByteBuffer source = records.duplicate();
+            source.position(from);
+            source.get(chunk, 0, length);
+
+            ByteBuffer target = records.duplicate();
+            target.position(from + RECORD_SIZE);
+            target.put(chunk, 0, length);
+
+            end = from;
+        }
+    }
+
+    private void ensureRecordCapacity(int items) {
+        long required = (long) items * RECORD_SIZE;
+        if (required <= records.capacity()) {
+            return;
+        }
+
+        ByteBuffer grown = ByteBuffer.allocateDirect(grow(records.capacity(), required));
+        ByteBuffer source = records.duplicate();
+        source.position(0).limit(size * RECORD_SIZE);
+        grown.put(source);
+        grown.clear();
+        records = grown;
+    }
+
+    private void ensureArenaCapacity(long required) {
+        if (required <= arena.capacity()) {
+            return;
+        }
+
+        ByteBuffer grown = ByteBuffer.allocateDirect(grow(arena.capacity(), required));
+        ByteBuffer source = arena.duplicate();
+        source.position(0).limit(arenaUsed);
+        grown.put(source);
+        grown.clear();
+        arena = grown;
+    }
+
+    /**
+     * 살아 있는 이름만 새 arena 로 옮긴다.
+     */
+    private void compact() {
+        ByteBuffer compacted = ByteBuffer.allocateDirect(Math.max(arenaUsed - arenaGarbage, 1024) * 2);
+        for (int i = 0; i < size; i++) {
+            int length = records.getInt(i * RECORD_SIZE + NAME_LENGTH);
+            if (length < 0) {
+                continue;
+            }
+
+            ByteBuffer source = arena.duplicate();
+            int offset = records.getInt(i * RECORD_SIZE + NAME_OFFSET);
+            source.position(offset).limit(offset + length);
+
+            records.putInt(i * RECORD_SIZE + NAME_OFFSET, compacted.position());
+            compacted.put(source);
+        }
+
+        arenaUsed = compacted.position();
+        arenaGarbage = 0;
+        compacted.clear();
+        arena = compacted;
+    }
+
+    private static int grow(int capacity, long required) {
+        if (required > MAX_CAPACITY) {
+            throw new IllegalStateException("상품 카탈로그가 버퍼 하나의 최대 크기를 넘었습니다. required=" + required);
+        }
+        return (int) Math.min(Math.max((long) capacity * 2, required), MAX_CAPACITY);
+    }
+}
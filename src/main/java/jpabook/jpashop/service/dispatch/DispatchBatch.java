@@ -0,0 +1,26 @@
+package jpabook.jpashop.service.dispatch;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 출고 묶음 (같은 우편번호 + 도시의 배송, 최대 batchSize 개)
+ *
+ * 출고가 끝나면 deliveryIds 로 배송 일괄 완료(OrderService.completeDeliveries)를 요청하면 된다.
+ */
+@Getter
+public class DispatchBatch {
+
+    private final int sequence; // 1부터, 우편번호 순
+    private final String zipcode;
+    private final String city;
+    private final List<Long> deliveryIds;
+
+    DispatchBatch(int sequence, String zipcode, String city, List<Long> deliveryIds) {
+        this.sequence = sequence;
+        this.zipcode = zipcode;
+        this.city = city;
+        this.deliveryIds = deliveryIds;
+    }
+}
@@ -0,0 +1,33 @@
+package jpabook.jpashop.service.dispatch;
+
+import lombok.Getter;
+
+/**
+ * 출고 계획 전체 결과 (묶음은 DispatchPlanner.plan 의 output 으로 먼저 내보낸다.)
+ */
+@Getter
+public class DispatchPlanResult {
+
+    private int batches;
+    private int deliveries;
+    private int zipcodes;
+    private long withoutZipcode; // 우편번호가 없어서 계획에서 빠진 대기 배송
+    private long elapsedMillis;
+
+    void batch(int size) {
+        batches++;
+        deliveries += size;
+    }
+
+    void zipcode() {
+        zipcodes++;
+    }
+
+    void setWithoutZipcode(long withoutZipcode) {
+        this.withoutZipcode = withoutZipcode;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
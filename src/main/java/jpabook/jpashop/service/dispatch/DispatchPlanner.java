@@ -0,0 +1,170 @@
+package jpabook.jpashop.service.dispatch;
+
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.query.DispatchDeliveryQueryDto;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * 출고 계획
+ *
+ * 출고 대기(READY) 배송을 우편번호 + 도시별로 묶어서 최대 batchSize 개씩 출고 묶음(DispatchBatch)으로 내보낸다.
+ * 배송 엔티티를 전부 올리지 않고, 우편번호 -> 배송 id 순 키셋 스캔(OrderRepository.findReadyDeliveriesAfter)으로
+ * PAGE_SIZE 개씩 dto 만 읽으면서 바로 묶는다.
+ *
+ * 우편번호 순으로 읽으므로 우편번호가 바뀌면 이전 우편번호의 묶음은 더 커질 일이 없다. -> 그때 남은 묶음을 내보낸다.
+ * 메모리에는 페이지(샤드마다 하나)와 현재 우편번호의 덜 찬 묶음(도시마다 하나)만 둔다.
+ *
+ * 샤딩 시 샤드마다 키셋 커서를 두고 (우편번호, 배송 id) 순으로 합친다. (k-way merge, 같은 우편번호는 샤드가 달라도 한 묶음)
+ * 페이지마다 짧은 읽기 전용 트랜잭션으로 조회하므로, 스캔 도중 완료/취소되거나 새로 들어온 배송은 반영되지 않을 수 있다.
+ * (계획은 스냅샷이 아니다. 완료 요청 시 OrderService.completeDeliveries 가 다시 검증한다.)
+ */
+@Service
+@RequiredArgsConstructor
+public class DispatchPlanner {
+
+    public static final int MAX_BATCH_SIZE = 1000;
+    static final int PAGE_SIZE = 500;
+
+    private static final Comparator<DispatchDeliveryQueryDto> SCAN_ORDER = Comparator
+            .comparing(DispatchDeliveryQueryDto::getZipcode)
+            .thenComparing(DispatchDeliveryQueryDto::getDeliveryId);
+
+    private final OrderRepository orderRepository;
+    private final ShardRouter shardRouter;
+
+    /**
+     * @param batchSize 묶음 하나의 최대 배송 수 (1 ~ MAX_BATCH_SIZE)
+     * @param output    출고 묶음 (우편번호 순)
+     */
+    public DispatchPlanResult plan(int batchSize, Consumer<DispatchBatch> output) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("batchSize 는 1 ~ " + MAX_BATCH_SIZE + " 사이여야 합니다. batchSize=" + batchSize);
+        }
+
+        DispatchPlanResult result = new DispatchPlanResult();
+        long start = System.currentTimeMillis();
+
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparing(Cursor::head, SCAN_ORDER));
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            Cursor cursor = new Cursor(shard);
+            if (cursor.fetch()) {
+                cursors.add(cursor);
+            }
+        }
+
+        BatchCollector collector = new BatchCollector(batchSize, output, result);
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            collector.add(cursor.next());
+            if (cursor.hasNext() || cursor.fetch()) {
+                cursors.add(cursor);
+            }
+        }
+        collector.flush();
+
+        result.setWithoutZipcode(shardRouter.scatter(() -> List.of(orderRepository.countReadyDeliveriesWithoutZipcode()))
+                .stream().mapToLong(Long::longValue).sum());
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 샤드 하나의 키셋 커서
+     */
+    private class Cursor {
+
+        private final int shard;
+        private List<DispatchDeliveryQueryDto> page = List.of();
+        private int position;
+        private String lastZipcode = "";
+        private Long lastId = 0L;
+
+        Cursor(int shard) {
+            this.shard = shard;
+        }
+
+        /**
+         * 다음 페이지 조회 (없으면 false)
+         */
+        boolean fetch() {
+            page = shardRouter.query(shard, () -> orderRepository.findReadyDeliveriesAfter(lastZipcode, lastId, PAGE_SIZE));
+            position = 0;
+            return !page.isEmpty();
+        }
+
+        boolean hasNext() {
+            return position < page.size();
+        }
+
+        DispatchDeliveryQueryDto head() {
+            return page.get(position);
+        }
+
+        DispatchDeliveryQueryDto next() {
+            DispatchDeliveryQueryDto delivery = page.get(position++);
+            lastZipcode = delivery.getZipcode();
+            lastId = delivery.getDeliveryId();
+            return delivery;
+        }
+    }
+
+    /**
+     * 현재 우편번호의 도시별 묶음
+     */
+    private static class BatchCollector {
+
+        private final int batchSize;
+        private final Consumer<DispatchBatch> output;
+        private final DispatchPlanResult result;
+
+        private String zipcode;
+        private final Map<String, List<Long>> openBatches = new LinkedHashMap<>(); // 도시 -> 배송 id (도시가 없으면 null 키)
+        private int sequence;
+
+        BatchCollector(int batchSize, Consumer<DispatchBatch> output, DispatchPlanResult result) {
+            this.batchSize = batchSize;
+            this.output = output;
+            this.result = result;
+        }
+
+        void add(DispatchDeliveryQueryDto delivery) {
+            if (!Objects.equals(zipcode, delivery.getZipcode())) {
+                flush();
+                zipcode = delivery.getZipcode();
+                result.zipcode();
+            }
+
+            List<Long> batch = openBatches.computeIfAbsent(delivery.getCity(), k -> new ArrayList<>());
+            batch.add(delivery.getDeliveryId());
+            if (batch.size() == batchSize) {
+                emit(delivery.getCity(), batch);
+                openBatches.remove(delivery.getCity());
+            }
+        }
+
+        void flush() {
+            for (Iterator<Map.Entry<String, List<Long>>> it = openBatches.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, List<Long>> entry = it.next();
+                emit(entry.getKey(), entry.getValue());
+                it.remove();
+            }
+        }
+
+        private void emit(String city, List<Long> deliveryIds) {
+            output.accept(new DispatchBatch(++sequence, zipcode, city, deliveryIds));
+            result.batch(deliveryIds.size());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package jpabook.jpashop.service.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 주문 이벤트를 로그로 남기는 기본 리스너 (debug 레벨)
+ */
+@Slf4j
+@Component
+public class LoggingOrderEventListener implements OrderEventListener {
+
+    @Override
+    public String getName() {
+        return "logging";
+    }
+
+    @Override
+    public void onEvents(List<OrderEvent> events) {
+        if (log.isDebugEnabled()) {
+            events.forEach(e -> log.debug("[order-event] {} {} orderId={}", e.getEventId(), e.getType(), e.getPayload().getOrderId()));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.service.event;
+
+import jpabook.jpashop.domain.OrderEventType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * 리스너에게 전달되는 주문 이벤트
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class OrderEvent {
+
+    private final Long eventId; // 아웃박스 id (전달 순서, 중복 제거 용도)
+    private final OrderEventType type;
+    private final LocalDateTime createdAt;
+    private final OrderEventPayload payload;
+}
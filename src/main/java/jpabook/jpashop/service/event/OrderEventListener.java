@@ -0,0 +1,21 @@
+package jpabook.jpashop.service.event;
+
+import java.util.List;
+
+/**
+ * 주문 이벤트 리스너
+ *
+ * 스프링 빈으로 등록하면 OutboxRelay 가 아웃박스 이벤트를 id 순서대로 배치 전달한다.
+ *
+ * 예외를 던지면 오프셋이 이동하지 않고 같은 배치부터 다시 전달한다. (최소 한 번 전달)
+ * -> 같은 이벤트를 두 번 받아도 결과가 같도록(eventId 로 중복 제거 등) 멱등하게 처리해야 한다.
+ */
+public interface OrderEventListener {
+
+    /**
+     * 오프셋을 저장하는 키 (바꾸면 처음부터 다시 전달받는다.)
+     */
+    String getName();
+
+    void onEvents(List<OrderEvent> events);
+}
@@ -0,0 +1,56 @@
+package jpabook.jpashop.service.event;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 아웃박스에 json 으로 저장되는 주문 이벤트 내용
+ *
+ * 리스너가 주문 테이블을 다시 조회하지 않아도 되도록 주문상품까지 담는다.
+ */
+@Data
+@NoArgsConstructor
+public class OrderEventPayload {
+
+    private Long orderId;
+    private Long memberId;
+    private OrderStatus status;
+    private LocalDateTime orderDate;
+    private int totalPrice;
+    private List<Item> items;
+
+    public static OrderEventPayload of(Order order) {
+        OrderEventPayload payload = new OrderEventPayload();
+        payload.orderId = order.getId();
+        payload.memberId = order.getMember().getId(); // 프록시 id 조회 -> 초기화 x
+        payload.status = order.getStatus();
+        payload.orderDate = order.getOrderDate();
+        payload.totalPrice = order.getTotalPrice();
+        payload.items = order.getOrderItems().stream()
+                .map(oi -> new Item(oi.getItem().getId(), oi.getItem().getName(), oi.getOrderPrice(), oi.getCount()))
+                .collect(Collectors.toList());
+        return payload;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Item {
+        private Long itemId;
+        private String itemName;
+        private int orderPrice;
+        private int count;
+
+        public Item(Long itemId, String itemName, int orderPrice, int count) {
+            this.itemId = itemId;
+            this.itemName = itemName;
+            this.orderPrice = orderPrice;
+            this.count = count;
+        }
+    }
+}
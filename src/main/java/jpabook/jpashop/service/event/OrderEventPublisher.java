@@ -0,0 +1,51 @@
+package jpabook.jpashop.service.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderEventType;
+import jpabook.jpashop.domain.OutboxEvent;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 주문 이벤트를 아웃박스에 저장
+ *
+ * 반드시 주문을 변경하는 트랜잭션 안에서 호출해야 한다. (MANDATORY -> 트랜잭션이 없으면 예외)
+ * 여기서는 insert 만 하고, 리스너 호출은 OutboxRelay 가 커밋 이후에 한다.
+ */
+@Component
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class OrderEventPublisher {
+
+    private final OutboxRepository outboxRepository;
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+
+    public void publish(OrderEventType type, Order order) {
+        outboxRepository.save(OutboxEvent.create(type, order.getId(), toJson(OrderEventPayload.of(order))));
+    }
+
+    /**
+     * 벌크 연산으로 변경한 주문들 (OrderService.cancelOrders)
+     * 주문 + 주문상품 + 상품을 fetch join 쿼리 한 번으로 조회해서 이벤트를 만든다.
+     */
+    public void publishAll(OrderEventType type, List<Long> orderIds) {
+        orderRepository.findAllWithItem(orderIds).forEach(order -> publish(type, order));
+    }
+
+    private String toJson(OrderEventPayload payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("주문 이벤트를 json 으로 변환할 수 없습니다. orderId=" + payload.getOrderId(), e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package jpabook.jpashop.service.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.OutboxEvent;
+import jpabook.jpashop.domain.OutboxOffset;
+import jpabook.jpashop.repository.OutboxRepository;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 아웃박스 -> 리스너 전달
+ *
+ * 주기적으로(기본 1초) 리스너마다 아래를 반복한다. (리스너마다 독립적으로 진행)
+ * 1. 리스너 오프셋을 잠그고 (select ... for update, 서버가 여러 대여도 중복 전달 x)
+ * 2. 오프셋 다음 이벤트를 id 순서로 batchSize 만큼 읽어서
+ * 3. 리스너에게 한 번에 전달하고, 성공하면 오프셋을 이동 -> 커밋
+ * 실패하면 오프셋은 그대로 두고 늘어나는 간격(OutboxOffset.fail)으로 같은 배치부터 재시도한다.
+ *
+ * id 는 이벤트를 저장할 때(트랜잭션 중간) 할당되므로 커밋 순서와 다를 수 있다.
+ * 빈 id 가 있으면 아직 커밋되지 않은 트랜잭션이 있다는 뜻이므로 거기서 멈추고 다음 주기에 다시 본다.
+ * 빈 id 뒤의 이벤트가 gapTimeout 보다 오래되었으면 롤백된 트랜잭션으로 보고 건너뛴다.
+ * (같은 주문의 주문 -> 취소는 앞의 트랜잭션이 커밋된 이후에 일어나므로 항상 순서대로 전달된다.)
+ *
+ * 샤딩 시 이벤트는 주문과 같은 샤드의 아웃박스에 저장되므로, 샤드마다 따로 오프셋을 두고 위 과정을 반복한다.
+ * (이벤트 id 는 샤드 안에서만 유일하다. 한 주문의 이벤트는 항상 같은 샤드에 있으므로 순서는 유지된다.)
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final int PURGE_INTERVAL = 60; // 60번 전달할 때마다 한 번 정리
+
+    private final List<OrderEventListener> listeners;
+    private final OutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final long retryBackoffMillis;
+    private final Duration retention;
+
+    private int relayCount;
+
+    public OutboxRelay(List<OrderEventListener> listeners,
+                       OutboxRepository outboxRepository,
+                       TransactionTemplate transactionTemplate,
+                       ObjectMapper objectMapper,
+                       ShardRouter shardRouter,
+                       @Value("${jpashop.outbox.relay-enabled:true}") boolean enabled,
+                       @Value("${jpashop.outbox.batch-size:500}") int batchSize,
+                       @Value("${jpashop.outbox.gap-timeout:60s}") Duration gapTimeout,
+                       @Value("${jpashop.outbox.retry-backoff-ms:1000}") long retryBackoffMillis,
+                       @Value("${jpashop.outbox.retention:1d}") Duration retention) {
+        this.listeners = listeners;
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.outbox.relay-interval-ms:1000}")
+    public void scheduledRelay() {
+        if (enabled) {
+            relay();
+        }
+    }
+
+    /**
+     * 모든 리스너에게 밀린 이벤트를 전달
+     */
+    public void relay() {
+        boolean purge = ++relayCount % PURGE_INTERVAL == 0;
+
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            shardRouter.execute(shard, () -> {
+                relayShard();
+                if (purge) {
+                    purge();
+                }
+            });
+        }
+    }
+
+    /**
+     * 현재 샤드의 아웃박스를 모든 리스너에게 전달 (샤딩하지 않으면 기본 DB)
+     */
+    private void relayShard() {
+        for (OrderEventListener listener : listeners) {
+            try {
+                while (dispatch(listener) == batchSize) {
+                    // 한 배치를 꽉 채웠으면 더 밀려 있을 수 있으므로 이어서 전달
+                }
+            } catch (RuntimeException e) {
+                log.warn("[outbox] {} 리스너 전달 실패, 재시도 예정", listener.getName(), e);
+                recordFailure(listener, e);
+            }
+        }
+    }
+
+    /**
+     * 한 배치를 한 트랜잭션으로 전달
+     * @return 전달한 이벤트 수
+     */
+    private int dispatch(OrderEventListener listener) {
+        Integer dispatched = transactionTemplate.execute(status -> {
+            OutboxOffset offset = outboxRepository.findOffsetForUpdate(listener.getName());
+            if (offset.isWaiting(LocalDateTime.now())) {
+                return 0;
+            }
+
+            List<OutboxEvent> events = deliverable(offset.getLastEventId(),
+                    outboxRepository.findAfter(offset.getLastEventId(), batchSize));
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            listener.onEvents(events.stream()
+                    .map(this::toOrderEvent)
+                    .collect(Collectors.toList()));
+
+            offset.advance(events.get(events.size() - 1).getId());
+            return events.size();
+        });
+
+        return dispatched == null ? 0 : dispatched;
+    }
+
+    /**
+     * 오프셋부터 빈 id 없이 이어지는 이벤트까지만
+     */
+    private List<OutboxEvent> deliverable(long lastEventId, List<OutboxEvent> events) {
+        List<OutboxEvent> result = new ArrayList<>();
+        long expected = lastEventId + 1;
+
+        for (OutboxEvent event : events) {
+            if (event.getId() != expected) {
+                boolean expired = result.isEmpty()
+                        && event.getCreatedAt().isBefore(LocalDateTime.now().minus(gapTimeout));
+                if (!expired) {
+                    break; // 앞의 트랜잭션이 아직 커밋되지 않았을 수 있다.
+                }
+                log.warn("[outbox] 이벤트 id {} ~ {} 는 롤백된 것으로 보고 건너뜀", expected, event.getId() - 1);
+            }
+
+            result.add(event);
+            expected = event.getId() + 1;
+        }
+
+        return result;
+    }
+
+    private void recordFailure(OrderEventListener listener, RuntimeException e) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxRepository.findOffsetForUpdate(listener.getName()).fail(e.toString(), retryBackoffMillis));
+        } catch (RuntimeException recordError) {
+            log.error("[outbox] {} 리스너 실패 기록 실패", listener.getName(), recordError);
+        }
+    }
+
+    /**
+     * 모든 리스너에게 전달되었고 보관 기간이 지난 이벤트 삭제
+     */
+    private void purge() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> listenerNames = listeners.stream()
+                    .map(OrderEventListener::getName)
+                    .collect(Collectors.toList());
+
+            Long minOffset = outboxRepository.findMinOffset(listenerNames);
+            if (minOffset != null) {
+                int deleted = outboxRepository.deleteDispatched(minOffset, LocalDateTime.now().minus(retention));
+                if (deleted > 0) {
+                    log.info("[outbox] 전달 완료된 이벤트 {}건 삭제", deleted);
+                }
+            }
+        });
+    }
+
+    private OrderEvent toOrderEvent(OutboxEvent event) {
+        try {
+            return new OrderEvent(event.getId(), event.getType(), event.getCreatedAt(),
+                    objectMapper.readValue(event.getPayload(), OrderEventPayload.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("주문 이벤트 json 을 읽을 수 없습니다. eventId=" + event.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.OrderItem;
+import lombok.Getter;
+
+/**
+ * dto 안의 엔티티도 dto로 바꿔준다.
+ *
+ * 고객은 사실상 아이템 이름과, 아이템 가격, 주문 수량만 있으면 된다.
+ *
+ * 외부 응답값은 OrderItem 에서 OrderItemDto로 래핑해서 나가기 때문에
+ * OrderItem 엔티티의 내부 값은 볼 수 없게되고, 의존성이 낮아져 유지보수에 편리하다.
+ */
+@Getter
+public class OrderItemDto {
+
+    private String itemName;
+    private int orderPrice;
+    private int count;
+
+    public OrderItemDto(OrderItem orderItem) {
+        itemName = orderItem.getItem().getName();
+        orderPrice = orderItem.getOrderPrice();
+        count = orderItem.getCount();
+    }
+}
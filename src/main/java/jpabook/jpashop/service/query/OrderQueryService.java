@@ -0,0 +1,135 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.KeysetPager;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * OSIV 를 끈 상태에서 지연 로딩이 필요한 API 조회 전용 서비스
+ *
+ * OSIV 가 꺼져 있으면 트랜잭션이 끝나는 순간 영속성 컨텍스트도 닫히기 때문에
+ * 컨트롤러에서 지연 로딩을 터치하면 LazyInitializationException 이 발생한다.
+ *
+ * 그래서 지연 로딩 강제 초기화, 엔티티 -> dto 변환을 이 서비스의 읽기 전용 트랜잭션 안에서 끝내고
+ * 컨트롤러에는 초기화가 끝난 결과만 넘긴다.
+ *
+ * 핵심 비즈니스 로직(OrderService)과 화면/API 에 맞춘 조회 로직(OrderQueryService)을 분리하면
+ * 각자의 라이프사이클에 맞게 유지보수할 수 있다.
+ *
+ * 샤딩 시 전체 주문 조회는 샤드마다 트랜잭션을 열어 초기화/변환까지 끝내고 주문 id 순으로 합친다.
+ * (offset 페이징(v3.1)은 샤드를 합치면 의미가 달라지므로 기본 샤드만 조회한다.)
+ * 키셋 페이징(v3.2)은 샤드마다 다음 id 를 조회해서 합친 뒤 limit 개만 남기므로 샤딩 시에도 전체 주문을 id 순으로 넘긴다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderQueryService {
+
+    private static final Comparator<Order> ORDER_ID = Comparator.comparing(Order::getId);
+
+    private final OrderRepository orderRepository;
+    private final ShardRouter shardRouter;
+
+    /**
+     * 주문 엔티티 직접 노출 (회원, 배송, 주문상품, 상품까지 강제 초기화)
+     */
+    public List<Order> findOrdersInitialized() {
+        return shardRouter.scatterSorted(ORDER_ID, () -> {
+            List<Order> all = orderRepository.findAll(new OrderSearch());
+
+            // 조회해 온 주문을 루프를 돌려 강제 초기화한다. -> 필드를 터치한다.
+            for (Order order : all) {
+                order.getMember().getName();
+                order.getDelivery().getAddress();
+
+                List<OrderItem> orderItems = order.getOrderItems();
+                orderItems.stream().forEach(o -> o.getItem().getName()); // 가져온 orderItem 의 이름도 초기화
+            }
+
+            return all;
+        });
+    }
+
+    /**
+     * 주문 엔티티 직접 노출 (회원, 배송만 강제 초기화)
+     */
+    public List<Order> findSimpleOrdersInitialized() {
+        return shardRouter.scatterSorted(ORDER_ID, () -> {
+            List<Order> all = orderRepository.findAll(new OrderSearch());
+
+            for (Order order : all) {
+                order.getMember().getName(); // Lazy 강제 초기화
+                order.getDelivery().getAddress(); // Lazy 강제 초기화
+                order.getTotalPrice(); // 잭슨이 getTotalPrice() 를 호출하므로 orderItems 도 미리 초기화
+            }
+
+            return all;
+        });
+    }
+
+    /**
+     * 엔티티 조회 후 dto 변환 (fetch join 사용 x -> N + 1)
+     */
+    public List<OrderDto> findOrders() {
+        return shardRouter.scatterSorted(Comparator.comparing(OrderDto::getOrderId), () -> {
+            List<Order> orders = orderRepository.findAll(new OrderSearch());
+
+            return orders.stream()
+                    .map(o -> new OrderDto(o))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * ~ToOne 관계만 fetch join + 페이징, 컬렉션은 default_batch_fetch_size 만큼 in 쿼리로 조회
+     */
+    public List<OrderDto> findOrders(int offset, int limit) {
+        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
+
+        return orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 키셋 페이징 + 컬렉션 fetch join (KeysetPager 참고)
+     *
+     * 1. afterId 다음 주문 id 를 limit + 1 개 조회 (샤드마다 조회해서 id 순으로 합침)
+     * 2. 그 id 들만 회원, 배송, 주문상품, 상품까지 fetch join 으로 조회해서 dto 변환
+     *    (샤드마다 같은 id 목록으로 조회, 다른 샤드의 id 는 조회되지 않는다.)
+     */
+    public KeysetPage<OrderDto> findOrderPage(Long afterId, int limit) {
+        return KeysetPager.page(limit,
+                size -> shardRouter.scatterSorted(Comparator.naturalOrder(),
+                        () -> orderRepository.findIdsAfter(afterId, size)),
+                orderIds -> shardRouter.scatterSorted(Comparator.comparing(OrderDto::getOrderId),
+                        () -> orderRepository.findAllWithMemberDeliveryItem(orderIds).stream()
+                                .map(o -> new OrderDto(o))
+                                .collect(Collectors.toList())),
+                OrderDto::getOrderId);
+    }
+
+    /**
+     * 엔티티 조회 후 SimpleOrderDto 변환 (fetch join 사용 x -> N + 1)
+     */
+    public List<SimpleOrderDto> findSimpleOrders() {
+        return shardRouter.scatterSorted(Comparator.comparing(SimpleOrderDto::getOrderId), () -> {
+            List<Order> orders = orderRepository.findAll(new OrderSearch());
+
+            return orders.stream()
+                    .map(o -> new SimpleOrderDto(o)) // order 를 SimpleOrderDto로 변환
+                    .collect(Collectors.toList());
+        });
+    }
+}
@@ -0,0 +1,26 @@
+package jpabook.jpashop.service.query;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 주문 조회 모델 정합성 검사 결과 (주문 id, 종류별 최대 100건)
+ */
+@Getter
+public class OrderViewCheckResult {
+
+    private final List<Long> missing = new ArrayList<>(); // 조회 모델에 없는 주문
+    private final List<Long> orphaned = new ArrayList<>(); // 원본이 없는 조회 모델 로우
+    private final List<Long> stale = new ArrayList<>(); // 원본과 값이 다른 조회 모델 로우
+    private boolean repaired; // 찾은 주문을 다시 만들었는지
+
+    public boolean isConsistent() {
+        return missing.isEmpty() && orphaned.isEmpty() && stale.isEmpty();
+    }
+
+    void repaired() {
+        this.repaired = true;
+    }
+}
@@ -0,0 +1,128 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.KeysetPager;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.readmodel.OrderViewRepository;
+import jpabook.jpashop.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 주문 조회 모델(OrderView) 조회 + 재생성 + 정합성 검사
+ *
+ * 재생성은 주문 id 순으로 REBUILD_CHUNK_SIZE 건씩 나눠서 커밋하므로 서비스 중에도 실행할 수 있다.
+ * (청크마다 조회 모델 로우를 지우고 원본에서 다시 만든다. 다른 트랜잭션에는 이전 로우 또는 새 로우만 보인다.)
+ * 청크마다 트랜잭션을 나누기 위해 클래스 레벨 @Transactional 을 두지 않고 TransactionTemplate 을 사용한다.
+ *
+ * 샤딩 시 조회 모델은 주문과 같은 샤드에 있으므로 샤드마다 실행한다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderViewService {
+
+    private static final int REBUILD_CHUNK_SIZE = 500;
+    private static final int CHECK_LIMIT = 100;
+
+    private final OrderViewRepository orderViewRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    /**
+     * 주문 목록 (v6, 조회 모델 테이블 하나만 읽음, 키셋 페이징)
+     *
+     * 1. afterId 다음 주문 id 를 limit + 1 개 조회 (샤드마다 조회해서 id 순으로 합침)
+     * 2. 그 id 들의 조회 모델 로우만 dto 로 조회해서 주문 단위로 묶음
+     * 샤드마다 읽기 전용 트랜잭션으로 실행한다. (ShardRouter.scatter)
+     */
+    public KeysetPage<OrderQueryDto> findOrderPage(Long afterId, int limit) {
+        return KeysetPager.page(limit,
+                size -> shardRouter.scatterSorted(Comparator.naturalOrder(),
+                        () -> orderViewRepository.findOrderIdsPage(afterId, size)),
+                orderIds -> shardRouter.scatterSorted(Comparator.comparing(OrderQueryDto::getOrderId),
+                        () -> orderViewRepository.findOrders(orderIds)),
+                OrderQueryDto::getOrderId);
+    }
+
+    /**
+     * 원본 테이블에서 조회 모델 전체 재생성
+     *
+     * @return 다시 만든 주문 수
+     */
+    public int rebuild() {
+        int total = 0;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            total += shardRouter.execute(shard, this::rebuildShard);
+        }
+        log.info("[order-view] 주문 {}건 재생성", total);
+        return total;
+    }
+
+    private int rebuildShard() {
+        int total = 0;
+        long after = 0;
+
+        while (true) {
+            long from = after;
+            List<Long> orderIds = transactionTemplate.execute(status -> {
+                List<Long> ids = orderViewRepository.findOrderIdsAfter(from, REBUILD_CHUNK_SIZE);
+                orderViewRepository.refresh(ids);
+                return ids;
+            });
+
+            if (orderIds == null || orderIds.isEmpty()) {
+                break;
+            }
+            total += orderIds.size();
+            after = orderIds.get(orderIds.size() - 1);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> orderViewRepository.deleteOrphans());
+        return total;
+    }
+
+    /**
+     * 조회 모델과 원본 비교
+     *
+     * @param repair true 면 찾은 주문의 조회 모델을 다시 만든다.
+     */
+    public OrderViewCheckResult check(boolean repair) {
+        OrderViewCheckResult result = new OrderViewCheckResult();
+
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            shardRouter.execute(shard, () -> transactionTemplate.executeWithoutResult(status -> {
+                List<Long> missing = orderViewRepository.findMissingOrderIds(CHECK_LIMIT);
+                List<Long> orphaned = orderViewRepository.findOrphanOrderIds(CHECK_LIMIT);
+                List<Long> stale = orderViewRepository.findStaleOrderIds(CHECK_LIMIT);
+
+                result.getMissing().addAll(missing);
+                result.getOrphaned().addAll(orphaned);
+                result.getStale().addAll(stale);
+
+                if (repair) {
+                    Set<Long> orderIds = new LinkedHashSet<>(missing);
+                    orderIds.addAll(orphaned);
+                    orderIds.addAll(stale);
+                    orderViewRepository.refresh(orderIds); // 원본이 없으면 지우기만 한다.
+                }
+            }));
+        }
+
+        if (repair) {
+            result.repaired();
+        }
+        if (!result.isConsistent()) {
+            log.warn("[order-view] 불일치 missing={}, orphaned={}, stale={}",
+                    result.getMissing(), result.getOrphaned(), result.getStale());
+        }
+        return result;
+    }
+}
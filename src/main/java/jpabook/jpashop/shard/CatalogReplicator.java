@@ -0,0 +1,112 @@
+package jpabook.jpashop.shard;
+
+import jpabook.jpashop.repository.order.readmodel.OrderViewRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 상품 카탈로그 복제 (0번 샤드 -> 나머지 샤드)
+ *
+ * 주문상품은 상품을 참조(FK)하고, 주문 조회는 상품명을 조인하므로 모든 샤드에 상품이 있어야 한다.
+ * 상품 등록/수정은 0번 샤드에서 하고, 커밋된 뒤에 상품 row 를 그대로 다른 샤드에 merge 한다.
+ * 사본의 재고는 사용하지 않는다. (재고는 CatalogStock 이 0번 샤드에서만 관리)
+ * 복제한 뒤 그 샤드의 주문 조회 모델(OrderView) 상품명도 갱신한다. (0번 샤드는 상품 수정 트랜잭션에서 갱신)
+ *
+ * 애플리케이션 시작 시 전체 상품을 한 번 복제한다. (InitDb, 샤딩 전에 등록된 상품)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogReplicator {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int CATALOG_SHARD = 0;
+
+    private final ShardRouter shardRouter;
+    private final OrderViewRepository orderViewRepository;
+
+    public void replicateAfterCommit(Long itemId) {
+        replicateAfterCommit(List.of(itemId));
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 복제 (트랜잭션 밖이면 바로 복제)
+     */
+    public void replicateAfterCommit(Collection<Long> itemIds) {
+        if (!shardRouter.isSharded() || itemIds.isEmpty()) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            replicate(itemIds);
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(itemIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    replicate(ids);
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replicateAll() {
+        if (!shardRouter.isSharded()) {
+            return;
+        }
+
+        List<Long> itemIds = new JdbcTemplate(shardRouter.getDataSource(CATALOG_SHARD))
+                .queryForList("select item_id from item order by item_id", Long.class);
+        replicate(itemIds);
+        log.info("[shard] 상품 {}건 복제", itemIds.size());
+    }
+
+    private void replicate(Collection<Long> itemIds) {
+        List<Long> ids = new ArrayList<>(itemIds);
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            replicateChunk(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())));
+        }
+    }
+
+    private void replicateChunk(List<Long> itemIds) {
+        List<Map<String, Object>> rows = new NamedParameterJdbcTemplate(shardRouter.getDataSource(CATALOG_SHARD))
+                .queryForList("select * from item where item_id in (:ids)", Map.of("ids", itemIds));
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql = "merge into item (" + String.join(", ", columns) + ") key (item_id)" +
+                " values (" + String.join(", ", columns.stream().map(c -> "?").toArray(String[]::new)) + ")";
+
+        List<Object[]> batchArgs = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            batchArgs.add(columns.stream().map(row::get).toArray());
+        }
+
+        for (int shard = 1; shard < shardRouter.getShardCount(); shard++) {
+            new JdbcTemplate(shardRouter.getDataSource(shard)).batchUpdate(sql, batchArgs);
+            shardRouter.executeInNewTransaction(shard, status -> {
+                orderViewRepository.refreshItemNames(itemIds);
+                return null;
+            });
+        }
+    }
+}
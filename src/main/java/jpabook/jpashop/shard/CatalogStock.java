@@ -0,0 +1,78 @@
+package jpabook.jpashop.shard;
+
+import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 샤딩 시 상품 재고 차감/원복 (0번 샤드의 카탈로그 원본)
+ *
+ * 주문은 회원 샤드의 트랜잭션에 저장되고 재고는 0번 샤드에 있으므로 한 트랜잭션으로 묶을 수 없다.
+ * 그래서 재고를 먼저 조건부 update 로 차감(바로 커밋)하고, 주문 트랜잭션이 롤백되면 다시 더한다.
+ * 취소는 주문 트랜잭션이 커밋된 뒤에 재고를 더한다.
+ *
+ * 원복에 실패하면 재고가 실제보다 적게 남는다. (더 팔리는 일은 없다.) -> 에러 로그를 보고 맞춰준다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogStock {
+
+    private static final int CATALOG_SHARD = 0;
+
+    private final ShardRouter shardRouter;
+
+    /**
+     * 재고 차감 (현재 트랜잭션이 커밋되지 않으면 원복)
+     */
+    public void reserve(Long itemId, int count) {
+        int updated = catalog().update(
+                "update item set stock_quantity = stock_quantity - ?, version = version + 1" +
+                        " where item_id = ? and stock_quantity >= ?", count, itemId, count);
+
+        if (updated == 0) {
+            throw new NotEnoughStockException("need more stock");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release(itemId, count);
+                }
+            }
+        });
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 재고 원복
+     */
+    public void releaseAfterCommit(Long itemId, long quantity) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    release(itemId, quantity);
+                }
+            }
+        });
+    }
+
+    private void release(Long itemId, long quantity) {
+        try {
+            catalog().update(
+                    "update item set stock_quantity = stock_quantity + ?, version = version + 1" +
+                            " where item_id = ?", quantity, itemId);
+        } catch (RuntimeException e) {
+            log.error("[shard] 재고 원복 실패 itemId={}, quantity={}", itemId, quantity, e);
+        }
+    }
+
+    private JdbcTemplate catalog() {
+        return new JdbcTemplate(shardRouter.getDataSource(CATALOG_SHARD));
+    }
+}
@@ -0,0 +1,34 @@
+package jpabook.jpashop.shard;
+
+/**
+ * 현재 스레드가 사용할 샤드 번호
+ *
+ * ShardRoutingDataSource 가 커넥션을 꺼낼 때 이 값을 보고 샤드를 고른다.
+ * 값이 없으면 0번 샤드(기본 샤드, 상품 카탈로그가 있는 곳)
+ *
+ * 직접 set/clear 하지 말고 ShardRouter.route, ShardRouter.execute 를 사용하자.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    static Integer get() {
+        return CURRENT.get();
+    }
+
+    static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package jpabook.jpashop.shard;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import com.zaxxer.hikari.HikariDataSource;
+import jpabook.jpashop.monitor.ConnectionProfiler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 샤딩 데이터소스 설정 (jpashop.sharding.enabled: true 일 때만)
+ *
+ * 엔티티 매니저 팩토리는 하나만 두고, 커넥션을 꺼낼 때 샤드를 고른다.
+ * 스프링 부트가 만드는 데이터소스 대신 아래 구조의 데이터소스를 등록한다.
+ *
+ * LazyConnectionDataSourceProxy -> (ConnectionProfiler) -> ShardRoutingDataSource -> 샤드별 커넥션 풀
+ *
+ * JPA 트랜잭션은 시작할 때 커넥션을 꺼내므로, 프록시로 실제 커넥션 획득을 첫 쿼리까지 미룬다.
+ * -> @Transactional 메서드 안에서 ShardRouter.route 로 샤드를 정할 수 있다.
+ *
+ * p6spy 는 커넥션을 감쌀 때 url 을 읽느라 실제 커넥션을 꺼내버리므로, p6spy 를 쓰면 프록시를 한 번 더 바깥에 씌운다.
+ * LazyConnectionDataSourceProxy -> p6spy -> LazyConnectionDataSourceProxy -> ShardRoutingDataSource
+ *
+ * 무엇을 어느 샤드에 두는지는 ShardRouter 참고
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.sharding", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardProperties.class)
+public class ShardDataSourceConfig implements DisposableBean {
+
+    private final ShardRoutingDataSource routingDataSource;
+    private final ConnectionProfiler connectionProfiler;
+
+    public ShardDataSourceConfig(DataSourceProperties dataSourceProperties, ShardProperties shardProperties,
+                                 ConnectionProfiler connectionProfiler) {
+        this.connectionProfiler = connectionProfiler;
+
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(dataSourceProperties.initializeDataSourceBuilder().build()); // 0번 샤드 = spring.datasource
+
+        for (ShardProperties.Shard shard : shardProperties.getShards()) {
+            shards.add(DataSourceBuilder.create()
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build());
+        }
+
+        routingDataSource = new ShardRoutingDataSource(shards);
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource() {
+        return new LazyConnectionDataSourceProxy(connectionProfiler.wrap(routingDataSource)); // 실제 커넥션 획득을 프로파일링
+    }
+
+    /**
+     * 데이터소스 데코레이터(p6spy) 중 가장 마지막에 적용
+     */
+    @Bean
+    public DataSourceDecorator lazyConnectionDataSourceDecorator() {
+        return new LazyConnectionDecorator();
+    }
+
+    /**
+     * 1번 샤드부터 0번 샤드와 같은 스키마 생성 + 샤드별 id 시퀀스 설정
+     */
+    @Bean
+    public ShardSchemaInitializer shardSchemaInitializer() {
+        return new ShardSchemaInitializer(routingDataSource.getShards());
+    }
+
+    @Override
+    public void destroy() {
+        for (DataSource shard : routingDataSource.getShards()) {
+            if (shard instanceof HikariDataSource) {
+                ((HikariDataSource) shard).close();
+            }
+        }
+    }
+
+    private static class LazyConnectionDecorator implements DataSourceDecorator, Ordered {
+
+        @Override
+        public DataSource decorate(String beanName, DataSource dataSource) {
+            return dataSource instanceof LazyConnectionDataSourceProxy
+                    ? dataSource // 앞에서 감싼 데코레이터가 없음
+                    : new LazyConnectionDataSourceProxy(dataSource);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package jpabook.jpashop.shard;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 샤딩 설정
+ *
+ * 0번 샤드는 spring.datasource 를 그대로 사용하고, 여기에 1번 샤드부터 추가한다.
+ *
+ * jpashop:
+ *   sharding:
+ *     enabled: true
+ *     shards:
+ *       - url: jdbc:h2:tcp://localhost/~/jpashop-shard1
+ *       - url: jdbc:h2:tcp://localhost/~/jpashop-shard2
+ *
+ * 샤드 수를 바꾸면 회원/주문 id 로 계산하는 샤드가 달라지므로, 기존 데이터를 재분배해야 한다.
+ */
+@Data
+@ConfigurationProperties(prefix = "jpashop.sharding")
+public class ShardProperties {
+
+    private boolean enabled;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username = "sa";
+        private String password = "";
+    }
+}
@@ -0,0 +1,304 @@
+package jpabook.jpashop.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 샤드 라우팅
+ *
+ * 샤드에 두는 것
+ * - 회원과 그 회원의 주문(주문, 주문상품, 배송), 주문 이벤트(아웃박스)는 회원이 속한 샤드에 함께 둔다.
+ *   한 회원의 주문 처리는 샤드 하나의 로컬 트랜잭션으로 끝난다.
+ * - 회원, 주문 id 는 만든 샤드의 번호를 담고 있으므로 id 만으로 샤드를 찾는다. (ShardSchemaInitializer 참고)
+ * - 새 회원은 샤드에 돌아가면서 배정한다.
+ *
+ * 0번 샤드(기본 샤드)
+ * - 상품 카탈로그의 원본. 재고는 여기서만 차감/원복한다. (CatalogStock)
+ * - 다른 샤드에는 주문 조인/조회용 상품 사본을 복제해 둔다. (CatalogReplicator, 사본의 재고는 사용하지 않음)
+ * - 샤드를 정하지 않은 조회/수정은 모두 0번 샤드로 간다.
+ *
+ * 여러 샤드 조회(scatter)는 샤드마다 읽기 전용 트랜잭션을 열어 병렬로 조회하고 합친다.
+ *
+ * 샤딩을 끄면(기본) 샤드는 1개이고, route/scatter 는 기존과 똑같이 현재 트랜잭션 안에서 실행된다.
+ */
+@Slf4j
+@Component
+public class ShardRouter implements DisposableBean {
+
+    private static final String ROUTE_KEY = ShardRouter.class.getName() + ".ROUTE"; // 트랜잭션에 바인딩된 샤드 번호
+
+    private final List<DataSource> shards;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate newTransaction;
+    private final ExecutorService executor;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public ShardRouter(DataSource dataSource, PlatformTransactionManager transactionManager) throws SQLException {
+        this.shards = dataSource.isWrapperFor(ShardRoutingDataSource.class)
+                ? dataSource.unwrap(ShardRoutingDataSource.class).getShards()
+                : List.of(dataSource);
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = isSharded()
+                ? Executors.newFixedThreadPool(shards.size(), r -> {
+                    Thread thread = new Thread(r, "shard-scatter-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    /**
+     * 회원, 주문 id 가 속한 샤드
+     */
+    public int shardOf(Long id) {
+        return (int) Math.floorMod(id - 1, (long) shards.size());
+    }
+
+    /**
+     * 새 회원을 저장할 샤드 (라운드 로빈)
+     */
+    public int nextShard() {
+        return Math.floorMod(nextShard.getAndIncrement(), shards.size());
+    }
+
+    /**
+     * 샤드 데이터소스 (트랜잭션 동기화를 거치지 않고 직접 쓸 때)
+     */
+    public DataSource getDataSource(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * id 별로 샤드를 나눈다. (샤드 번호 순)
+     */
+    public Map<Integer, List<Long>> groupByShard(List<Long> ids) {
+        Map<Integer, List<Long>> groups = new LinkedHashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            groups.put(shard, new ArrayList<>());
+        }
+        ids.forEach(id -> groups.get(shardOf(id)).add(id));
+        groups.values().removeIf(List::isEmpty);
+        return groups;
+    }
+
+    /**
+     * 회원, 주문 id 가 속한 샤드를 현재 트랜잭션에 지정
+     */
+    public void route(Long id) {
+        route(shardOf(id));
+    }
+
+    /**
+     * 현재 트랜잭션이 사용할 샤드 지정
+     *
+     * 트랜잭션의 첫 쿼리보다 먼저 호출해야 한다. (커넥션은 첫 쿼리 때 꺼낸다.)
+     * 트랜잭션이 끝나면 원래 샤드로 돌아간다.
+     */
+    public void route(int shard) {
+        if (!isSharded()) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("샤드 라우팅은 트랜잭션 안에서만 할 수 있습니다.");
+        }
+
+        Integer routed = (Integer) TransactionSynchronizationManager.getResource(ROUTE_KEY);
+        if (routed != null) {
+            if (routed != shard) { // 트랜잭션 하나는 샤드 하나만 사용
+                throw new IllegalStateException("이미 " + routed + "번 샤드를 사용하는 트랜잭션입니다. shard=" + shard);
+            }
+            return;
+        }
+
+        Integer previous = ShardContext.get();
+        bind(shard);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() { // REQUIRES_NEW 로 새 트랜잭션을 여는 동안에는 원래 샤드로
+                unbind(previous);
+            }
+
+            @Override
+            public void resume() {
+                bind(shard);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                unbind(previous);
+            }
+        });
+    }
+
+    /**
+     * 지정한 샤드에서 실행 (트랜잭션 밖에서 호출)
+     */
+    public <T> T execute(int shard, Supplier<T> action) {
+        Integer previous = ShardContext.get();
+        ShardContext.set(shard);
+        try {
+            return action.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    public void execute(int shard, Runnable action) {
+        execute(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 지정한 샤드에서 새 트랜잭션으로 실행 (샤드마다 따로 커밋)
+     */
+    public <T> T executeInNewTransaction(int shard, TransactionCallback<T> action) {
+        return execute(shard, () -> newTransaction.execute(action));
+    }
+
+    /**
+     * 지정한 샤드에서 읽기 전용 트랜잭션으로 조회 (현재 스레드, 트랜잭션 밖에서 호출)
+     * 샤딩을 끄면 현재 트랜잭션이 있을 때 참여한다. (scatter 와 같음)
+     */
+    public <T> T query(int shard, Supplier<T> query) {
+        if (!isSharded()) {
+            return readOnlyTransaction.execute(status -> query.get());
+        }
+        return execute(shard, () -> readOnlyTransaction.execute(status -> query.get()));
+    }
+
+    /**
+     * 모든 샤드에서 조회해서 합친다. (샤드 번호 순)
+     *
+     * 샤드마다 다른 스레드에서 읽기 전용 트랜잭션으로 실행하므로, 지연 로딩 초기화나 dto 변환까지 query 안에서 끝내야 한다.
+     */
+    public <T> List<T> scatter(Supplier<List<T>> query) {
+        List<T> result = new ArrayList<>();
+        scatterEach(query).forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * 모든 샤드에서 정렬된 결과를 조회해서 순서를 유지하며 합친다. (k-way merge)
+     * 샤드마다 comparator 와 같은 순서로 정렬해서 돌려줘야 한다.
+     */
+    public <T> List<T> scatterSorted(Comparator<? super T> comparator, Supplier<List<T>> query) {
+        return mergeSorted(scatterEach(query), comparator);
+    }
+
+    private <T> List<List<T>> scatterEach(Supplier<List<T>> query) {
+        if (!isSharded()) {
+            List<T> result = readOnlyTransaction.execute(status -> query.get()); // 현재 트랜잭션이 있으면 참여
+            return List.of(result);
+        }
+
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> execute(target, () -> readOnlyTransaction.execute(status -> query.get()))));
+        }
+
+        List<List<T>> results = new ArrayList<>();
+        for (Future<List<T>> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("샤드 조회 중 인터럽트", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("샤드 조회 실패", e.getCause());
+        }
+    }
+
+    static <T> List<T> mergeSorted(List<List<T>> lists, Comparator<? super T> comparator) {
+        // {리스트 번호, 위치}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(
+                (a, b) -> comparator.compare(lists.get(a[0]).get(a[1]), lists.get(b[0]).get(b[1])));
+
+        int size = 0;
+        for (int i = 0; i < lists.size(); i++) {
+            size += lists.get(i).size();
+            if (!lists.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        List<T> result = new ArrayList<>(size);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> list = lists.get(head[0]);
+            result.add(list.get(head[1]));
+
+            if (head[1] + 1 < list.size()) {
+                heads.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return result;
+    }
+
+    private static void bind(int shard) {
+        ShardContext.set(shard);
+        TransactionSynchronizationManager.bindResource(ROUTE_KEY, shard);
+    }
+
+    private static void unbind(Integer previous) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(ROUTE_KEY);
+        ShardContext.set(previous);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
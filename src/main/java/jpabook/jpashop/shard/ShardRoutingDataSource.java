@@ -0,0 +1,44 @@
+package jpabook.jpashop.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ShardContext 의 샤드 번호로 커넥션을 꺼내는 데이터소스
+ *
+ * 트랜잭션이 시작될 때 커넥션을 꺼내므로, 반드시 LazyConnectionDataSourceProxy 로 감싸서
+ * 첫 쿼리를 실행하는 시점까지 커넥션 획득(= 샤드 결정)을 미룬다. (ShardDataSourceConfig 참고)
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false); // 없는 샤드 번호면 기본 샤드로 가지 않고 예외
+    }
+
+    /**
+     * 샤드 데이터소스 (트랜잭션 동기화 없이 직접 커넥션을 꺼낼 때 사용)
+     */
+    public List<DataSource> getShards() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
@@ -0,0 +1,119 @@
+package jpabook.jpashop.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.boot.Metadata;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaExport;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 샤드 스키마 초기화
+ *
+ * 1. ddl-auto 는 0번 샤드에만 적용되므로, 1번 샤드부터는 같은 매핑 정보로 직접 스키마를 만든다.
+ * 2. 샤드마다 hibernate_sequence 를 (샤드 번호 + 1) 부터 샤드 수만큼 건너뛰도록 바꾼다.
+ *    -> 어느 샤드에서 만든 id 든 겹치지 않고, id 만 보고 샤드를 알 수 있다. (ShardRouter.shardOf)
+ *    샤드 수가 3 이면 0번 샤드: 1, 4, 7 ... / 1번 샤드: 2, 5, 8 ... / 2번 샤드: 3, 6, 9 ...
+ *
+ * 하이버네이트가 스키마를 만든 직후(세션 팩토리 생성 완료), 애플리케이션이 데이터를 넣기 전(InitDb)에 실행된다.
+ * 시퀀스 문법은 H2 기준
+ */
+@Slf4j
+public class ShardSchemaInitializer implements HibernatePropertiesCustomizer, Integrator, SessionFactoryObserver {
+
+    private static final String SEQUENCE = "hibernate_sequence";
+
+    private final List<DataSource> shards;
+    private Metadata metadata;
+
+    public ShardSchemaInitializer(List<DataSource> shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, (IntegratorProvider) () -> List.of(this));
+        hibernateProperties.put(AvailableSettings.SESSION_FACTORY_OBSERVER, this);
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        this.metadata = metadata; // 스키마 생성용 매핑 정보
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void sessionFactoryCreated(SessionFactory factory) {
+        String ddlAuto = String.valueOf(factory.getProperties().get(AvailableSettings.HBM2DDL_AUTO));
+
+        for (int shard = 1; shard < shards.size(); shard++) {
+            createSchema(shard, ddlAuto);
+        }
+
+        for (int shard = 0; shard < shards.size(); shard++) {
+            alignSequence(shard);
+        }
+    }
+
+    /**
+     * 0번 샤드와 같은 ddl-auto 동작을 n 번 샤드에 적용
+     * 하이버네이트는 엔티티 매니저 팩토리의 데이터소스(ShardRoutingDataSource)로 커넥션을 꺼내므로 ShardContext 로 샤드를 고른다.
+     */
+    private void createSchema(int shard, String ddlAuto) {
+        Integer previous = ShardContext.get();
+        ShardContext.set(shard);
+        try {
+            switch (ddlAuto) {
+                case "create":
+                case "create-drop":
+                    new SchemaExport().setHaltOnError(true)
+                            .execute(EnumSet.of(TargetType.DATABASE), SchemaExport.Action.BOTH, metadata);
+                    break;
+                case "create-only":
+                    new SchemaExport().setHaltOnError(true)
+                            .execute(EnumSet.of(TargetType.DATABASE), SchemaExport.Action.CREATE, metadata);
+                    break;
+                case "update":
+                    new SchemaUpdate().setHaltOnError(true)
+                            .execute(EnumSet.of(TargetType.DATABASE), metadata);
+                    break;
+                default: // none, validate -> 스키마는 직접 관리
+                    return;
+            }
+            log.info("[shard] {}번 샤드 스키마 {}", shard, ddlAuto);
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    /**
+     * 현재 시퀀스 값 이후에서 (id - 1) % 샤드 수 == 샤드 번호 가 되는 첫 값부터 샤드 수만큼 증가
+     * (이미 데이터가 있는 DB 에서 다시 시작해도 id 가 겹치지 않도록 현재 값 이후로 맞춘다.)
+     */
+    private void alignSequence(int shard) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(shards.get(shard));
+        int shardCount = shards.size();
+
+        long next = jdbcTemplate.queryForObject("select next value for " + SEQUENCE, Long.class);
+        long start = next + Math.floorMod(shard - (next - 1), shardCount);
+
+        jdbcTemplate.execute("alter sequence " + SEQUENCE + " restart with " + start + " increment by " + shardCount);
+    }
+}
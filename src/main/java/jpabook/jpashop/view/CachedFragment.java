@@ -0,0 +1,89 @@
+package jpabook.jpashop.view;
+
+import org.thymeleaf.util.IWritableCharSequence;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 렌더링된 화면 조각 (gzip 으로 압축한 HTML)
+ *
+ * 타임리프가 출력할 때 write(Writer) 를 호출하므로 압축을 풀면서 바로 응답에 쓴다. (String 으로 펼치지 않는다.)
+ * CharSequence 의 나머지 메서드(charAt 등)는 압축을 전부 풀어야 하므로 느리다. (출력 외에는 쓰지 않는다.)
+ */
+public class CachedFragment implements IWritableCharSequence {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final long version;
+    private final long renderedAt; // FragmentCache 의 ticker 값 (ttl 계산)
+    private final byte[] compressed;
+    private final int length; // 압축 전 글자 수
+
+    CachedFragment(long version, long renderedAt, byte[] compressed, int length) {
+        this.version = version;
+        this.renderedAt = renderedAt;
+        this.compressed = compressed;
+        this.length = length;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    long getRenderedAt() {
+        return renderedAt;
+    }
+
+    int getCompressedSize() {
+        return compressed.length;
+    }
+
+    @Override
+    public void write(Writer writer) throws IOException {
+        try (Reader reader = reader()) {
+            char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                writer.write(buffer, 0, read);
+            }
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        StringWriter writer = new StringWriter(length);
+        try {
+            write(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private Reader reader() throws IOException {
+        return new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(compressed), BUFFER_SIZE), StandardCharsets.UTF_8);
+    }
+}
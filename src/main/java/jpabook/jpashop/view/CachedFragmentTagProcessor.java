@@ -0,0 +1,40 @@
+package jpabook.jpashop.view;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.processor.element.AbstractAttributeTagProcessor;
+import org.thymeleaf.processor.element.IElementTagStructureHandler;
+import org.thymeleaf.standard.StandardDialect;
+import org.thymeleaf.standard.expression.StandardExpressions;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/**
+ * jpashop:cached="${변수}"
+ *
+ * 변수가 CachedFragment 면 태그 안의 내용을 평가하지 않고 캐시된 HTML 로 바꾼다.
+ * (th:utext 는 HTML 을 다시 파싱하므로 쓰지 않는다.)
+ * 변수가 null 이면 태그 안의 내용을 원래대로 렌더링한다.
+ */
+class CachedFragmentTagProcessor extends AbstractAttributeTagProcessor {
+
+    static final String ATTRIBUTE_NAME = "cached";
+
+    CachedFragmentTagProcessor(String dialectPrefix) {
+        // th:each, th:if 등 안쪽 내용을 평가하는 속성보다 먼저 처리한다.
+        super(TemplateMode.HTML, dialectPrefix, null, false, ATTRIBUTE_NAME, true,
+                StandardDialect.PROCESSOR_PRECEDENCE - 100, true);
+    }
+
+    @Override
+    protected void doProcess(ITemplateContext context, IProcessableElementTag tag, AttributeName attributeName,
+                             String attributeValue, IElementTagStructureHandler structureHandler) {
+        Object fragment = StandardExpressions.getExpressionParser(context.getConfiguration())
+                .parseExpression(context, attributeValue)
+                .execute(context);
+
+        if (fragment instanceof CachedFragment) {
+            structureHandler.setBody((CachedFragment) fragment, false); // 그대로 출력 (CachedFragment.write)
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package jpabook.jpashop.view;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 화면 조각 렌더링 캐시
+ *
+ * 상품 목록, 회원 목록, 주문 폼처럼 거의 바뀌지 않는 큰 표(행마다 템플릿 평가)를 한 번 렌더링해서
+ * gzip 으로 압축해 두고, 데이터 버전(DataVersions)이 같으면 평가 없이 그대로 내보낸다. (CachedFragment)
+ *
+ * - 키: 템플릿 + 조각 이름(th:fragment), 조각마다 마지막 버전 하나만 둔다. (버전이 오르면 다음 요청에서 다시 렌더링)
+ * - 수명: 버전이 같아도 렌더링한 지 ttl 이 지나면 다시 렌더링한다.
+ * - 크기: 압축된 크기의 합이 max-size 를 넘으면 가장 오래 쓰지 않은 조각부터 버린다.
+ * - 렌더링은 락 밖에서 한다. 동시에 놓친 요청은 각자 렌더링하고 더 높은 버전만 남긴다.
+ *
+ * 꺼져 있으면(jpashop.fragment-cache.enabled: false) 매번 렌더링만 하고 저장하지 않는다.
+ *
+ * 서버 한 대 기준이다. 데이터 버전(DataVersions)은 이 JVM 에서 커밋된 변경만 센다.
+ * 서버가 여러 대면 다른 서버에서 바꾼 회원/상품은 버전이 오르지 않으므로, 최대 ttl 동안 예전 화면이 보일 수 있다.
+ */
+@Component
+public class FragmentCache {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final ITemplateEngine templateEngine;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final LongSupplier ticker; // ttl 계산 (System.nanoTime, 테스트에서는 직접 진행시킨다.)
+
+    private final Map<String, CachedFragment> fragments = new LinkedHashMap<>(16, 0.75f, true); // 접근 순서 (LRU)
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public FragmentCache(ITemplateEngine templateEngine,
+                         @Value("${jpashop.fragment-cache.enabled:true}") boolean enabled,
+                         @Value("${jpashop.fragment-cache.max-size:8MB}") DataSize maxSize,
+                         @Value("${jpashop.fragment-cache.ttl:30s}") Duration ttl) {
+        this(templateEngine, enabled, maxSize, ttl, System::nanoTime);
+    }
+
+    FragmentCache(ITemplateEngine templateEngine, boolean enabled, DataSize maxSize, Duration ttl, LongSupplier ticker) {
+        this.templateEngine = templateEngine;
+        this.enabled = enabled;
+        this.maxBytes = maxSize.toBytes();
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * 캐시된 조각, 없거나 버전이 다르거나 ttl 이 지났으면 variables 로 렌더링해서 저장
+     *
+     * @param version  조각이 보여주는 데이터의 버전 (데이터를 읽기 전에 읽은 값)
+     * @param variables 조각을 렌더링할 때만 호출한다. (캐시에 있으면 데이터를 조회하지 않는다.)
+     */
+    public CachedFragment get(String template, String fragment, long version,
+                              HttpServletRequest request, HttpServletResponse response,
+                              Supplier<Map<String, Object>> variables) {
+        String key = template + " :: " + fragment;
+
+        if (enabled) {
+            synchronized (this) {
+                CachedFragment cached = fragments.get(key);
+                if (cached != null && cached.getVersion() == version
+                        && ticker.getAsLong() - cached.getRenderedAt() < ttlNanos) {
+                    hits.incrementAndGet();
+                    return cached;
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+        long renderedAt = ticker.getAsLong(); // 데이터를 읽기 전 시각 (ttl 은 데이터를 읽은 시점부터)
+        CachedFragment rendered = render(template, fragment, version, renderedAt, request, response, variables.get());
+        if (enabled) {
+            put(key, rendered);
+        }
+        return rendered;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(enabled, fragments.size(), bytes, maxBytes, hits.get(), misses.get(), evictions.get());
+    }
+
+    public synchronized void clear() {
+        fragments.clear();
+        bytes = 0;
+    }
+
+    private CachedFragment render(String template, String fragment, long version, long renderedAt,
+                                  HttpServletRequest request, HttpServletResponse response, Map<String, Object> variables) {
+        WebContext context = new WebContext(request, response, request.getServletContext(), request.getLocale(), variables);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+
+        CountingWriter writer;
+        try {
+            writer = new CountingWriter(new OutputStreamWriter(new GZIPOutputStream(out, BUFFER_SIZE), StandardCharsets.UTF_8));
+            try (writer) {
+                templateEngine.process(template, Set.of(fragment), context, writer); // 렌더링하면서 바로 압축
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new CachedFragment(version, renderedAt, out.toByteArray(), writer.count);
+    }
+
+    private synchronized void put(String key, CachedFragment fragment) {
+        if (fragment.getCompressedSize() > maxBytes) {
+            return; // 혼자서 한도를 넘는 조각은 저장하지 않는다.
+        }
+
+        CachedFragment previous = fragments.get(key);
+        if (previous != null && (previous.getVersion() > fragment.getVersion()
+                || previous.getVersion() == fragment.getVersion() && previous.getRenderedAt() - fragment.getRenderedAt() > 0)) {
+            return; // 더 늦게 끝난 이전 렌더링
+        }
+
+        fragments.put(key, fragment);
+        bytes += fragment.getCompressedSize() - (previous != null ? previous.getCompressedSize() : 0);
+
+        Iterator<CachedFragment> eldest = fragments.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            CachedFragment evicted = eldest.next();
+            if (evicted == fragment) {
+                continue;
+            }
+            bytes -= evicted.getCompressedSize();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 압축 전 글자 수를 센다. (CachedFragment.length)
+     */
+    private static class CountingWriter extends Writer {
+
+        private final Writer delegate;
+        private int count;
+
+        CountingWriter(Writer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            delegate.write(buffer, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void write(String str, int offset, int length) throws IOException {
+            delegate.write(str, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final boolean enabled;
+        private final int fragments;
+        private final long compressedBytes;
+        private final long maxBytes;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+    }
+}
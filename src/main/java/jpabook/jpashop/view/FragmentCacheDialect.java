@@ -0,0 +1,27 @@
+package jpabook.jpashop.view;
+
+import org.springframework.stereotype.Component;
+import org.thymeleaf.dialect.AbstractProcessorDialect;
+import org.thymeleaf.processor.IProcessor;
+import org.thymeleaf.standard.StandardDialect;
+
+import java.util.Set;
+
+/**
+ * 화면 조각 캐시 타임리프 방언 (jpashop:cached)
+ * 빈으로 등록하면 스프링 부트가 템플릿 엔진에 추가한다.
+ */
+@Component
+public class FragmentCacheDialect extends AbstractProcessorDialect {
+
+    public static final String PREFIX = "jpashop";
+
+    public FragmentCacheDialect() {
+        super("Jpashop Fragment Cache", PREFIX, StandardDialect.PROCESSOR_PRECEDENCE);
+    }
+
+    @Override
+    public Set<IProcessor> getProcessors(String dialectPrefix) {
+        return Set.of(new CachedFragmentTagProcessor(dialectPrefix));
+    }
+}
@@ -0,0 +1,13 @@
+package jpabook.jpashop;
+
+/**
+ * 측정용 테스트 카테고리 (@Category(Benchmark.class))
+ *
+ * 시간, 할당량을 재는 반복문은 기본 빌드(test)에서 제외하고 필요할 때만 따로 실행한다.
+ * ./gradlew benchmark
+ *
+ * 결과는 [benchmark] 로그로 확인한다.
+ * 동작 검증(결과가 같은지 등)은 적은 데이터로 일반 테스트에 둔다.
+ */
+public interface Benchmark {
+}
@@ -0,0 +1,80 @@
+package jpabook.jpashop.Controller;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * OSIV 를 끈 상태에서 화면 렌더링 테스트
+ *
+ * 화면 렌더링 중 지연 로딩을 하면 LazyInitializationException 이 발생한다.
+ * 테스트 트랜잭션(@Transactional)이 있으면 렌더링까지 영속성 컨텍스트가 열려 있어 잡지 못하므로 트랜잭션 없이 실행한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ViewRenderingTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired Environment environment;
+    @Autowired TestFixture fixture;
+    @Autowired OrderService orderService;
+
+    @Test
+    public void OSIV_없이_목록_화면_렌더링() throws Exception {
+        //given
+        assertEquals("OSIV 를 끈 설정으로 실행한다.", "false", environment.getProperty("spring.jpa.open-in-view"));
+
+        Long memberId = fixture.createMember("화면회원");
+        Long itemId = fixture.createBook("화면 JPA", 10000, 10);
+        orderService.order(memberId, itemId, 2);
+
+        //when
+        String orders = render("/orders");
+        String searched = render("/orders?memberName=화면회원&orderStatus=ORDER");
+        String members = render("/members");
+
+        //then
+        assertTrue("주문 목록 (회원명, 대표상품)", orders.contains("화면회원") && orders.contains("화면 JPA"));
+        assertTrue("주문 검색", searched.contains("화면 JPA"));
+        assertTrue("회원 목록 (주소)", members.contains("화면회원") && members.contains("123-123"));
+        assertTrue("상품 목록", render("/items").contains("화면 JPA"));
+        assertTrue("주문 폼", render("/order").contains("화면회원"));
+    }
+
+    @Test
+    public void 재고_부족_주문은_주문_폼으로_돌아간다() throws Exception {
+        //given
+        Long memberId = fixture.createMember("화면회원2");
+        Long itemId = fixture.createBook("품절 JPA", 10000, 1);
+
+        //when, then
+        mockMvc.perform(post("/order")
+                        .param("memberId", memberId.toString())
+                        .param("itemId", itemId.toString())
+                        .param("count", "2"))
+                .andExpect(redirectedUrl("/order"))
+                .andExpect(flash().attribute("errorMessage", "재고가 부족합니다."));
+    }
+
+    private String render(String url) throws Exception {
+        return mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,44 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * 테스트 데이터 생성
+ *
+ * 회원 가입, 상품 등록을 서비스로 한다. (샤드 배정, 회원 집계, 상품 카탈로그 갱신 등 실제 등록 흐름과 같다.)
+ * 테스트 트랜잭션 안에서 호출하면 함께 롤백되고, 밖에서 호출하면 바로 커밋된다.
+ * 회원 이름은 중복 검사를 하므로 커밋되는 테스트에서는 테스트마다 다른 이름을 쓴다.
+ */
+@Component
+@RequiredArgsConstructor
+public class TestFixture {
+
+    private final MemberService memberService;
+    private final ItemService itemService;
+
+    public Long createMember(String name) {
+        return createMember(name, new Address("서울", "강가", "123-123"));
+    }
+
+    public Long createMember(String name, Address address) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(address);
+        return memberService.join(member);
+    }
+
+    public Long createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
@@ -0,0 +1,196 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.Benchmark;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Smile, CBOR 응답 테스트 + json 과 크기 비교
+ * 인코딩/디코딩 속도 비교는 Benchmark 카테고리 (./gradlew benchmark)
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { // SQL, 바인딩 파라미터 로그가 측정값을 왜곡하지 않도록 끈다.
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "decorator.datasource.p6spy.enable-logging=false"
+})
+@AutoConfigureMockMvc
+@Transactional
+public class BinaryEncodingTest {
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    private static final int ORDER_COUNT = 200; // 크기 비교용
+    private static final int BENCHMARK_ORDER_COUNT = 2000;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Autowired
+    MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Test
+    public void Accept_헤더로_smile_cbor_응답() throws Exception {
+
+        // given
+        createOrders(3);
+
+        for (String uri : List.of("/api/v5/orders", "/api/v2/members")) {
+            JsonNode json = objectMapper.readTree(request(uri, MediaType.APPLICATION_JSON).getResponse().getContentAsByteArray());
+
+            // when
+            MvcResult smile = request(uri, SMILE);
+            MvcResult cbor = request(uri, MediaType.APPLICATION_CBOR);
+
+            // then
+            assertEquals(SMILE.toString(), smile.getResponse().getContentType());
+            assertEquals(MediaType.APPLICATION_CBOR_VALUE, cbor.getResponse().getContentType());
+            assertEquals(uri + " smile 도 json 과 같은 dto", json,
+                    smileConverter.getObjectMapper().readTree(smile.getResponse().getContentAsByteArray()));
+            assertEquals(uri + " cbor 도 json 과 같은 dto", json,
+                    cborConverter.getObjectMapper().readTree(cbor.getResponse().getContentAsByteArray()));
+        }
+    }
+
+    @Test
+    public void smile_cbor_는_json_보다_작다() throws IOException {
+
+        // given
+        createOrders(ORDER_COUNT);
+        List<OrderQueryDto> orders = orderQueryRepository.findAllByDto_optimization();
+
+        // when
+        int json = objectMapper.writeValueAsBytes(orders).length;
+        int smile = smileConverter.getObjectMapper().writeValueAsBytes(orders).length;
+        int cbor = cborConverter.getObjectMapper().writeValueAsBytes(orders).length;
+
+        // then
+        assertTrue("smile 이 json 보다 작다.", smile < json);
+        assertTrue("cbor 가 json 보다 작다.", cbor < json);
+    }
+
+    /**
+     * v5 dto 를 json, smile, cbor 로 인코딩/디코딩한 크기와 시간 비교
+     * 결과는 로그로 확인한다.
+     */
+    @Test
+    @Category(Benchmark.class)
+    public void 벤치마크() throws IOException {
+
+        // given
+        createOrders(BENCHMARK_ORDER_COUNT);
+        List<OrderQueryDto> orders = orderQueryRepository.findAllByDto_optimization();
+
+        // when
+        int json = measure("json ", objectMapper, orders);
+        int smile = measure("smile", smileConverter.getObjectMapper(), orders);
+        int cbor = measure("cbor ", cborConverter.getObjectMapper(), orders);
+
+        // then
+        assertTrue("smile 이 json 보다 작다.", smile < json);
+        assertTrue("cbor 가 json 보다 작다.", cbor < json);
+    }
+
+    private MvcResult request(String uri, MediaType accept) throws Exception {
+        return mockMvc.perform(get(uri).accept(accept)).andReturn();
+    }
+
+    private int measure(String name, ObjectMapper mapper, List<OrderQueryDto> orders) throws IOException {
+        for (int i = 0; i < ROUNDS; i++) { // 워밍업
+            mapper.readTree(mapper.writeValueAsBytes(orders));
+        }
+
+        byte[] payload = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            payload = mapper.writeValueAsBytes(orders);
+        }
+        long encode = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            mapper.readTree(payload);
+        }
+        long decode = System.nanoTime() - start;
+
+        log.info("[benchmark] {} orders={} payload={}KB encode={}ms decode={}ms",
+                name, BENCHMARK_ORDER_COUNT, payload.length / 1024, encode / ROUNDS / 1_000_000.0, decode / ROUNDS / 1_000_000.0);
+        return payload.length;
+    }
+
+    private void createOrders(int count) {
+        Member member = new Member();
+        member.setName("bench");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        Book book1 = createBook("JPA BOOK");
+        Book book2 = createBook("SPRING BOOK");
+
+        for (int i = 0; i < count; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+
+            Order order = Order.createOrder(member, delivery,
+                    OrderItem.createOrderItem(book1, 10000, 1),
+                    OrderItem.createOrderItem(book2, 20000, 2));
+            em.persist(order);
+        }
+
+        em.flush();
+        em.clear();
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(Integer.MAX_VALUE);
+        em.persist(book);
+        return book;
+    }
+}
@@ -0,0 +1,98 @@
+package jpabook.jpashop.monitor;
+
+import jpabook.jpashop.service.MemberService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.monitor.connections.leak-check-interval-ms=3600000" // 테스트에서는 detectLeaks() 를 직접 호출
+})
+@AutoConfigureMockMvc
+public class ConnectionProfilerTest {
+
+    @Autowired ConnectionProfiler connectionProfiler;
+    @Autowired MemberService memberService;
+    @Autowired DataSource dataSource;
+    @Autowired MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        connectionProfiler.reset();
+    }
+
+    @Test
+    public void 트랜잭션별_통계() throws Exception {
+        //when
+        memberService.findMembers();
+
+        //then
+        ConnectionStats.Snapshot stats = find(connectionProfiler.report().getTransactions(),
+                "jpabook.jpashop.service.MemberService.findMembers");
+        assertNotNull("서비스 메서드 이름으로 기록해야 한다.", stats);
+        assertEquals("커넥션 한 번 사용", 1, stats.getHold().getCount());
+        assertTrue("JDBC 시간은 점유 시간 안에 포함된다.", stats.getJdbcRatio() > 0 && stats.getJdbcRatio() <= 1);
+        assertEquals("요청 밖에서 사용한 커넥션", 1, find(connectionProfiler.report().getRoutes(), ConnectionProfiler.NO_ROUTE)
+                .getHold().getCount());
+    }
+
+    @Test
+    public void 라우트별_통계() throws Exception {
+        //when
+        mockMvc.perform(get("/api/v2/members")).andExpect(status().isOk());
+
+        //then
+        ConnectionStats.Snapshot stats = find(connectionProfiler.report().getRoutes(), "GET /api/v2/members");
+        assertNotNull("매핑된 URL 패턴으로 기록해야 한다.", stats);
+        assertTrue("커넥션 사용 기록", stats.getHold().getCount() >= 1);
+    }
+
+    @Test
+    public void 커넥션_누수_감지() throws Exception {
+        //given
+        AtomicLong ticker = new AtomicLong(); // 시간은 테스트가 직접 진행시킨다.
+        ConnectionProfiler profiler = new ConnectionProfiler(true, Duration.ofMillis(200), ticker::get);
+        DataSource profiled = profiler.wrap(dataSource);
+
+        try (Connection connection = profiled.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("select 1");
+            }
+            ticker.addAndGet(Duration.ofMillis(300).toNanos()); // 누수 기준(200ms)보다 오래 점유
+
+            //when
+            profiler.detectLeaks();
+
+            //then
+            assertEquals("반납하지 않은 커넥션", 1, profiler.report().getOpenConnections());
+        }
+
+        assertEquals("반납 후", 0, profiler.report().getOpenConnections());
+        ConnectionStats.Snapshot stats = find(profiler.report().getTransactions(), ConnectionProfiler.NO_TRANSACTION);
+        assertEquals("점유 시간 기록", 300.0, stats.getHold().getMax(), 0.0);
+        assertTrue("대부분 놀고 있던 커넥션", stats.getJdbcRatio() < 0.5);
+    }
+
+    private static ConnectionStats.Snapshot find(List<ConnectionStats.Snapshot> snapshots, String name) {
+        return snapshots.stream().filter(s -> s.getName().equals(name)).findFirst().orElse(null);
+    }
+}
@@ -0,0 +1,126 @@
+package jpabook.jpashop.monitor;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 주문 지표 테스트
+ *
+ * 주문, 취소는 커밋된 뒤에 반영되므로 테스트 트랜잭션(@Transactional) 없이 실행한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderMetricsTest {
+
+    @Autowired OrderMetrics orderMetrics;
+    @Autowired OrderService orderService;
+    @Autowired TestFixture fixture;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    public void 주문_취소_재고부족_기록() {
+        //given
+        Long memberId = fixture.createMember("metrics1");
+        Long itemId = fixture.createBook("지표 JPA", 10000, 5);
+        OrderMetrics.Report before = orderMetrics.report();
+
+        //when
+        Long orderId = orderService.order(memberId, itemId, 3);
+        orderService.cancelOrder(orderId);
+        try {
+            orderService.order(memberId, itemId, 6);
+            fail("재고 부족 예외가 발생해야 한다.");
+        } catch (NotEnoughStockException e) {
+            // 재고 부족
+        }
+
+        //then
+        OrderMetrics.Report after = orderMetrics.report();
+        assertEquals("주문 수", 1, delta(before, after, "orders"));
+        assertEquals("매출", 30000, delta(before, after, "revenue"));
+        assertEquals("취소 수", 1, delta(before, after, "cancels"));
+        assertEquals("재고 부족", 1, delta(before, after, "stockShortages"));
+    }
+
+    @Test
+    public void 롤백된_주문은_세지_않는다() {
+        //given
+        Long memberId = fixture.createMember("metrics2");
+        Long itemId = fixture.createBook("지표 JPA", 10000, 5);
+        OrderMetrics.Report before = orderMetrics.report();
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> {
+            orderService.order(memberId, itemId, 1);
+            status.setRollbackOnly();
+        });
+
+        //then
+        assertEquals("주문 수", 0, delta(before, orderMetrics.report(), "orders"));
+    }
+
+    @Test
+    public void 구간이_지나면_밀려난다() {
+        RingTimeSeries series = new RingTimeSeries(1_000L, 5);
+        long now = 1_000_000L;
+
+        series.add(3, now - 4_000);
+        series.add(2, now - 1_000);
+        series.add(1, now);
+        series.add(1, now + 999); // 같은 구간
+
+        assertEquals("오래된 것 -> 최신", "[3, 0, 0, 2, 2]", Arrays.toString(series.values(now)));
+        assertEquals("1초 뒤", "[0, 0, 2, 2, 0]", Arrays.toString(series.values(now + 1_000)));
+
+        series.add(7, now + 1_000); // 4초 전 구간 자리를 새 구간이 사용
+        assertEquals("자리 재사용", "[0, 0, 2, 2, 7]", Arrays.toString(series.values(now + 1_000)));
+    }
+
+    @Test
+    public void 동시_기록() throws Exception {
+        RingTimeSeries series = new RingTimeSeries(1_000L, 60);
+        long now = 1_000_000L;
+        int threads = 8;
+        int perThread = 10_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        series.add(1, now - (i % 10) * 1_000L); // 최근 10초에 나눠서
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals("잃어버린 값이 없어야 한다.", (long) threads * perThread, Arrays.stream(series.values(now)).sum());
+    }
+
+    private static long delta(OrderMetrics.Report before, OrderMetrics.Report after, String name) {
+        return after.getSeries().get(name).getLastHour() - before.getSeries().get(name).getLastHour();
+    }
+}
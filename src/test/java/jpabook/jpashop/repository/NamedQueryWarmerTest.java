@@ -0,0 +1,55 @@
+package jpabook.jpashop.repository;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class NamedQueryWarmerTest {
+
+    @Autowired
+    NamedQueryWarmer namedQueryWarmer;
+
+    @Test
+    public void 시작_시_모든_named_query_를_변환() {
+
+        // when
+        Map<String, Long> translationNanos = namedQueryWarmer.getTranslationNanos();
+
+        // then
+        for (String name : new String[]{"Order.findAllWithItem", "Order.cancelAll", "OrderItem.findQueryDtosByOrderIds",
+                "Member.findByName", "Item.addStock", "BestSellerSnapshot.findAll"}) {
+            assertTrue(name + " 변환 시간이 기록되어야 한다.", translationNanos.containsKey(name));
+        }
+        translationNanos.values().forEach(nanos -> assertTrue(nanos >= 0));
+    }
+
+    @Test
+    public void 잘못된_쿼리는_모두_모아서_예외() {
+
+        // given
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("Ok", "select m from Member m");
+        queries.put("NoEntity", "select x from NoSuchEntity x");
+        queries.put("NoField", "select m.password from Member m");
+
+        // when
+        try {
+            namedQueryWarmer.warmUp(queries);
+            fail("잘못된 쿼리 예외가 발생해야 한다.");
+        } catch (IllegalStateException e) {
+            // then
+            assertEquals("잘못된 named query 가 있습니다. [NoEntity, NoField]", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 배송 조회 시 실행되는 SQL 수 회귀 테스트
+ *
+ * 배송 -> 주문 연관관계(@OneToOne(mappedBy = "delivery"))가 있으면
+ * 배송을 조회할 때마다 주문을 찾는 쿼리가 추가로 나간다. (Delivery 참고)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderRepositoryTest {
+
+    private static final int ORDER_COUNT = 5;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    public void 배송_N건_조회시_쿼리_1번() {
+
+        // given
+        createOrders(ORDER_COUNT);
+        long deliveryCount = em.createQuery("select count(d) from Delivery d", Long.class).getSingleResult(); // 초기 데이터(InitDb) 포함
+        statistics.clear();
+
+        // when
+        List<Delivery> deliveries = em.createQuery("select d from Delivery d", Delivery.class).getResultList();
+
+        // then
+        assertEquals(deliveryCount, deliveries.size());
+        assertEquals("배송 조회 시 주문을 찾는 쿼리가 추가로 나가면 안된다.", 1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void 주문_회원_배송_fetch_join_조회시_쿼리_1번() {
+
+        // given
+        createOrders(ORDER_COUNT);
+        long orderCount = em.createQuery("select count(o) from Order o", Long.class).getSingleResult(); // 초기 데이터(InitDb) 포함
+        statistics.clear();
+
+        // when
+        List<Order> orders = orderRepository.findAllWithMemberDelivery();
+        orders.forEach(o -> o.getDelivery().getAddress()); // 배송까지 터치
+
+        // then
+        assertEquals(orderCount, orders.size());
+        assertEquals("fetch join 한 번으로 끝나야 한다.", 1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void 배송으로_주문_조회() {
+
+        // given
+        List<Long> orderIds = createOrders(2);
+        Order order = orderRepository.findOne(orderIds.get(1));
+        Long deliveryId = order.getDelivery().getId();
+        em.clear();
+
+        // when
+        Order findOrder = orderRepository.findByDeliveryId(deliveryId);
+
+        // then
+        assertEquals(orderIds.get(1), findOrder.getId());
+    }
+
+    @Test
+    public void 벌크_취소시_배송_완료된_주문은_제외() {
+
+        // given
+        List<Long> orderIds = createOrders(3);
+        Long compDeliveryId = orderRepository.findOne(orderIds.get(1)).getDelivery().getId();
+        em.createQuery("update Delivery d set d.status = :comp where d.id = :id")
+                .setParameter("comp", DeliveryStatus.COMP)
+                .setParameter("id", compDeliveryId)
+                .executeUpdate();
+        em.clear();
+
+        // when
+        List<Long> locked = orderRepository.lockOrders(orderIds);
+        int canceled = orderRepository.cancelAll(orderIds);
+
+        // then
+        assertEquals(orderIds, locked);
+        assertEquals("배송 완료된 주문 하나만 빼고 취소", 2, canceled);
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderIds.get(0)).getStatus());
+        assertEquals(OrderStatus.ORDER, orderRepository.findOne(orderIds.get(1)).getStatus());
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderIds.get(2)).getStatus());
+    }
+
+    private List<Long> createOrders(int count) {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        Book book = new Book();
+        book.setName("시골 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+
+            Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, book.getPrice(), 1));
+            em.persist(order);
+            orderIds.add(order.getId());
+        }
+
+        em.flush();
+        em.clear(); // 영속성 컨텍스트를 비워서 DB 에서 다시 조회하도록 한다.
+
+        return orderIds;
+    }
+}
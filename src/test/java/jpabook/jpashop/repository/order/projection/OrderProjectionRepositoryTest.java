@@ -0,0 +1,144 @@
+package jpabook.jpashop.repository.order.projection;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderProjectionRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderProjectionRepository orderProjectionRepository;
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    public void v5_의_모든_필드를_고르면_v5_와_같은_응답() throws Exception {
+
+        // given
+        createOrder(10000, 2, 20000, 1);
+        em.flush();
+        em.clear();
+
+        // when
+        JsonNode v5 = objectMapper.valueToTree(orderQueryRepository.findAllByDto_optimization());
+        JsonNode projected = objectMapper.valueToTree(
+                orderProjectionRepository.findOrders(OrderProjection.of("orderId,name,orderDate,orderStatus,address,orderItems")));
+
+        // then
+        assertEquals(v5, projected);
+    }
+
+    @Test
+    public void 고른_필드만_조회하고_응답() {
+
+        // given
+        Long orderId = createOrder(10000, 2, 20000, 1);
+        em.flush();
+        em.clear();
+
+        // when
+        List<ProjectedOrder> orders = orderProjectionRepository.findOrders(OrderProjection.of("orderId,orderStatus,totalPrice"));
+        JsonNode json = objectMapper.valueToTree(orders);
+
+        // then
+        JsonNode order = null;
+        for (JsonNode node : json) {
+            if (node.get("orderId").asLong() == orderId) {
+                order = node;
+            }
+        }
+        assertEquals("고른 필드만 내려간다.", List.of("orderId", "orderStatus", "totalPrice"), fieldNames(order));
+        assertEquals("ORDER", order.get("orderStatus").asText());
+        assertEquals("주문 총액", 10000 * 2 + 20000, order.get("totalPrice").asInt());
+    }
+
+    @Test
+    public void 필드_조합별로_쿼리를_캐시하고_필요한_조인만_사용() {
+
+        // when
+        OrderProjection projection = OrderProjection.of("orderStatus,orderId");
+        OrderProjection sameFields = OrderProjection.of(" orderId, orderStatus ");
+        OrderProjection withName = OrderProjection.of("orderId,name");
+
+        // then
+        assertSame("필드 순서와 공백이 달라도 같은 조합이면 캐시된 쿼리를 사용", projection, sameFields);
+        assertFalse("회원, 배송 조인 없음", projection.getJpql().contains("join"));
+        assertEquals("select o.id, m.name from Order o join o.member m order by o.id", withName.getJpql());
+    }
+
+    @Test
+    public void 지원하지_않는_필드면_예외() {
+        try {
+            OrderProjection.of("orderId,password");
+            fail("지원하지 않는 필드 예외가 발생해야 한다.");
+        } catch (IllegalArgumentException e) {
+            assertEquals("지원하지 않는 필드입니다. field=password", e.getMessage());
+        }
+    }
+
+    private Long createOrder(int price1, int count1, int price2, int count2) {
+        Member member = new Member();
+        member.setName("필드회원");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        List<OrderItem> orderItems = new ArrayList<>();
+        orderItems.add(OrderItem.createOrderItem(createBook("JPA1", price1), price1, count1));
+        orderItems.add(OrderItem.createOrderItem(createBook("JPA2", price2), price2, count2));
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        Order order = Order.createOrder(member, delivery, orderItems.toArray(new OrderItem[0]));
+        em.persist(order);
+        return order.getId();
+    }
+
+    private Book createBook(String name, int price) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(100);
+        em.persist(book);
+        return book;
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        Iterator<String> it = node.fieldNames();
+        it.forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,189 @@
+package jpabook.jpashop.repository.order.stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.Benchmark;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { // SQL, 바인딩 파라미터 로그가 측정값을 왜곡하지 않도록 끈다.
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "decorator.datasource.p6spy.enable-logging=false"
+})
+@Transactional
+public class OrderStreamRepositoryTest {
+
+    private static final int ORDER_COUNT = 300; // 응답 비교용
+    private static final int BENCHMARK_ORDER_COUNT = 2000;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderStreamRepository orderStreamRepository;
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    OrderSimpleQueryRepository orderSimpleQueryRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    public void v5_와_스트리밍_응답이_같다() throws IOException {
+
+        // given
+        createOrders(ORDER_COUNT);
+
+        // when
+        JsonNode v5 = objectMapper.readTree(objectMapper.writeValueAsBytes(orderQueryRepository.findAllByDto_optimization()));
+        JsonNode stream = objectMapper.readTree(writeOrders());
+
+        // then
+        assertEquals(sortByOrderId(v5), sortByOrderId(stream));
+    }
+
+    @Test
+    public void v4_와_스트리밍_응답이_같다() throws IOException {
+
+        // given
+        createOrders(ORDER_COUNT);
+
+        // when
+        JsonNode v4 = objectMapper.readTree(objectMapper.writeValueAsBytes(orderSimpleQueryRepository.findOrderDtos()));
+        JsonNode stream = objectMapper.readTree(writeSimpleOrders());
+
+        // then
+        assertEquals(sortByOrderId(v4), sortByOrderId(stream));
+    }
+
+    /**
+     * v4, v5 (JPQL -> dto -> 잭슨) 와 스트리밍 경로의 시간, 할당량 비교
+     * 결과는 로그로 확인한다. (./gradlew benchmark)
+     */
+    @Test
+    @Category(Benchmark.class)
+    public void 벤치마크() throws IOException {
+
+        // given
+        createOrders(BENCHMARK_ORDER_COUNT);
+
+        // when, then
+        measure("v4 simple-orders  ", () -> objectMapper.writeValueAsBytes(orderSimpleQueryRepository.findOrderDtos()));
+        measure("v4.1 simple-orders", this::writeSimpleOrders);
+        measure("v5 orders         ", () -> objectMapper.writeValueAsBytes(orderQueryRepository.findAllByDto_optimization()));
+        measure("v5.1 orders       ", this::writeOrders);
+    }
+
+    private byte[] writeOrders() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            orderStreamRepository.writeOrders(generator);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] writeSimpleOrders() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            orderStreamRepository.writeSimpleOrders(generator);
+        }
+        return out.toByteArray();
+    }
+
+    private void measure(String name, JsonWriter writer) throws IOException {
+        for (int i = 0; i < ROUNDS; i++) { // 워밍업
+            writer.write();
+        }
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int bytes = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            bytes = writer.write().length;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        log.info("[benchmark] {} orders={} avg={}ms alloc/op={}KB payload={}KB",
+                name, BENCHMARK_ORDER_COUNT, elapsed / ROUNDS / 1_000_000.0, allocated / ROUNDS / 1024, bytes / 1024);
+    }
+
+    private List<JsonNode> sortByOrderId(JsonNode array) {
+        return StreamSupport.stream(array.spliterator(), false)
+                .sorted(Comparator.comparingLong(node -> node.get("orderId").asLong()))
+                .collect(Collectors.toList());
+    }
+
+    private void createOrders(int count) {
+        Member member = new Member();
+        member.setName("bench");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        Book book1 = createBook("JPA BOOK");
+        Book book2 = createBook("SPRING BOOK");
+
+        for (int i = 0; i < count; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+
+            Order order = Order.createOrder(member, delivery,
+                    OrderItem.createOrderItem(book1, 10000, 1),
+                    OrderItem.createOrderItem(book2, 20000, 2));
+            em.persist(order);
+        }
+
+        em.flush();
+        em.clear();
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(Integer.MAX_VALUE);
+        em.persist(book);
+        return book;
+    }
+
+    @FunctionalInterface
+    interface JsonWriter {
+        byte[] write() throws IOException;
+    }
+}
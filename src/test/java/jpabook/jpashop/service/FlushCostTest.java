@@ -0,0 +1,123 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.Benchmark;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 영속성 컨텍스트에 엔티티가 많을 때 flush 비용 측정
+ *
+ * 스냅샷 방식의 더티 체킹은 flush 할 때마다 관리 중인 모든 엔티티의 모든 필드를 스냅샷과 비교한다.
+ * 바이트코드 향상(enableDirtyTracking)을 하면 엔티티가 변경된 필드를 스스로 기록하므로
+ * 변경된 엔티티만 확인한다.
+ * 단, flush 는 향상 여부와 관계없이 모든 엔티티/컬렉션 엔트리를 순회하므로 비용이 사라지지는 않는다.
+ * -> 대량 조회는 dto 로 조회하거나, 영속성 컨텍스트를 작게 유지(clear)하는 것이 근본 해결책
+ *
+ * 측정은 ./gradlew benchmark 로 실행하고(Benchmark 카테고리), IDE 빌드(향상 x)에서 실행한 로그와 비교하자.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { // SQL, 바인딩 파라미터 로그가 측정값을 왜곡하지 않도록 끈다.
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "decorator.datasource.p6spy.enable-logging=false"
+})
+@Transactional
+public class FlushCostTest {
+
+    private static final int ENTITY_COUNT = 300; // 동작 확인용
+    private static final int BENCHMARK_ENTITY_COUNT = 10_000;
+    private static final int WARMUP = 100;
+    private static final int ROUNDS = 200;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void 관리_엔티티가_많아도_변경한_엔티티만_반영() {
+
+        // given
+        createBooks(ENTITY_COUNT);
+        List<Item> items = em.createQuery("select i from Item i where i.name like 'book%' order by i.id", Item.class)
+                .getResultList();
+
+        // when
+        items.get(0).setPrice(1); // 엔티티 하나만 수정하고 flush 한 번
+        em.flush();
+
+        // then
+        em.clear();
+        assertEquals("변경한 값이 DB 에 반영되어야 한다.", 1, em.find(Item.class, items.get(0).getId()).getPrice());
+        assertEquals("변경하지 않은 엔티티는 그대로", 10000, em.find(Item.class, items.get(1).getId()).getPrice());
+    }
+
+    @Test
+    @Category(Benchmark.class)
+    public void 관리_엔티티_1만개_flush_비용() {
+
+        // given
+        createBooks(BENCHMARK_ENTITY_COUNT);
+        List<Item> items = em.createQuery("select i from Item i", Item.class).getResultList(); // 1만개 영속 상태
+        boolean enhanced = items.get(0) instanceof SelfDirtinessTracker;
+
+        for (int i = 0; i < WARMUP; i++) { // 워밍업
+            items.get(i).setPrice(i);
+            em.flush();
+        }
+
+        // when
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            items.get(i).setPrice(i + 1); // 엔티티 하나만 수정하고 flush
+            em.flush();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        log.info("[benchmark] flush enhanced={} managed={} avg={}ms alloc/flush={}KB",
+                enhanced, items.size(), elapsed / ROUNDS / 1_000_000.0, allocated / ROUNDS / 1024);
+
+        // then
+        em.clear();
+        assertEquals("변경한 값이 DB 에 반영되어야 한다.", 1, em.find(Item.class, items.get(0).getId()).getPrice());
+    }
+
+    private void createBooks(int count) {
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setName("book" + i);
+            book.setPrice(10000);
+            book.setStockQuantity(100);
+            book.setAuthor("author" + i);
+            book.setIsbn("isbn" + i);
+            em.persist(book);
+
+            if (i % 1000 == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+
+        em.flush();
+        em.clear();
+    }
+}
@@ -0,0 +1,200 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.Benchmark;
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { // 대량 데이터 측정 시 SQL 로그가 측정값을 왜곡하지 않도록 끈다.
+        "logging.level.org.hibernate.SQL=info",
+        "decorator.datasource.p6spy.enable-logging=false"
+})
+@Transactional
+public class ItemImportServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    ItemImportService itemImportService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 상품_CSV_가져오기() throws Exception {
+
+        // given
+        String csv = "type,name,price,stockQuantity,author,isbn,artist,etc,director,actor\n" +
+                "BOOK,\"JPA, 프로그래밍\",10000,10,김영한,isbn-1,,,,\n" +
+                "BOOK,스프링,20000,20,김영한,isbn-2,,,,\n" +
+                "ALBUM,앨범1,15000,5,,,아이유,,,\n" +
+                "MOVIE,영화1,9000,3,,,,,봉준호,송강호\n" +
+                "BOOK,가격없음,,1,김영한,isbn-3,,,,\n"; // 건너뜀
+
+        // when
+        ItemImportResult result = itemImportService.importCsv(toStream(csv));
+
+        // then
+        assertEquals(5, result.getRows());
+        assertEquals(4, result.getInserted());
+        assertEquals(1, result.getSkipped());
+        assertEquals("6번째 줄: price 이 비어있습니다.", result.getErrors().get(0));
+
+        Book book = findBook("isbn-1");
+        assertEquals("따옴표 안의 쉼표는 값에 포함된다.", "JPA, 프로그래밍", book.getName());
+        assertEquals(0L, book.getVersion().longValue());
+    }
+
+    @Test
+    public void 상품_CSV_가져오기_자연키로_수정() throws Exception {
+
+        // given
+        itemImportService.importCsv(toStream("type,name,price,stockQuantity,isbn,artist\n" +
+                "BOOK,JPA,10000,10,isbn-1,\n" +
+                "ALBUM,앨범1,15000,5,,아이유\n"));
+        Long bookId = findBook("isbn-1").getId();
+        em.clear();
+
+        // when
+        ItemImportResult result = itemImportService.importCsv(toStream("type,name,price,stockQuantity,isbn,artist\n" +
+                "BOOK,JPA 2판,12000,10,isbn-1,\n" + // 같은 ISBN -> 수정
+                "ALBUM,앨범1,16000,5,,아이유\n" + // 같은 아티스트 + 상품명 -> 수정
+                "ALBUM,앨범1,17000,5,,아이유\n" + // 같은 파일 안의 중복 -> 마지막 행
+                "ALBUM,앨범1,15000,5,,태연\n")); // 아티스트가 다르면 다른 상품
+
+        // then
+        assertEquals(1, result.getInserted());
+        assertEquals(2, result.getUpdated());
+        assertEquals(1, result.getDuplicated());
+
+        Book book = findBook("isbn-1");
+        assertEquals("기존 상품 id 를 유지한다.", bookId, book.getId());
+        assertEquals("JPA 2판", book.getName());
+        assertEquals(12000, book.getPrice());
+        assertEquals("수정하면 버전이 올라간다.", 1L, book.getVersion().longValue());
+
+        Album album = em.createQuery("select a from Album a where a.artist = :artist", Album.class)
+                .setParameter("artist", "아이유")
+                .getSingleResult();
+        assertEquals(17000, album.getPrice());
+    }
+
+    /**
+     * 생성한 CSV 스트림 가져오기 (등록 후 같은 파일을 가격만 바꿔서 다시 -> 수정)
+     * 청크마다 커밋해야 하므로 테스트 트랜잭션 없이 실행하고, 끝나면 직접 지운다.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void 상품_CSV_스트림_가져오기() throws Exception {
+        int rows = 500;
+
+        try {
+            // when
+            ItemImportResult inserted = itemImportService.importCsv(new GeneratedCsv(rows, 10000));
+            ItemImportResult updated = itemImportService.importCsv(new GeneratedCsv(rows, 12000));
+
+            // then
+            assertImported(rows, inserted, updated);
+        } finally {
+            jdbcTemplate.update("delete from item where isbn like 'bench-%'");
+        }
+    }
+
+    /**
+     * 대량 가져오기 측정 (파일을 메모리에 만들지 않고 행을 생성하면서 스트리밍)
+     * ./gradlew benchmark 로 실행한다.
+     */
+    @Test
+    @Category(Benchmark.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void 상품_CSV_대량_가져오기_측정() throws Exception {
+        int rows = 100_000;
+
+        try {
+            // when
+            ItemImportResult inserted = itemImportService.importCsv(new GeneratedCsv(rows, 10000));
+            ItemImportResult updated = itemImportService.importCsv(new GeneratedCsv(rows, 12000)); // 같은 파일을 가격만 바꿔서 다시
+
+            log.info("[benchmark] item import {} rows: insert {}ms ({} rows/s), update {}ms ({} rows/s)",
+                    rows,
+                    inserted.getElapsedMillis(), rows * 1000L / Math.max(1, inserted.getElapsedMillis()),
+                    updated.getElapsedMillis(), rows * 1000L / Math.max(1, updated.getElapsedMillis()));
+
+            // then
+            assertImported(rows, inserted, updated);
+        } finally {
+            jdbcTemplate.update("delete from item where isbn like 'bench-%'");
+        }
+    }
+
+    private void assertImported(int rows, ItemImportResult inserted, ItemImportResult updated) {
+        assertEquals(rows, inserted.getInserted());
+        assertEquals(rows, updated.getUpdated());
+        assertEquals(Integer.valueOf(rows), jdbcTemplate.queryForObject(
+                "select count(*) from item where isbn like 'bench-%' and price = 12000", Integer.class));
+    }
+
+    private Book findBook(String isbn) {
+        return em.createQuery("select b from Book b where b.isbn = :isbn", Book.class)
+                .setParameter("isbn", isbn)
+                .getSingleResult();
+    }
+
+    private static InputStream toStream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 읽는 만큼 CSV 행을 생성하는 스트림
+     */
+    static class GeneratedCsv extends InputStream {
+
+        private final int rows;
+        private final int price;
+
+        private int row = -1; // -1 : 헤더
+        private byte[] line = new byte[0];
+        private int position;
+
+        GeneratedCsv(int rows, int price) {
+            this.rows = rows;
+            this.price = price;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == line.length) {
+                if (row == rows) {
+                    return -1;
+                }
+                line = (row < 0
+                        ? "type,name,price,stockQuantity,author,isbn\n"
+                        : "BOOK,book-" + row + "," + price + ",100,author-" + row + ",bench-" + row + "\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                position = 0;
+                row++;
+            }
+            return line[position++] & 0xff;
+        }
+    }
+}
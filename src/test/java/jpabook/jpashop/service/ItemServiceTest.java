@@ -0,0 +1,131 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.OptimisticLockException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class ItemServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 상품_부분수정() {
+
+        // given
+        Book book = createBook("시골 JPA", 10000, 10);
+        Long version = book.getVersion();
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        // when
+        Long newVersion = itemService.patchItem(book.getId(), version, null, 12000, null); // 가격만 수정
+
+        // then
+        assertEquals("update 쿼리 한 번으로 수정해야 한다.", 1, statistics.getPrepareStatementCount());
+        assertEquals("수정하면 버전이 올라간다.", version + 1, newVersion.longValue());
+
+        Book findBook = em.find(Book.class, book.getId());
+        assertEquals("요청한 가격만 수정된다.", 12000, findBook.getPrice());
+        assertEquals("요청하지 않은 값은 그대로다.", "시골 JPA", findBook.getName());
+        assertEquals("요청하지 않은 값은 그대로다.", 10, findBook.getStockQuantity());
+        assertEquals("요청하지 않은 값은 그대로다.", "김영한", findBook.getAuthor());
+        assertEquals(newVersion, findBook.getVersion());
+    }
+
+    @Test(expected = OptimisticLockException.class)
+    public void 상품_부분수정_버전충돌() {
+
+        // given
+        Book book = createBook("시골 JPA", 10000, 10);
+        Long version = book.getVersion();
+        em.clear();
+
+        itemService.patchItem(book.getId(), version, null, 12000, null); // 다른 곳에서 먼저 수정
+
+        // when
+        itemService.patchItem(book.getId(), version, null, null, 5); // 예전 버전으로 수정
+
+        // then
+        fail("버전이 다르면 예외가 발생해야 한다.");
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void 상품_부분수정_없는상품() {
+
+        // when
+        itemService.patchItem(-1L, 0L, null, 12000, null);
+
+        // then
+        fail("없는 상품이면 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 상품_수정_변경감지() {
+
+        // given
+        Book book = createBook("시골 JPA", 10000, 10);
+        em.clear();
+
+        Book param = new Book();
+        param.setName("시골 JPA 2판");
+        param.setPrice(15000);
+        param.setStockQuantity(10);
+        param.setAuthor("김영한");
+        param.setIsbn("2222");
+
+        // when
+        itemService.updateItem(book.getId(), param);
+        em.flush();
+        em.clear();
+
+        // then
+        Item findItem = em.find(Item.class, book.getId());
+        assertEquals("시골 JPA 2판", findItem.getName());
+        assertEquals("2222", ((Book) findItem).getIsbn());
+        assertEquals("수정하면 버전이 올라간다.", book.getVersion() + 1, findItem.getVersion().longValue());
+        assertEquals("새로 insert 되지 않고 기존 상품이 수정되어야 한다.", 1L,
+                em.createQuery("select count(i) from Item i where i.author = :author and i.isbn = :isbn", Long.class)
+                        .setParameter("author", "김영한")
+                        .setParameter("isbn", "2222")
+                        .getSingleResult().longValue());
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        book.setAuthor("김영한");
+        book.setIsbn("1111");
+
+        em.persist(book);
+        em.flush();
+
+        return book;
+    }
+}
@@ -0,0 +1,125 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberImportRowResult.Status;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 회원 일괄 등록 테스트
+ *
+ * 청크마다 커밋하므로 테스트 트랜잭션(@Transactional) 없이 실행한다. (이름이 겹치지 않도록 접두사 사용)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MemberImportServiceTest {
+
+    @Autowired MemberImportService memberImportService;
+    @Autowired MemberService memberService;
+    @Autowired MockMvc mockMvc;
+
+    @Test
+    public void 일괄_등록() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("import-existing");
+        memberService.join(member);
+
+        String ndjson = String.join("\n",
+                "{\"name\":\"import-a\",\"city\":\"서울\",\"street\":\"강가\",\"zipcode\":\"123-123\"}",
+                "{\"name\":\"import-b\"}",
+                "",
+                "{\"name\":\" import-a \"}",
+                "{\"name\":",
+                "{\"city\":\"서울\"}",
+                "{\"name\":\"import-existing\"}");
+
+        //when
+        List<MemberImportRowResult> rows = new ArrayList<>();
+        MemberImportResult result = memberImportService.importNdjson(toStream(ndjson), rows::addAll);
+
+        //then
+        assertEquals("행별 결과 (빈 줄 제외)", 6, rows.size());
+        assertEquals(List.of(Status.CREATED, Status.CREATED, Status.DUPLICATE, Status.INVALID, Status.INVALID, Status.EXISTS),
+                rows.stream().map(MemberImportRowResult::getStatus).collect(Collectors.toList()));
+        assertEquals("줄 번호", List.of(1, 2, 4, 5, 6, 7),
+                rows.stream().map(MemberImportRowResult::getLine).collect(Collectors.toList()));
+
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getDuplicated());
+        assertEquals(2, result.getInvalid());
+        assertEquals(1, result.getExisting());
+
+        Member created = memberService.findOne(rows.get(0).getId());
+        assertEquals("import-a", created.getName());
+        assertEquals("서울", created.getAddress().getCity());
+        assertEquals("123-123", created.getAddress().getZipcode());
+        assertEquals("회원 집계 로우도 만든다.", 0, memberService.findSummary(created.getId()).getOrderCount());
+    }
+
+    @Test
+    public void 청크_단위_처리() throws IOException {
+        //given
+        int count = MemberImportService.CHUNK_SIZE * 2 + 500;
+        String ndjson = IntStream.range(0, count)
+                .mapToObj(i -> "{\"name\":\"import-chunk" + i + "\"}")
+                .collect(Collectors.joining("\n"));
+
+        //when
+        List<Integer> chunkSizes = new ArrayList<>();
+        MemberImportResult result = memberImportService.importNdjson(toStream(ndjson), rows -> chunkSizes.add(rows.size()));
+
+        //then
+        assertEquals(count, result.getCreated());
+        assertEquals("청크마다 결과를 내보낸다.", List.of(1000, 1000, 500), chunkSizes);
+
+        //when 같은 요청을 다시 보내면
+        MemberImportResult again = memberImportService.importNdjson(toStream(ndjson), rows -> { });
+
+        //then
+        assertEquals("이미 있는 이름", count, again.getExisting());
+        assertEquals(0, again.getCreated());
+    }
+
+    @Test
+    public void 일괄_등록_api() throws Exception {
+        //when
+        MvcResult mvcResult = mockMvc.perform(post("/api/members/bulk")
+                        .contentType("application/x-ndjson")
+                        .content("{\"name\":\"import-api1\"}\n{\"name\":\"import-api2\"}\n"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        //then
+        String[] lines = mvcResult.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("행별 결과 2줄 + 전체 결과 1줄", 3, lines.length);
+        assertTrue(lines[0].contains("\"status\":\"CREATED\""));
+        assertTrue("마지막 줄은 전체 결과", lines[2].contains("\"created\":2"));
+        assertNotNull(mvcResult.getResponse().getContentType());
+    }
+
+    private static ByteArrayInputStream toStream(String ndjson) {
+        return new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,5 +1,6 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
 import org.junit.Test;
@@ -11,6 +12,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.OptimisticLockException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
@@ -79,5 +81,67 @@ public class MemberServiceTest {
         fail("예외가 발생해야 한다.");
     }
 
+    @Test
+    public void 회원_부분수정() {
+
+        // given
+        Member member = new Member();
+        member.setName("kim");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        memberService.join(member);
+        em.flush();
+        em.clear();
+
+        // when
+        Long version = memberService.patch(member.getId(), member.getVersion(), null, "부산", null, null); // 도시만 수정
+
+        // then
+        Member findMember = memberRepository.findOne(member.getId());
+        assertEquals("요청한 도시만 수정된다.", "부산", findMember.getAddress().getCity());
+        assertEquals("요청하지 않은 주소는 그대로다.", "강가", findMember.getAddress().getStreet());
+        assertEquals("요청하지 않은 값은 그대로다.", "kim", findMember.getName());
+        assertEquals(version, findMember.getVersion());
+    }
+
+    @Test(expected = OptimisticLockException.class)
+    public void 회원_부분수정_버전충돌() {
+
+        // given
+        Member member = new Member();
+        member.setName("kim");
+        memberService.join(member);
+        em.flush();
+        em.clear();
+
+        memberService.patch(member.getId(), member.getVersion(), "lee", null, null, null); // 다른 곳에서 먼저 수정
+
+        // when
+        memberService.patch(member.getId(), member.getVersion(), "park", null, null, null); // 예전 버전으로 수정
+
+        // then
+        fail("버전이 다르면 예외가 발생해야 한다.");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 회원_부분수정_중복이름_예외() {
+
+        // given
+        Member kim = new Member();
+        kim.setName("kim");
+        memberService.join(kim);
+
+        Member lee = new Member();
+        lee.setName("lee");
+        memberService.join(lee);
+        em.flush();
+        em.clear();
+
+        // when
+        memberService.patch(lee.getId(), lee.getVersion(), "kim", null, null, null); // 다른 회원의 이름으로 수정
+
+        // then
+        fail("가입할 때와 같이 중복 회원 예외가 발생해야 한다.");
+    }
+
 
 }
\ No newline at end of file
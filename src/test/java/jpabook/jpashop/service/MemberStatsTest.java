@@ -0,0 +1,110 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.member.MemberSummaryDto;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class MemberStatsTest {
+
+    @Autowired MemberService memberService;
+    @Autowired OrderService orderService;
+    @Autowired TestFixture fixture;
+
+    @Test
+    public void 가입한_회원_요약() {
+        //given
+        Member member = new Member();
+        member.setName("집계회원");
+
+        //when
+        Long memberId = memberService.join(member);
+
+        //then
+        MemberSummaryDto summary = memberService.findSummary(memberId);
+        assertEquals("주문 수", 0, summary.getOrderCount());
+        assertEquals("누적 구매 금액", 0, summary.getLifetimeSpend());
+        assertNull("주문한 적 없음", summary.getLastOrderDate());
+    }
+
+    @Test
+    public void 주문_취소시_집계() {
+        //given
+        Long memberId = fixture.createMember("집계회원1");
+        Long itemId = fixture.createBook("집계 JPA", 10000, 100);
+
+        //when
+        Long orderId1 = orderService.order(memberId, itemId, 2);
+        Long orderId2 = orderService.order(memberId, itemId, 1);
+        Long orderId3 = orderService.order(memberId, itemId, 3);
+
+        //then
+        MemberSummaryDto summary = memberService.findSummary(memberId);
+        assertEquals("주문 수", 3, summary.getOrderCount());
+        assertEquals("누적 구매 금액", 60000, summary.getLifetimeSpend());
+        assertNotNull("마지막 주문일", summary.getLastOrderDate());
+
+        //when
+        orderService.cancelOrder(orderId1);
+
+        //then
+        summary = memberService.findSummary(memberId);
+        assertEquals("취소한 주문은 빠진다.", 2, summary.getOrderCount());
+        assertEquals("취소한 주문 금액은 빠진다.", 40000, summary.getLifetimeSpend());
+
+        //when
+        orderService.cancelOrders(List.of(orderId1, orderId2, orderId3)); // orderId1 은 이미 취소 -> 건너뜀
+
+        //then
+        summary = memberService.findSummary(memberId);
+        assertEquals("일괄 취소", 0, summary.getOrderCount());
+        assertEquals("일괄 취소", 0, summary.getLifetimeSpend());
+        assertNotNull("마지막 주문일은 남는다.", summary.getLastOrderDate());
+    }
+
+    @Test
+    public void 우수_고객_목록() {
+        //given
+        Long big = fixture.createMember("큰손");
+        Long frequent = fixture.createMember("단골");
+        Long itemId = fixture.createBook("집계 JPA", 1_000_000, 100);
+
+        orderService.order(big, itemId, 5);
+        for (int i = 0; i < 4; i++) {
+            orderService.order(frequent, itemId, 1);
+        }
+
+        //when
+        List<MemberSummaryDto> bySpend = memberService.findTopCustomers("spend", 2);
+        List<MemberSummaryDto> byOrders = memberService.findTopCustomers("orders", 1);
+        List<MemberSummaryDto> byRecent = memberService.findTopCustomers("recent", 1);
+
+        //then
+        assertEquals("limit", 2, bySpend.size());
+        assertEquals("누적 구매 금액 순", big, bySpend.get(0).getMemberId());
+        assertEquals("회원 이름", "큰손", bySpend.get(0).getName());
+        assertEquals("누적 구매 금액 순", frequent, bySpend.get(1).getMemberId());
+        assertEquals("주문 수 순", frequent, byOrders.get(0).getMemberId());
+        assertEquals("주문 수", 4, byOrders.get(0).getOrderCount());
+        assertEquals("마지막 주문일 순", frequent, byRecent.get(0).getMemberId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 우수_고객_목록_잘못된_정렬() {
+        memberService.findTopCustomers("name", 10);
+    }
+}
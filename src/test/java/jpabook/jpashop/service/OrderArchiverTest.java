@@ -0,0 +1,180 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 주문 보관 테스트
+ *
+ * 보관 기준: 30일 지난 주문, 취소 후 1일 지난 주문
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.archive.order-age=30d",
+        "jpashop.archive.cancel-grace=1d",
+        "jpashop.archive.batch-size=2", // 여러 배치로 나눠서 처리되는지 확인
+        "jpashop.archive.pause-ms=0"
+})
+@Transactional
+public class OrderArchiverTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderArchiver orderArchiver;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderService orderService;
+
+    @Test
+    public void 오래된_주문과_유예_기간이_지난_취소_주문만_보관() {
+
+        // given
+        Long oldOrderId = createOrder(40, OrderStatus.ORDER);
+        Long oldCancelId = createOrder(2, OrderStatus.CANCEL);
+        Long recentCancelId = createOrder(0, OrderStatus.CANCEL);
+        Long recentOrderId = createOrder(2, OrderStatus.ORDER);
+        em.flush();
+        em.clear();
+
+        // when
+        int archived = orderArchiver.archive();
+        em.clear();
+
+        // then
+        assertEquals("오래된 주문 + 유예 기간이 지난 취소 주문", 2, archived);
+        assertEquals(0, countOf("orders", oldOrderId));
+        assertEquals(0, countOf("orders", oldCancelId));
+        assertEquals("주문상품도 함께 이동", 0, countOf("order_item", oldOrderId));
+        assertEquals(1, countOf("orders_archive", oldOrderId));
+        assertEquals(1, countOf("order_item_archive", oldOrderId));
+
+        assertEquals("최근 취소 주문은 그대로", 1, countOf("orders", recentCancelId));
+        assertEquals("최근 주문은 그대로", 1, countOf("orders", recentOrderId));
+        assertNull(em.find(Order.class, oldOrderId));
+    }
+
+    @Test
+    public void 보관된_주문도_findOne_으로_조회() {
+
+        // given
+        Long orderId = createOrder(40, OrderStatus.ORDER);
+        em.flush();
+        em.clear();
+        orderArchiver.archive();
+        em.clear();
+
+        // when
+        Order order = orderRepository.findOne(orderId);
+
+        // then
+        assertTrue("보관 테이블에서 복원한 주문", order.isArchived());
+        assertEquals(orderId, order.getId());
+        assertEquals(OrderStatus.ORDER, order.getStatus());
+        assertEquals("회원 연결", "보관회원", order.getMember().getName());
+        assertEquals("배송 복원", "서울", order.getDelivery().getAddress().getCity());
+        assertEquals("주문상품 복원", 1, order.getOrderItems().size());
+        assertEquals("상품 연결", "시골 JPA", order.getOrderItems().get(0).getItem().getName());
+        assertEquals(10000 * 3, order.getTotalPrice());
+    }
+
+    @Test
+    public void 보관된_주문은_취소_불가() {
+
+        // given
+        Long orderId = createOrder(40, OrderStatus.ORDER);
+        em.flush();
+        em.clear();
+        orderArchiver.archive();
+        em.clear();
+
+        // when
+        try {
+            orderService.cancelOrder(orderId);
+            fail("보관된 주문은 취소할 수 없어야 한다.");
+        } catch (IllegalStateException e) {
+            // then
+            assertEquals("보관된 주문은 취소할 수 없습니다.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void 배치_크기로_나눠서_모두_보관() {
+
+        // given
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orderIds.add(createOrder(40, OrderStatus.ORDER));
+        }
+        em.flush();
+        em.clear();
+
+        // when
+        int archived = orderArchiver.archive();
+        em.clear();
+
+        // then
+        assertEquals("배치 크기(2)보다 많아도 한 번에 모두 보관", 5, archived);
+        for (Long orderId : orderIds) {
+            assertEquals(1, countOf("orders_archive", orderId));
+        }
+        assertEquals("다시 실행하면 보관할 주문이 없다.", 0, orderArchiver.archive());
+    }
+
+    private Long createOrder(int daysAgo, OrderStatus status) {
+        Member member = new Member();
+        member.setName("보관회원");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        Book book = new Book();
+        book.setName("시골 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        em.persist(book);
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        delivery.setStatus(DeliveryStatus.READY);
+
+        Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, book.getPrice(), 3));
+        order.setOrderDate(LocalDateTime.now().minusDays(daysAgo));
+        order.setStatus(status);
+        em.persist(order);
+
+        return order.getId();
+    }
+
+    private long countOf(String table, Long orderId) {
+        return ((Number) em.createNativeQuery("select count(*) from " + table + " where order_id = ?")
+                .setParameter(1, orderId)
+                .getSingleResult()).longValue();
+    }
+}
@@ -0,0 +1,257 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.OrderRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 주문 일괄 취소 vs 배송 일괄 완료, 같은 상품 주문 동시 실행 테스트
+ *
+ * 취소는 주문 로우를, 배송 완료는 배송 로우를 수정하므로 락이 없으면 둘 다 검증을 통과해서 함께 커밋된다. (write skew)
+ * 먼저 시작한 쪽이 주문 로우 락을 잡고 커밋하기 전까지, 나중 쪽은 기다렸다가 커밋된 상태를 보고 건너뛰어야 한다.
+ * 서로 다른 트랜잭션이 필요하므로 테스트 트랜잭션(@Transactional) 없이 실행한다.
+ *
+ * 먼저 시작한 쪽은 정해진 시간 동안 기다리지 않고, 나중 쪽이 락을 요청(select ... for update)할 때까지만 커밋하지 않는다. (LockRequests)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=jpabook.jpashop.service.OrderConcurrencyTest$LockRequests")
+public class OrderConcurrencyTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    TestFixture fixture;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void 배송_완료_중_취소하면_완료_커밋후_취소를_건너뛴다() throws Exception {
+
+        // given
+        List<Long> orderIds = createOrders("동시성회원1");
+
+        // when
+        Future<BatchResult> first = holdInTransaction(orderService::completeDeliveriesByOrderIds, orderIds);
+        BatchResult second = orderService.cancelOrders(orderIds);
+
+        // then
+        assertEquals(orderIds, first.get(5, TimeUnit.SECONDS).getProcessed());
+        assertTrue(second.getProcessed().isEmpty());
+        assertEquals(orderIds.size(), second.getSkipped().size());
+        second.getSkipped().forEach(s -> assertEquals("이미 배송 완료 된 상품은 취소가 불가합니다.", s.getReason()));
+        for (Long orderId : orderIds) {
+            Order order = orderRepository.findOne(orderId);
+            assertEquals(OrderStatus.ORDER, order.getStatus());
+        }
+    }
+
+    @Test
+    public void 취소_중_배송_완료하면_취소_커밋후_완료를_건너뛴다() throws Exception {
+
+        // given
+        List<Long> orderIds = createOrders("동시성회원2");
+
+        // when
+        Future<BatchResult> first = holdInTransaction(orderService::cancelOrders, orderIds);
+        BatchResult second = orderService.completeDeliveriesByOrderIds(orderIds);
+
+        // then
+        assertEquals(orderIds, first.get(5, TimeUnit.SECONDS).getProcessed());
+        assertTrue(second.getProcessed().isEmpty());
+        assertEquals(orderIds.size(), second.getSkipped().size());
+        second.getSkipped().forEach(s -> assertEquals("취소된 주문은 배송 완료 처리할 수 없습니다.", s.getReason()));
+        assertEquals(orderIds.size(), orderRepository.findDeliveryStatusesByOrderIds(orderIds).stream()
+                .filter(s -> s.getOrderStatus() == OrderStatus.CANCEL && s.getDeliveryStatus() == DeliveryStatus.READY)
+                .count());
+    }
+
+    @Test
+    public void 같은_상품_동시_주문시_재고만큼_성공() throws Exception {
+
+        // given
+        Long memberId = fixture.createMember("동시성회원3");
+        Long itemId = fixture.createBook("인기 JPA", 10000, 5);
+        int threads = 8;
+
+        // when
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit((Callable<Long>) () -> {
+                    start.await();
+                    return orderService.order(memberId, itemId, 1);
+                }));
+            }
+            start.countDown();
+
+            int ordered = 0;
+            int shortage = 0;
+            for (Future<Long> future : futures) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    ordered++;
+                } catch (ExecutionException e) {
+                    assertTrue("재고 부족 외의 실패(@Version 충돌 등)는 없어야 한다. " + e.getCause(),
+                            e.getCause() instanceof NotEnoughStockException);
+                    shortage++;
+                }
+            }
+
+            // then
+            assertEquals("재고만큼은 모두 성공", 5, ordered);
+            assertEquals(threads - 5, shortage);
+            Item item = itemRepository.findOne(itemId);
+            assertEquals(0, item.getStockQuantity());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void 같은_상품_주문_중_취소도_충돌하지_않는다() throws Exception {
+
+        // given
+        Long memberId = fixture.createMember("동시성회원4");
+        Long itemId = fixture.createBook("취소 JPA", 10000, 20);
+        Long cancelId = orderService.order(memberId, itemId, 2);
+        int threads = 8;
+
+        // when 주문 8건과 취소 1건을 동시에
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit((Callable<Long>) () -> {
+                    start.await();
+                    return orderService.order(memberId, itemId, 1);
+                }));
+            }
+            futures.add(pool.submit((Callable<Void>) () -> {
+                start.await();
+                orderService.cancelOrder(cancelId);
+                return null;
+            }));
+            start.countDown();
+
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS); // @Version 충돌이면 ExecutionException
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // then
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(cancelId).getStatus());
+        assertEquals("20 - 2(취소됨) - 8 + 2", 20 - threads, itemRepository.findOne(itemId).getStockQuantity());
+    }
+
+    private List<Long> createOrders(String memberName) {
+        Long memberId = fixture.createMember(memberName);
+        Long itemId = fixture.createBook("동시성 JPA", 10000, 10);
+        return List.of(orderService.order(memberId, itemId, 1), orderService.order(memberId, itemId, 1));
+    }
+
+    /**
+     * 다른 스레드에서 트랜잭션을 열고 action 을 실행한 뒤, 다른 트랜잭션이 락을 요청할 때까지 커밋하지 않고 락을 잡고 있는다.
+     * action 이 끝난 뒤(락을 잡은 뒤)에 돌아온다.
+     */
+    private Future<BatchResult> holdInTransaction(Function<List<Long>, BatchResult> action, List<Long> orderIds)
+            throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        Future<BatchResult> future = executor.submit(() -> tx.execute(status -> {
+            BatchResult result = action.apply(orderIds);
+            CountDownLatch lockRequested = LockRequests.expect();
+            locked.countDown();
+            try {
+                // 락을 잡지 않고 끝나 버리면(write skew) 여기서 실패한다.
+                assertTrue("다른 트랜잭션이 주문 로우 락을 요청해야 한다.", lockRequested.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }));
+
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        return future;
+    }
+
+    /**
+     * 락 요청(select ... for update) SQL 이 실행되기 직전에 래치를 연다.
+     * 하이버네이트가 클래스 이름으로 생성하므로 public, 상태는 static 으로 둔다.
+     */
+    public static class LockRequests implements StatementInspector {
+
+        private static volatile CountDownLatch requested = new CountDownLatch(0);
+
+        /**
+         * 이후에 실행되는 락 요청을 기다릴 래치
+         */
+        static CountDownLatch expect() {
+            requested = new CountDownLatch(1);
+            return requested;
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.contains(" for update")) {
+                requested.countDown();
+            }
+            return sql;
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.TestFixture;
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.OrderStateConflictException;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.member.MemberStatsRepository;
+import jpabook.jpashop.repository.member.MemberSummaryDto;
 import org.junit.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.runner.RunWith;
@@ -17,6 +22,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
@@ -35,6 +41,12 @@ public class OrderServiceTest {
     @Autowired
     OrderRepository orderRepository;
 
+    @Autowired
+    MemberStatsRepository memberStatsRepository;
+
+    @Autowired
+    TestFixture fixture;
+
     @Test
     public void 상품주문() {
 
@@ -96,6 +108,133 @@ public class OrderServiceTest {
         assertEquals("주문이 취소된 상품은 그만큼 재고가 증가해야 한다.", 10, item.getStockQuantity());
     }
 
+    @Test
+    public void 이미_취소된_주문은_다시_취소할_수_없다() {
+
+        // given
+        Long memberId = fixture.createMember("재취소회원");
+        Long itemId = fixture.createBook("시골 JPA", 10000, 10);
+        Long orderId = orderService.order(memberId, itemId, 2);
+        orderService.cancelOrder(orderId);
+        em.flush();
+        em.clear();
+
+        MemberSummaryDto stats = memberStatsRepository.findSummary(memberId);
+        int stock = em.find(Book.class, itemId).getStockQuantity();
+        long events = countOutboxEvents(orderId);
+
+        // when
+        try {
+            orderService.cancelOrder(orderId);
+            fail("이미 취소된 주문은 취소할 수 없어야 한다.");
+        } catch (OrderStateConflictException e) {
+            assertEquals("이미 취소된 주문입니다.", e.getMessage());
+        }
+        em.flush();
+        em.clear();
+
+        // then 두 번째 취소는 아무것도 바꾸지 않는다.
+        MemberSummaryDto after = memberStatsRepository.findSummary(memberId);
+        assertEquals("회원 주문 수", stats.getOrderCount(), after.getOrderCount());
+        assertEquals("회원 누적 구매 금액", stats.getLifetimeSpend(), after.getLifetimeSpend());
+        assertEquals(0, after.getOrderCount());
+        assertEquals("재고", stock, em.find(Book.class, itemId).getStockQuantity());
+        assertEquals(10, stock);
+        assertEquals("취소 이벤트(아웃박스)", events, countOutboxEvents(orderId));
+        assertEquals("주문, 취소 이벤트 하나씩", 2, events);
+    }
+
+    @Test
+    public void 주문_일괄취소() {
+
+        // given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+
+        Long orderId1 = orderService.order(member.getId(), book.getId(), 2);
+        Long orderId2 = orderService.order(member.getId(), book.getId(), 3);
+        Long canceledId = orderService.order(member.getId(), book.getId(), 1);
+        Long deliveredId = orderService.order(member.getId(), book.getId(), 4);
+
+        orderService.cancelOrder(canceledId); // 이미 취소된 주문
+        orderRepository.findOne(deliveredId).getDelivery().setStatus(DeliveryStatus.COMP); // 배송 완료된 주문
+
+        // when
+        BatchResult result = orderService.cancelOrders(Arrays.asList(orderId1, orderId2, orderId2, canceledId, deliveredId, -1L));
+
+        // then
+        assertEquals("취소 가능한 주문만 취소된다.", Arrays.asList(orderId1, orderId2), result.getProcessed());
+        assertEquals("이미 취소, 배송 완료, 존재하지 않는 주문은 건너뛴다.", 3, result.getSkipped().size());
+
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId1).getStatus());
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId2).getStatus());
+        assertEquals("배송 완료된 주문은 그대로다.", OrderStatus.ORDER, orderRepository.findOne(deliveredId).getStatus());
+        assertEquals("취소된 주문 수량만큼 재고가 원복되어야 한다.", 10 - 4, em.find(Book.class, book.getId()).getStockQuantity());
+    }
+
+    @Test
+    public void 배송_일괄완료() {
+
+        // given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+
+        Long orderId1 = orderService.order(member.getId(), book.getId(), 1);
+        Long orderId2 = orderService.order(member.getId(), book.getId(), 1);
+        Long canceledId = orderService.order(member.getId(), book.getId(), 1);
+        Long deliveredId = orderService.order(member.getId(), book.getId(), 1);
+
+        orderService.cancelOrder(canceledId); // 취소된 주문
+        orderService.completeDeliveriesByOrderIds(Arrays.asList(deliveredId)); // 이미 배송 완료된 주문
+
+        // when
+        BatchResult result = orderService.completeDeliveriesByOrderIds(
+                Arrays.asList(orderId1, orderId2, orderId1, canceledId, deliveredId, -1L));
+
+        // then
+        assertEquals("완료 가능한 주문만 처리된다.", Arrays.asList(orderId1, orderId2), result.getProcessed());
+        assertEquals("취소, 이미 배송 완료, 존재하지 않는 주문은 건너뛴다.", 3, result.getSkipped().size());
+
+        assertEquals(DeliveryStatus.COMP, orderRepository.findOne(orderId1).getDelivery().getStatus());
+        assertEquals(DeliveryStatus.COMP, orderRepository.findOne(orderId2).getDelivery().getStatus());
+        assertEquals("취소된 주문의 배송은 그대로다.", DeliveryStatus.READY, orderRepository.findOne(canceledId).getDelivery().getStatus());
+
+        // 배송 완료된 주문은 취소할 수 없다.
+        BatchResult cancelResult = orderService.cancelOrders(Arrays.asList(orderId1));
+        assertEquals(0, cancelResult.getProcessed().size());
+        try {
+            orderService.cancelOrder(orderId2);
+            fail("배송 완료된 주문은 취소할 수 없어야 한다.");
+        } catch (IllegalStateException e) {
+            assertEquals(OrderStatus.ORDER, orderRepository.findOne(orderId2).getStatus());
+        }
+    }
+
+    @Test
+    public void 배송_일괄완료_배송id() {
+
+        // given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+
+        Long orderId = orderService.order(member.getId(), book.getId(), 1);
+        Long deliveryId = orderRepository.findOne(orderId).getDelivery().getId();
+
+        // when
+        BatchResult result = orderService.completeDeliveries(Arrays.asList(deliveryId, orderId));
+
+        // then
+        assertEquals("배송 id 기준으로 처리한다.", Arrays.asList(deliveryId), result.getProcessed());
+        assertEquals("주문 id 는 배송 id 가 아니므로 건너뛴다.", orderId, result.getSkipped().get(0).getId());
+        assertEquals(DeliveryStatus.COMP, orderRepository.findOne(orderId).getDelivery().getStatus());
+    }
+
+    private long countOutboxEvents(Long orderId) {
+        return em.createQuery("select count(e) from OutboxEvent e where e.orderId = :orderId", Long.class)
+                .setParameter("orderId", orderId)
+                .getSingleResult();
+    }
+
     private Book createBook(String name, int price, int stockQuantity) {
 
         Book book = new Book();
@@ -0,0 +1,133 @@
+package jpabook.jpashop.service.analytics;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 주문 분석 스냅샷 테스트
+ *
+ * 내보내기는 커밋된 데이터만 읽으므로 테스트 트랜잭션(@Transactional) 없이 실행한다. (도시, 상품 이름은 실행마다 다르게)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderAnalyticsServiceTest {
+
+    @Autowired OrderAnalyticsService orderAnalyticsService;
+    @Autowired TestFixture fixture;
+    @Autowired OrderService orderService;
+
+    @Test
+    public void 스냅샷_집계() {
+        //given
+        String suffix = String.valueOf(System.nanoTime());
+        Long memberA = fixture.createMember("분석회원A" + suffix, new Address("분석도시A" + suffix, "거리", "12345"));
+        Long memberB = fixture.createMember("분석회원B" + suffix, new Address("분석도시B" + suffix, "거리", "12345"));
+        Long book1 = fixture.createBook("분석상품1" + suffix, 9_000_000, 100);
+        Long book2 = fixture.createBook("분석상품2" + suffix, 1_000_000, 100);
+
+        orderService.order(memberA, book1, 2);
+        orderService.order(memberA, book2, 1);
+        orderService.order(memberB, book1, 1);
+        Long canceled = orderService.order(memberB, book2, 3);
+        orderService.cancelOrder(canceled);
+
+        //when
+        SnapshotInfo info = orderAnalyticsService.export();
+
+        //then
+        assertTrue(info.getRows() >= 4);
+
+        AnalyticsResult byCity = orderAnalyticsService.revenueByCity(null, null);
+        GroupTotal cityA = find(byCity, "분석도시A" + suffix).orElseThrow(AssertionError::new);
+        assertEquals("주문 수", 2, cityA.getOrders());
+        assertEquals("매출", 9_000_000L * 2 + 1_000_000L, cityA.getRevenue());
+        GroupTotal cityB = find(byCity, "분석도시B" + suffix).orElseThrow(AssertionError::new);
+        assertEquals("취소된 주문은 매출에서 뺀다.", 9_000_000L, cityB.getRevenue());
+
+        AnalyticsResult byStatus = orderAnalyticsService.statusBreakdown(null, null);
+        assertTrue(find(byStatus, "CANCEL").orElseThrow(AssertionError::new).getOrders() >= 1);
+
+        AnalyticsResult items = orderAnalyticsService.itemMix(null, null, OrderAnalyticsService.MAX_LIMIT);
+        GroupTotal item1 = find(items, "분석상품1" + suffix).orElseThrow(AssertionError::new);
+        assertEquals("판매 수량", 3, item1.getQuantity());
+        assertEquals(2, item1.getOrders());
+
+        assertFalse("주문일 필터", find(orderAnalyticsService.revenueByCity(LocalDate.now().plusDays(1), null),
+                "분석도시A" + suffix).isPresent());
+        assertTrue(find(orderAnalyticsService.revenueByCity(LocalDate.now(), LocalDate.now()),
+                "분석도시A" + suffix).isPresent());
+    }
+
+    @Test
+    public void 컬럼_파일_쓰기_읽기() throws IOException {
+        //given
+        Path directory = Files.createTempDirectory("columnar-test");
+        Path file = directory.resolve("test.col");
+        int rows = 20_000; // 컬럼 버퍼(64KB)를 여러 번 비운다.
+
+        //when
+        try (ColumnarWriter writer = new ColumnarWriter(file)) {
+            int id = writer.column("id", ColumnType.LONG);
+            int name = writer.column("name", ColumnType.DICT);
+            int value = writer.column("value", ColumnType.INT);
+            for (int i = 0; i < rows; i++) {
+                writer.writeLong(id, i * 10L);
+                writer.writeString(name, i % 3 == 0 ? null : "name" + (i % 3));
+                writer.writeInt(value, -i);
+                writer.endRow();
+            }
+            writer.finish(1234L);
+        }
+
+        //then
+        ColumnarSnapshot snapshot = ColumnarSnapshot.open(file);
+        assertEquals(rows, snapshot.getRowCount());
+        assertEquals(1234L, snapshot.getCreatedAt());
+
+        List<String> dictionary = snapshot.dictionary("name");
+        assertEquals("null 도 사전에 들어간다.", Arrays.asList(null, "name1", "name2"), dictionary);
+
+        LongBuffer ids = snapshot.longs("id");
+        IntBuffer names = snapshot.ints("name");
+        IntBuffer values = snapshot.ints("value");
+        for (int i = 0; i < rows; i++) {
+            assertEquals(i * 10L, ids.get(i));
+            assertEquals(i % 3 == 0 ? null : "name" + (i % 3), dictionary.get(names.get(i)));
+            assertEquals(-i, values.get(i));
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals("임시 파일은 지운다.", 1, files.count());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 상품구성_limit_검증() {
+        orderAnalyticsService.itemMix(null, null, OrderAnalyticsService.MAX_LIMIT + 1);
+    }
+
+    private static Optional<GroupTotal> find(AnalyticsResult result, String key) {
+        return result.getGroups().stream().filter(g -> key.equals(g.getKey())).findFirst();
+    }
+}
@@ -0,0 +1,162 @@
+package jpabook.jpashop.service.bestseller;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.repository.BestSellerSnapshotRepository;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.event.OutboxRelay;
+import jpabook.jpashop.shard.ShardRouter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 베스트셀러 테스트
+ *
+ * 아웃박스 릴레이는 커밋된 이벤트만 볼 수 있으므로 테스트 트랜잭션(@Transactional) 없이 실행한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.outbox.gap-timeout=0s") // 다른 테스트에서 롤백된 이벤트 id(빈 id)를 기다리지 않는다.
+public class BestSellerTrackerTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Autowired BestSellerTracker bestSellerTracker;
+    @Autowired BestSellerSnapshotRepository snapshotRepository;
+    @Autowired ShardRouter shardRouter;
+    @Autowired OutboxRelay outboxRelay;
+    @Autowired OrderService orderService;
+    @Autowired TestFixture fixture;
+
+    @Test
+    public void 주문_취소_반영() {
+        //given
+        Long memberId = fixture.createMember("bestseller1");
+        Long itemId = fixture.createBook("베스트셀러 JPA", 10000, 100);
+
+        Long orderId = orderService.order(memberId, itemId, 7);
+        orderService.order(memberId, itemId, 3);
+
+        //when
+        outboxRelay.relay();
+
+        //then
+        BestSeller hour = find(bestSellerTracker.findTop(BestSellerWindow.HOUR, BestSellerTracker.MAX_LIMIT), itemId);
+        assertEquals("최근 1시간 판매 수량", 10, hour.getQuantity());
+        assertEquals("상품명", "베스트셀러 JPA", hour.getItemName());
+        assertEquals("최근 24시간 판매 수량", 10,
+                find(bestSellerTracker.findTop(BestSellerWindow.DAY, BestSellerTracker.MAX_LIMIT), itemId).getQuantity());
+
+        //when
+        orderService.cancelOrder(orderId);
+        outboxRelay.relay();
+
+        //then
+        assertEquals("취소 수량은 빠진다.", 3,
+                find(bestSellerTracker.findTop(BestSellerWindow.HOUR, BestSellerTracker.MAX_LIMIT), itemId).getQuantity());
+    }
+
+    @Test
+    public void 윈도우_밖으로_밀려남() {
+        SlidingTopK topK = new SlidingTopK(MINUTE, 60, 256, 100);
+        long now = 1_000 * MINUTE;
+
+        topK.add(1L, "오래된 상품", 5, now - 59 * MINUTE, now);
+        topK.add(2L, "새 상품", 3, now, now);
+        topK.add(3L, "윈도우 밖 상품", 100, now - 60 * MINUTE, now);
+
+        assertEquals("윈도우 안", 5, topK.estimate(1L, now));
+        assertEquals("윈도우 밖은 더하지 않는다.", 0, topK.estimate(3L, now));
+        assertEquals("수량 순", 1L, (long) topK.top(10, now).get(0).getItemId());
+
+        long later = now + MINUTE; // 1분 뒤 -> 59분 전 버킷이 밀려난다.
+        assertEquals("밀려남", 0, topK.estimate(1L, later));
+        topK.add(4L, "다음 구간 상품", 1, later, later); // 밀려난 버킷 자리를 새 구간이 사용
+        assertEquals("새 구간", 1, topK.estimate(4L, later));
+        assertEquals("남은 상품", 2L, (long) topK.top(10, later).get(0).getItemId());
+    }
+
+    @Test
+    public void 동시_기록() throws Exception {
+        SlidingTopK topK = new SlidingTopK(MINUTE, 60, 256, 100);
+        long now = 1_000 * MINUTE;
+        int threads = 8;
+        int perThread = 10_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        topK.add(1L, "상품1", 2, now - (i % 60) * MINUTE, now);
+                        topK.add(2L, "상품2", 1, now, now);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue("잃어버린 수량이 없어야 한다.", topK.estimate(1L, now) >= 2L * threads * perThread);
+        assertTrue("잃어버린 수량이 없어야 한다.", topK.estimate(2L, now) >= (long) threads * perThread);
+        assertEquals("수량 순", 1L, (long) topK.top(1, now).get(0).getItemId());
+    }
+
+    @Test
+    public void 후보_정리() {
+        SlidingTopK topK = new SlidingTopK(MINUTE, 60, 1024, 10);
+        long now = 1_000 * MINUTE;
+
+        for (long itemId = 1; itemId <= 100; itemId++) {
+            topK.add(itemId, "상품" + itemId, itemId, now, now);
+        }
+
+        assertTrue("후보 수 제한", topK.candidateCount() <= 10);
+        assertEquals("가장 많이 팔린 상품", 100L, (long) topK.top(1, now).get(0).getItemId());
+    }
+
+    @Test
+    public void 스냅샷_복원() {
+        //given
+        Long itemId = 9_000_001L;
+        bestSellerTracker.record(itemId, "스냅샷 상품", 42, LocalDateTime.now());
+
+        //when
+        bestSellerTracker.snapshot();
+        BestSellerTracker restarted = new BestSellerTracker(snapshotRepository, shardRouter, true);
+        restarted.restore();
+
+        //then
+        assertEquals("스냅샷 수량", 42,
+                find(restarted.findTop(BestSellerWindow.HOUR, BestSellerTracker.MAX_LIMIT), itemId).getQuantity());
+        assertEquals("스냅샷 수량", 42,
+                find(restarted.findTop(BestSellerWindow.DAY, BestSellerTracker.MAX_LIMIT), itemId).getQuantity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 잘못된_윈도우() {
+        BestSellerWindow.of("week");
+    }
+
+    private static BestSeller find(List<BestSeller> bestSellers, Long itemId) {
+        return bestSellers.stream()
+                .filter(b -> b.getItemId().equals(itemId))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("베스트셀러 목록에 없습니다. itemId=" + itemId));
+    }
+}
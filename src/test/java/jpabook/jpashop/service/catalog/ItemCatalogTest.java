@@ -0,0 +1,141 @@
+package jpabook.jpashop.service.catalog;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.view.ItemListQueryDto;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 힙 밖 상품 카탈로그 테스트
+ *
+ * 카탈로그는 커밋된 뒤에 갱신되므로 테스트 트랜잭션(@Transactional) 없이 실행한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ItemCatalogTest {
+
+    @Autowired ItemCatalog itemCatalog;
+    @Autowired ItemService itemService;
+    @Autowired TestFixture fixture;
+    @Autowired OrderService orderService;
+
+    @Test
+    public void 상품_변경_반영() {
+        //given
+        itemCatalog.reload();
+        assertTrue("시작할 때 적재된다.", itemCatalog.stats().isLoaded());
+
+        //when 등록
+        Long itemId = fixture.createBook("카탈로그 JPA", 10000, 10);
+
+        //then
+        assertItem(itemId, "카탈로그 JPA", 10000, 10);
+        assertTrue(StreamSupport.stream(itemCatalog.iterateAll().spliterator(), false).anyMatch(i -> i.getId().equals(itemId)));
+
+        //when 수정
+        Book param = new Book();
+        param.setName("카탈로그 JPA 2판");
+        param.setPrice(12000);
+        param.setStockQuantity(20);
+        itemService.updateItem(itemId, param);
+
+        //then
+        assertItem(itemId, "카탈로그 JPA 2판", 12000, 20);
+
+        //when 주문, 취소 (재고 변경)
+        Long memberId = fixture.createMember("카탈로그회원");
+
+        Long orderId = orderService.order(memberId, itemId, 3);
+        assertItem(itemId, "카탈로그 JPA 2판", 12000, 17);
+
+        orderService.cancelOrder(orderId);
+        assertItem(itemId, "카탈로그 JPA 2판", 12000, 20);
+
+        //when 부분 수정
+        itemService.patchItem(itemId, itemService.findOne(itemId).getVersion(), null, 15000, null);
+        assertItem(itemId, "카탈로그 JPA 2판", 15000, 20);
+    }
+
+    @Test
+    public void 키셋_페이지() {
+        //given
+        itemCatalog.reload();
+        List<Long> allIds = StreamSupport.stream(itemCatalog.iterateAll().spliterator(), false).map(ItemListQueryDto::getId).collect(Collectors.toList());
+
+        //when
+        KeysetPage<ItemListQueryDto> first = itemCatalog.findPage(null, 1);
+
+        //then
+        assertEquals("전체 반복은 적재된 상품을 모두 id 순으로 돌려준다.", itemCatalog.stats().getItems(), allIds.size());
+        assertEquals(allIds.stream().sorted().distinct().collect(Collectors.toList()), allIds);
+        assertEquals(allIds.get(0), first.getContent().get(0).getId());
+        if (allIds.size() > 1) {
+            assertEquals(allIds.get(0), first.getNextAfterId());
+            assertEquals(allIds.get(1), itemCatalog.findPage(first.getNextAfterId(), 1).getContent().get(0).getId());
+        }
+        assertNull("마지막 페이지", itemCatalog.findPage(null, allIds.size()).getNextAfterId());
+        assertNull(itemCatalog.findOne(-1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 키셋_페이지_limit_검증() {
+        itemCatalog.findPage(null, 0);
+    }
+
+    @Test
+    public void 힙_밖_테이블() {
+        //given
+        OffHeapItemTable table = new OffHeapItemTable(1, 1);
+
+        //when 순서 없이 추가 (버퍼 크기도 넘긴다.)
+        for (long id = 2; id <= 2000; id += 2) {
+            table.put(new ItemListQueryDto(id, "상품" + id, (int) id, 1));
+        }
+        for (long id = 1999; id >= 1; id -= 2) {
+            table.put(new ItemListQueryDto(id, "상품" + id, (int) id, 1));
+        }
+        table.put(new ItemListQueryDto(7L, null, 7, 0)); // 이름 없음
+
+        //then
+        assertEquals(2000, table.size());
+        assertEquals("상품1234", table.find(1234).getName());
+        assertNull(table.find(7).getName());
+        assertNull(table.find(2001));
+        assertEquals(Arrays.asList(11L, 12L, 13L),
+                table.page(10, 3).stream().map(ItemListQueryDto::getId).collect(Collectors.toList()));
+
+        //when 이름을 여러 번 바꾸면 (버린 이름이 쌓이면 arena 를 새로 만든다.)
+        String longName = "긴이름".repeat(100);
+        for (int i = 0; i < 2000; i++) {
+            table.put(new ItemListQueryDto(1L + (i % 2000), longName + i, 1, 1));
+        }
+
+        //then
+        assertEquals(longName + 1233, table.find(1234).getName());
+        assertEquals(longName + 0, table.find(1).getName());
+        assertTrue("버린 이름 공간을 정리한다.", table.offHeapBytes() < 2000L * 300 * 4);
+    }
+
+    private void assertItem(Long id, String name, int price, int stockQuantity) {
+        ItemListQueryDto item = itemCatalog.findOne(id);
+        assertEquals(name, item.getName());
+        assertEquals(price, item.getPrice());
+        assertEquals("재고", stockQuantity, item.getStockQuantity());
+    }
+}
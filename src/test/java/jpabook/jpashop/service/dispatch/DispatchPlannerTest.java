@@ -0,0 +1,132 @@
+package jpabook.jpashop.service.dispatch;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class DispatchPlannerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    DispatchPlanner dispatchPlanner;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    TestFixture fixture;
+
+    @Test
+    public void 우편번호_도시별_출고묶음() {
+
+        // given
+        Long seoul = fixture.createMember("출고회원1", new Address("서울", "강가", "99901"));
+        Long busan = fixture.createMember("출고회원2", new Address("부산", "해변", "99901"));
+        Long other = fixture.createMember("출고회원3", new Address("서울", "강가", "99902"));
+        Long noZipcode = fixture.createMember("출고회원4", new Address("서울", "강가", null));
+        Long itemId = fixture.createBook("시골 JPA", 10000, 100);
+
+        Long seoul1 = orderService.order(seoul, itemId, 1);
+        Long seoul2 = orderService.order(seoul, itemId, 1);
+        Long seoul3 = orderService.order(seoul, itemId, 1);
+        Long busan1 = orderService.order(busan, itemId, 1);
+        Long canceled = orderService.order(seoul, itemId, 1);
+        Long other1 = orderService.order(other, itemId, 1);
+        Long completed = orderService.order(other, itemId, 1);
+        orderService.order(noZipcode, itemId, 1);
+
+        orderService.cancelOrder(canceled); // 취소된 주문의 배송은 출고하지 않는다.
+        orderService.completeDeliveriesByOrderIds(List.of(completed)); // 이미 배송 완료
+
+        // when
+        List<DispatchBatch> batches = new ArrayList<>();
+        DispatchPlanResult result = dispatchPlanner.plan(2, batches::add);
+
+        // then
+        List<DispatchBatch> testBatches = batches.stream()
+                .filter(b -> b.getZipcode().startsWith("9990"))
+                .collect(Collectors.toList());
+
+        assertEquals("99901 서울(2 + 1), 99901 부산, 99902 서울", 4, testBatches.size());
+        assertBatch(testBatches.get(0), "99901", "서울", deliveryIds(seoul1, seoul2));
+        assertBatch(testBatches.get(1), "99901", "서울", deliveryIds(seoul3));
+        assertBatch(testBatches.get(2), "99901", "부산", deliveryIds(busan1));
+        assertBatch(testBatches.get(3), "99902", "서울", deliveryIds(other1));
+
+        assertEquals("묶음 번호는 우편번호 순으로 1부터", batches.size(), batches.get(batches.size() - 1).getSequence());
+        assertEquals(batches.size(), result.getBatches());
+        assertTrue("우편번호가 없는 배송은 따로 센다.", result.getWithoutZipcode() >= 1);
+    }
+
+    @Test
+    public void 페이지를_넘어가는_스캔() {
+
+        // given
+        Member member = em.find(Member.class, fixture.createMember("출고회원5", new Address("서울", "강가", "99903")));
+        int count = DispatchPlanner.PAGE_SIZE + 20;
+        for (int i = 0; i < count; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            delivery.setStatus(DeliveryStatus.READY);
+            em.persist(Order.createOrder(member, delivery));
+        }
+        em.flush();
+
+        // when
+        List<DispatchBatch> batches = new ArrayList<>();
+        dispatchPlanner.plan(100, b -> {
+            if (b.getZipcode().equals("99903")) {
+                batches.add(b);
+            }
+        });
+
+        // then
+        assertEquals(Arrays.asList(100, 100, 100, 100, 100, 20),
+                batches.stream().map(b -> b.getDeliveryIds().size()).collect(Collectors.toList()));
+
+        List<Long> ids = batches.stream().flatMap(b -> b.getDeliveryIds().stream()).collect(Collectors.toList());
+        assertEquals("페이지 경계에서 빠지거나 겹치는 배송이 없어야 한다.", count, ids.stream().distinct().count());
+        assertEquals("배송 id 순", ids.stream().sorted().collect(Collectors.toList()), ids);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 묶음_크기_검증() {
+        dispatchPlanner.plan(0, b -> { });
+    }
+
+    private void assertBatch(DispatchBatch batch, String zipcode, String city, List<Long> deliveryIds) {
+        assertEquals(zipcode, batch.getZipcode());
+        assertEquals(city, batch.getCity());
+        assertEquals(deliveryIds, batch.getDeliveryIds());
+    }
+
+    private List<Long> deliveryIds(Long... orderIds) {
+        return Arrays.stream(orderIds)
+                .map(id -> em.find(Order.class, id).getDelivery().getId())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,242 @@
+package jpabook.jpashop.service.event;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.domain.OrderEventType;
+import jpabook.jpashop.domain.OutboxOffset;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 아웃박스 릴레이 테스트
+ *
+ * 릴레이는 커밋된 이벤트만 볼 수 있으므로 테스트 트랜잭션(@Transactional) 없이 실행한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.outbox.retry-backoff-ms=0", // 실패하면 다음 relay() 에서 바로 재시도
+        "jpashop.outbox.gap-timeout=1s"
+})
+public class OutboxRelayTest {
+
+    @Autowired
+    OutboxRelay outboxRelay;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    TestFixture fixture;
+
+    @Autowired
+    RecordingListener recordingListener;
+
+    @Autowired
+    FlakyListener flakyListener;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 주문_취소_이벤트_순서대로_전달() {
+
+        // given
+        Long memberId = fixture.createMember("outbox1");
+        Long itemId = fixture.createBook("시골 JPA", 10000, 10);
+
+        Long orderId = orderService.order(memberId, itemId, 2);
+        orderService.cancelOrder(orderId);
+
+        // when
+        outboxRelay.relay();
+
+        // then
+        List<OrderEvent> events = recordingListener.eventsOf(orderId);
+        assertEquals(2, events.size());
+        assertEquals("커밋 순서대로 전달", OrderEventType.ORDERED, events.get(0).getType());
+        assertEquals(OrderEventType.CANCELED, events.get(1).getType());
+
+        OrderEventPayload payload = events.get(0).getPayload();
+        assertEquals(memberId, payload.getMemberId());
+        assertEquals(20000, payload.getTotalPrice());
+        assertEquals(itemId, payload.getItems().get(0).getItemId());
+        assertEquals(2, payload.getItems().get(0).getCount());
+    }
+
+    @Test
+    public void 일괄취소_이벤트_전달() {
+
+        // given
+        Long memberId = fixture.createMember("outbox2");
+        Long itemId = fixture.createBook("시골 JPA", 10000, 10);
+        Long orderId1 = orderService.order(memberId, itemId, 1);
+        Long orderId2 = orderService.order(memberId, itemId, 1);
+
+        // when
+        orderService.cancelOrders(List.of(orderId1, orderId2));
+        outboxRelay.relay();
+
+        // then
+        assertEquals(OrderEventType.CANCELED, recordingListener.eventsOf(orderId1).get(1).getType());
+        assertEquals(OrderEventType.CANCELED, recordingListener.eventsOf(orderId2).get(1).getType());
+    }
+
+    @Test
+    public void 롤백된_주문은_이벤트_없음() {
+
+        // given
+        Long memberId = fixture.createMember("outbox3");
+        Long itemId = fixture.createBook("시골 JPA", 10000, 1);
+
+        // when
+        try {
+            orderService.order(memberId, itemId, 2); // 재고 부족 -> 롤백
+        } catch (NotEnoughStockException e) {
+            // 예상된 예외
+        }
+        outboxRelay.relay();
+
+        // then
+        assertTrue(recordingListener.getEvents().stream()
+                .noneMatch(e -> e.getPayload().getMemberId().equals(memberId)));
+    }
+
+    @Test
+    public void 리스너_실패시_오프셋_유지후_재시도() {
+
+        // given
+        Long memberId = fixture.createMember("outbox4");
+        Long itemId = fixture.createBook("시골 JPA", 10000, 10);
+        outboxRelay.relay(); // 밀린 이벤트 정리
+        flakyListener.failNext();
+
+        Long orderId = orderService.order(memberId, itemId, 1);
+
+        // when
+        outboxRelay.relay(); // flaky 실패
+        List<OrderEvent> afterFailure = flakyListener.eventsOf(orderId);
+        OutboxOffset offset = em.find(OutboxOffset.class, "flaky");
+
+        outboxRelay.relay(); // 재시도
+
+        // then
+        assertEquals("실패한 배치는 전달되지 않은 것으로 본다.", 0, afterFailure.size());
+        assertEquals("실패 횟수 기록", 1, offset.getFailures());
+        assertEquals("다른 리스너는 영향 없음", 1, recordingListener.eventsOf(orderId).size());
+        assertEquals("재시도하면 같은 배치부터 전달", 1, flakyListener.eventsOf(orderId).size());
+        assertEquals("성공하면 실패 기록 초기화", 0, em.find(OutboxOffset.class, "flaky").getFailures());
+    }
+
+    @Test
+    public void 빈_id_는_기다렸다가_건너뜀() throws Exception {
+
+        // given
+        Long memberId = fixture.createMember("outbox5");
+        Long itemId = fixture.createBook("시골 JPA", 10000, 10);
+        outboxRelay.relay();
+
+        jdbcTemplate.queryForObject("select next value for outbox_event_seq", Long.class); // 아직 커밋되지 않은(또는 롤백된) 트랜잭션이 id 를 가져간 상황
+        Long orderId = orderService.order(memberId, itemId, 1);
+
+        // when
+        outboxRelay.relay();
+        int beforeTimeout = recordingListener.eventsOf(orderId).size();
+
+        Thread.sleep(1100); // gap-timeout 경과
+        outboxRelay.relay();
+
+        // then
+        assertEquals("빈 id 뒤의 이벤트는 바로 전달하지 않는다.", 0, beforeTimeout);
+        assertEquals("gap-timeout 이 지나면 건너뛰고 전달", 1, recordingListener.eventsOf(orderId).size());
+    }
+
+    @TestConfiguration
+    static class ListenerConfig {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener("recording");
+        }
+
+        @Bean
+        FlakyListener flakyListener() {
+            return new FlakyListener();
+        }
+    }
+
+    static class RecordingListener implements OrderEventListener {
+
+        private final String name;
+        private final List<OrderEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingListener(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void onEvents(List<OrderEvent> events) {
+            this.events.addAll(events);
+        }
+
+        List<OrderEvent> getEvents() {
+            return events;
+        }
+
+        List<OrderEvent> eventsOf(Long orderId) {
+            synchronized (events) {
+                return events.stream()
+                        .filter(e -> e.getPayload().getOrderId().equals(orderId))
+                        .collect(Collectors.toList());
+            }
+        }
+    }
+
+    /**
+     * failNext() 후 첫 전달은 실패
+     */
+    static class FlakyListener extends RecordingListener {
+
+        private volatile boolean failNext;
+
+        FlakyListener() {
+            super("flaky");
+        }
+
+        void failNext() {
+            failNext = true;
+        }
+
+        @Override
+        public void onEvents(List<OrderEvent> events) {
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("일시적인 장애");
+            }
+            super.onEvents(events);
+        }
+    }
+}
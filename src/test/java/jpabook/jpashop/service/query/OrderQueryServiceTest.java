@@ -0,0 +1,122 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.KeysetPage;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderQueryServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderQueryService orderQueryService;
+
+    @Test
+    public void 키셋_페이징으로_모든_주문을_id_순으로_한_번씩_조회() {
+
+        // given
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orderIds.add(createOrder(i + 1));
+        }
+        em.flush();
+        em.clear();
+
+        // when
+        List<OrderDto> all = new ArrayList<>();
+        Long afterId = null;
+        int pages = 0;
+        do {
+            KeysetPage<OrderDto> page = orderQueryService.findOrderPage(afterId, 2);
+            assertTrue("페이지 크기 이하", page.getContent().size() <= 2);
+            all.addAll(page.getContent());
+            afterId = page.getNextAfterId();
+            pages++;
+        } while (afterId != null && pages < 100);
+
+        // then
+        List<Long> foundIds = all.stream().map(OrderDto::getOrderId).collect(Collectors.toList());
+        assertTrue("만든 주문이 모두 조회되어야 한다.", foundIds.containsAll(orderIds));
+        for (int i = 1; i < foundIds.size(); i++) {
+            assertTrue("id 순, 중복 없음", foundIds.get(i - 1) < foundIds.get(i));
+        }
+
+        OrderDto last = all.get(foundIds.indexOf(orderIds.get(4)));
+        assertEquals("주문상품 컬렉션까지 조회", 5, last.getOrderItems().size());
+        assertEquals("키셋회원", last.getName());
+    }
+
+    @Test
+    public void 마지막_페이지면_nextAfterId_는_null() {
+
+        // given
+        Long orderId = createOrder(1);
+        em.flush();
+        em.clear();
+
+        // when
+        KeysetPage<OrderDto> page = orderQueryService.findOrderPage(orderId - 1, 10);
+
+        // then
+        assertEquals(orderId, page.getContent().get(0).getOrderId());
+        assertNull(page.getNextAfterId());
+    }
+
+    @Test
+    public void limit_범위를_벗어나면_예외() {
+        try {
+            orderQueryService.findOrderPage(null, 0);
+            fail("limit 범위 예외가 발생해야 한다.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private Long createOrder(int itemCount) {
+        Member member = new Member();
+        member.setName("키셋회원");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        OrderItem[] orderItems = new OrderItem[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            Book book = new Book();
+            book.setName("JPA" + i);
+            book.setPrice(10000);
+            book.setStockQuantity(100);
+            em.persist(book);
+            orderItems[i] = OrderItem.createOrderItem(book, book.getPrice(), 1);
+        }
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        Order order = Order.createOrder(member, delivery, orderItems);
+        em.persist(order);
+        return order.getId();
+    }
+}
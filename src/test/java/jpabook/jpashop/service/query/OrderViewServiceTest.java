@@ -0,0 +1,210 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 주문 조회 모델(order_view) 테스트
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderViewServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderViewService orderViewService;
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    TestFixture fixture;
+
+    @Test
+    public void 주문하면_조회_모델이_생기고_v5_와_같은_결과() {
+
+        // given
+        Long memberId = fixture.createMember("뷰회원");
+        Long orderId = orderService.order(memberId, fixture.createBook("시골 JPA", 10000, 100), 2);
+        em.flush();
+        em.clear();
+
+        // when
+        List<OrderQueryDto> v6 = findAllPages(2); // 작은 페이지로 끝까지 (키셋 페이징 경계 확인)
+        List<OrderQueryDto> v5 = orderQueryRepository.findAllByDto_optimization();
+
+        // then
+        assertEquals("v5 와 같은 주문 목록", v5.size(), v6.size());
+        for (int i = 0; i < v5.size(); i++) {
+            assertSameOrder(v5.get(i), v6.get(i));
+        }
+
+        OrderQueryDto order = find(orderId);
+        assertEquals("뷰회원", order.getName());
+        assertEquals(OrderStatus.ORDER, order.getOrderStatus());
+        assertEquals("시골 JPA", order.getOrderItems().get(0).getItemName());
+        assertEquals(2, order.getOrderItems().get(0).getCount());
+    }
+
+    @Test
+    public void 주문_취소하면_조회_모델_상태_변경() {
+
+        // given
+        Long orderId = orderService.order(fixture.createMember("뷰회원"), fixture.createBook("시골 JPA", 10000, 100), 1);
+
+        // when
+        orderService.cancelOrder(orderId);
+        em.flush();
+        em.clear();
+
+        // then
+        assertEquals(OrderStatus.CANCEL, find(orderId).getOrderStatus());
+    }
+
+    @Test
+    public void 회원_상품_이름_변경이_조회_모델에_반영() {
+
+        // given
+        Long memberId = fixture.createMember("뷰회원");
+        Long itemId = fixture.createBook("시골 JPA", 10000, 100);
+        Long orderId = orderService.order(memberId, itemId, 1);
+        em.flush();
+        em.clear();
+
+        // when
+        memberService.update(memberId, "새이름");
+        Long version = itemService.findOne(itemId).getVersion();
+        itemService.patchItem(itemId, version, "도시 JPA", null, null);
+        em.flush();
+        em.clear();
+
+        // then
+        OrderQueryDto order = find(orderId);
+        assertEquals("회원 이름 변경 반영", "새이름", order.getName());
+        assertEquals("상품명 변경 반영", "도시 JPA", order.getOrderItems().get(0).getItemName());
+        assertFalse(orderViewService.check(false).getStale().contains(orderId));
+    }
+
+    @Test
+    public void 정합성_검사로_불일치를_찾고_복구() {
+
+        // given
+        Long memberId = fixture.createMember("뷰회원");
+        Long itemId = fixture.createBook("시골 JPA", 10000, 100);
+        Long staleId = orderService.order(memberId, itemId, 1);
+        Long missingId = orderService.order(memberId, itemId, 1);
+        em.flush();
+
+        em.createNativeQuery("update order_view set item_name = '잘못된 이름' where order_id = ?")
+                .setParameter(1, staleId)
+                .executeUpdate();
+        em.createNativeQuery("delete from order_view where order_id = ?")
+                .setParameter(1, missingId)
+                .executeUpdate();
+        em.clear();
+
+        // when
+        OrderViewCheckResult checked = orderViewService.check(false);
+        OrderViewCheckResult repaired = orderViewService.check(true);
+        em.clear();
+
+        // then
+        assertTrue("값이 다른 주문", checked.getStale().contains(staleId));
+        assertTrue("조회 모델에 없는 주문", checked.getMissing().contains(missingId));
+        assertTrue(repaired.isRepaired());
+
+        OrderViewCheckResult after = orderViewService.check(false);
+        assertFalse("복구 후에는 불일치가 없다.", after.getStale().contains(staleId));
+        assertFalse("복구 후에는 불일치가 없다.", after.getMissing().contains(missingId));
+        assertEquals("시골 JPA", find(staleId).getOrderItems().get(0).getItemName());
+    }
+
+    @Test
+    public void 재생성하면_원본과_같아진다() {
+
+        // given
+        Long orderId = orderService.order(fixture.createMember("뷰회원"), fixture.createBook("시골 JPA", 10000, 100), 3);
+        em.flush();
+        em.createNativeQuery("delete from order_view").executeUpdate();
+        em.clear();
+
+        // when
+        int rebuilt = orderViewService.rebuild();
+        em.clear();
+
+        // then
+        assertTrue("모든 주문을 다시 만든다.", rebuilt >= 1);
+        assertTrue(orderViewService.check(false).isConsistent());
+        assertEquals(3, find(orderId).getOrderItems().get(0).getCount());
+    }
+
+    private List<OrderQueryDto> findAllPages(int limit) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        Long afterId = null;
+        do {
+            KeysetPage<OrderQueryDto> page = orderViewService.findOrderPage(afterId, limit);
+            result.addAll(page.getContent());
+            afterId = page.getNextAfterId();
+        } while (afterId != null);
+        return result;
+    }
+
+    private OrderQueryDto find(Long orderId) {
+        return orderViewService.findOrderPage(orderId - 1, 1).getContent().stream()
+                .filter(o -> o.getOrderId().equals(orderId))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("조회 모델에 주문이 없습니다. id=" + orderId));
+    }
+
+    private static void assertSameOrder(OrderQueryDto expected, OrderQueryDto actual) {
+        assertEquals(expected.getOrderId(), actual.getOrderId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getOrderDate(), actual.getOrderDate());
+        assertEquals(expected.getOrderStatus(), actual.getOrderStatus());
+        assertEquals(expected.getAddress().getCity(), actual.getAddress().getCity());
+        assertEquals(expected.getAddress().getStreet(), actual.getAddress().getStreet());
+        assertEquals(expected.getAddress().getZipcode(), actual.getAddress().getZipcode());
+
+        assertEquals(expected.getOrderItems().size(), actual.getOrderItems().size());
+        for (int i = 0; i < expected.getOrderItems().size(); i++) {
+            OrderItemQueryDto e = expected.getOrderItems().get(i);
+            OrderItemQueryDto a = actual.getOrderItems().get(i);
+            assertEquals(e.getItemName(), a.getItemName());
+            assertEquals(e.getOrderPrice(), a.getOrderPrice());
+            assertEquals(e.getCount(), a.getCount());
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package jpabook.jpashop.shard;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.KeysetPage;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.stream.OrderStreamRepository;
+import jpabook.jpashop.service.BatchResult;
+import jpabook.jpashop.service.MemberImportResult;
+import jpabook.jpashop.service.MemberImportRowResult;
+import jpabook.jpashop.service.MemberImportService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.event.OutboxRelay;
+import jpabook.jpashop.service.query.OrderDto;
+import jpabook.jpashop.service.query.OrderQueryService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 샤딩 테스트
+ *
+ * 기본 DB(샤드 0) + 인메모리 H2 2개(샤드 1, 2)로 실행한다.
+ * 샤드마다 트랜잭션이 따로 커밋되므로 테스트 트랜잭션(@Transactional) 없이 실행하고, 각 샤드의 내용은 JDBC 로 직접 확인한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.sharding.enabled=true",
+        "jpashop.sharding.shards[0].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "jpashop.sharding.shards[1].url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1"
+})
+public class ShardingTest {
+
+    @Autowired
+    ShardRouter shardRouter;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    TestFixture fixture;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    OrderQueryService orderQueryService;
+
+    @Autowired
+    OrderStreamRepository orderStreamRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    OutboxRelay outboxRelay;
+
+    @Autowired
+    MemberImportService memberImportService;
+
+    @Test
+    public void 회원은_id_가_가리키는_샤드에_저장() {
+
+        // when
+        List<Long> memberIds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            memberIds.add(fixture.createMember("shard-member" + i));
+        }
+
+        // then
+        assertEquals(3, shardRouter.getShardCount());
+        assertEquals("회원은 샤드에 고르게 배정되어야 한다.", 3,
+                memberIds.stream().map(shardRouter::shardOf).distinct().count());
+
+        for (Long memberId : memberIds) {
+            int shard = shardRouter.shardOf(memberId);
+            for (int k = 0; k < shardRouter.getShardCount(); k++) {
+                assertEquals("회원은 자기 샤드에만 있어야 한다.", k == shard ? 1 : 0,
+                        count(k, "select count(*) from member where member_id = ?", memberId));
+            }
+            assertEquals(memberId, memberService.findOne(memberId).getId());
+        }
+    }
+
+    @Test
+    public void 주문은_회원_샤드에_재고는_기본_샤드에서_차감() {
+
+        // given
+        Long itemId = fixture.createBook("시골 JPA", 10000, 10);
+        List<Long> memberIds = createMemberPerShard("shard-order");
+
+        // when
+        List<Long> orderIds = new ArrayList<>();
+        for (Long memberId : memberIds) {
+            orderIds.add(orderService.order(memberId, itemId, 2));
+        }
+
+        // then
+        for (int i = 0; i < orderIds.size(); i++) {
+            int shard = shardRouter.shardOf(memberIds.get(i));
+            assertEquals("주문 id 는 회원과 같은 샤드를 가리켜야 한다.", shard, shardRouter.shardOf(orderIds.get(i)));
+            assertEquals("주문은 회원 샤드에 저장", 1,
+                    count(shard, "select count(*) from orders where order_id = ?", orderIds.get(i)));
+            assertEquals("배송도 같은 샤드에 저장", 1,
+                    count(shard, "select count(*) from delivery d join orders o on o.delivery_id = d.delivery_id where o.order_id = ?", orderIds.get(i)));
+        }
+        assertEquals("재고는 기본 샤드에서 차감", 10 - 2 * orderIds.size(), stockOf(itemId));
+    }
+
+    @Test
+    public void 재고_부족이면_주문_실패_재고_그대로() {
+
+        // given
+        Long itemId = fixture.createBook("시골 JPA", 10000, 3);
+        List<Long> memberIds = createMemberPerShard("shard-stock");
+        Long memberId = memberIds.get(memberIds.size() - 1);
+
+        // when
+        try {
+            orderService.order(memberId, itemId, 4);
+            fail("재고 수량 부족 예외가 발생해야 한다.");
+        } catch (NotEnoughStockException e) {
+            // expected
+        }
+
+        // then
+        assertEquals("실패한 주문은 재고를 바꾸지 않는다.", 3, stockOf(itemId));
+        assertEquals("실패한 주문은 저장되지 않는다.", 0, count(shardRouter.shardOf(memberId),
+                "select count(*) from orders where member_id = ?", memberId));
+    }
+
+    @Test
+    public void 주문_취소_일괄_취소_재고_원복() {
+
+        // given
+        Long itemId = fixture.createBook("시골 JPA", 10000, 20);
+        List<Long> memberIds = createMemberPerShard("shard-cancel");
+        List<Long> orderIds = new ArrayList<>();
+        for (Long memberId : memberIds) {
+            orderIds.add(orderService.order(memberId, itemId, 3));
+            orderIds.add(orderService.order(memberId, itemId, 1));
+        }
+
+        // when
+        orderService.cancelOrder(orderIds.get(0));
+        BatchResult result = orderService.cancelOrders(orderIds.subList(1, orderIds.size()));
+
+        // then
+        assertEquals(orderIds.size() - 1, result.getProcessed().size());
+        assertEquals("취소한 주문의 재고는 기본 샤드에 원복", 20, stockOf(itemId));
+        for (Long orderId : orderIds) {
+            assertEquals("CANCEL", status(orderId));
+        }
+    }
+
+    @Test
+    public void 주문_조회는_모든_샤드를_id_순으로_합친다() {
+
+        // given
+        Long itemId = fixture.createBook("시골 JPA", 10000, 100);
+        List<Long> orderIds = new ArrayList<>();
+        for (Long memberId : createMemberPerShard("shard-find")) {
+            orderIds.add(orderService.order(memberId, itemId, 1));
+        }
+
+        // when
+        List<Long> found = orderService.findOrders(new OrderSearch()).stream()
+                .map(Order::getId)
+                .collect(Collectors.toList());
+        List<OrderQueryDto> dtos = orderQueryRepository.findAllByDto_optimization();
+
+        // then
+        assertTrue("모든 샤드의 주문이 조회되어야 한다.", found.containsAll(orderIds));
+        assertSorted(found);
+
+        List<Long> dtoIds = dtos.stream().map(OrderQueryDto::getOrderId).collect(Collectors.toList());
+        assertTrue("v5 도 모든 샤드의 주문을 조회한다.", dtoIds.containsAll(orderIds));
+        assertSorted(dtoIds);
+        dtos.forEach(dto -> assertTrue("주문상품은 샤드의 상품 사본과 조인된다.", !dto.getOrderItems().isEmpty()));
+
+        List<Long> pagedIds = new ArrayList<>();
+        Long afterId = null;
+        do {
+            KeysetPage<OrderDto> page = orderQueryService.findOrderPage(afterId, 2);
+            page.getContent().forEach(dto -> pagedIds.add(dto.getOrderId()));
+            afterId = page.getNextAfterId();
+        } while (afterId != null);
+        assertTrue("키셋 페이징도 모든 샤드의 주문을 조회한다.", pagedIds.containsAll(orderIds));
+        assertSorted(pagedIds);
+    }
+
+    @Test
+    public void 스트리밍_조회는_모든_샤드의_주문을_쓴다() throws IOException {
+
+        // given
+        Long itemId = fixture.createBook("시골 JPA", 10000, 100);
+        List<Long> orderIds = new ArrayList<>();
+        for (Long memberId : createMemberPerShard("shard-stream")) {
+            orderIds.add(orderService.order(memberId, itemId, 1));
+        }
+
+        // when
+        JsonNode simpleOrders = stream(orderStreamRepository::writeSimpleOrders);
+        JsonNode orders = stream(orderStreamRepository::writeOrders);
+
+        // then
+        assertTrue("v4.1 도 모든 샤드의 주문을 쓴다.", orderIdsOf(simpleOrders).containsAll(orderIds));
+        List<Long> streamedIds = orderIdsOf(orders);
+        assertTrue("v5.1 도 모든 샤드의 주문을 쓴다.", streamedIds.containsAll(orderIds));
+        assertEquals("주문이 샤드 경계에서 섞이거나 중복되지 않아야 한다.",
+                streamedIds.size(), streamedIds.stream().distinct().count());
+        orders.forEach(order -> {
+            if (orderIds.contains(order.get("orderId").asLong())) {
+                assertEquals("주문상품은 샤드의 상품 사본과 조인된다.", 1, order.get("orderItems").size());
+            }
+        });
+    }
+
+    @Test
+    public void 아웃박스는_샤드별로_전달() {
+
+        // given
+        Long itemId = fixture.createBook("시골 JPA", 10000, 10);
+        for (Long memberId : createMemberPerShard("shard-outbox")) {
+            orderService.order(memberId, itemId, 1);
+        }
+
+        // when
+        outboxRelay.relay();
+
+        // then
+        for (int k = 0; k < shardRouter.getShardCount(); k++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shardRouter.getDataSource(k));
+            Long maxEventId = jdbcTemplate.queryForObject("select max(outbox_event_id) from outbox_event", Long.class);
+            Long offset = jdbcTemplate.queryForObject(
+                    "select last_event_id from outbox_offset where listener_name = 'logging'", Long.class);
+            assertEquals("샤드 " + k + " 의 이벤트를 모두 전달해야 한다.", maxEventId, offset);
+        }
+    }
+
+    @Test
+    public void 회원_일괄_등록은_모든_샤드에서_이름_확인() throws Exception {
+
+        // given
+        List<Long> existingIds = createMemberPerShard("shard-import-existing");
+        String ndjson = "{\"name\":\"shard-import-existing0\"}\n" +
+                "{\"name\":\"shard-import-existing2\"}\n" +
+                "{\"name\":\"shard-import-new\"}";
+
+        // when
+        List<MemberImportRowResult> rows = new ArrayList<>();
+        MemberImportResult result = memberImportService.importNdjson(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), rows::addAll);
+
+        // then
+        assertEquals("다른 샤드에 있는 이름도 찾아야 한다.", 2, result.getExisting());
+        assertEquals(1, result.getCreated());
+        assertEquals(3, existingIds.stream().map(shardRouter::shardOf).distinct().count());
+
+        Long newId = rows.get(2).getId();
+        assertEquals("새 회원은 id 가 가리키는 샤드에 있어야 한다.", 1,
+                count(shardRouter.shardOf(newId), "select count(*) from member where member_id = ?", newId));
+        assertEquals("shard-import-new", memberService.findOne(newId).getName());
+    }
+
+    private JsonNode stream(StreamWriter writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            writer.write(generator);
+        }
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private static List<Long> orderIdsOf(JsonNode orders) {
+        return StreamSupport.stream(orders.spliterator(), false)
+                .map(order -> order.get("orderId").asLong())
+                .collect(Collectors.toList());
+    }
+
+    private interface StreamWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private List<Long> createMemberPerShard(String name) {
+        List<Long> memberIds = new ArrayList<>();
+        for (int i = 0; i < shardRouter.getShardCount(); i++) {
+            memberIds.add(fixture.createMember(name + i)); // 회원은 샤드에 돌아가면서 배정된다.
+        }
+        return memberIds;
+    }
+
+    private int stockOf(Long itemId) {
+        return new JdbcTemplate(shardRouter.getDataSource(0))
+                .queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId);
+    }
+
+    private String status(Long orderId) {
+        return new JdbcTemplate(shardRouter.getDataSource(shardRouter.shardOf(orderId)))
+                .queryForObject("select status from orders where order_id = ?", String.class, orderId);
+    }
+
+    private int count(int shard, String sql, Long id) {
+        return new JdbcTemplate(shardRouter.getDataSource(shard)).queryForObject(sql, Integer.class, id);
+    }
+
+    private static void assertSorted(List<Long> ids) {
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue("id 순으로 정렬되어야 한다.", ids.get(i - 1) < ids.get(i));
+        }
+    }
+}
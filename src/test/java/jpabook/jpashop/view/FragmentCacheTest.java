@@ -0,0 +1,169 @@
+package jpabook.jpashop.view;
+
+import jpabook.jpashop.TestFixture;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.view.ItemListQueryDto;
+import jpabook.jpashop.repository.view.MemberListQueryDto;
+import jpabook.jpashop.service.ItemService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.unit.DataSize;
+import org.thymeleaf.ITemplateEngine;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 화면 조각 캐시 테스트
+ *
+ * 데이터 버전은 커밋된 뒤에 오르므로 테스트 트랜잭션(@Transactional) 없이 실행한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FragmentCacheTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired FragmentCache fragmentCache;
+    @Autowired ITemplateEngine templateEngine;
+    @Autowired ItemService itemService;
+    @Autowired TestFixture fixture;
+
+    @Test
+    public void 상품_목록_캐시와_무효화() throws Exception {
+        //given
+        Long itemId = fixture.createBook("조각캐시 JPA", 10000, 10);
+        String first = render("/items");
+        long hits = fragmentCache.stats().getHits();
+
+        //when 바뀐 것이 없으면
+        String second = render("/items");
+
+        //then
+        assertEquals("캐시된 행을 그대로 출력한다.", first, second);
+        assertEquals(hits + 1, fragmentCache.stats().getHits());
+        assertTrue(first.contains("조각캐시 JPA"));
+        assertTrue("링크도 캐시된다.", first.contains("/items/" + itemId + "/edit"));
+        assertTrue("캐시 밖의 화면은 그대로 렌더링한다.", first.contains("재고수량"));
+
+        //when 상품을 수정하면
+        Book param = new Book();
+        param.setName("조각캐시 JPA 2판");
+        param.setPrice(10000);
+        param.setStockQuantity(10);
+        itemService.updateItem(itemId, param);
+
+        //then
+        String updated = render("/items");
+        assertTrue("상품 버전이 올라 다시 렌더링한다.", updated.contains("조각캐시 JPA 2판"));
+        assertEquals(hits + 1, fragmentCache.stats().getHits());
+    }
+
+    @Test
+    public void 회원_목록과_주문_폼_무효화() throws Exception {
+        //given
+        render("/members");
+        render("/order");
+
+        //when
+        Long memberId = fixture.createMember("조각캐시회원");
+        Long itemId = fixture.createBook("조각캐시 주문상품", 10000, 10);
+
+        //then
+        assertTrue(render("/members").contains("조각캐시회원"));
+        String orderForm = render("/order");
+        assertTrue(orderForm.contains("<option value=\"" + memberId + "\" >조각캐시회원</option>"));
+        assertTrue(orderForm.contains("<option value=\"" + itemId + "\" >조각캐시 주문상품</option>"));
+        assertTrue("캐시 밖의 선택지", orderForm.contains("회원선택") && orderForm.contains("상품선택"));
+    }
+
+    @Test
+    public void 한도를_넘으면_오래된_조각부터_제거() {
+        //given 두 조각이 함께 들어가지 않는 한도
+        FragmentCache unlimited = fragmentCache(DataSize.ofMegabytes(1));
+        int itemSize = itemRows(unlimited, 1).getCompressedSize();
+        int memberSize = memberRows(unlimited, 1).getCompressedSize();
+        FragmentCache cache = fragmentCache(DataSize.ofBytes(Math.max(itemSize, memberSize)));
+
+        //when
+        itemRows(cache, 1);
+        memberRows(cache, 1);
+        itemRows(cache, 1);
+
+        //then
+        FragmentCache.Stats stats = cache.stats();
+        assertEquals(1, stats.getFragments());
+        assertTrue(stats.getCompressedBytes() <= stats.getMaxBytes());
+        assertEquals("먼저 넣은 조각이 밀려났다.", 0, stats.getHits());
+        assertEquals(2, stats.getEvictions());
+    }
+
+    @Test
+    public void 버전이_같으면_조회하지_않는다() {
+        //given
+        FragmentCache cache = fragmentCache(DataSize.ofMegabytes(1));
+        itemRows(cache, 1);
+
+        //when
+        CachedFragment fragment = cache.get("items/itemList", "itemRows", 1, new MockHttpServletRequest(), new MockHttpServletResponse(),
+                () -> { throw new AssertionError("데이터를 조회하면 안 된다."); });
+
+        //then
+        String html = fragment.toString();
+        assertTrue(html.contains("<td>캐시상품</td>"));
+        assertFalse("조각(행)만 캐시한다.", html.contains("<tbody"));
+        assertEquals(html.length(), fragment.length());
+        assertEquals(1, cache.stats().getHits());
+    }
+
+    @Test
+    public void ttl_이_지나면_버전이_같아도_다시_렌더링() throws Exception {
+        //given 다른 서버에서 바뀌어 버전이 오르지 않은 경우
+        AtomicLong ticker = new AtomicLong(); // 시간은 테스트가 직접 진행시킨다.
+        FragmentCache cache = new FragmentCache(templateEngine, true, DataSize.ofMegabytes(1), Duration.ofSeconds(30), ticker::get);
+        itemRows(cache, 1);
+        ticker.addAndGet(Duration.ofSeconds(29).toNanos());
+        itemRows(cache, 1);
+
+        //when
+        ticker.addAndGet(Duration.ofSeconds(1).toNanos());
+        itemRows(cache, 1);
+
+        //then
+        assertEquals("ttl 안에서는 캐시", 1, cache.stats().getHits());
+        assertEquals("ttl 이 지나면 다시 렌더링", 2, cache.stats().getMisses());
+    }
+
+    private FragmentCache fragmentCache(DataSize maxSize) {
+        return new FragmentCache(templateEngine, true, maxSize, Duration.ofMinutes(1));
+    }
+
+    private CachedFragment itemRows(FragmentCache cache, long version) {
+        return cache.get("items/itemList", "itemRows", version, new MockHttpServletRequest(), new MockHttpServletResponse(),
+                () -> Map.of("items", List.of(new ItemListQueryDto(1L, "캐시상품", 1000, 1))));
+    }
+
+    private CachedFragment memberRows(FragmentCache cache, long version) {
+        return cache.get("members/memberList", "memberRows", version, new MockHttpServletRequest(), new MockHttpServletResponse(),
+                () -> Map.of("members", List.of(new MemberListQueryDto(1L, "캐시회원", new Address("서울", "강가", "123-123")))));
+    }
+
+    private String render(String url) throws Exception {
+        return mockMvc.perform(get(url)).andReturn().getResponse().getContentAsString();
+    }
+}